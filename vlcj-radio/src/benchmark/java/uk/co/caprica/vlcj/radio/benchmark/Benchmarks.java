@@ -0,0 +1,155 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Helpers shared by the benchmarks.
+ * <p>
+ * Each measurement is repeated after a warm-up, and the median and best times
+ * are reported. Run each benchmark in a fresh JVM, the build "benchmark" 
+ * target does that, so one measurement does not warm up the next.
+ */
+final class Benchmarks {
+
+  /**
+   * Number of unmeasured runs before each measurement.
+   */
+  private static final int WARM_UP_RUNS = Integer.getInteger("benchmark.warmUp", 5);
+  
+  /**
+   * Number of measured runs.
+   */
+  private static final int RUNS = Integer.getInteger("benchmark.runs", 10);
+  
+  private Benchmarks() {
+  }
+  
+  /**
+   * Read a recorded fixture, decompressing it if its name ends ".gz".
+   * 
+   * @param name name of the fixture, relative to the fixtures directory
+   * @return content of the fixture
+   * @throws IOException if the fixture could not be read
+   */
+  static byte[] fixture(String name) throws IOException {
+    InputStream in = Benchmarks.class.getResourceAsStream("/fixtures/" + name);
+    if(in == null) {
+      throw new IOException("No fixture " + name);
+    }
+    try {
+      if(name.endsWith(".gz")) {
+        in = new GZIPInputStream(in);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+      byte[] buffer = new byte[8192];
+      int read;
+      while((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+    finally {
+      in.close();
+    }
+  }
+  
+  /**
+   * Time a task, printing the median and best times.
+   * 
+   * @param label label to print
+   * @param task task to time
+   * @return result of the last run
+   * @throws Exception if the task fails
+   */
+  static <T> T time(String label, Callable<T> task) throws Exception {
+    T result = null;
+    for(int i = 0; i < WARM_UP_RUNS; i++) {
+      result = task.call();
+    }
+    long[] times = new long[RUNS];
+    long allocated = 0;
+    for(int i = 0; i < RUNS; i++) {
+      long allocatedBefore = allocatedBytes();
+      long start = System.nanoTime();
+      result = task.call();
+      times[i] = System.nanoTime() - start;
+      allocated += allocatedBytes() - allocatedBefore;
+    }
+    Arrays.sort(times);
+    System.out.printf("%-40s median %8.1f ms   best %8.1f ms   allocated %8.1f MB/run%n", label, times[RUNS / 2] / 1e6, times[0] / 1e6, allocated / (double)RUNS / (1024 * 1024));
+    return result;
+  }
+  
+  /**
+   * Get the heap in use, after collecting as much garbage as possible.
+   * 
+   * @return bytes in use
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for(int i = 0; i < 5; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      }
+      catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+  
+  /**
+   * Get the number of bytes allocated by the current thread so far.
+   * 
+   * @return bytes allocated, or zero if the JVM does not count them
+   */
+  static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if(threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean)threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+  
+  /**
+   * Print a heading.
+   * 
+   * @param heading text to print
+   */
+  static void heading(String heading) {
+    System.out.println();
+    System.out.println(heading);
+    for(int i = 0; i < heading.length(); i++) {
+      System.out.print('=');
+    }
+    System.out.println();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.simpleframework.xml.core.Persister;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.cache.BinaryDirectoryCodec;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryBuilder;
+import uk.co.caprica.vlcj.radio.service.cache.MappedDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryParser;
+
+/**
+ * Compare the size and load time of the XML directory cache with the binary
+ * cache that replaced it.
+ * <p>
+ * The recorded yp.xml is parsed once, then written and read back in each 
+ * format. The XML cache is written and read with the simple-xml Persister, as
+ * the cache used to be. The binary cache is measured both decoded from a 
+ * stream and mapped, where opening the cache does no work and reading every
+ * field of every entry is measured separately.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=CacheFormatBenchmark</code>
+ */
+public class CacheFormatBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    byte[] yp = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    final IcecastDirectory directory = new IcecastDirectoryParser().parse(new ByteArrayInputStream(yp), new DirectoryRequest(null));
+    
+    Benchmarks.heading("Icecast directory cache, " + directory.entries().size() + " entries");
+    
+    final Persister persister = new Persister();
+    final byte[] xml = Benchmarks.time("XML write (Persister)", new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024 * 1024);
+        persister.write(directory, out);
+        return out.toByteArray();
+      }
+    });
+    Benchmarks.time("XML read (Persister)", new Callable<Directory>() {
+      @Override
+      public Directory call() throws Exception {
+        return persister.read(IcecastDirectory.class, new ByteArrayInputStream(xml));
+      }
+    });
+    
+    final BinaryDirectoryCodec codec = new BinaryDirectoryCodec();
+    final byte[] binary = Benchmarks.time("Binary write", new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+        codec.write(directory, out);
+        return out.toByteArray();
+      }
+    });
+    Benchmarks.time("Binary read", new Callable<Directory>() {
+      @Override
+      public Directory call() throws Exception {
+        return codec.read(new ByteArrayInputStream(binary), newDirectoryBuilder());
+      }
+    });
+    
+    final File file = File.createTempFile("vlcj-radio-benchmark", ".dat");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(binary);
+    }
+    finally {
+      out.close();
+    }
+    Benchmarks.time("Binary open (mapped)", new Callable<Directory>() {
+      @Override
+      public Directory call() throws Exception {
+        return MappedDirectory.open(file);
+      }
+    });
+    final MappedDirectory mapped = MappedDirectory.open(file);
+    Benchmarks.time("Binary read every field (mapped)", new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        int length = 0;
+        for(DirectoryEntry entry : mapped.entries()) {
+          length += length(entry.getName()) + length(entry.getUrl()) + length(entry.getType()) + length(entry.getBitRate()) + length(entry.getGenre()) + length(entry.getNowPlaying()) + entry.getChannels() + entry.getSampleRate();
+        }
+        return length;
+      }
+    });
+    
+    System.out.printf("%-40s %8d KB%n", "XML size", xml.length / 1024);
+    System.out.printf("%-40s %8d KB%n", "Binary size", binary.length / 1024);
+  }
+  
+  private static int length(String value) {
+    return value != null ? value.length() : 0;
+  }
+  
+  private static DirectoryBuilder newDirectoryBuilder() {
+    return new DirectoryBuilder() {
+      
+      private final List<IcecastDirectoryEntry> entries = new ArrayList<IcecastDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new IcecastDirectoryEntry(name, url, type, bitRate, channels, sampleRate, genre, nowPlaying));
+      }
+
+      @Override
+      public Directory build() {
+        return new IcecastDirectory(entries);
+      }
+    };
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryBuilder;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryParser;
+
+/**
+ * Compare the size of the station store snapshot with the time taken to 
+ * write and load it, for each of the snapshot compression settings.
+ * <p>
+ * The recorded yp.xml is parsed once. For each setting it is stored in a new
+ * station store and compacted into a snapshot, then loaded by opening the 
+ * store afresh and reading the directory. The files stay in the operating 
+ * system cache, so the load times are the cost of decoding - on a slow disk
+ * the smaller snapshot is read that much sooner.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=CompressionBenchmark</code>
+ */
+public class CompressionBenchmark {
+
+  /**
+   * Key the directory is stored under.
+   */
+  private static final String KEY = "icecast";
+  
+  public static void main(String[] args) throws Exception {
+    byte[] yp = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    IcecastDirectory directory = new IcecastDirectoryParser().parse(new ByteArrayInputStream(yp), new DirectoryRequest(null));
+    
+    Benchmarks.heading("Station store snapshot, " + directory.entries().size() + " entries");
+    
+    File root = File.createTempFile("vlcj-radio-benchmark", "");
+    root.delete();
+    try {
+      measure(root, directory, "none", null, null, false);
+      measure(root, directory, "none, mapped", null, null, true);
+      measure(root, directory, "deflate, level 1", "deflate", "1", false);
+      measure(root, directory, "deflate, default level", "deflate", null, false);
+      measure(root, directory, "deflate, level 9", "deflate", "9", false);
+      measure(root, directory, "gzip, default level", "gzip", null, false);
+    }
+    finally {
+      delete(root);
+    }
+  }
+  
+  /**
+   * Measure one compression setting.
+   * 
+   * @param root directory to create the stores in
+   * @param directory directory to store
+   * @param label label to print
+   * @param compression value for the compression system property, or <code>null</code> for none
+   * @param level value for the compression level system property, or <code>null</code> for the default
+   * @param mapped <code>true</code> to map the snapshot when it is loaded; <code>false</code> to read it
+   * @throws Exception if the store fails
+   */
+  private static void measure(final File root, final Directory directory, String label, String compression, String level, boolean mapped) throws Exception {
+    setProperty("vlcj.radio.cache.compression", compression);
+    setProperty("vlcj.radio.cache.compressionLevel", level);
+    setProperty("vlcj.radio.cache.mapped", mapped ? "true" : null);
+    
+    final int[] count = new int[1];
+    File storeDirectory = Benchmarks.time(label + ", write", new Callable<File>() {
+      @Override
+      public File call() throws Exception {
+        File storeDirectory = new File(root, "store-" + count[0]++);
+        StationStore store = new StationStore(storeDirectory);
+        store.write(KEY, directory, System.currentTimeMillis(), null, null);
+        store.compact();
+        return storeDirectory;
+      }
+    });
+    final File loadDirectory = storeDirectory;
+    Benchmarks.time(label + ", load", new Callable<Directory>() {
+      @Override
+      public Directory call() throws Exception {
+        Directory directory = new StationStore(loadDirectory).read(KEY, newDirectoryBuilder());
+        // A mapped directory decodes nothing until its entries are used
+        directory.entries().get(directory.entries().size() - 1).getName();
+        return directory;
+      }
+    });
+    System.out.printf("%-40s %8d KB%n", label + ", snapshot size", new File(loadDirectory, "stations.dat").length() / 1024);
+  }
+  
+  private static void setProperty(String name, String value) {
+    if(value != null) {
+      System.setProperty(name, value);
+    }
+    else {
+      System.clearProperty(name);
+    }
+  }
+  
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if(files != null) {
+      for(File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+  
+  private static DirectoryBuilder newDirectoryBuilder() {
+    return new DirectoryBuilder() {
+      
+      private final List<IcecastDirectoryEntry> entries = new ArrayList<IcecastDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new IcecastDirectoryEntry(name, url, type, bitRate, channels, sampleRate, genre, nowPlaying));
+      }
+
+      @Override
+      public Directory build() {
+        return new IcecastDirectory(entries);
+      }
+    };
+  }
+}
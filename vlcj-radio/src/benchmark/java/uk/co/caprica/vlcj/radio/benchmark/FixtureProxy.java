@@ -0,0 +1,187 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP proxy on the loop-back interface that serves the recorded pages of
+ * each directory in place of the real sites.
+ * <p>
+ * Both the current services and the previous HtmlUnit scrapers fetch their
+ * pages by their real addresses through this proxy, so neither has to be
+ * changed to be measured. Each connection serves a single request.
+ */
+final class FixtureProxy {
+
+  /**
+   * Pattern to extract the page index from an Indymedia address.
+   */
+  private static final Pattern PAGE_PATTERN = Pattern.compile("page=(\\d+)");
+  
+  /**
+   * Listening socket.
+   */
+  private final ServerSocket serverSocket;
+  
+  /**
+   * Threads serving the connections.
+   */
+  private final ExecutorService executorService = Executors.newCachedThreadPool();
+  
+  private FixtureProxy(ServerSocket serverSocket) {
+    this.serverSocket = serverSocket;
+  }
+  
+  /**
+   * Start a proxy on any free port.
+   * 
+   * @return proxy
+   * @throws IOException if the proxy could not be started
+   */
+  static FixtureProxy start() throws IOException {
+    final FixtureProxy proxy = new FixtureProxy(new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")));
+    Thread acceptor = new Thread("fixture-proxy") {
+      @Override
+      public void run() {
+        proxy.accept();
+      }
+    };
+    acceptor.setDaemon(true);
+    acceptor.start();
+    return proxy;
+  }
+  
+  /**
+   * Get the port the proxy listens on.
+   * 
+   * @return port
+   */
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+  
+  /**
+   * Route the requests made with {@link java.net.HttpURLConnection} through
+   * this proxy.
+   */
+  void install() {
+    System.setProperty("http.proxyHost", "127.0.0.1");
+    System.setProperty("http.proxyPort", String.valueOf(getPort()));
+  }
+  
+  /**
+   * Stop the proxy.
+   */
+  void stop() {
+    try {
+      serverSocket.close();
+    }
+    catch(IOException e) {
+    }
+    executorService.shutdownNow();
+  }
+  
+  private void accept() {
+    try {
+      for(;;) {
+        final Socket socket = serverSocket.accept();
+        executorService.execute(new Runnable() {
+          @Override
+          public void run() {
+            serve(socket);
+          }
+        });
+      }
+    }
+    catch(IOException e) {
+      // Stopped
+    }
+  }
+  
+  private void serve(Socket socket) {
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+      String requestLine = reader.readLine();
+      String line;
+      while((line = reader.readLine()) != null && line.length() > 0) {
+        // Skip the request headers
+      }
+      String fixture = requestLine != null ? fixture(URI.create(requestLine.split(" ")[1])) : null;
+      OutputStream out = socket.getOutputStream();
+      if(fixture != null) {
+        byte[] content = Benchmarks.fixture(fixture);
+        out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + content.length + "\r\nConnection: close\r\n\r\n").getBytes("US-ASCII"));
+        out.write(content);
+      }
+      else {
+        out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes("US-ASCII"));
+      }
+      out.flush();
+    }
+    catch(IOException e) {
+      // The client went away
+    }
+    finally {
+      try {
+        socket.close();
+      }
+      catch(IOException e) {
+      }
+    }
+  }
+  
+  /**
+   * Get the fixture recorded for an address.
+   * 
+   * @param uri requested address
+   * @return name of the fixture, or <code>null</code> if there is none
+   */
+  private static String fixture(URI uri) {
+    String host = uri.getHost();
+    if("www.bbcstreams.com".equals(host)) {
+      return "bbcstreams.html";
+    }
+    if("media-ice.musicradio.com".equals(host)) {
+      return "musicradio.html";
+    }
+    if("www.listenlive.eu".equals(host) && "/uk.html".equals(uri.getPath())) {
+      return "listenlive-uk.html";
+    }
+    if("radio.indymedia.org".equals(host) && uri.getQuery() != null) {
+      Matcher matcher = PAGE_PATTERN.matcher(uri.getQuery());
+      if(matcher.find() && Integer.parseInt(matcher.group(1)) <= 2) {
+        return "indymedia-" + matcher.group(1) + ".html";
+      }
+    }
+    return null;
+  }
+}
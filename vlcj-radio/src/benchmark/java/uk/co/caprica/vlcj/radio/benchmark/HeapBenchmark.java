@@ -0,0 +1,78 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayInputStream;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.cache.ColumnarDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryParser;
+
+/**
+ * Measure the heap taken by each entry of a directory held as entry objects,
+ * as the parser returns it, and held in columns, as it is handed to the view.
+ * <p>
+ * The heap in use is measured after collecting garbage, with the directory
+ * held as entry objects, then with only the columns, then with the columns
+ * once the ranks for the name and URL have been built, as they are the first
+ * time the table is sorted. Values shared with the value dictionary 
+ * are already in use before the first measurement, so are not counted.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=HeapBenchmark</code>, add 
+ * <code>-Dbenchmark.jvmargs="-Xmx512m -XX:-UseCompressedOops"</code> to 
+ * measure without compressed references.
+ */
+public class HeapBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    byte[] yp = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    IcecastDirectoryParser parser = new IcecastDirectoryParser();
+    // Load the classes and fill the value dictionary before measuring
+    ColumnarDirectory.of(parser.parse(new ByteArrayInputStream(yp), new DirectoryRequest(null))).entries().get(0).getNameRank();
+    
+    long base = Benchmarks.usedHeap();
+    Directory parsed = parser.parse(new ByteArrayInputStream(yp), new DirectoryRequest(null));
+    int size = parsed.entries().size();
+    long entryObjects = Benchmarks.usedHeap() - base;
+    
+    ColumnarDirectory columnar = ColumnarDirectory.of(parsed);
+    parsed = null;
+    long columns = Benchmarks.usedHeap() - base;
+    
+    for(IndexedEntry entry : columnar.entries()) {
+      entry.getNameRank();
+      entry.getUrlRank();
+    }
+    long columnsAndRanks = Benchmarks.usedHeap() - base;
+    
+    Benchmarks.heading("Heap per entry, " + size + " entries");
+    print("Entry objects", entryObjects, size);
+    print("Columns", columns, size);
+    print("Columns, with ranks", columnsAndRanks, size);
+    // Keep the directory reachable until it has been measured
+    System.out.println("  entries: " + columnar.entries().size() + ", fixture " + yp.length / 1024 + " KB");
+  }
+  
+  private static void print(String label, long bytes, int entries) {
+    System.out.printf("%-40s %8d KB   %6d bytes/entry%n", label, bytes / 1024, bytes / entries);
+  }
+}
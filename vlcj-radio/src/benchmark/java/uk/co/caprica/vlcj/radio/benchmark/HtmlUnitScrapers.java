@@ -0,0 +1,213 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.service.bbcstreams.BbcStreamsDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.indymedia.IndymediaDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.listenlive.ListenLiveDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.musicradio.MusicRadioDirectoryEntry;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlAnchor;
+import com.gargoylesoftware.htmlunit.html.HtmlBold;
+import com.gargoylesoftware.htmlunit.html.HtmlDivision;
+import com.gargoylesoftware.htmlunit.html.HtmlListItem;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.html.HtmlTableCell;
+import com.gargoylesoftware.htmlunit.html.HtmlTableDataCell;
+import com.gargoylesoftware.htmlunit.html.HtmlTableRow;
+
+/**
+ * The HtmlUnit scrapers from the previous release, kept only to compare with
+ * the current services.
+ * <p>
+ * The extraction is unchanged, except that each web client is created to use
+ * the fixture proxy.
+ */
+final class HtmlUnitScrapers {
+
+  /**
+   * Port of the fixture proxy.
+   */
+  private final int proxyPort;
+  
+  /**
+   * Create the scrapers.
+   * 
+   * @param proxyPort port of the fixture proxy
+   */
+  HtmlUnitScrapers(int proxyPort) {
+    this.proxyPort = proxyPort;
+  }
+  
+  List<BbcStreamsDirectoryEntry> bbcStreams() throws Exception {
+    WebClient webClient = webClient();
+    HtmlPage page = webClient.getPage("http://www.bbcstreams.com");
+
+    List<?> elements = page.getByXPath("//div[@class='page-post']/h3/following-sibling::ul/li");
+    List<BbcStreamsDirectoryEntry> entries = new ArrayList<BbcStreamsDirectoryEntry>(50);
+    for(Object element : elements) {
+      HtmlListItem li = (HtmlListItem)element;
+      
+      String itemText = li.asText();
+      
+      int urlStart = itemText.indexOf("http:");
+      int urlEnd = itemText.indexOf(' ', urlStart);
+
+      String descriptionText = itemText.substring(0, urlStart).trim();
+      if(descriptionText.endsWith("-")) {
+        descriptionText = descriptionText.substring(0, descriptionText.length()-1).trim();
+      }
+      String urlText = itemText.substring(urlStart, urlEnd != -1 ? urlEnd : itemText.length());
+      
+      entries.add(new BbcStreamsDirectoryEntry(descriptionText, urlText));
+    }
+    
+    webClient.closeAllWindows();
+    return entries;
+  }
+  
+  List<IndymediaDirectoryEntry> indymedia() throws Exception {
+    WebClient webClient = webClient();
+
+    boolean finished = false;
+    
+    int pageIndex = 0;
+    
+    List<IndymediaDirectoryEntry> entries = new ArrayList<IndymediaDirectoryEntry>(200);
+    while(!finished) {
+      HtmlPage page = webClient.getPage("http://radio.indymedia.org/en/yp?page=" + pageIndex++);
+
+      List<?> elements = page.getByXPath("//div[@id='block-system-main']//div[@class='view-content']//table[1]/tbody/tr");
+      for(Object element : elements) {
+        HtmlTableRow tr = (HtmlTableRow)element;
+        
+        @SuppressWarnings("unchecked")
+        List<HtmlTableCell> tds = (List<HtmlTableCell>)tr.getByXPath("td");
+        
+        String name = tds.get(0).asText();
+        String genre = tds.get(1).asText();
+        String type = tds.get(3).asText();
+        String bitRate = tds.get(4).asText();
+
+        HtmlTableCell listenCell = tds.get(6);
+        HtmlAnchor a = (HtmlAnchor)listenCell.getByXPath("a[1]").get(0);
+        String url = a.getAttribute("href");
+        
+        entries.add(new IndymediaDirectoryEntry(name, url, type, bitRate, genre)); 
+      }
+      
+      List<?> nextElement = page.getByXPath("//div[@class='item-list']/ul[@class='pager']/li[contains(@class,'pager-next')]");
+      if(nextElement == null || nextElement.isEmpty()) {
+        finished = true;
+      }
+    }
+
+    webClient.closeAllWindows();
+    return entries;
+  }
+  
+  List<ListenLiveDirectoryEntry> listenLive() throws Exception {
+    WebClient webClient = webClient();
+    
+    HtmlPage page = webClient.getPage("http://www.listenlive.eu/uk.html");
+
+    List<ListenLiveDirectoryEntry> entries = new ArrayList<ListenLiveDirectoryEntry>(200);
+
+    List<?> elements = page.getByXPath("//table[@id='thetable3'][1]/tbody/tr[position()>1]");
+    for(Object element : elements) {
+      HtmlTableRow tr = (HtmlTableRow)element;
+      
+      List<?> tds = tr.getByXPath("td");
+      HtmlTableCell td;
+      td = (HtmlTableCell)tds.get(0);
+      String name = ((HtmlBold)td.getByXPath("descendant::a/b").get(0)).asText();
+      
+      td = (HtmlTableCell)tds.get(4);
+      String genre = td.asText();
+
+      // Individual links/bit-rates all in the same table cell
+      td = (HtmlTableCell)tds.get(3);
+      
+      List<?> anchors = td.getByXPath("a");
+      for(int i = 0; i < anchors.size(); i++) {
+        HtmlAnchor a = (HtmlAnchor)anchors.get(i);
+        String bitRate = a.asText();
+        String url = a.getAttribute("href");
+        
+        if(!url.startsWith("javascript")) {
+          entries.add(new ListenLiveDirectoryEntry(name, url, "", bitRate, genre));
+        }
+      }
+    }
+    
+    webClient.closeAllWindows();
+    return entries;
+  }
+  
+  List<MusicRadioDirectoryEntry> musicRadio() throws Exception {
+    WebClient webClient = webClient();
+    
+    HtmlPage page = webClient.getPage("http://media-ice.musicradio.com");
+
+    List<MusicRadioDirectoryEntry> entries = new ArrayList<MusicRadioDirectoryEntry>(200);
+
+    List<?> elements = page.getByXPath("//div[@class='newscontent']");
+    for(Object element : elements) {
+      HtmlDivision div = (HtmlDivision)element; 
+
+      HtmlAnchor streamLink = (HtmlAnchor)div.getByXPath("div[@class='streamheader']/table/tbody/tr[1]/td[2]/a[1]").get(0);
+      
+      List<?> tds = div.getByXPath("table/tbody/tr/td[@class='streamdata']");
+      
+      String name = ((HtmlTableDataCell)tds.get(0)).asText();
+      String url = "http://media-ice.musicradio.com" + streamLink.getAttribute("href");
+      String type = ((HtmlTableDataCell)tds.get(2)).asText();
+      String genre = ((HtmlTableDataCell)tds.get(3)).asText();
+      
+      entries.add(new MusicRadioDirectoryEntry(name, url, type, genre));
+    }
+    
+    webClient.closeAllWindows();
+    return entries;
+  }
+  
+  /**
+   * Get a page without extracting anything from it.
+   * 
+   * @param address address of the page
+   * @return page, the web client is left open
+   * @throws Exception if the page could not be fetched
+   */
+  HtmlPage page(String address) throws Exception {
+    return webClient().getPage(address);
+  }
+  
+  private WebClient webClient() {
+    WebClient webClient = new WebClient(BrowserVersion.getDefault(), "127.0.0.1", proxyPort);
+    webClient.setCssEnabled(false);
+    webClient.setJavaScriptEnabled(false);
+    return webClient;
+  }
+}
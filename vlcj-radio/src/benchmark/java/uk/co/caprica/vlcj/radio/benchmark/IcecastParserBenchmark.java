@@ -0,0 +1,101 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.simpleframework.xml.core.Persister;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequestListener;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryParser;
+
+/**
+ * Compare the streaming parser for the Icecast directory with the reflective
+ * simple-xml Persister it replaced.
+ * <p>
+ * Both parse the same recorded yp.xml from memory, so only the parse is
+ * measured. The time to the first batch of entries is how long the table 
+ * stays empty - the Persister has nothing to show until the whole document
+ * has been bound.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=IcecastParserBenchmark</code>
+ */
+public class IcecastParserBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    final byte[] xml = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    
+    Benchmarks.heading("Icecast yp.xml, " + xml.length / 1024 + " KB");
+    
+    final Persister persister = new Persister();
+    Directory directory = Benchmarks.time("Persister", new Callable<Directory>() {
+      @Override
+      public Directory call() throws Exception {
+        return persister.read(IcecastDirectory.class, new ByteArrayInputStream(xml));
+      }
+    });
+    System.out.println("  entries: " + directory.entries().size());
+    
+    final IcecastDirectoryParser parser = new IcecastDirectoryParser();
+    directory = Benchmarks.time("StAX parser", new Callable<Directory>() {
+      @Override
+      public Directory call() throws Exception {
+        return parser.parse(new ByteArrayInputStream(xml), new DirectoryRequest(null));
+      }
+    });
+    System.out.println("  entries: " + directory.entries().size());
+    
+    long[] firstBatch = new long[10];
+    for(int i = 0; i < firstBatch.length; i++) {
+      firstBatch[i] = firstBatch(parser, xml);
+    }
+    Arrays.sort(firstBatch);
+    System.out.printf("%-40s median %8.1f ms%n", "StAX parser, to first batch", firstBatch[firstBatch.length / 2] / 1e6);
+  }
+  
+  /**
+   * Time how long the parser takes to report the first batch of entries.
+   * 
+   * @param parser parser
+   * @param xml directory
+   * @return time, in nanoseconds
+   * @throws Exception if the directory could not be parsed
+   */
+  private static long firstBatch(IcecastDirectoryParser parser, byte[] xml) throws Exception {
+    final long start = System.nanoTime();
+    final long[] firstBatch = new long[1];
+    parser.parse(new ByteArrayInputStream(xml), new DirectoryRequest(new DirectoryRequestListener() {
+      @Override
+      public void entriesAvailable(List<? extends DirectoryEntry> entries) {
+        if(firstBatch[0] == 0) {
+          firstBatch[0] = System.nanoTime() - start;
+        }
+      }
+    }));
+    return firstBatch[0];
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryParser;
+import uk.co.caprica.vlcj.radio.view.DirectoryMerge;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.TransactionList;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * Compare merging a refreshed directory into the event list with replacing
+ * every entry shown for it, as a refresh used to.
+ * <p>
+ * The recorded yp.xml is shown through the same chain of lists as the table,
+ * a transaction list, a sorted list on the name and a filter list, with the
+ * entries of another directory around it. A refreshed copy of the directory
+ * differs from the shown one in one entry in fifty: a third of those are
+ * removed, a third have a new now playing item and a third are new stations.
+ * <p>
+ * Each run refreshes the directory to the changed copy and back again, so
+ * every run applies the same changes. A merge with no changes is timed too,
+ * for the cost of matching the entries that does not depend on the changes.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=MergeBenchmark</code>
+ */
+public class MergeBenchmark {
+  
+  /**
+   * One entry in this many is changed in the refreshed directory.
+   */
+  private static final int CHANGE_INTERVAL = 50;
+  
+  /**
+   * Number of entries of another directory shown before and after the
+   * refreshed directory.
+   */
+  private static final int OTHER_ENTRIES = 1000;
+  
+  public static void main(String[] args) throws Exception {
+    byte[] yp = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    final List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>(new IcecastDirectoryParser().parse(new ByteArrayInputStream(yp), new DirectoryRequest(null)).entries());
+    final List<DirectoryEntry> changed = changed(entries);
+  
+    Benchmarks.heading("Refresh of " + entries.size() + " entries, one in " + CHANGE_INTERVAL + " changed");
+    final Chain replaced = new Chain(entries);
+    Benchmarks.time("Replace every entry", new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        replaced.replace(changed);
+        replaced.replace(entries);
+        return replaced.filterList.size();
+      }
+    });
+    final Chain merged = new Chain(entries);
+    DirectoryMerge merge = Benchmarks.time("Merge the changes", new Callable<DirectoryMerge>() {
+      @Override
+      public DirectoryMerge call() throws Exception {
+        merged.merge(changed);
+        return merged.merge(entries);
+      }
+    });
+    System.out.printf("%-40s %s%n", "Changes per merge", merge);
+    Benchmarks.time("Merge with no changes", new Callable<DirectoryMerge>() {
+      @Override
+      public DirectoryMerge call() throws Exception {
+        merged.merge(entries);
+        return merged.merge(entries);
+      }
+    });
+    if(!merged.shown.equals(entries) || merged.filterList.size() != replaced.filterList.size()) {
+      throw new IllegalStateException("Merged list differs from the replaced list");
+    }
+  }
+  
+  /**
+   * Make a refreshed copy of the directory.
+   *
+   * @param entries entries in the directory
+   * @return changed entries
+   */
+  private static List<DirectoryEntry> changed(List<DirectoryEntry> entries) {
+    List<DirectoryEntry> changed = new ArrayList<DirectoryEntry>(entries.size());
+    for(int i = 0; i < entries.size(); i++) {
+      DirectoryEntry entry = entries.get(i);
+      switch(i % (3 * CHANGE_INTERVAL)) {
+        case 0:
+          break;
+          
+        case CHANGE_INTERVAL:
+          changed.add(copy(entry, entry.getUrl(), "Changed - " + entry.getNowPlaying()));
+          break;
+          
+        case 2 * CHANGE_INTERVAL:
+          changed.add(entry);
+          changed.add(copy(entry, entry.getUrl() + "/new", entry.getNowPlaying()));
+          break;
+  
+        default:
+          changed.add(entry);
+          break;
+      }
+    }
+    return changed;
+  }
+  
+  private static DirectoryEntry copy(DirectoryEntry entry, String url, String nowPlaying) {
+    return new IcecastDirectoryEntry(entry.getName(), url, entry.getType(), entry.getBitRate(), entry.getChannels(), entry.getSampleRate(), entry.getGenre(), nowPlaying);
+  }
+  
+  /**
+   * The chain of lists the table shows, with one directory in it.
+   */
+  private static final class Chain {
+  
+    private final EventList<DirectoryEntry> eventList = new BasicEventList<DirectoryEntry>();
+  
+    private final TransactionList<DirectoryEntry> transactionList = new TransactionList<DirectoryEntry>(eventList);
+  
+    private final FilterList<DirectoryEntry> filterList;
+  
+    private final List<DirectoryEntry> shown;
+  
+    private Chain(List<DirectoryEntry> entries) {
+      SortedList<DirectoryEntry> sortedList = new SortedList<DirectoryEntry>(transactionList, new Comparator<DirectoryEntry>() {
+        @Override
+        public int compare(DirectoryEntry o1, DirectoryEntry o2) {
+          return String.valueOf(o1.getName()).compareToIgnoreCase(String.valueOf(o2.getName()));
+        }
+      });
+      filterList = new FilterList<DirectoryEntry>(sortedList, new Matcher<DirectoryEntry>() {
+        @Override
+        public boolean matches(DirectoryEntry item) {
+          return item.getBitRate() != null;
+        }
+      });
+      List<DirectoryEntry> others = new ArrayList<DirectoryEntry>(OTHER_ENTRIES);
+      for(int i = 0; i < OTHER_ENTRIES; i++) {
+        others.add(new IcecastDirectoryEntry("Other " + i, "http://example.com/" + i, "audio/mpeg", "128", 2, 44100, "Other", null));
+      }
+      eventList.addAll(others);
+      eventList.addAll(entries);
+      eventList.addAll(others);
+      shown = new ArrayList<DirectoryEntry>(entries);
+    }
+  
+    /**
+     * Replace every shown entry, as the view does when it can not merge.
+     *
+     * @param entries new entries
+     */
+    private void replace(List<DirectoryEntry> entries) {
+      transactionList.beginEvent(true);
+      try {
+        for(int i = OTHER_ENTRIES + shown.size() - 1; i >= OTHER_ENTRIES; i--) {
+          transactionList.remove(i);
+        }
+        transactionList.addAll(OTHER_ENTRIES, entries);
+      }
+      finally {
+        transactionList.commitEvent();
+      }
+      shown.clear();
+      shown.addAll(entries);
+    }
+  
+    /**
+     * Merge the changes into the shown entries, as the view does on a refresh.
+     *
+     * @param entries new entries
+     * @return changes applied
+     */
+    private DirectoryMerge merge(List<DirectoryEntry> entries) {
+      DirectoryMerge merge = new DirectoryMerge();
+      transactionList.beginEvent(true);
+      try {
+        merge.apply(transactionList, OTHER_ENTRIES, shown, entries);
+      }
+      finally {
+        transactionList.commitEvent();
+      }
+      return merge;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.service.DirectoryService;
+import uk.co.caprica.vlcj.radio.service.bbcstreams.BbcStreamsDirectoryService;
+import uk.co.caprica.vlcj.radio.service.html.HtmlClient;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
+import uk.co.caprica.vlcj.radio.service.indymedia.IndymediaDirectoryService;
+import uk.co.caprica.vlcj.radio.service.listenlive.ListenLiveDirectoryService;
+import uk.co.caprica.vlcj.radio.service.musicradio.MusicRadioDirectoryService;
+
+/**
+ * Compare the HTML scrapers with the HtmlUnit scrapers they replaced.
+ * <p>
+ * Every page is served from the recorded fixtures by a local proxy, so both
+ * sets of scrapers fetch, parse and extract exactly the same pages:
+ * <ul>
+ *   <li>cold start - the first load of all four directories, each set of 
+ *       scrapers in a new JVM, with the number of classes loaded;</li>
+ *   <li>warm - each directory loaded repeatedly;</li>
+ *   <li>heap - the memory held by the parsed ListenLive page.</li>
+ * </ul>
+ * Usage: <code>ant benchmark -Dbenchmark=ScraperBenchmark</code>
+ */
+public class ScraperBenchmark {
+
+  private static final String LISTEN_LIVE_URL = "http://www.listenlive.eu/uk.html";
+  
+  public static void main(String[] args) throws Exception {
+    // HtmlUnit logs every quirk of the markup
+    System.setProperty("org.apache.commons.logging.Log", "org.apache.commons.logging.impl.NoOpLog");
+    if(args.length == 3 && "cold".equals(args[0])) {
+      coldStart(args[1], Integer.parseInt(args[2]));
+      return;
+    }
+    FixtureProxy proxy = FixtureProxy.start();
+    proxy.install();
+    try {
+      Benchmarks.heading("Cold start, first load of all four directories");
+      runColdStart("htmlunit", proxy.getPort());
+      runColdStart("tokenizer", proxy.getPort());
+      
+      Benchmarks.heading("Warm, fetch, parse and extract each directory");
+      final HtmlUnitScrapers htmlUnit = new HtmlUnitScrapers(proxy.getPort());
+      HttpTransport httpTransport = new HttpTransport();
+      final DirectoryService[] services = {
+        new BbcStreamsDirectoryService(httpTransport), 
+        new IndymediaDirectoryService(httpTransport), 
+        new ListenLiveDirectoryService(httpTransport), 
+        new MusicRadioDirectoryService(httpTransport)
+      };
+      for(int i = 0; i < services.length; i++) {
+        final int source = i;
+        List<?> entries = Benchmarks.time(services[i].getClass().getSimpleName() + ", HtmlUnit", new Callable<List<?>>() {
+          @Override
+          public List<?> call() throws Exception {
+            return scrape(htmlUnit, source);
+          }
+        });
+        Directory directory = Benchmarks.time(services[i].getClass().getSimpleName() + ", tokenizer", new Callable<Directory>() {
+          @Override
+          public Directory call() throws Exception {
+            return services[source].directory();
+          }
+        });
+        System.out.println("  entries: " + entries.size() + " / " + directory.entries().size());
+      }
+      
+      Benchmarks.heading("Heap held by the parsed ListenLive page");
+      long before = Benchmarks.usedHeap();
+      Object page = htmlUnit.page(LISTEN_LIVE_URL);
+      long htmlUnitPage = Benchmarks.usedHeap() - before;
+      before = Benchmarks.usedHeap();
+      Object document = new HtmlClient(httpTransport).getDocument(LISTEN_LIVE_URL);
+      long tokenizerDocument = Benchmarks.usedHeap() - before;
+      System.out.printf("%-40s %8.1f KB%n", "HtmlUnit page", htmlUnitPage / 1024.0);
+      System.out.printf("%-40s %8.1f KB%n", "Parsed document", tokenizerDocument / 1024.0);
+      // Keep both reachable until they have been measured
+      System.out.println("  (" + page.getClass().getSimpleName() + ", " + document.getClass().getSimpleName() + ")");
+    }
+    finally {
+      proxy.stop();
+    }
+  }
+  
+  /**
+   * Load each directory once in a new JVM.
+   * 
+   * @param scrapers "htmlunit" or "tokenizer"
+   * @param proxyPort port of the fixture proxy
+   * @throws Exception if the JVM could not be run
+   */
+  private static void runColdStart(String scrapers, int proxyPort) throws Exception {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    ProcessBuilder processBuilder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ScraperBenchmark.class.getName(), "cold", scrapers, String.valueOf(proxyPort));
+    processBuilder.redirectErrorStream(true);
+    Process process = processBuilder.start();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    String line;
+    while((line = reader.readLine()) != null) {
+      System.out.println(line);
+    }
+    if(process.waitFor() != 0) {
+      throw new RuntimeException("Failed to run the cold start for " + scrapers);
+    }
+  }
+  
+  private static void coldStart(String scrapers, int proxyPort) throws Exception {
+    long start = System.nanoTime();
+    int entries = 0;
+    if("htmlunit".equals(scrapers)) {
+      HtmlUnitScrapers htmlUnit = new HtmlUnitScrapers(proxyPort);
+      for(int i = 0; i < 4; i++) {
+        entries += scrape(htmlUnit, i).size();
+      }
+    }
+    else {
+      System.setProperty("http.proxyHost", "127.0.0.1");
+      System.setProperty("http.proxyPort", String.valueOf(proxyPort));
+      HttpTransport httpTransport = new HttpTransport();
+      entries += new BbcStreamsDirectoryService(httpTransport).directory().entries().size();
+      entries += new IndymediaDirectoryService(httpTransport).directory().entries().size();
+      entries += new ListenLiveDirectoryService(httpTransport).directory().entries().size();
+      entries += new MusicRadioDirectoryService(httpTransport).directory().entries().size();
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("%-40s %8.1f ms   classes loaded %5d   entries %d%n", scrapers, elapsed / 1e6, ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount(), entries);
+  }
+  
+  private static List<?> scrape(HtmlUnitScrapers htmlUnit, int source) throws Exception {
+    switch(source) {
+      case 0:
+        return htmlUnit.bbcStreams();
+        
+      case 1:
+        return htmlUnit.indymedia();
+        
+      case 2:
+        return htmlUnit.listenLive();
+        
+      default:
+        return htmlUnit.musicRadio();
+    }
+  }
+}
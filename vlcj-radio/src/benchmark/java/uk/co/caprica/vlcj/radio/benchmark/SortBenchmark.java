@@ -0,0 +1,272 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.cache.ColumnarDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryParser;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.SortedList;
+
+/**
+ * Compare sorting the directory table on the precomputed keys of the entries
+ * with sorting it on the column values, as the table used to.
+ * <p>
+ * The recorded yp.xml is held in columns, as it is handed to the view, and 
+ * shuffled. Each sort is then made with a chain of column comparators, as the
+ * table makes them when more than one column is clicked:
+ * <ul>
+ *   <li>on the column values, built for both entries on every comparison and
+ *       compared with the comparable comparator for text and a null-last 
+ *       comparator for numbers, as the table format used to supply;</li>
+ *   <li>with the comparator the table now installs for each column.</li>
+ * </ul>
+ * Each sort is made on a list, and through a sorted list as the table makes
+ * it. The first sort on the name, which builds the ranks of the names, is
+ * timed separately.
+ * <p>
+ * The column comparator is private to the view, so it is created by 
+ * reflection.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=SortBenchmark</code>
+ */
+public class SortBenchmark {
+
+  /**
+   * Column labels, as in the table format.
+   */
+  private static final String[] COLUMN_LABELS = {"Directory", "Name", "Genre", "Address", "Type", "Bit-rate", "Channels", "Sample Rate"};
+  
+  /**
+   * Index of the first column that is numeric.
+   */
+  private static final int FIRST_NUMERIC_COLUMN = 5;
+  
+  /**
+   * Columns sorted on, in order, for each sort.
+   */
+  private static final int[][] SORTS = {{1}, {2, 5, 1}, {0, 4, 3}, {5, 6, 7, 1}};
+  
+  public static void main(String[] args) throws Exception {
+    byte[] yp = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    IcecastDirectoryParser parser = new IcecastDirectoryParser();
+    
+    ColumnarDirectory firstDirectory = ColumnarDirectory.of(parser.parse(new ByteArrayInputStream(yp), new DirectoryRequest(null)));
+    List<IndexedEntry> firstEntries = new ArrayList<IndexedEntry>(firstDirectory.entries());
+    Collections.shuffle(firstEntries, new Random(1));
+    Comparator<Object> firstComparator = newColumnComparator(1);
+    long start = System.nanoTime();
+    Collections.sort(firstEntries, firstComparator);
+    long firstSort = System.nanoTime() - start;
+    
+    ColumnarDirectory directory = ColumnarDirectory.of(parser.parse(new ByteArrayInputStream(yp), new DirectoryRequest(null)));
+    final List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>(directory.entries());
+    Collections.shuffle(entries, new Random(1));
+    
+    Benchmarks.heading("Directory table sort, " + entries.size() + " entries");
+    System.out.printf("%-40s %8.1f ms%n", "First sort on Name, building the ranks", firstSort / 1e6);
+    
+    for(int[] columns : SORTS) {
+      String label = label(columns);
+      sort(label + ", values", entries, GlazedLists.chainComparators(valueComparators(columns)));
+      sort(label + ", keys", entries, GlazedLists.chainComparators(keyComparators(columns)));
+    }
+    
+    Benchmarks.heading("Directory table sort through a sorted list, " + entries.size() + " entries");
+    for(int[] columns : SORTS) {
+      String label = label(columns);
+      sortedList(label + ", values", entries, GlazedLists.chainComparators(valueComparators(columns)));
+      sortedList(label + ", keys", entries, GlazedLists.chainComparators(keyComparators(columns)));
+    }
+  }
+  
+  private static List<Comparator<DirectoryEntry>> valueComparators(int[] columns) {
+    List<Comparator<DirectoryEntry>> comparators = new ArrayList<Comparator<DirectoryEntry>>();
+    for(int column : columns) {
+      comparators.add(new ColumnValueComparator(column));
+    }
+    return comparators;
+  }
+  
+  private static List<Comparator<Object>> keyComparators(int[] columns) throws Exception {
+    List<Comparator<Object>> comparators = new ArrayList<Comparator<Object>>();
+    for(int column : columns) {
+      comparators.add(newColumnComparator(column));
+    }
+    return comparators;
+  }
+  
+  /**
+   * Time sorting a copy of a list.
+   * 
+   * @param label label to print
+   * @param entries entries to sort
+   * @param comparator comparator to sort with
+   * @throws Exception if the sort fails
+   */
+  private static void sort(String label, final List<DirectoryEntry> entries, final Comparator<? super DirectoryEntry> comparator) throws Exception {
+    Benchmarks.time(label, new Callable<List<DirectoryEntry>>() {
+      @Override
+      public List<DirectoryEntry> call() throws Exception {
+        List<DirectoryEntry> sorted = new ArrayList<DirectoryEntry>(entries);
+        Collections.sort(sorted, comparator);
+        return sorted;
+      }
+    });
+  }
+  
+  /**
+   * Time setting the comparator of a sorted list, as the table does when a 
+   * column is clicked.
+   * 
+   * @param label label to print
+   * @param entries entries to sort
+   * @param comparator comparator to sort with
+   * @throws Exception if the sort fails
+   */
+  private static void sortedList(String label, List<DirectoryEntry> entries, final Comparator<? super DirectoryEntry> comparator) throws Exception {
+    EventList<DirectoryEntry> eventList = new BasicEventList<DirectoryEntry>();
+    eventList.addAll(entries);
+    final SortedList<DirectoryEntry> sortedList = new SortedList<DirectoryEntry>(eventList, null);
+    Benchmarks.time(label, new Callable<SortedList<DirectoryEntry>>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public SortedList<DirectoryEntry> call() throws Exception {
+        sortedList.setComparator(null);
+        sortedList.setComparator((Comparator<DirectoryEntry>)comparator);
+        return sortedList;
+      }
+    });
+  }
+  
+  /**
+   * Create the comparator the table installs for a column.
+   * 
+   * @param column column index
+   * @return comparator
+   * @throws Exception if the comparator could not be created
+   */
+  @SuppressWarnings("unchecked")
+  private static Comparator<Object> newColumnComparator(int column) throws Exception {
+    Constructor<?> constructor = Class.forName("uk.co.caprica.vlcj.radio.view.DirectoryColumnComparator").getDeclaredConstructor(int.class);
+    constructor.setAccessible(true);
+    return (Comparator<Object>)constructor.newInstance(column);
+  }
+  
+  private static String label(int[] columns) {
+    StringBuilder sb = new StringBuilder(40);
+    for(int column : columns) {
+      if(sb.length() > 0) {
+        sb.append('/');
+      }
+      sb.append(COLUMN_LABELS[column]);
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * Comparator on the column values, as the table used to sort.
+   */
+  private static final class ColumnValueComparator implements Comparator<DirectoryEntry> {
+    
+    /**
+     * Compares the text columns.
+     */
+    private static final Comparator<String> TEXT_COMPARATOR = GlazedLists.comparableComparator();
+    
+    /**
+     * Compares the numeric columns, with no value last.
+     */
+    private static final Comparator<Integer> NUMBER_COMPARATOR = new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        if(o1 == null || o2 == null) {
+          return o1 == null ? (o2 == null ? 0 : 1) : -1;
+        }
+        int a = o1.intValue();
+        int b = o2.intValue();
+        return a < b ? -1 : (a == b ? 0 : 1);
+      }
+    };
+    
+    private final int column;
+    
+    private ColumnValueComparator(int column) {
+      this.column = column;
+    }
+    
+    @Override
+    public int compare(DirectoryEntry o1, DirectoryEntry o2) {
+      if(column < FIRST_NUMERIC_COLUMN) {
+        return TEXT_COMPARATOR.compare((String)value(o1), (String)value(o2));
+      }
+      else {
+        return NUMBER_COMPARATOR.compare((Integer)value(o1), (Integer)value(o2));
+      }
+    }
+    
+    private Object value(DirectoryEntry value) {
+      switch(column) {
+        case 0:
+          return value.getDirectory();
+          
+        case 1:
+          return value.getName();
+          
+        case 2:
+          return value.getGenre();
+        
+        case 3:
+          return value.getUrl();
+          
+        case 4:
+          return value.getType();
+          
+        case 5:
+          return number(((IndexedEntry)value).getBitRateKbps());
+          
+        case 6:
+          return number(value.getChannels());
+          
+        case 7:
+          return number(value.getSampleRate());
+      }
+      return null;
+    }
+    
+    private static Integer number(int value) {
+      return value > 0 ? Integer.valueOf(value) : null;
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import uk.co.caprica.vlcj.radio.service.http.HttpResponse;
+import uk.co.caprica.vlcj.radio.service.http.HttpResponseHandler;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Compare fetching with a bare connection per request, as the directory
+ * services used to, with fetching through the shared transport.
+ * <p>
+ * A local server serves the recorded yp.xml, gzip encoded if the client asks
+ * for it, and a small page. The small page is fetched repeatedly, as the
+ * scrapers fetch their pages, to show the cost of a new connection per
+ * request. The server counts the connections it accepts, and the transport's
+ * own counters are printed for the requests it made.
+ * <p>
+ * Usage: <code>ant benchmark -Dbenchmark=TransportBenchmark</code>
+ */
+public class TransportBenchmark {
+
+  /**
+   * Number of small pages fetched in each measured run.
+   */
+  private static final int PAGES = 20;
+
+  public static void main(String[] args) throws Exception {
+    final byte[] yp = Benchmarks.fixture(args.length > 0 ? args[0] : "yp.xml.gz");
+    final byte[] page = Benchmarks.fixture("bbcstreams.html");
+    final Set<Integer> connections = Collections.synchronizedSet(new HashSet<Integer>());
+    // Without this every response on a kept-alive connection waits for a
+    // delayed acknowledgement, which measures the server rather than the client
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+    ExecutorService serverThreads = Executors.newCachedThreadPool();
+    server.setExecutor(serverThreads);
+    server.createContext("/yp.xml", new FixtureHandler(yp, connections));
+    server.createContext("/page.html", new FixtureHandler(page, connections));
+    server.start();
+    try {
+      final String ypAddress = "http://127.0.0.1:" + server.getAddress().getPort() + "/yp.xml";
+      final String pageAddress = "http://127.0.0.1:" + server.getAddress().getPort() + "/page.html";
+
+      Benchmarks.heading("Directory of " + yp.length / 1024 + " KB");
+      Benchmarks.time("Bare connection", new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return bareGet(ypAddress);
+        }
+      });
+      final HttpTransport transport = new HttpTransport();
+      Benchmarks.time("Shared transport, gzip", new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return transport.get(ypAddress, null, LENGTH);
+        }
+      });
+      print(transport);
+
+      Benchmarks.heading(PAGES + " pages of " + page.length / 1024 + " KB");
+      connections.clear();
+      Benchmarks.time("Bare connection per page", new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          int length = 0;
+          for(int i = 0; i < PAGES; i++) {
+            length += bareGet(pageAddress);
+          }
+          return length;
+        }
+      });
+      System.out.printf("%-40s %8d%n", "Connections opened", connections.size());
+      connections.clear();
+      final HttpTransport pageTransport = new HttpTransport();
+      Benchmarks.time("Shared transport", new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          int length = 0;
+          for(int i = 0; i < PAGES; i++) {
+            length += pageTransport.get(pageAddress, null, LENGTH);
+          }
+          return length;
+        }
+      });
+      System.out.printf("%-40s %8d%n", "Connections opened", connections.size());
+      print(pageTransport);
+    }
+    finally {
+      server.stop(0);
+      serverThreads.shutdownNow();
+    }
+  }
+
+  /**
+   * Fetch a page on a new connection, without compression, the way the
+   * directory services did before the shared transport.
+   *
+   * @param address address of the page
+   * @return length of the page
+   * @throws IOException if the page could not be fetched
+   */
+  private static int bareGet(String address) throws IOException {
+    HttpURLConnection urlConnection = (HttpURLConnection)new URL(address).openConnection();
+    urlConnection.setRequestProperty("Connection", "close");
+    try {
+      return length(urlConnection.getInputStream());
+    }
+    finally {
+      urlConnection.disconnect();
+    }
+  }
+
+  private static int length(InputStream in) throws IOException {
+    byte[] buffer = new byte[8192];
+    int length = 0;
+    int read;
+    while((read = in.read(buffer)) != -1) {
+      length += read;
+    }
+    return length;
+  }
+
+  private static void print(HttpTransport transport) {
+    long requests = transport.getRequestCount();
+    System.out.printf("%-40s %8d requests, %8.1f KB/request read, %6.2f ms mean latency%n", "Transport counters", requests, transport.getBytesRead() / 1024.0 / requests, transport.getTotalLatency() / (double)requests);
+  }
+
+  private static final HttpResponseHandler<Integer> LENGTH = new HttpResponseHandler<Integer>() {
+    @Override
+    public Integer handle(HttpResponse response) throws IOException {
+      return length(response.getInputStream());
+    }
+  };
+
+  /**
+   * Serve a fixture, gzip encoded if the client accepts it.
+   */
+  private static final class FixtureHandler implements HttpHandler {
+
+    private final byte[] content;
+
+    private final byte[] gzipContent;
+
+    private final Set<Integer> connections;
+
+    private FixtureHandler(byte[] content, Set<Integer> connections) throws IOException {
+      this.content = content;
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      GZIPOutputStream out = new GZIPOutputStream(bytes);
+      out.write(content);
+      out.close();
+      this.gzipContent = bytes.toByteArray();
+      this.connections = connections;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      connections.add(exchange.getRemoteAddress().getPort());
+      String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      byte[] body = content;
+      if(acceptEncoding != null && acceptEncoding.contains("gzip")) {
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        body = gzipContent;
+      }
+      exchange.sendResponseHeaders(200, body.length);
+      try {
+        exchange.getResponseBody().write(body);
+      }
+      finally {
+        exchange.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.model;
+
+/**
+ * Specification for a directory entry that carries precomputed search keys.
+ * <p>
+ * Each key is the lower-case value of the corresponding field, or an empty 
+ * string if the field has no value, so a filter can match against the keys
+ * without converting every entry each time the filter changes, and the table
+ * can sort on them without converting the entries on every comparison. The 
+ * bit-rate is also parsed, so it can be sorted and filtered as a number.
+ * <p>
+ * The fields that only take a handful of different values also have a code
+ * in the shared {@link uk.co.caprica.vlcj.radio.service.cache.ValueDictionary},
+ * so entries can be compared, grouped or filtered on these fields with ints
+ * rather than strings. Zero is the code for no value.
+ */
+public interface IndexedEntry extends DirectoryEntry {
+
+  /**
+   * Get the search key for the directory.
+   * 
+   * @return lower-case directory name
+   */
+  String getDirectoryKey();
+  
+  /**
+   * Get the search key for the name.
+   * 
+   * @return lower-case name
+   */
+  String getNameKey();
+  
+  /**
+   * Get the search key for the player URL.
+   * 
+   * @return lower-case URL
+   */
+  String getUrlKey();
+  
+  /**
+   * Get the group of entries ranked together.
+   * <p>
+   * Entries in the same group can be compared on their ranks rather than on
+   * their search keys.
+   * 
+   * @return group, or <code>null</code> if the entry is not ranked
+   */
+  Object getRankGroup();
+  
+  /**
+   * Get the rank of the name in the group of entries ranked together.
+   * <p>
+   * The ranks are built from the search keys for the whole group the first 
+   * time one is asked for and kept, so they can be compared over and over 
+   * while sorting. Equal search keys have the same rank, in the order of 
+   * {@link SortKey#compareKeys(String, String)}.
+   * 
+   * @return rank, or -1 if the entry is not ranked
+   */
+  int getNameRank();
+  
+  /**
+   * Get the rank of the player URL in the group of entries ranked together.
+   * 
+   * @return rank, or -1 if the entry is not ranked
+   * @see #getNameRank()
+   */
+  int getUrlRank();
+  
+  /**
+   * Get the search key for the (media) type.
+   * 
+   * @return lower-case type
+   */
+  String getTypeKey();
+  
+  /**
+   * Get the search key for the genre.
+   * 
+   * @return lower-case genre
+   */
+  String getGenreKey();
+  
+  /**
+   * Get the bit-rate as a number.
+   * 
+   * @return bit-rate in kbit/s, or -1 if it is not known
+   */
+  int getBitRateKbps();
+  
+  /**
+   * Get the dictionary code for the directory.
+   * <p>
+   * An entry listed in more than one directory does not have a code, as each
+   * combination of directories would stay in the dictionary for good - its
+   * directory is compared and filtered on the search key instead.
+   * 
+   * @return code, or -1 if the directory is not in the dictionary
+   */
+  int getDirectoryCode();
+  
+  /**
+   * Get the dictionary code for the (media) type.
+   * 
+   * @return code
+   */
+  int getTypeCode();
+  
+  /**
+   * Get the dictionary code for the bit-rate.
+   * 
+   * @return code
+   */
+  int getBitRateCode();
+  
+  /**
+   * Get the dictionary code for the genre.
+   * 
+   * @return code
+   */
+  int getGenreCode();
+}
@@ -0,0 +1,43 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.model;
+
+import java.util.List;
+
+/**
+ * Specification for a directory entry standing for the same stream listed 
+ * more than once, under different addresses or in different directories.
+ * <p>
+ * The entry combines the details of all of the listings. Its URL is the 
+ * address from the first listing, the other addresses the stream is listed
+ * under are kept so that they can be tried if the first does not play.
+ */
+public interface MergedEntry extends IndexedEntry {
+
+  /**
+   * Get the other addresses of the stream.
+   * <p>
+   * The addresses do not include the URL of the entry itself, so they are
+   * empty if every listing has the same address.
+   * 
+   * @return addresses, in the order they should be tried, may be empty
+   */
+  List<String> getAlternateUrls();
+}
@@ -0,0 +1,224 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Precomputed key for sorting on the value of a text field.
+ * <p>
+ * The key is the lower-case value, so values are sorted ignoring case, and
+ * no value has an empty key that sorts after all of the others.
+ * <p>
+ * Keys built together for a set of values are ranked, so two keys from the
+ * same set are compared as ints. Otherwise the first few characters of the
+ * key, packed into a long, decide most comparisons without looking at the 
+ * strings - only keys that start the same are compared as strings.
+ * <p>
+ * The ranks can also be had on their own, see {@link #ranks(String[])}, for
+ * values too many to keep a key object for each.
+ */
+public final class SortKey implements Comparable<SortKey> {
+
+  /**
+   * Number of characters packed into the prefix, one byte each.
+   */
+  private static final int PREFIX_LENGTH = 8;
+  
+  /**
+   * Leading characters of the key, in an order that agrees with the order of
+   * the keys.
+   */
+  private final long prefix;
+  
+  /**
+   * Lower-case value.
+   */
+  private final String key;
+  
+  /**
+   * Keys ranked together share the same group, or <code>null</code> if the
+   * key is not ranked.
+   */
+  private final Object group;
+  
+  /**
+   * Position of the key in the order of the keys in its group, equal keys 
+   * have the same rank.
+   */
+  private final int rank;
+  
+  /**
+   * Create a sort key.
+   * 
+   * @param key lower-case value
+   * @param group group of keys ranked together, may be <code>null</code>
+   * @param rank position of the key in its group
+   */
+  private SortKey(String key, Object group, int rank) {
+    this.prefix = prefix(key);
+    this.key = key;
+    this.group = group;
+    this.rank = rank;
+  }
+  
+  /**
+   * Get ranked sort keys for a set of search keys.
+   * 
+   * @param keys lower-case values, or empty strings where there is no value
+   * @return sort keys, in the same order
+   */
+  public static SortKey[] rank(String[] keys) {
+    int[] ranks = ranks(keys);
+    Object group = new Object();
+    SortKey[] sortKeys = new SortKey[keys.length];
+    for(int i = 0; i < keys.length; i++) {
+      sortKeys[i] = new SortKey(keys[i], group, ranks[i]);
+    }
+    return sortKeys;
+  }
+  
+  /**
+   * Rank a set of search keys.
+   * 
+   * @param keys lower-case values, or empty strings where there is no value
+   * @return position of each key in the order of the keys, in the same order
+   *         - equal keys have the same rank
+   */
+  public static int[] ranks(final String[] keys) {
+    Integer[] order = new Integer[keys.length];
+    for(int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return compareKeys(keys[o1], keys[o2]);
+      }
+    });
+    int[] ranks = new int[keys.length];
+    int rank = 0;
+    for(int i = 0; i < order.length; i++) {
+      int index = order[i];
+      if(i > 0 && !keys[index].equals(keys[order[i - 1]])) {
+        rank++;
+      }
+      ranks[index] = rank;
+    }
+    return ranks;
+  }
+  
+  /**
+   * Get the lower-case value.
+   * 
+   * @return value, or an empty string if there is no value
+   */
+  public String getKey() {
+    return key;
+  }
+  
+  @Override
+  public int compareTo(SortKey o) {
+    if(group != null && group == o.group) {
+      return rank < o.rank ? -1 : (rank == o.rank ? 0 : 1);
+    }
+    if(prefix != o.prefix) {
+      return prefix < o.prefix ? -1 : 1;
+    }
+    return key.compareTo(o.key);
+  }
+  
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof SortKey && key.equals(((SortKey)obj).key);
+  }
+  
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+  
+  /**
+   * Compare two values in the same order as their sort keys.
+   * <p>
+   * This is the natural order of directory entries by name, so it agrees 
+   * with the order of the name column.
+   * 
+   * @param a first value, may be <code>null</code>
+   * @param b second value, may be <code>null</code>
+   * @return comparison result
+   */
+  public static int compareValues(String a, String b) {
+    return compareKeys(a != null ? a.toLowerCase() : "", b != null ? b.toLowerCase() : "");
+  }
+  
+  /**
+   * Compare two search keys in the same order as their sort keys.
+   * 
+   * @param a first key, lower-case value or an empty string if there is no value
+   * @param b second key, lower-case value or an empty string if there is no value
+   * @return comparison result
+   */
+  public static int compareKeys(String a, String b) {
+    if((a.length() == 0) != (b.length() == 0)) {
+      return a.length() == 0 ? 1 : -1;
+    }
+    return a.compareTo(b);
+  }
+  
+  /**
+   * Pack the leading characters of a key into a long.
+   * <p>
+   * Each character takes a byte, most significant first, with a zero byte 
+   * after the end of the key. A character that does not fit in a byte is 
+   * packed as 0xff and ends the prefix, so keys that differ only after it 
+   * get the same prefix and are compared as strings. The sign bit is flipped
+   * so the prefixes can be compared as signed longs. The empty key gets the
+   * highest prefix of all, so it sorts last.
+   * 
+   * @param key lower-case value
+   * @return prefix
+   */
+  private static long prefix(String key) {
+    if(key.length() == 0) {
+      return Long.MAX_VALUE;
+    }
+    long prefix = 0;
+    int length = Math.min(key.length(), PREFIX_LENGTH);
+    for(int i = 0; i < length; i++) {
+      char c = key.charAt(i);
+      if(c >= 0xff) {
+        prefix |= 0xffL << (8 * (PREFIX_LENGTH - 1 - i));
+        break;
+      }
+      prefix |= (long)c << (8 * (PREFIX_LENGTH - 1 - i));
+    }
+    return prefix ^ Long.MIN_VALUE;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(60);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("key=").append(key).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+/**
+ * HTTP cache validators for a directory retrieved from a remote source.
+ * <p>
+ * The validators returned with a directory are sent back with the next request
+ * for that directory, so the server can respond that the directory has not 
+ * been modified instead of sending it again.
+ */
+public class CacheValidators {
+
+  /**
+   * Entity tag, the value of the "ETag" response header.
+   */
+  private final String entityTag;
+  
+  /**
+   * Last modification time, the value of the "Last-Modified" response header.
+   */
+  private final String lastModified;
+
+  /**
+   * Create cache validators.
+   * 
+   * @param entityTag entity tag, may be <code>null</code>
+   * @param lastModified last modification time, may be <code>null</code>
+   */
+  public CacheValidators(String entityTag, String lastModified) {
+    this.entityTag = entityTag;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * Get the entity tag.
+   * 
+   * @return entity tag, may be <code>null</code>
+   */
+  public String getEntityTag() {
+    return entityTag;
+  }
+
+  /**
+   * Get the last modification time.
+   * 
+   * @return last modification time, may be <code>null</code>
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+  
+  /**
+   * Are there any validators?
+   * 
+   * @return <code>true</code> if at least one validator is present; <code>false</code> otherwise
+   */
+  public boolean isEmpty() {
+    return entityTag == null && lastModified == null;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("entityTag=").append(entityTag).append(',');
+    sb.append("lastModified=").append(lastModified).append(']');
+    return sb.toString();
+  }
+}
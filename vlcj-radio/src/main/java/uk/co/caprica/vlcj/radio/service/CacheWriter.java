@@ -0,0 +1,280 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.service.cache.ProcessLock;
+
+/**
+ * Component that writes directories to their caches in the background.
+ * <p>
+ * Storing a directory only queues it, so the directory can be shown without
+ * waiting for it to be written to the disk. If a directory is stored again 
+ * before the previous copy has been written, the two writes are merged and 
+ * only the latest copy is written.
+ * <p>
+ * Writes are made one at a time on a single thread, in the order the 
+ * directories were first queued. A write that fails is reported and 
+ * dropped - the cached copy is only ever a copy.
+ * <p>
+ * A write may carry a lock to release once the write has been made, so that
+ * another process waiting for the lock finds the new copy in the cache.
+ * <p>
+ * When the application exits the queue is drained, waiting no longer than 
+ * the drain timeout. Anything stored after that is written straight away.
+ */
+public class CacheWriter {
+
+  /**
+   * Default maximum time to wait for the queue to drain, in milliseconds.
+   */
+  private static final long DEFAULT_DRAIN_TIMEOUT = 5000;
+  
+  /**
+   * Maximum time to wait for the queue to drain, in milliseconds.
+   */
+  private final long drainTimeout;
+  
+  /**
+   * Writes waiting to be made, in the order they were first queued, guarded
+   * by this object.
+   */
+  private final Map<CachedDirectoryService, PendingWrite> pendingWrites = new LinkedHashMap<CachedDirectoryService, PendingWrite>();
+  
+  /**
+   * Flag whether the writer thread is making a write, guarded by this object.
+   */
+  private boolean writing;
+  
+  /**
+   * Flag whether the writer has been shut down, guarded by this object.
+   */
+  private boolean shutdown;
+  
+  /**
+   * Create a cache writer with the default drain timeout.
+   */
+  public CacheWriter() {
+    this(DEFAULT_DRAIN_TIMEOUT);
+  }
+  
+  /**
+   * Create a cache writer.
+   * 
+   * @param drainTimeout maximum time to wait for the queue to drain when the application exits, in milliseconds
+   */
+  public CacheWriter(long drainTimeout) {
+    this.drainTimeout = drainTimeout;
+    Thread writerThread = new Thread(new WriterRunnable(), "cache-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run() {
+        shutdown();
+      }
+    }, "cache-writer-shutdown"));
+  }
+  
+  /**
+   * Queue a directory to be stored in its cache.
+   * 
+   * @param service cache to store the directory in
+   * @param directory directory
+   * @param validators HTTP cache validators for the directory, may be <code>null</code>
+   * @param lock lock to release once the directory has been written, may be <code>null</code>
+   */
+  public void store(CachedDirectoryService service, Directory directory, CacheValidators validators, ProcessLock lock) {
+    PendingWrite pendingWrite = new PendingWrite(directory, validators, lock);
+    boolean queued;
+    PendingWrite replaced = null;
+    synchronized(this) {
+      queued = !shutdown;
+      if(queued) {
+        // An earlier copy that is still waiting is replaced, keeping its place
+        replaced = pendingWrites.put(service, pendingWrite);
+        notifyAll();
+      }
+    }
+    if(replaced != null) {
+      replaced.release();
+    }
+    if(!queued) {
+      // Too late to queue, so write it straight away
+      synchronized(service) {
+        synchronized(this) {
+          replaced = pendingWrites.remove(service);
+        }
+        if(replaced != null) {
+          replaced.release();
+        }
+        write(service, pendingWrite);
+      }
+    }
+  }
+  
+  /**
+   * Write any queued directory for a cache straight away, on the calling 
+   * thread.
+   * <p>
+   * This is used before reading from the cache, so that the latest copy is
+   * read.
+   * 
+   * @param service cache
+   */
+  public void flush(CachedDirectoryService service) {
+    synchronized(service) {
+      PendingWrite pendingWrite;
+      synchronized(this) {
+        pendingWrite = pendingWrites.remove(service);
+      }
+      if(pendingWrite != null) {
+        write(service, pendingWrite);
+      }
+    }
+  }
+  
+  /**
+   * Stop queuing writes, and wait for the queued writes to be made.
+   * <p>
+   * This is done automatically when the application exits.
+   * 
+   * @return <code>true</code> if all of the queued writes were made; <code>false</code> if the drain timeout expired first
+   */
+  public synchronized boolean shutdown() {
+    shutdown = true;
+    long deadline = System.currentTimeMillis() + drainTimeout;
+    while(!pendingWrites.isEmpty() || writing) {
+      long remaining = deadline - System.currentTimeMillis();
+      if(remaining <= 0) {
+        System.err.println("Warning: " + pendingWrites.size() + " cached directories were not written within " + drainTimeout + "ms");
+        return false;
+      }
+      try {
+        wait(remaining);
+      }
+      catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Write a directory to its cache.
+   * <p>
+   * The caller must hold the lock on the cache, so that writes to the same
+   * cache are never made out of order.
+   * 
+   * @param service cache
+   * @param pendingWrite write to make
+   */
+  private void write(CachedDirectoryService service, PendingWrite pendingWrite) {
+    try {
+      service.store(pendingWrite.directory, pendingWrite.validators);
+    }
+    catch(RuntimeException e) {
+      System.err.println("Warning: failed to write cached directory: " + e);
+    }
+    finally {
+      pendingWrite.release();
+    }
+  }
+  
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder(60);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("pendingWrites=").append(pendingWrites.size()).append(',');
+    sb.append("writing=").append(writing).append(',');
+    sb.append("shutdown=").append(shutdown).append(']');
+    return sb.toString();
+  }
+  
+  /**
+   * A directory waiting to be written.
+   */
+  private static final class PendingWrite {
+    
+    private final Directory directory;
+    
+    private final CacheValidators validators;
+    
+    private final ProcessLock lock;
+    
+    private PendingWrite(Directory directory, CacheValidators validators, ProcessLock lock) {
+      this.directory = directory;
+      this.validators = validators;
+      this.lock = lock;
+    }
+    
+    /**
+     * Release the lock carried by the write, if any.
+     */
+    private void release() {
+      if(lock != null) {
+        lock.unlock();
+      }
+    }
+  }
+  
+  /**
+   * Makes the queued writes.
+   */
+  private final class WriterRunnable implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        for(;;) {
+          CachedDirectoryService service;
+          synchronized(CacheWriter.this) {
+            while(pendingWrites.isEmpty()) {
+              CacheWriter.this.wait();
+            }
+            service = pendingWrites.keySet().iterator().next();
+          }
+          // Take the write only once the cache is locked, so a flush on 
+          // another thread can not overtake it
+          synchronized(service) {
+            PendingWrite pendingWrite;
+            synchronized(CacheWriter.this) {
+              pendingWrite = pendingWrites.remove(service);
+              writing = pendingWrite != null;
+            }
+            if(pendingWrite != null) {
+              write(service, pendingWrite);
+            }
+          }
+          synchronized(CacheWriter.this) {
+            writing = false;
+            CacheWriter.this.notifyAll();
+          }
+        }
+      }
+      catch(InterruptedException e) {
+      }
+    }
+  }
+}
@@ -23,26 +23,82 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 import org.simpleframework.xml.core.Persister;
 
 import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.cache.ColumnarDirectory;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryBuilder;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryDiff;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryGeneration;
+import uk.co.caprica.vlcj.radio.service.cache.MappedIndexedDirectory;
+import uk.co.caprica.vlcj.radio.service.cache.ProcessLock;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
 
 /**
- * Implementation of a directory service that operates on a local file cache.
+ * Implementation of a directory service that operates on a local cache.
+ * <p>
+ * The directories of all of the services are kept together in a single
+ * {@link StationStore}, along with the time each was last updated and its 
+ * HTTP cache validators. Each concrete cache supplies a 
+ * {@link DirectoryBuilder} to re-create its own type of directory.
+ * <p>
+ * A directory read from the cache has its entries in the default order and
+ * carrying their search keys, both read from the index kept with the 
+ * directory in the store. It is a {@link ColumnarDirectory}, holding its 
+ * fields in columns rather than as an object for each entry, or, when the 
+ * store is mapped, a {@link MappedIndexedDirectory} that decodes each field
+ * from the mapped store only when it is asked for.
+ * <p>
+ * The store keeps a bounded history of the previous generations of the 
+ * directory, which can be compared and restored, for example to roll back a
+ * bad refresh. A refreshed directory that is empty, or much smaller than the
+ * cached copy, is most likely the result of a failed scrape rather than a 
+ * real change, and {@link #isPlausible(Directory)} tells the loader to keep 
+ * the cached copy instead.
+ * <p>
+ * XML is kept as an export format. Setting the "vlcj.radio.cache.exportXml"
+ * system property to "true" also writes the XML file every time the cache is
+ * stored.
+ * <p>
+ * An XML cache file written by a previous version is moved into the station
+ * store the first time it is read, keeping its age.
+ * <p>
+ * A directory that has never been cached is read from the seed snapshot 
+ * packaged with the application, if there is one, so the first start shows 
+ * every directory straight away while they are refreshed in the background.
  */
-public class CachedDirectoryService implements DirectoryService {
+public abstract class CachedDirectoryService implements DirectoryService {
 
+  /**
+   * Default size below which a refreshed directory is not plausible, as a 
+   * percentage of the size of the cached directory.
+   */
+  private static final int DEFAULT_MIN_SIZE_PERCENT = 10;
+  
+  /**
+   * Store shared by all of the cached directories.
+   */
+  private final StationStore stationStore;
+  
   /**
    * Concrete type of directory (required for proper XML binding).
    */
   private final Class<? extends Directory> type;
   
   /**
-   * Name of the local cache file.
+   * Name of the local XML cache file.
    */
   private final String cacheFileName;
   
+  /**
+   * Key of the directory in the station store.
+   */
+  private final String key;
+  
   /**
    * XML binding parser.
    */
@@ -51,43 +107,111 @@ public class CachedDirectoryService implements DirectoryService {
   /**
    * Create a directory service component.
    * 
+   * @param stationStore store shared by all of the cached directories
    * @param type concrete type of the directory
-   * @param cacheFileName name of the local cache file
+   * @param cacheFileName name of the local XML cache file, the directory is stored under the same name without the extension
    */
-  public CachedDirectoryService(Class<? extends Directory>type, String cacheFileName) {
+  public CachedDirectoryService(StationStore stationStore, Class<? extends Directory>type, String cacheFileName) {
+    this.stationStore = stationStore;
     this.type = type;
     this.cacheFileName = cacheFileName;
+    int extension = cacheFileName.lastIndexOf('.');
+    this.key = extension != -1 ? cacheFileName.substring(0, extension) : cacheFileName;
     this.persister = new Persister();
   }
   
   @Override
   public Directory directory() {
-    File cacheFile = getCacheFile();
-    if(cacheFile.exists()) {
-      try {
-        return persister.read(type, cacheFile);
+    try {
+      Directory directory = stationStore.readIndexed(key, newDirectoryBuilder());
+      if(directory == null) {
+        directory = importPreviousVersion();
       }
-      catch(Exception e) {
-        throw new RuntimeException("Failed to read directory", e);
+      if(directory == null) {
+        // Never stored, so it has never been updated and is refreshed as soon
+        // as it is loaded
+        directory = stationStore.readSeed(key, newDirectoryBuilder());
       }
+      return directory;
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Failed to read directory", e);
     }
-    return null;
   }
-
+  
   /**
-   * Store a directory in the cache.
+   * Move an XML cache file written by a previous version into the station 
+   * store.
+   * 
+   * @return directory, or <code>null</code> if there is no previous version cache
+   * @throws IOException if the directory could not be stored
+   */
+  private Directory importPreviousVersion() throws IOException {
+    File xmlFile = getXmlFile();
+    if(!xmlFile.exists()) {
+      return null;
+    }
+    Directory directory;
+    try {
+      directory = ColumnarDirectory.of(persister.read(type, xmlFile));
+    }
+    catch(Exception e) {
+      System.err.println("Warning: cached directory " + xmlFile + " could not be read: " + e);
+      return null;
+    }
+    // Keep the age of the old cache, there were no validators to keep
+    stationStore.write(key, directory, xmlFile.lastModified(), null, null);
+    if(!isExportXml()) {
+      xmlFile.delete();
+    }
+    return directory;
+  }
+  
+  /**
+   * Store a directory in the cache, without any HTTP cache validators.
    * 
    * @param directory directory
    */
   public final void store(Directory directory) {
-    BufferedOutputStream out = null;
+    store(directory, null);
+  }
+  
+  /**
+   * Store a directory in the cache.
+   * <p>
+   * The directory and its validators are stored together, so one is never 
+   * stored without the other.
+   * 
+   * @param directory directory
+   * @param validators HTTP cache validators for the directory, may be <code>null</code>
+   */
+  public final void store(Directory directory, CacheValidators validators) {
     try {
-      out = new BufferedOutputStream(new FileOutputStream(getCacheFile()));
-      persister.write(directory, out);
+      stationStore.write(key, directory, System.currentTimeMillis(), validators != null ? validators.getEntityTag() : null, validators != null ? validators.getLastModified() : null);
     }
-    catch(Exception e) {
+    catch(IOException e) {
       throw new RuntimeException("Failed to store directory", e);
     }
+    if(isExportXml()) {
+      exportXml(directory, getXmlFile());
+    }
+  }
+  
+  /**
+   * Export a directory as XML.
+   * 
+   * @param directory directory
+   * @param file file to write
+   */
+  public final void exportXml(Directory directory, File file) {
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(file));
+      persister.write(toXmlType(directory), out);
+    }
+    catch(Exception e) {
+      throw new RuntimeException("Failed to export directory", e);
+    }
     finally {
       if(out != null) {
         try {
@@ -100,16 +224,209 @@ public class CachedDirectoryService implements DirectoryService {
   }
 
   /**
-   * Get the local cache file.
+   * Get the time the cached directory was last updated.
    * 
-   * @return file
+   * @return time of the last update, in milliseconds since the epoch, or zero if there is no cached directory
+   */
+  public final long getLastUpdated() {
+    try {
+      return stationStore.getLastUpdated(key);
+    }
+    catch(IOException e) {
+      // An unreadable cache is treated as expired
+      return 0;
+    }
+  }
+  
+  /**
+   * Mark the cached directory as current, without changing it.
+   * <p>
+   * This is used when the source confirms that the directory has not been 
+   * modified.
    */
-  private File getCacheFile() {
-    File userHomeDirectory = new File(System.getProperty("user.home"));
-    File cacheDirectory = new File(userHomeDirectory, "vlcj-radio");
-    if(!cacheDirectory.exists()) {
-      cacheDirectory.mkdirs();
+  public final void touch() {
+    try {
+      stationStore.touch(key, System.currentTimeMillis());
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Failed to update directory", e);
+    }
+  }
+  
+  /**
+   * Get the HTTP cache validators for the cached directory.
+   * 
+   * @return validators, or <code>null</code> if there is no cached directory or no validators for it
+   */
+  public final CacheValidators getValidators() {
+    try {
+      CacheValidators validators = new CacheValidators(stationStore.getEntityTag(key), stationStore.getLastModified(key));
+      return !validators.isEmpty() ? validators : null;
     }
-    return new File(cacheDirectory, cacheFileName);
+    catch(IOException e) {
+      // An unreadable cache just means an unconditional request
+      return null;
+    }
+  }
+  
+  /**
+   * Test whether a directory refreshed from its source is plausible enough 
+   * to replace the cached directory.
+   * <p>
+   * A directory is not plausible if it is empty, or smaller than a percentage
+   * of the cached directory given by the "vlcj.radio.cache.minSizePercent" 
+   * system property, by default 10%, since that is much more likely to be a 
+   * failed scrape, for example after the layout of a site changed, than a 
+   * real change. Any directory is plausible if there is no cached directory.
+   * <p>
+   * No directory at all is never plausible.
+   * 
+   * @param directory refreshed directory, may be <code>null</code>
+   * @return <code>true</code> if the directory may replace the cached directory; <code>false</code> if the cached directory should be kept
+   */
+  public final boolean isPlausible(Directory directory) {
+    if(directory == null) {
+      return false;
+    }
+    int cachedCount;
+    try {
+      cachedCount = stationStore.getEntryCount(key);
+    }
+    catch(IOException e) {
+      // An unreadable cache is not worth keeping
+      return true;
+    }
+    if(cachedCount <= 0) {
+      return true;
+    }
+    int count = directory.entries().size();
+    return count > 0 && count * 100L >= (long)cachedCount * getMinSizePercent();
+  }
+  
+  /**
+   * Get the generations of the cached directory that are kept.
+   * 
+   * @return generations, oldest first and ending with the current generation, or an empty list if there is no cached directory
+   */
+  public final List<DirectoryGeneration> getHistory() {
+    try {
+      return stationStore.getHistory(key);
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Failed to read directory history", e);
+    }
+  }
+  
+  /**
+   * Get a generation of the cached directory.
+   * 
+   * @param generation generation number
+   * @return directory, or <code>null</code> if the generation is not kept
+   */
+  public final Directory directory(int generation) {
+    try {
+      Directory directory = stationStore.read(key, generation, newDirectoryBuilder());
+      return directory != null ? ColumnarDirectory.of(directory) : null;
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Failed to read directory", e);
+    }
+  }
+  
+  /**
+   * Compare two generations of the cached directory.
+   * 
+   * @param fromGeneration generation to compare from, usually the older generation
+   * @param toGeneration generation to compare to
+   * @return stations added, removed and changed, or <code>null</code> if either generation is not kept
+   */
+  public final DirectoryDiff diff(int fromGeneration, int toGeneration) {
+    try {
+      return stationStore.diff(key, fromGeneration, toGeneration);
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Failed to compare directory generations", e);
+    }
+  }
+  
+  /**
+   * Restore a previous generation of the cached directory.
+   * <p>
+   * The restored directory is stored as a new generation, without any HTTP 
+   * cache validators, so the next refresh is unconditional.
+   * 
+   * @param generation generation number
+   * @return <code>true</code> if the generation was restored; <code>false</code> if it is not kept
+   */
+  public final boolean restore(int generation) {
+    try {
+      return stationStore.restore(key, generation, System.currentTimeMillis());
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Failed to restore directory", e);
+    }
+  }
+  
+  /**
+   * Get the lock used to make sure that only one process at a time refreshes
+   * the directory from its source, when the cache is shared by more than one
+   * process.
+   * 
+   * @return lock
+   */
+  public final ProcessLock getRefreshLock() {
+    return stationStore.getRefreshLock(key);
+  }
+  
+  /**
+   * Create a component to re-create a directory read from the cache.
+   * 
+   * @return new directory builder
+   */
+  protected abstract DirectoryBuilder newDirectoryBuilder();
+  
+  /**
+   * Copy a directory, if necessary, to the concrete type used for XML 
+   * binding.
+   * 
+   * @param directory directory
+   * @return directory of the concrete type
+   */
+  private Directory toXmlType(Directory directory) {
+    if(type.isInstance(directory)) {
+      return directory;
+    }
+    DirectoryBuilder builder = newDirectoryBuilder();
+    for(DirectoryEntry entry : directory.entries()) {
+      builder.add(entry.getName(), entry.getUrl(), entry.getType(), entry.getBitRate(), entry.getChannels(), entry.getSampleRate(), entry.getGenre(), entry.getNowPlaying());
+    }
+    return builder.build();
+  }
+  
+  /**
+   * Should the cache also be written as XML?
+   * 
+   * @return <code>true</code> if XML should be written; <code>false</code> otherwise
+   */
+  private static boolean isExportXml() {
+    return Boolean.getBoolean("vlcj.radio.cache.exportXml");
+  }
+  
+  /**
+   * Get the size below which a refreshed directory is not plausible.
+   * 
+   * @return size, as a percentage of the size of the cached directory
+   */
+  private static int getMinSizePercent() {
+    return Math.max(0, Integer.getInteger("vlcj.radio.cache.minSizePercent", DEFAULT_MIN_SIZE_PERCENT));
+  }
+  
+  /**
+   * Get the local XML cache file.
+   * 
+   * @return file
+   */
+  private File getXmlFile() {
+    return new File(stationStore.getDirectory(), cacheFileName);
   }
 }
@@ -0,0 +1,153 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+/**
+ * Circuit breaker for a single directory source.
+ * <p>
+ * After a number of consecutive failed loads the breaker opens, and the 
+ * source is not contacted again until a cool-down period has passed - the 
+ * last good cached copy of the directory is used instead. Once the cool-down
+ * has passed the next load is allowed through as a trial: if it succeeds the
+ * breaker closes again, if it fails the breaker opens for another cool-down.
+ * <p>
+ * The failure counts are kept so they can be shown to the user.
+ */
+public class CircuitBreaker {
+
+  /**
+   * Number of consecutive failures that opens the breaker.
+   */
+  private final int failureThreshold;
+  
+  /**
+   * Time the breaker stays open, in milliseconds.
+   */
+  private final long coolDown;
+  
+  /**
+   * Number of failures since the last success.
+   */
+  private int consecutiveFailures;
+  
+  /**
+   * Total number of failures.
+   */
+  private int totalFailures;
+  
+  /**
+   * Time the breaker was last opened, or zero if it is closed.
+   */
+  private long openedAt;
+  
+  /**
+   * Create a circuit breaker with the default settings - open after three
+   * consecutive failures, for ten minutes.
+   */
+  public CircuitBreaker() {
+    this(3, 10 * 60 * 1000);
+  }
+  
+  /**
+   * Create a circuit breaker.
+   * 
+   * @param failureThreshold number of consecutive failures that opens the breaker
+   * @param coolDown time the breaker stays open, in milliseconds
+   */
+  public CircuitBreaker(int failureThreshold, long coolDown) {
+    this.failureThreshold = failureThreshold;
+    this.coolDown = coolDown;
+  }
+  
+  /**
+   * May the source be contacted?
+   * 
+   * @return <code>true</code> if the breaker is closed or the cool-down has passed; <code>false</code> if the source should be skipped
+   */
+  public synchronized boolean allowRequest() {
+    return openedAt == 0 || System.currentTimeMillis() - openedAt >= coolDown;
+  }
+  
+  /**
+   * Record a successful load from the source.
+   */
+  public synchronized void recordSuccess() {
+    consecutiveFailures = 0;
+    openedAt = 0;
+  }
+  
+  /**
+   * Record a failed load from the source.
+   */
+  public synchronized void recordFailure() {
+    consecutiveFailures++;
+    totalFailures++;
+    if(consecutiveFailures >= failureThreshold) {
+      openedAt = System.currentTimeMillis();
+    }
+  }
+  
+  /**
+   * Is the breaker open?
+   * 
+   * @return <code>true</code> if the source is being skipped; <code>false</code> otherwise
+   */
+  public synchronized boolean isOpen() {
+    return !allowRequest();
+  }
+  
+  /**
+   * Get the number of failures since the last success.
+   * 
+   * @return number of failures
+   */
+  public synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+  
+  /**
+   * Get the total number of failures.
+   * 
+   * @return number of failures
+   */
+  public synchronized int getTotalFailures() {
+    return totalFailures;
+  }
+  
+  /**
+   * Get the time remaining before the source will be contacted again.
+   * 
+   * @return time remaining, in milliseconds, or zero if the breaker is not open
+   */
+  public synchronized long getRemainingCoolDown() {
+    return openedAt == 0 ? 0 : Math.max(0, coolDown - (System.currentTimeMillis() - openedAt));
+  }
+  
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("open=").append(isOpen()).append(',');
+    sb.append("consecutiveFailures=").append(consecutiveFailures).append(',');
+    sb.append("totalFailures=").append(totalFailures).append(',');
+    sb.append("remainingCoolDown=").append(getRemainingCoolDown()).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Stage in loading the directories that merges the entries for the same 
+ * stream, within a directory or across directories.
+ * <p>
+ * The same station is often listed by more than one directory, or more than
+ * once by the same directory, with slightly different addresses. Entries are
+ * matched on their address in the canonical form given by 
+ * {@link UrlCanonicalizer}. The first entry for a stream, with the 
+ * directories taken in order, stands for the stream - if there are other 
+ * entries for it, it is replaced by a {@link MergedDirectoryEntry} combining
+ * their details and keeping their addresses as alternates, and the other 
+ * entries are left out.
+ * <p>
+ * Loading one directory can change the entries shown for the others, for 
+ * example a directory earlier in the order that now lists a stream takes it
+ * over from a later directory, so each update works out the entries for all
+ * of the directories, and reports those that changed. A merged entry whose 
+ * listings did not change is kept, so a directory that did not change is not
+ * reported.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class DirectoryDeduplicator {
+
+  /**
+   * Directory sources, in order.
+   */
+  private final List<DirectorySource> sources;
+  
+  /**
+   * Latest directory for each source.
+   */
+  private final Map<DirectorySource, Directory> directories = new HashMap<DirectorySource, Directory>();
+  
+  /**
+   * Canonical address of each entry of the latest directory for each source.
+   */
+  private final Map<DirectorySource, String[]> canonicalUrls = new HashMap<DirectorySource, String[]>();
+  
+  /**
+   * Entries to show for each source, from the last update.
+   */
+  private final Map<DirectorySource, List<DirectoryEntry>> entries = new HashMap<DirectorySource, List<DirectoryEntry>>();
+  
+  /**
+   * Merged entries from the last update, by canonical address.
+   */
+  private Map<String, MergedDirectoryEntry> mergedEntries = new HashMap<String, MergedDirectoryEntry>();
+  
+  /**
+   * Number of entries left out by the last update.
+   */
+  private int duplicateCount;
+  
+  /**
+   * Create a deduplicator.
+   * 
+   * @param sources directory sources, in order - the first directory to list a stream stands for it
+   */
+  public DirectoryDeduplicator(List<DirectorySource> sources) {
+    this.sources = sources;
+  }
+  
+  /**
+   * Set the latest directory for a source, and work out the entries to show
+   * for every directory.
+   * 
+   * @param source directory source
+   * @param directory latest directory
+   * @return entries to show for each directory whose entries changed, in order
+   */
+  public Map<DirectorySource, List<DirectoryEntry>> update(DirectorySource source, Directory directory) {
+    directories.put(source, directory);
+    canonicalUrls.put(source, canonicalize(directory.entries()));
+    // The first entry for each stream, and all of the entries for each stream
+    // listed more than once
+    Map<String, DirectoryEntry> firstEntries = new HashMap<String, DirectoryEntry>();
+    Map<String, List<DirectoryEntry>> duplicates = new HashMap<String, List<DirectoryEntry>>();
+    for(DirectorySource directorySource : sources) {
+      Directory sourceDirectory = directories.get(directorySource);
+      if(sourceDirectory == null) {
+        continue;
+      }
+      List<? extends DirectoryEntry> sourceEntries = sourceDirectory.entries();
+      String[] urls = canonicalUrls.get(directorySource);
+      for(int i = 0; i < urls.length; i++) {
+        String url = urls[i];
+        if(url == null) {
+          continue;
+        }
+        DirectoryEntry entry = sourceEntries.get(i);
+        DirectoryEntry firstEntry = firstEntries.get(url);
+        if(firstEntry == null) {
+          firstEntries.put(url, entry);
+        }
+        else {
+          List<DirectoryEntry> members = duplicates.get(url);
+          if(members == null) {
+            members = new ArrayList<DirectoryEntry>(2);
+            members.add(firstEntry);
+            duplicates.put(url, members);
+          }
+          members.add(entry);
+        }
+      }
+    }
+    Map<String, MergedDirectoryEntry> newMergedEntries = new HashMap<String, MergedDirectoryEntry>(duplicates.size() * 2);
+    Map<DirectorySource, List<DirectoryEntry>> changed = new LinkedHashMap<DirectorySource, List<DirectoryEntry>>();
+    duplicateCount = 0;
+    for(DirectorySource directorySource : sources) {
+      Directory sourceDirectory = directories.get(directorySource);
+      if(sourceDirectory == null) {
+        continue;
+      }
+      List<? extends DirectoryEntry> sourceEntries = sourceDirectory.entries();
+      String[] urls = canonicalUrls.get(directorySource);
+      List<DirectoryEntry> shown = new ArrayList<DirectoryEntry>(urls.length);
+      for(int i = 0; i < urls.length; i++) {
+        String url = urls[i];
+        DirectoryEntry entry = sourceEntries.get(i);
+        if(url == null) {
+          shown.add(entry);
+        }
+        else if(firstEntries.get(url) != entry) {
+          duplicateCount++;
+        }
+        else {
+          List<DirectoryEntry> members = duplicates.get(url);
+          if(members == null) {
+            shown.add(entry);
+          }
+          else {
+            MergedDirectoryEntry mergedEntry = mergedEntries.get(url);
+            if(mergedEntry == null || !mergedEntry.getMembers().equals(members)) {
+              mergedEntry = new MergedDirectoryEntry(members);
+            }
+            newMergedEntries.put(url, mergedEntry);
+            shown.add(mergedEntry);
+          }
+        }
+      }
+      if(!isSame(entries.get(directorySource), shown)) {
+        entries.put(directorySource, shown);
+        changed.put(directorySource, shown);
+      }
+    }
+    mergedEntries = newMergedEntries;
+    return changed;
+  }
+  
+  /**
+   * Get the entries to show for a directory, from the last update.
+   * 
+   * @param source directory source
+   * @return entries, or <code>null</code> if the directory has not been loaded
+   */
+  public List<DirectoryEntry> getEntries(DirectorySource source) {
+    return entries.get(source);
+  }
+  
+  /**
+   * Get the number of entries left out by the last update because they are
+   * for the same stream as another entry.
+   * 
+   * @return number of entries
+   */
+  public int getDuplicateCount() {
+    return duplicateCount;
+  }
+  
+  /**
+   * Get the canonical addresses of entries.
+   * 
+   * @param entries entries
+   * @return canonical addresses, in the same order
+   */
+  private static String[] canonicalize(List<? extends DirectoryEntry> entries) {
+    String[] urls = new String[entries.size()];
+    for(int i = 0; i < urls.length; i++) {
+      urls[i] = UrlCanonicalizer.canonicalize(entries.get(i).getUrl());
+    }
+    return urls;
+  }
+  
+  /**
+   * Test whether two lists hold the same entries, in the same order.
+   * 
+   * @param a first list, may be <code>null</code>
+   * @param b second list
+   * @return <code>true</code> if the lists hold the same entries; <code>false</code> otherwise
+   */
+  private static boolean isSame(List<DirectoryEntry> a, List<DirectoryEntry> b) {
+    if(a == null || a.size() != b.size()) {
+      return false;
+    }
+    for(int i = 0; i < a.size(); i++) {
+      if(a.get(i) != b.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(60);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("directories=").append(directories.size()).append(',');
+    sb.append("mergedEntries=").append(mergedEntries.size()).append(',');
+    sb.append("duplicateCount=").append(duplicateCount).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,653 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.cache.ColumnarDirectory;
+import uk.co.caprica.vlcj.radio.service.cache.ProcessLock;
+
+/**
+ * Component that loads a number of directories in parallel.
+ * <p>
+ * Each directory is loaded on a bounded pool of threads and is given its own
+ * deadline - a directory that has not loaded by the time its deadline expires
+ * is cancelled and reported as failed, without holding up the others.
+ * <p>
+ * Each directory is reported to the listener as soon as it is available, in
+ * whatever order the directories happen to complete. A directory retrieved
+ * from a {@link RemoteDirectoryService} may additionally be reported in 
+ * batches while it is still being retrieved.
+ * <p>
+ * A cached directory is always reported straight away, even if it has 
+ * expired. An expired directory is then refreshed from its source in the 
+ * background and reported again when the refresh completes, so the listener
+ * may be notified more than once for the same directory.
+ * <p>
+ * A failed fetch from a source is retried according to the 
+ * {@link RetryPolicy} for the source. A source that keeps failing is skipped
+ * while its {@link CircuitBreaker} is open, and the last good cached copy of
+ * the directory is used instead.
+ * <p>
+ * A refreshed directory is reported as soon as it has been retrieved, and is
+ * written to its cache afterwards by a {@link CacheWriter}.
+ * <p>
+ * When the cache is shared with other processes, only one process at a time
+ * refreshes a directory. The others wait for it, and then use the directory
+ * it stored instead of retrieving the directory again.
+ * <p>
+ * Each directory load has a {@link DirectoryProgress} record, given to the 
+ * listener when the directory is queued, that shows the state of the load 
+ * and the number of entries and bytes received so far.
+ */
+public class DirectoryLoader {
+
+  /**
+   * Bounded pool of threads used to load the directories.
+   */
+  private final ExecutorService executorService;
+  
+  /**
+   * Timer used to enforce the deadline for each directory.
+   */
+  private final ScheduledExecutorService timerService;
+  
+  /**
+   * Directories that are currently being loaded.
+   */
+  private final Set<DirectorySource> loadingSources = Collections.synchronizedSet(new HashSet<DirectorySource>());
+  
+  /**
+   * Writes refreshed directories to their caches in the background.
+   */
+  private final CacheWriter cacheWriter = new CacheWriter();
+  
+  /**
+   * Create a directory loader.
+   * 
+   * @param threads maximum number of directories to load at the same time
+   */
+  public DirectoryLoader(int threads) {
+    this.executorService = Executors.newFixedThreadPool(threads, new LoaderThreadFactory("directory-loader"));
+    this.timerService = Executors.newSingleThreadScheduledExecutor(new LoaderThreadFactory("directory-loader-timer"));
+  }
+  
+  /**
+   * Load directories.
+   * <p>
+   * This method returns immediately, the listener is notified as each 
+   * directory loads.
+   * <p>
+   * A directory that is still being loaded by a previous request is not
+   * loaded again.
+   * 
+   * @param sources directories to load
+   * @param forceUpdate <code>true</code> to refresh every directory from its source; <code>false</code> to refresh only those directories that are missing from the cache or have expired
+   * @param listener component to notify as each directory loads
+   */
+  public void load(List<DirectorySource> sources, boolean forceUpdate, DirectoryLoaderListener listener) {
+    LoadProgress progress = new LoadProgress(sources.size(), listener);
+    for(DirectorySource source : sources) {
+      if(loadingSources.add(source)) {
+        LoadTask task = new LoadTask(source, forceUpdate, progress);
+        listener.directoryQueued(source, task.directoryProgress);
+        executorService.execute(task);
+      }
+      else {
+        progress.directoryAvailable();
+        progress.directoryFinished();
+      }
+    }
+    progress.checkFinished();
+  }
+  
+  /**
+   * Release the loader threads.
+   * <p>
+   * Any directories that are still loading are abandoned, but refreshed 
+   * directories that are still waiting to be written to their caches are
+   * written first, waiting a limited time.
+   */
+  public void shutdown() {
+    timerService.shutdownNow();
+    executorService.shutdownNow();
+    cacheWriter.shutdown();
+  }
+  
+  /**
+   * Load a single directory.
+   * <p>
+   * Any cached directory is reported as soon as it has been read, then the
+   * directory is refreshed from its source if necessary.
+   * <p>
+   * A source with an open circuit breaker is not contacted, the cached 
+   * directory is used instead.
+   * 
+   * @param source directory source
+   * @param forceUpdate <code>true</code> to refresh the directory from its source even if the cached directory has not expired; <code>false</code> otherwise
+   * @param task task loading the directory
+   * @return directory refreshed from the source, or <code>null</code> if the cached directory was current
+   * @throws InterruptedException if the load was cancelled while waiting to retry
+   */
+  private Directory loadDirectory(DirectorySource source, boolean forceUpdate, final LoadTask task) throws InterruptedException {
+    // A copy from a previous load may still be waiting to be written
+    cacheWriter.flush(source.getCachedDirectoryService());
+    // First try loading from the cache, this is used even if it has expired...
+    boolean cachedReported = false;
+    if(!forceUpdate) {
+      Directory directory = readCachedDirectory(source, task);
+      if(directory != null) {
+        task.directoryProgress.setState(DirectoryState.CACHED);
+        task.directoryLoaded(directory);
+        cachedReported = true;
+        if(!isExpired(source)) {
+          return null;
+        }
+      }
+    }
+    // Skip a source that keeps failing until its cool-down has passed
+    CircuitBreaker circuitBreaker = source.getCircuitBreaker();
+    if(!circuitBreaker.allowRequest()) {
+      task.directoryProgress.setState(DirectoryState.SKIPPED);
+      if(cachedReported) {
+        return null;
+      }
+      Directory directory = readCachedDirectory(source, task);
+      if(directory != null) {
+        return directory;
+      }
+      throw new RuntimeException("Directory unavailable after " + circuitBreaker.getConsecutiveFailures() + " failures, next attempt in " + circuitBreaker.getRemainingCoolDown() / 1000 + "s");
+    }
+    // Only one process sharing the cache refreshes the directory at a time,
+    // any other waits and then uses the copy that was stored
+    CachedDirectoryService cachedDirectoryService = source.getCachedDirectoryService();
+    long lastUpdated = cachedDirectoryService.getLastUpdated();
+    ProcessLock refreshLock = cachedDirectoryService.getRefreshLock();
+    try {
+      // Only waiting on another process is reported
+      refreshLock.lock(new Runnable() {
+        @Override
+        public void run() {
+          task.directoryProgress.setState(DirectoryState.WAITING);
+        }
+      });
+      task.refreshLock = refreshLock;
+    }
+    catch(InterruptedIOException e) {
+      throw new InterruptedException(e.getMessage());
+    }
+    catch(IOException e) {
+      // Locking is not supported by every file system, carry on without it
+    }
+    try {
+      if(cachedDirectoryService.getLastUpdated() != lastUpdated || (!forceUpdate && !isExpired(source))) {
+        Directory directory = readCachedDirectory(source, task);
+        if(directory != null) {
+          return directory;
+        }
+      }
+      // The cached directory is not available or has expired, so go to the
+      // source - this may throw an exception
+      task.remoteAttempted = true;
+      return fetchDirectory(source, task);
+    }
+    finally {
+      // Unless it was passed on with the refreshed directory to be released 
+      // once the directory has been written
+      ProcessLock heldLock = task.takeRefreshLock();
+      if(heldLock != null) {
+        heldLock.unlock();
+      }
+    }
+  }
+  
+  /**
+   * Read the cached copy of a directory.
+   * 
+   * @param source directory source
+   * @param task task loading the directory
+   * @return directory, or <code>null</code> if there is no cached directory or it could not be read
+   */
+  private Directory readCachedDirectory(DirectorySource source, LoadTask task) {
+    Directory directory = null;
+    try {
+      directory = source.getCachedDirectoryService().directory();
+    }
+    catch(Throwable t) {
+      // Swallow this error so we can continue
+    }
+    if(directory != null) {
+      task.directoryProgress.setEntryCount(directory.entries().size());
+    }
+    return directory;
+  }
+  
+  /**
+   * Fetch a directory from its source, retrying failed attempts according to
+   * the retry policy for the source.
+   * <p>
+   * An attempt that already reported some entries is not retried, since
+   * those entries may already be shown.
+   * 
+   * @param source directory source
+   * @param task task loading the directory
+   * @return directory
+   * @throws InterruptedException if the load was cancelled while waiting to retry
+   */
+  private Directory fetchDirectory(DirectorySource source, LoadTask task) throws InterruptedException {
+    RetryPolicy retryPolicy = source.getRetryPolicy();
+    for(int attempt = 1; ; attempt++) {
+      // Count only the entries received from the source
+      task.directoryProgress.setEntryCount(0);
+      task.directoryProgress.setAttempt(attempt);
+      try {
+        DirectoryService directoryService = source.getDirectoryService();
+        if(directoryService instanceof RemoteDirectoryService) {
+          return loadRemoteDirectory(source, (RemoteDirectoryService)directoryService, task);
+        }
+        else {
+          task.directoryProgress.setState(DirectoryState.FETCHING);
+          return publish(source, task, directoryService.directory(), null);
+        }
+      }
+      catch(RuntimeException e) {
+        if(Thread.currentThread().isInterrupted() || task.directoryProgress.getEntryCount() > 0 || !retryPolicy.shouldRetry(attempt, e)) {
+          throw e;
+        }
+      }
+      Thread.sleep(retryPolicy.getDelay(attempt));
+    }
+  }
+  
+  /**
+   * Has the cached copy of a directory expired?
+   * 
+   * @param source directory source
+   * @return <code>true</code> if the cached directory is older than the time-to-live for the source; <code>false</code> otherwise
+   */
+  private boolean isExpired(DirectorySource source) {
+    return System.currentTimeMillis() - source.getCachedDirectoryService().getLastUpdated() > source.getTimeToLive();
+  }
+  
+  /**
+   * Load a single directory from a remote source, using a conditional request
+   * if there is already a cached copy of the directory.
+   * 
+   * @param source directory source
+   * @param directoryService remote directory service
+   * @param task task loading the directory
+   * @return directory
+   */
+  private Directory loadRemoteDirectory(DirectorySource source, RemoteDirectoryService directoryService, final LoadTask task) {
+    CachedDirectoryService cachedDirectoryService = source.getCachedDirectoryService();
+    // Pass on entries as they arrive, unless the load has been cancelled
+    DirectoryRequestListener requestListener = new DirectoryRequestListener() {
+      @Override
+      public void entriesAvailable(List<? extends DirectoryEntry> entries) {
+        if(!Thread.currentThread().isInterrupted()) {
+          task.entriesAvailable(entries);
+        }
+      }
+    };
+    CacheValidators validators = cachedDirectoryService.getValidators();
+    if(validators != null) {
+      DirectoryRequest request = new DirectoryRequest(requestListener, validators, task.directoryProgress);
+      Directory directory = directoryService.directory(request);
+      if(!request.isNotModified()) {
+        return publish(source, task, directory, request.getResponseValidators());
+      }
+      // Not modified, so the cached copy is still current - if it can be read
+      cachedDirectoryService.touch();
+      try {
+        directory = cachedDirectoryService.directory();
+      }
+      catch(Throwable t) {
+        directory = null;
+      }
+      if(directory != null) {
+        return directory;
+      }
+    }
+    DirectoryRequest request = new DirectoryRequest(requestListener, null, task.directoryProgress);
+    Directory directory = directoryService.directory(request);
+    return publish(source, task, directory, request.getResponseValidators());
+  }
+  
+  /**
+   * Publish a directory refreshed from its source, queueing it to be written
+   * to the cache.
+   * <p>
+   * The directory is indexed, the same as a directory read from the cache, 
+   * so its entries are published in the default order.
+   * <p>
+   * A directory that is not plausible, see 
+   * {@link CachedDirectoryService#isPlausible(Directory)}, is neither 
+   * published nor cached, and the cached directory is published instead. It
+   * is not marked as current, so the next load tries the source again.
+   * <p>
+   * A source that returned no directory at all has failed, unless there is a
+   * cached directory to publish instead.
+   * 
+   * @param source directory source
+   * @param task task loading the directory
+   * @param directory refreshed directory, may be <code>null</code>
+   * @param validators HTTP cache validators for the directory, may be <code>null</code>
+   * @return directory to publish
+   */
+  private Directory publish(DirectorySource source, LoadTask task, Directory directory, CacheValidators validators) {
+    CachedDirectoryService cachedDirectoryService = source.getCachedDirectoryService();
+    if(!cachedDirectoryService.isPlausible(directory)) {
+      Directory cachedDirectory = readCachedDirectory(source, task);
+      if(cachedDirectory != null) {
+        System.err.println("Warning: " + source.getName() + (directory != null ? " returned only " + directory.entries().size() + " entries" : " returned no directory") + ", keeping the cached directory");
+        return cachedDirectory;
+      }
+      if(directory == null) {
+        throw new RuntimeException("Failed to load " + source.getName() + ", no directory was returned");
+      }
+    }
+    directory = ColumnarDirectory.of(directory);
+    cacheWriter.store(cachedDirectoryService, directory, validators, task.takeRefreshLock());
+    return directory;
+  }
+  
+  /**
+   * Progress of a single request to load directories.
+   */
+  private static class LoadProgress {
+    
+    private final DirectoryLoaderListener listener;
+    
+    /**
+     * Number of directories that have neither been reported nor failed.
+     */
+    private final AtomicInteger unavailable;
+    
+    /**
+     * Number of directories that are still loading.
+     */
+    private final AtomicInteger remaining;
+    
+    private LoadProgress(int count, DirectoryLoaderListener listener) {
+      this.listener = listener;
+      // One extra count for each, released by checkFinished() once every task
+      // has been submitted
+      this.unavailable = new AtomicInteger(count + 1);
+      this.remaining = new AtomicInteger(count + 1);
+    }
+    
+    private void directoryAvailable() {
+      if(unavailable.decrementAndGet() == 0) {
+        listener.directoriesAvailable();
+      }
+    }
+    
+    private void directoryFinished() {
+      if(remaining.decrementAndGet() == 0) {
+        listener.loadFinished();
+      }
+    }
+    
+    private void checkFinished() {
+      directoryAvailable();
+      directoryFinished();
+    }
+  }
+  
+  /**
+   * Task to load a single directory and notify the listener when it is done.
+   */
+  private class LoadTask extends FutureTask<Directory> {
+
+    private final DirectorySource source;
+    
+    private final LoadProgress progress;
+    
+    private final DirectoryProgress directoryProgress;
+    
+    private final long started;
+    
+    /**
+     * Flag whether the source itself was contacted, rather than only the 
+     * cache.
+     */
+    private volatile boolean remoteAttempted;
+    
+    /**
+     * Lock held while the directory is refreshed, only ever used by the 
+     * thread running the task.
+     */
+    private ProcessLock refreshLock;
+    
+    private final AtomicBoolean available = new AtomicBoolean();
+    
+    /**
+     * Flag whether the source has been claimed, either by the work starting
+     * or by the task finishing before the work started - whichever claims it
+     * is responsible for releasing the source.
+     */
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    
+    private volatile ScheduledFuture<?> timeout;
+    
+    private LoadTask(DirectorySource source, boolean forceUpdate, LoadProgress progress) {
+      this(source, new LoadCallable(source, forceUpdate), progress);
+    }
+    
+    private LoadTask(DirectorySource source, LoadCallable callable, LoadProgress progress) {
+      super(callable);
+      callable.task = this;
+      this.source = source;
+      this.progress = progress;
+      this.directoryProgress = new DirectoryProgress(source);
+      this.started = System.currentTimeMillis();
+    }
+    
+    /**
+     * Take over the lock held while the directory is refreshed, the caller 
+     * becomes responsible for releasing it.
+     * 
+     * @return lock, or <code>null</code> if no lock is held
+     */
+    private ProcessLock takeRefreshLock() {
+      ProcessLock lock = refreshLock;
+      refreshLock = null;
+      return lock;
+    }
+    
+    /**
+     * Start the deadline for the directory, from when the task starts to run
+     * rather than from when it was queued behind the other directories.
+     */
+    @Override
+    public void run() {
+      if(!isDone()) {
+        try {
+          timeout = timerService.schedule(new TimeoutRunnable(this), source.getDeadline(), TimeUnit.MILLISECONDS);
+        }
+        catch(RejectedExecutionException e) {
+          // The loader is shutting down, the task will be abandoned anyway
+        }
+      }
+      super.run();
+    }
+    
+    private void entriesAvailable(List<? extends DirectoryEntry> entries) {
+      progress.listener.directoryEntriesAvailable(source, entries);
+    }
+    
+    private void directoryLoaded(Directory directory) {
+      progress.listener.directoryLoaded(source, directory, System.currentTimeMillis() - started);
+      directoryAvailable();
+    }
+    
+    private void directoryAvailable() {
+      if(available.compareAndSet(false, true)) {
+        progress.directoryAvailable();
+      }
+    }
+
+    private void directoryFailed() {
+      if(remoteAttempted) {
+        source.getCircuitBreaker().recordFailure();
+      }
+      directoryProgress.setState(DirectoryState.FAILED);
+    }
+
+    @Override
+    protected void done() {
+      // If the work already started, it may still be running after a cancel,
+      // so the source is released only when the work itself has finished
+      if(claimed.compareAndSet(false, true)) {
+        loadingSources.remove(source);
+      }
+      if(timeout != null) {
+        timeout.cancel(false);
+      }
+      DirectoryLoaderListener listener = progress.listener;
+      long elapsed = System.currentTimeMillis() - started;
+      try {
+        if(isCancelled()) {
+          directoryFailed();
+          listener.directoryFailed(source, new TimeoutException("Deadline of " + source.getDeadline() + "ms expired"), elapsed);
+        }
+        else {
+          try {
+            Directory directory = get();
+            if(directory != null) {
+              directoryProgress.setEntryCount(directory.entries().size());
+            }
+            if(remoteAttempted) {
+              source.getCircuitBreaker().recordSuccess();
+            }
+            // A skipped source keeps its state
+            if(!directoryProgress.isFinished()) {
+              directoryProgress.setState(DirectoryState.DONE);
+            }
+            if(directory != null) {
+              listener.directoryLoaded(source, directory, elapsed);
+            }
+          }
+          catch(ExecutionException e) {
+            directoryFailed();
+            listener.directoryFailed(source, e.getCause(), elapsed);
+          }
+          catch(InterruptedException e) {
+            directoryFailed();
+            listener.directoryFailed(source, e, elapsed);
+          }
+        }
+      }
+      finally {
+        directoryAvailable();
+        progress.directoryFinished();
+      }
+    }
+  }
+  
+  /**
+   * Work performed by a load task.
+   */
+  private class LoadCallable implements Callable<Directory> {
+
+    private final DirectorySource source;
+    
+    private final boolean forceUpdate;
+    
+    private LoadTask task;
+    
+    private LoadCallable(DirectorySource source, boolean forceUpdate) {
+      this.source = source;
+      this.forceUpdate = forceUpdate;
+    }
+    
+    @Override
+    public Directory call() throws Exception {
+      if(!task.claimed.compareAndSet(false, true)) {
+        return null;
+      }
+      try {
+        return loadDirectory(source, forceUpdate, task);
+      }
+      finally {
+        loadingSources.remove(source);
+      }
+    }
+  }
+  
+  /**
+   * Task to cancel a directory load when its deadline expires.
+   */
+  private static class TimeoutRunnable implements Runnable {
+
+    private final LoadTask task;
+    
+    private TimeoutRunnable(LoadTask task) {
+      this.task = task;
+    }
+    
+    @Override
+    public void run() {
+      task.cancel(true);
+    }
+  }
+  
+  /**
+   * Factory for named daemon threads, so an outstanding load never prevents
+   * the application from exiting.
+   */
+  private static class LoaderThreadFactory implements ThreadFactory {
+
+    private final String name;
+    
+    private final AtomicInteger count = new AtomicInteger();
+    
+    private LoaderThreadFactory(String name) {
+      this.name = name;
+    }
+    
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
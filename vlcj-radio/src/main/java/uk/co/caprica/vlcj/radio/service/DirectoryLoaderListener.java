@@ -0,0 +1,92 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Specification for a component interested in the progress of a directory
+ * load.
+ * <p>
+ * Notifications are sent from the loader threads, not the Swing event
+ * dispatch thread.
+ */
+public interface DirectoryLoaderListener {
+
+  /**
+   * A directory was queued for loading.
+   * <p>
+   * The progress record is updated as the directory loads and may be read at
+   * any time, from any thread.
+   * 
+   * @param source directory source
+   * @param progress live progress of the load
+   */
+  void directoryQueued(DirectorySource source, DirectoryProgress progress);
+  
+  /**
+   * A batch of entries was retrieved for a directory that is still loading.
+   * <p>
+   * The same entries will also be part of the directory reported when the
+   * directory finishes loading.
+   * 
+   * @param source directory source
+   * @param entries directory entries
+   */
+  void directoryEntriesAvailable(DirectorySource source, List<? extends DirectoryEntry> entries);
+  
+  /**
+   * A directory finished loading.
+   * <p>
+   * This may be called a second time for the same directory if an expired
+   * cached directory was reported and has now been refreshed from its source,
+   * in which case the new directory replaces the old one.
+   * 
+   * @param source directory source
+   * @param directory directory
+   * @param elapsed time taken to load the directory, in milliseconds
+   */
+  void directoryLoaded(DirectorySource source, Directory directory, long elapsed);
+  
+  /**
+   * A directory failed to load, or did not load before its deadline expired.
+   * 
+   * @param source directory source
+   * @param cause reason for the failure
+   * @param elapsed time taken before the failure, in milliseconds
+   */
+  void directoryFailed(DirectorySource source, Throwable cause, long elapsed);
+  
+  /**
+   * Every directory has either been reported at least once or failed.
+   * <p>
+   * Refreshes of expired directories may still be in progress.
+   */
+  void directoriesAvailable();
+  
+  /**
+   * Every directory has either loaded or failed, including any refreshes of
+   * expired directories.
+   */
+  void loadFinished();
+}
@@ -0,0 +1,181 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of a single directory load.
+ * <p>
+ * The progress is updated by the threads loading the directory and can be
+ * read at any time from any thread, for example by a user interface timer.
+ */
+public class DirectoryProgress {
+
+  /**
+   * Directory source.
+   */
+  private final DirectorySource source;
+  
+  /**
+   * Number of bytes received.
+   */
+  private final AtomicLong bytesRead = new AtomicLong();
+  
+  /**
+   * Current state.
+   */
+  private volatile DirectoryState state = DirectoryState.QUEUED;
+  
+  /**
+   * Number of entries retrieved.
+   */
+  private volatile int entryCount;
+  
+  /**
+   * Number of the current attempt to fetch the directory from its source.
+   */
+  private volatile int attempt;
+  
+  /**
+   * Create a progress record.
+   * 
+   * @param source directory source
+   */
+  public DirectoryProgress(DirectorySource source) {
+    this.source = source;
+  }
+  
+  /**
+   * Get the directory source.
+   * 
+   * @return source
+   */
+  public DirectorySource getSource() {
+    return source;
+  }
+  
+  /**
+   * Get the current state.
+   * 
+   * @return state
+   */
+  public DirectoryState getState() {
+    return state;
+  }
+  
+  /**
+   * Set the current state.
+   * 
+   * @param state state
+   */
+  public void setState(DirectoryState state) {
+    this.state = state;
+  }
+  
+  /**
+   * Has the load finished, whether it succeeded or not?
+   * 
+   * @return <code>true</code> if the load has finished; <code>false</code> otherwise
+   */
+  public boolean isFinished() {
+    DirectoryState state = this.state;
+    return state == DirectoryState.DONE || state == DirectoryState.FAILED || state == DirectoryState.SKIPPED;
+  }
+  
+  /**
+   * Get the number of entries retrieved.
+   * 
+   * @return number of entries
+   */
+  public int getEntryCount() {
+    return entryCount;
+  }
+  
+  /**
+   * Set the number of entries retrieved.
+   * 
+   * @param entryCount number of entries
+   */
+  public void setEntryCount(int entryCount) {
+    this.entryCount = entryCount;
+  }
+  
+  /**
+   * Add to the number of entries retrieved.
+   * <p>
+   * This must only be called by one thread at a time.
+   * 
+   * @param count number of entries to add
+   */
+  public void addEntries(int count) {
+    entryCount += count;
+  }
+  
+  /**
+   * Get the number of the current attempt to fetch the directory from its 
+   * source.
+   * 
+   * @return attempt number, starting at one, or zero if the source has not been contacted
+   */
+  public int getAttempt() {
+    return attempt;
+  }
+  
+  /**
+   * Set the number of the current attempt to fetch the directory from its
+   * source.
+   * 
+   * @param attempt attempt number, starting at one
+   */
+  public void setAttempt(int attempt) {
+    this.attempt = attempt;
+  }
+  
+  /**
+   * Get the number of bytes received.
+   * 
+   * @return number of bytes, before any decompression
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+  
+  /**
+   * Add to the number of bytes received.
+   * 
+   * @param count number of bytes
+   */
+  public void addBytesRead(long count) {
+    bytesRead.addAndGet(count);
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("source=").append(source.getName()).append(',');
+    sb.append("state=").append(state).append(',');
+    sb.append("entryCount=").append(entryCount).append(',');
+    sb.append("attempt=").append(attempt).append(',');
+    sb.append("bytesRead=").append(bytesRead.get()).append(']');
+    return sb.toString();
+  }
+}
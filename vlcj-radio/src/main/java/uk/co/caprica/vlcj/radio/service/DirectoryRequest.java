@@ -0,0 +1,164 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * A single request to a remote directory service.
+ * <p>
+ * The service uses the request to report entries as they are retrieved, 
+ * rather than only when the whole directory is complete.
+ * <p>
+ * If the request carries cache validators from a previous response, the
+ * service should make a conditional request and, if the remote directory has
+ * not been modified, mark the request as not modified and return 
+ * <code>null</code> rather than retrieving the directory again.
+ * <p>
+ * The request may also carry a progress record, updated as the directory is
+ * fetched and parsed.
+ */
+public class DirectoryRequest {
+
+  /**
+   * Component to notify of progress, may be <code>null</code>.
+   */
+  private final DirectoryRequestListener listener;
+  
+  /**
+   * Validators from the previous response, may be <code>null</code>.
+   */
+  private final CacheValidators validators;
+  
+  /**
+   * Progress record to update, may be <code>null</code>.
+   */
+  private final DirectoryProgress progress;
+  
+  /**
+   * Validators from this response.
+   */
+  private CacheValidators responseValidators;
+  
+  /**
+   * Flag whether the remote directory was reported as not modified.
+   */
+  private boolean notModified;
+  
+  /**
+   * Create a request.
+   * 
+   * @param listener component to notify of progress, may be <code>null</code>
+   */
+  public DirectoryRequest(DirectoryRequestListener listener) {
+    this(listener, null);
+  }
+  
+  /**
+   * Create a conditional request.
+   * 
+   * @param listener component to notify of progress, may be <code>null</code>
+   * @param validators validators from the previous response, may be <code>null</code>
+   */
+  public DirectoryRequest(DirectoryRequestListener listener, CacheValidators validators) {
+    this(listener, validators, null);
+  }
+  
+  /**
+   * Create a conditional request that records its progress.
+   * 
+   * @param listener component to notify of progress, may be <code>null</code>
+   * @param validators validators from the previous response, may be <code>null</code>
+   * @param progress progress record to update, may be <code>null</code>
+   */
+  public DirectoryRequest(DirectoryRequestListener listener, CacheValidators validators, DirectoryProgress progress) {
+    this.listener = listener;
+    this.validators = validators;
+    this.progress = progress;
+  }
+  
+  /**
+   * Get the validators to send with the request.
+   * 
+   * @return validators, may be <code>null</code>
+   */
+  public CacheValidators getValidators() {
+    return validators;
+  }
+  
+  /**
+   * Get the progress record to update.
+   * 
+   * @return progress, may be <code>null</code>
+   */
+  public DirectoryProgress getProgress() {
+    return progress;
+  }
+  
+  /**
+   * Get the validators received with the response.
+   * 
+   * @return validators, may be <code>null</code>
+   */
+  public CacheValidators getResponseValidators() {
+    return responseValidators;
+  }
+  
+  /**
+   * Set the validators received with the response.
+   * 
+   * @param responseValidators validators
+   */
+  public void setResponseValidators(CacheValidators responseValidators) {
+    this.responseValidators = responseValidators;
+  }
+  
+  /**
+   * Was the remote directory reported as not modified?
+   * 
+   * @return <code>true</code> if the directory was not modified and was not retrieved; <code>false</code> otherwise
+   */
+  public boolean isNotModified() {
+    return notModified;
+  }
+  
+  /**
+   * Mark the remote directory as not modified.
+   */
+  public void setNotModified() {
+    this.notModified = true;
+  }
+  
+  /**
+   * Report a batch of retrieved directory entries.
+   * 
+   * @param entries directory entries
+   */
+  public void entriesAvailable(List<? extends DirectoryEntry> entries) {
+    if(progress != null) {
+      progress.addEntries(entries.size());
+    }
+    if(listener != null && !entries.isEmpty()) {
+      listener.entriesAvailable(entries);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Specification for a component interested in the progress of a request to a
+ * remote directory service.
+ */
+public interface DirectoryRequestListener {
+
+  /**
+   * A batch of directory entries has been retrieved.
+   * <p>
+   * The same entries will also be part of the directory returned when the 
+   * request completes.
+   * 
+   * @param entries directory entries
+   */
+  void entriesAvailable(List<? extends DirectoryEntry> entries);
+}
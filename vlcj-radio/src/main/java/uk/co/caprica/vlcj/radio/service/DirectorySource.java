@@ -0,0 +1,174 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+/**
+ * A named source of directory entries.
+ * <p>
+ * A source pairs the remote directory service with the local cache for that
+ * same directory, along with the policies used to protect against failures
+ * of the remote directory service.
+ */
+public class DirectorySource {
+
+  /**
+   * Name of the directory.
+   */
+  private final String name;
+  
+  /**
+   * Remote directory service.
+   */
+  private final DirectoryService directoryService;
+  
+  /**
+   * Local cache directory service.
+   */
+  private final CachedDirectoryService cachedDirectoryService;
+  
+  /**
+   * Maximum time allowed to load this directory, in milliseconds.
+   */
+  private final long deadline;
+  
+  /**
+   * Time after which the cached directory should be refreshed, in milliseconds.
+   */
+  private final long timeToLive;
+  
+  /**
+   * Policy for retrying a failed fetch from the remote directory service.
+   */
+  private final RetryPolicy retryPolicy;
+  
+  /**
+   * Circuit breaker for the remote directory service.
+   */
+  private final CircuitBreaker circuitBreaker;
+  
+  /**
+   * Create a directory source.
+   * 
+   * @param name name of the directory
+   * @param directoryService remote directory service
+   * @param cachedDirectoryService local cache directory service
+   * @param deadline maximum time allowed to load the directory, in milliseconds
+   * @param timeToLive time after which the cached directory should be refreshed, in milliseconds
+   */
+  public DirectorySource(String name, DirectoryService directoryService, CachedDirectoryService cachedDirectoryService, long deadline, long timeToLive) {
+    this(name, directoryService, cachedDirectoryService, deadline, timeToLive, new RetryPolicy(), new CircuitBreaker());
+  }
+  
+  /**
+   * Create a directory source.
+   * 
+   * @param name name of the directory
+   * @param directoryService remote directory service
+   * @param cachedDirectoryService local cache directory service
+   * @param deadline maximum time allowed to load the directory, in milliseconds
+   * @param timeToLive time after which the cached directory should be refreshed, in milliseconds
+   * @param retryPolicy policy for retrying a failed fetch from the remote directory service
+   * @param circuitBreaker circuit breaker for the remote directory service
+   */
+  public DirectorySource(String name, DirectoryService directoryService, CachedDirectoryService cachedDirectoryService, long deadline, long timeToLive, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+    this.name = name;
+    this.directoryService = directoryService;
+    this.cachedDirectoryService = cachedDirectoryService;
+    this.deadline = deadline;
+    this.timeToLive = timeToLive;
+    this.retryPolicy = retryPolicy;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * Get the name of the directory.
+   * 
+   * @return name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the remote directory service.
+   * 
+   * @return directory service
+   */
+  public DirectoryService getDirectoryService() {
+    return directoryService;
+  }
+
+  /**
+   * Get the local cache directory service.
+   * 
+   * @return cached directory service
+   */
+  public CachedDirectoryService getCachedDirectoryService() {
+    return cachedDirectoryService;
+  }
+
+  /**
+   * Get the maximum time allowed to load the directory.
+   * 
+   * @return deadline, in milliseconds
+   */
+  public long getDeadline() {
+    return deadline;
+  }
+  
+  /**
+   * Get the time after which the cached directory should be refreshed.
+   * 
+   * @return time-to-live, in milliseconds
+   */
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+  
+  /**
+   * Get the policy for retrying a failed fetch from the remote directory
+   * service.
+   * 
+   * @return retry policy
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+  
+  /**
+   * Get the circuit breaker for the remote directory service.
+   * 
+   * @return circuit breaker
+   */
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("name=").append(name).append(',');
+    sb.append("deadline=").append(deadline).append(',');
+    sb.append("timeToLive=").append(timeToLive).append(',');
+    sb.append("circuitBreaker=").append(circuitBreaker).append(']');
+    return sb.toString();
+  }
+}
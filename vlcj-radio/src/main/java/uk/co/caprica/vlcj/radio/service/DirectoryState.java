@@ -0,0 +1,67 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+/**
+ * Enumeration of the states a directory passes through while it is loaded.
+ */
+public enum DirectoryState {
+
+  /**
+   * Waiting for a loader thread.
+   */
+  QUEUED,
+  
+  /**
+   * The cached copy of the directory has been shown.
+   */
+  CACHED,
+  
+  /**
+   * Waiting for another process sharing the cache to refresh the directory.
+   */
+  WAITING,
+  
+  /**
+   * Requesting the directory from its source.
+   */
+  FETCHING,
+  
+  /**
+   * Receiving and parsing the directory.
+   */
+  PARSING,
+  
+  /**
+   * The directory is loaded.
+   */
+  DONE,
+  
+  /**
+   * The directory could not be loaded.
+   */
+  FAILED,
+  
+  /**
+   * The source has failed repeatedly and was not contacted, the cached 
+   * directory is used instead.
+   */
+  SKIPPED
+}
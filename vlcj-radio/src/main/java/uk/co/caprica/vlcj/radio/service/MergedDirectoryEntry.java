@@ -0,0 +1,302 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.MergedEntry;
+import uk.co.caprica.vlcj.radio.service.cache.BitRates;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+
+/**
+ * Entry combining the listings of the same stream, see 
+ * {@link DirectoryDeduplicator}.
+ * <p>
+ * Each detail is taken from the first listing that has a value for it. The
+ * directory is the names of all of the directories the stream is listed in, 
+ * which is only coded in the dictionary if there is just the one.
+ * The addresses of the other listings are tried highest bit-rate first, as
+ * the best quality is most likely to be the one the listener wants.
+ */
+final class MergedDirectoryEntry implements MergedEntry {
+
+  /**
+   * Listings of the stream, in order.
+   */
+  private final List<DirectoryEntry> members;
+  
+  private final String directory;
+  private final String name;
+  private final String type;
+  private final String bitRate;
+  private final int channels;
+  private final int sampleRate;
+  private final String genre;
+  private final String nowPlaying;
+  
+  private final List<String> alternateUrls;
+  
+  private final String directoryKey;
+  private final int directoryCode;
+  private final int typeCode;
+  private final int bitRateCode;
+  private final int genreCode;
+  private final int bitRateKbps;
+  private final String nameKey;
+  private final String urlKey;
+  
+  /**
+   * Create a merged entry.
+   * 
+   * @param members listings of the stream, in order, at least two
+   */
+  MergedDirectoryEntry(List<DirectoryEntry> members) {
+    this.members = members;
+    DirectoryEntry first = members.get(0);
+    List<String> directories = new ArrayList<String>(members.size());
+    List<DirectoryEntry> alternates = new ArrayList<DirectoryEntry>(members.size() - 1);
+    List<String> alternateUrls = new ArrayList<String>(members.size() - 1);
+    String name = null;
+    String type = null;
+    String bitRate = null;
+    int channels = 0;
+    int sampleRate = 0;
+    String genre = null;
+    String nowPlaying = null;
+    for(DirectoryEntry member : members) {
+      if(member.getDirectory() != null && !directories.contains(member.getDirectory())) {
+        directories.add(member.getDirectory());
+      }
+      if(member != first && member.getUrl() != null && !member.getUrl().equals(first.getUrl()) && !alternateUrls.contains(member.getUrl())) {
+        alternates.add(member);
+        alternateUrls.add(member.getUrl());
+      }
+      name = isBlank(name) ? member.getName() : name;
+      type = isBlank(type) ? member.getType() : type;
+      bitRate = isBlank(bitRate) ? member.getBitRate() : bitRate;
+      channels = channels <= 0 ? member.getChannels() : channels;
+      sampleRate = sampleRate <= 0 ? member.getSampleRate() : sampleRate;
+      genre = isBlank(genre) ? member.getGenre() : genre;
+      nowPlaying = isBlank(nowPlaying) ? member.getNowPlaying() : nowPlaying;
+    }
+    StringBuilder sb = new StringBuilder(40);
+    for(String directoryName : directories) {
+      if(sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(directoryName);
+    }
+    ValueDictionary dictionary = ValueDictionary.shared();
+    this.directory = directories.size() > 1 ? sb.toString() : dictionary.intern(sb.length() > 0 ? sb.toString() : null);
+    this.name = name;
+    this.type = dictionary.intern(type);
+    this.bitRate = dictionary.intern(bitRate);
+    this.channels = channels;
+    this.sampleRate = sampleRate;
+    this.genre = dictionary.intern(genre);
+    this.nowPlaying = nowPlaying;
+    // The sort is stable, so listings with the same bit-rate stay in order
+    Collections.sort(alternates, BIT_RATE_ORDER);
+    alternateUrls.clear();
+    for(DirectoryEntry alternate : alternates) {
+      alternateUrls.add(alternate.getUrl());
+    }
+    this.alternateUrls = Collections.unmodifiableList(alternateUrls);
+    this.directoryKey = this.directory != null ? this.directory.toLowerCase() : "";
+    this.directoryCode = directories.size() > 1 ? -1 : dictionary.code(this.directory);
+    this.typeCode = dictionary.code(this.type);
+    this.bitRateCode = dictionary.code(this.bitRate);
+    this.genreCode = dictionary.code(this.genre);
+    this.bitRateKbps = BitRates.parse(bitRate);
+    this.nameKey = name != null ? name.toLowerCase() : "";
+    this.urlKey = first.getUrl() != null ? first.getUrl().toLowerCase() : "";
+  }
+  
+  /**
+   * Get the listings of the stream.
+   * 
+   * @return listings, in order
+   */
+  List<DirectoryEntry> getMembers() {
+    return members;
+  }
+  
+  @Override
+  public String getDirectory() {
+    return directory;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getUrl() {
+    return members.get(0).getUrl();
+  }
+
+  @Override
+  public String getType() {
+    return type;
+  }
+
+  @Override
+  public String getBitRate() {
+    return bitRate;
+  }
+
+  @Override
+  public int getChannels() {
+    return channels;
+  }
+
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public String getGenre() {
+    return genre;
+  }
+
+  @Override
+  public String getNowPlaying() {
+    return nowPlaying;
+  }
+  
+  @Override
+  public List<String> getAlternateUrls() {
+    return alternateUrls;
+  }
+
+  @Override
+  public String getDirectoryKey() {
+    return directoryKey;
+  }
+
+  @Override
+  public String getNameKey() {
+    return nameKey;
+  }
+
+  @Override
+  public String getUrlKey() {
+    return urlKey;
+  }
+
+  @Override
+  public Object getRankGroup() {
+    return null;
+  }
+
+  @Override
+  public int getNameRank() {
+    return -1;
+  }
+
+  @Override
+  public int getUrlRank() {
+    return -1;
+  }
+
+  @Override
+  public String getTypeKey() {
+    return ValueDictionary.shared().getKey(typeCode);
+  }
+
+  @Override
+  public String getGenreKey() {
+    return ValueDictionary.shared().getKey(genreCode);
+  }
+
+  @Override
+  public int getBitRateKbps() {
+    return bitRateKbps;
+  }
+
+  @Override
+  public int getDirectoryCode() {
+    return directoryCode;
+  }
+
+  @Override
+  public int getTypeCode() {
+    return typeCode;
+  }
+
+  @Override
+  public int getBitRateCode() {
+    return bitRateCode;
+  }
+
+  @Override
+  public int getGenreCode() {
+    return genreCode;
+  }
+
+  /**
+   * Entries are compared as the first listing.
+   */
+  @Override
+  public int compareTo(DirectoryEntry o) {
+    DirectoryEntry first = members.get(0);
+    return first.compareTo(o instanceof MergedDirectoryEntry ? ((MergedDirectoryEntry)o).members.get(0) : o);
+  }
+  
+  /**
+   * Order of the alternate listings, highest bit-rate first and those with an
+   * unknown bit-rate last.
+   */
+  private static final Comparator<DirectoryEntry> BIT_RATE_ORDER = new Comparator<DirectoryEntry>() {
+    @Override
+    public int compare(DirectoryEntry o1, DirectoryEntry o2) {
+      int a = BitRates.parse(o1.getBitRate());
+      int b = BitRates.parse(o2.getBitRate());
+      return a > b ? -1 : (a == b ? 0 : 1);
+    }
+  };
+  
+  private static boolean isBlank(String value) {
+    return value == null || value.trim().length() == 0;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(300);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("directory=").append(directory).append(',');
+    sb.append("name=").append(name).append(',');
+    sb.append("url=").append(getUrl()).append(',');
+    sb.append("alternateUrls=").append(alternateUrls).append(',');
+    sb.append("type=").append(type).append(',');
+    sb.append("bitRate=").append(bitRate).append(',');
+    sb.append("channels=").append(channels).append(',');
+    sb.append("sampleRate=").append(sampleRate).append(',');
+    sb.append("genre=").append(genre).append(',');
+    sb.append("nowPlaying=").append(nowPlaying).append(']');
+    return sb.toString();
+  }
+}
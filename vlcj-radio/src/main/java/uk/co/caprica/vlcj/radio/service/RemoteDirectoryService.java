@@ -0,0 +1,37 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+
+/**
+ * Specification for a directory service that retrieves a directory from a
+ * remote source and is able to report its progress while it does so.
+ */
+public interface RemoteDirectoryService extends DirectoryService {
+
+  /**
+   * Get the directory.
+   * 
+   * @param request request, used to report progress
+   * @return directory, or <code>null</code> if the request was conditional and the directory has not been modified
+   */
+  Directory directory(DirectoryRequest request);
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import uk.co.caprica.vlcj.radio.service.http.HttpStatusException;
+
+/**
+ * Policy for retrying a failed directory fetch.
+ * <p>
+ * A fetch is retried a bounded number of times, waiting between attempts for
+ * an exponentially increasing delay with random jitter so that retries from
+ * different directories (and different users) do not arrive in step.
+ * <p>
+ * Only failures that are likely to be temporary are retried - network errors,
+ * timeouts and server errors. Client errors, unknown hosts, interruptions and
+ * errors in the directory service itself are not retried.
+ */
+public class RetryPolicy {
+
+  /**
+   * Source of randomness for the jitter.
+   */
+  private static final Random RANDOM = new Random();
+  
+  /**
+   * Maximum number of attempts, including the first.
+   */
+  private final int maxAttempts;
+  
+  /**
+   * Delay before the first retry, in milliseconds.
+   */
+  private final long initialDelay;
+  
+  /**
+   * Maximum delay before any retry, in milliseconds.
+   */
+  private final long maxDelay;
+  
+  /**
+   * Create a retry policy with the default settings - three attempts, 
+   * starting at one second between attempts.
+   */
+  public RetryPolicy() {
+    this(3, 1000, 16000);
+  }
+  
+  /**
+   * Create a retry policy.
+   * 
+   * @param maxAttempts maximum number of attempts, including the first
+   * @param initialDelay delay before the first retry, in milliseconds
+   * @param maxDelay maximum delay before any retry, in milliseconds
+   */
+  public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+    this.maxAttempts = maxAttempts;
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+  }
+  
+  /**
+   * Get the maximum number of attempts.
+   * 
+   * @return number of attempts, including the first
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+  
+  /**
+   * Should a failed attempt be retried?
+   * 
+   * @param attempt number of the attempt that failed, starting at one
+   * @param failure reason for the failure
+   * @return <code>true</code> if the fetch should be retried; <code>false</code> otherwise
+   */
+  public boolean shouldRetry(int attempt, Throwable failure) {
+    return attempt < maxAttempts && isTemporary(failure);
+  }
+  
+  /**
+   * Get the delay before retrying a failed attempt.
+   * <p>
+   * The delay doubles with each attempt, up to the maximum, and a random 
+   * amount of up to half of the delay is taken off.
+   * 
+   * @param attempt number of the attempt that failed, starting at one
+   * @return delay, in milliseconds
+   */
+  public long getDelay(int attempt) {
+    long delay = Math.min(maxDelay, initialDelay << Math.min(attempt - 1, 20));
+    long jitter;
+    synchronized(RANDOM) {
+      jitter = (long)(RANDOM.nextDouble() * delay / 2);
+    }
+    return delay - jitter;
+  }
+  
+  /**
+   * Is a failure likely to be temporary?
+   * <p>
+   * The directory services wrap the original failure, so the whole chain of
+   * causes is checked.
+   * 
+   * @param failure reason for the failure
+   * @return <code>true</code> if the failure is likely to be temporary; <code>false</code> otherwise
+   */
+  private static boolean isTemporary(Throwable failure) {
+    for(Throwable t = failure; t != null; t = t.getCause()) {
+      if(t instanceof SocketTimeoutException) {
+        return true;
+      }
+      if(t instanceof InterruptedIOException || t instanceof UnknownHostException) {
+        return false;
+      }
+      if(t instanceof HttpStatusException) {
+        int status = ((HttpStatusException)t).getStatus();
+        return status >= 500 || status == 429 || status == 408;
+      }
+      if(t instanceof IOException) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("maxAttempts=").append(maxAttempts).append(',');
+    sb.append("initialDelay=").append(initialDelay).append(',');
+    sb.append("maxDelay=").append(maxDelay).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+/**
+ * Reduces stream addresses to a canonical form, so that the same stream 
+ * listed with slightly different addresses can be recognised.
+ * <p>
+ * The canonical form:
+ * <ul>
+ *   <li>has a lower-case scheme and host;</li>
+ *   <li>leaves out the default port for the scheme;</li>
+ *   <li>leaves out any trailing slash and fragment;</li>
+ *   <li>leaves out the extension of a playlist wrapping the stream, as in 
+ *       the ".m3u" and ".pls" addresses served alongside each stream by 
+ *       Icecast and Shoutcast.</li>
+ * </ul>
+ * The path and query are otherwise left as they are, since they may be case
+ * sensitive. The canonical form is only used for comparison, the original 
+ * address is always the one that is played.
+ */
+public final class UrlCanonicalizer {
+
+  /**
+   * Extensions of the playlists that wrap a single stream.
+   */
+  private static final String[] PLAYLIST_EXTENSIONS = {".m3u", ".pls", ".xspf", ".asx", ".ram"};
+  
+  private UrlCanonicalizer() {
+  }
+  
+  /**
+   * Get the canonical form of a stream address.
+   * 
+   * @param url address, may be <code>null</code>
+   * @return canonical address, or <code>null</code> if the address is <code>null</code> or empty
+   */
+  public static String canonicalize(String url) {
+    if(url == null) {
+      return null;
+    }
+    String value = url.trim();
+    if(value.length() == 0) {
+      return null;
+    }
+    int schemeEnd = value.indexOf("://");
+    if(schemeEnd == -1) {
+      return value;
+    }
+    String scheme = value.substring(0, schemeEnd).toLowerCase();
+    int fragment = value.indexOf('#', schemeEnd + 3);
+    if(fragment != -1) {
+      value = value.substring(0, fragment);
+    }
+    int authorityEnd = schemeEnd + 3;
+    while(authorityEnd < value.length() && value.charAt(authorityEnd) != '/' && value.charAt(authorityEnd) != '?') {
+      authorityEnd++;
+    }
+    String authority = value.substring(schemeEnd + 3, authorityEnd);
+    int query = value.indexOf('?', authorityEnd);
+    String path = query != -1 ? value.substring(authorityEnd, query) : value.substring(authorityEnd);
+    StringBuilder sb = new StringBuilder(value.length());
+    sb.append(scheme).append("://");
+    // Leave any user information as it is
+    int userInfoEnd = authority.lastIndexOf('@');
+    if(userInfoEnd != -1) {
+      sb.append(authority, 0, userInfoEnd + 1);
+      authority = authority.substring(userInfoEnd + 1);
+    }
+    int portStart = authority.lastIndexOf(':');
+    if(portStart != -1 && authority.indexOf(']', portStart) == -1) {
+      String port = authority.substring(portStart + 1);
+      sb.append(authority.substring(0, portStart).toLowerCase());
+      if(port.length() > 0 && !port.equals(defaultPort(scheme))) {
+        sb.append(':').append(port);
+      }
+    }
+    else {
+      sb.append(authority.toLowerCase());
+    }
+    // Trailing slashes first, so "stream.m3u/" is the same as "stream.m3u"
+    int pathEnd = trimSlashes(path, path.length());
+    String lowerCasePath = path.substring(0, pathEnd).toLowerCase();
+    for(String extension : PLAYLIST_EXTENSIONS) {
+      if(lowerCasePath.endsWith(extension)) {
+        pathEnd = trimSlashes(path, pathEnd - extension.length());
+        break;
+      }
+    }
+    sb.append(path, 0, pathEnd);
+    if(query != -1) {
+      sb.append(value, query, value.length());
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * Find the end of a path without any trailing slashes.
+   * 
+   * @param path path
+   * @param end end of the part of the path to look at
+   * @return end of the path, before any trailing slashes
+   */
+  private static int trimSlashes(String path, int end) {
+    while(end > 0 && path.charAt(end - 1) == '/') {
+      end--;
+    }
+    return end;
+  }
+  
+  /**
+   * Get the default port for a scheme.
+   * 
+   * @param scheme lower-case scheme
+   * @return default port, or <code>null</code> if there is no default port
+   */
+  private static String defaultPort(String scheme) {
+    if("http".equals(scheme) || "icy".equals(scheme) || "mmsh".equals(scheme)) {
+      return "80";
+    }
+    else if("https".equals(scheme)) {
+      return "443";
+    }
+    else if("rtsp".equals(scheme)) {
+      return "554";
+    }
+    else if("mms".equals(scheme)) {
+      return "1755";
+    }
+    return null;
+  }
+}
@@ -22,6 +22,7 @@ package uk.co.caprica.vlcj.radio.service.bbcstreams;
 import org.simpleframework.xml.Element;
 
 import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.SortKey;
 
 /**
  * Implementation of a directory entry.
@@ -104,7 +105,7 @@ public class BbcStreamsDirectoryEntry implements DirectoryEntry {
 
   @Override
   public int compareTo(DirectoryEntry o) {
-    return getName().compareTo(o.getName());
+    return SortKey.compareValues(name, o.getName());
   }
 
   @Override
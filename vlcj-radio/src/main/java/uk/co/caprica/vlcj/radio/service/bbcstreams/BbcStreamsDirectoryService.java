@@ -23,11 +23,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import uk.co.caprica.vlcj.radio.model.Directory;
-import uk.co.caprica.vlcj.radio.service.DirectoryService;
-
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.html.HtmlListItem;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.RemoteDirectoryService;
+import uk.co.caprica.vlcj.radio.service.html.HtmlClient;
+import uk.co.caprica.vlcj.radio.service.html.HtmlElement;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRow;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRowExtractor;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
 
 /**
  * Implementation of a streaming media station directory service that gets the
@@ -37,24 +39,53 @@ import com.gargoylesoftware.htmlunit.html.HtmlPage;
  * There is web-service API or XML feed so this implementation scrapes the page
  * directly.
  */
-public class BbcStreamsDirectoryService implements DirectoryService {
+public class BbcStreamsDirectoryService implements RemoteDirectoryService {
 
+  /**
+   * Remote directory URL.
+   */
+  private static final String DIRECTORY_URL = "http://www.bbcstreams.com";
+  
+  /**
+   * Each list item following a heading in the post is a stream.
+   */
+  private static final HtmlRowExtractor STREAMS = new HtmlRowExtractor("div.page-post > h3 ~ ul > li");
+  
+  /**
+   * Page client.
+   */
+  private final HtmlClient htmlClient;
+  
+  /**
+   * Create a new directory service component.
+   * 
+   * @param httpTransport shared HTTP transport
+   */
+  public BbcStreamsDirectoryService(HttpTransport httpTransport) {
+    this.htmlClient = new HtmlClient(httpTransport);
+  }
+  
   @Override
   public Directory directory() {
+    return directory(new DirectoryRequest(null));
+  }
+  
+  @Override
+  public Directory directory(DirectoryRequest request) {
     try {
-      WebClient webClient = new WebClient();
-      webClient.setCssEnabled(false);
-      webClient.setJavaScriptEnabled(false);
-      HtmlPage page = webClient.getPage("http://www.bbcstreams.com");
+      HtmlElement document = htmlClient.getDocument(DIRECTORY_URL, request);
+      if(document == null) {
+        return null;
+      }
   
-      List<?> elements = page.getByXPath("//div[@class='page-post']/h3/following-sibling::ul/li");
       List<BbcStreamsDirectoryEntry> entries = new ArrayList<BbcStreamsDirectoryEntry>(50);
-      for(Object element : elements) {
-        HtmlListItem li = (HtmlListItem)element;
-        
-        String itemText = li.asText();
+      for(HtmlRow row : STREAMS.extract(document)) {
+        String itemText = row.getElement().getText();
         
         int urlStart = itemText.indexOf("http:");
+        if(urlStart == -1) {
+          continue;
+        }
         int urlEnd = itemText.indexOf(' ', urlStart);
 
         String descriptionText = itemText.substring(0, urlStart).trim();
@@ -66,7 +97,6 @@ public class BbcStreamsDirectoryService implements DirectoryService {
         entries.add(new BbcStreamsDirectoryEntry(descriptionText, urlText));
       }
       
-      webClient.closeAllWindows();
       return new BbcStreamsDirectory(entries);
     }
     catch(Exception e) {
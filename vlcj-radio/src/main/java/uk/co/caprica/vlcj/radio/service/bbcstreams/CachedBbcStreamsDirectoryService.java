@@ -19,7 +19,13 @@
 
 package uk.co.caprica.vlcj.radio.service.bbcstreams;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
 import uk.co.caprica.vlcj.radio.service.CachedDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryBuilder;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
 
 /**
  * Implementation of a directory service that gets the directory from a local
@@ -28,9 +34,29 @@ import uk.co.caprica.vlcj.radio.service.CachedDirectoryService;
 public class CachedBbcStreamsDirectoryService extends CachedDirectoryService {
 
   /**
-   * Create a directory service component. 
+   * Create a directory service component.
+   * 
+   * @param stationStore store shared by all of the cached directories
    */
-  public CachedBbcStreamsDirectoryService() {
-    super(BbcStreamsDirectory.class, "BBCStreamsDirectory.xml");
+  public CachedBbcStreamsDirectoryService(StationStore stationStore) {
+    super(stationStore, BbcStreamsDirectory.class, "BBCStreamsDirectory.xml");
+  }
+  
+  @Override
+  protected DirectoryBuilder newDirectoryBuilder() {
+    return new DirectoryBuilder() {
+      
+      private final List<BbcStreamsDirectoryEntry> entries = new ArrayList<BbcStreamsDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new BbcStreamsDirectoryEntry(name, url));
+      }
+
+      @Override
+      public Directory build() {
+        return new BbcStreamsDirectory(entries);
+      }
+    };
   }
 }
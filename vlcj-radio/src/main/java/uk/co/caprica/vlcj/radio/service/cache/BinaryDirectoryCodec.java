@@ -0,0 +1,361 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Compact binary encoding of a directory.
+ * <p>
+ * The format is:
+ * <pre>
+ *   header:
+ *     magic          4 bytes, "VRDC"
+ *     version        unsigned short
+ *     flags          unsigned short, reserved, zero
+ *     entry count    int
+ *     string count   int
+ *     payload length int
+ *     checksum       int, CRC-32 of the payload
+ *     directory name int, string reference
+ *   payload:
+ *     string table   string count x (varint length, UTF-8 bytes)
+ *     records        entry count x (varint length, record)
+ *     string offsets string count x int
+ *     record offsets entry count x int
+ *   record:
+ *     name, url, type, bit-rate       varint string references
+ *     channels, sample-rate           zig-zag varints
+ *     genre, now playing              varint string references
+ * </pre>
+ * A string reference is the index of the string in the string table plus 
+ * one, or zero for <code>null</code>. Every distinct value is stored only 
+ * once, which suits directories where genres, types and bit-rates repeat on
+ * almost every entry.
+ * <p>
+ * Records are length-prefixed so that a later version can add fields to the
+ * end of a record without breaking readers of this version.
+ * <p>
+ * The offset tables, relative to the start of the payload, allow any string
+ * or record to be found without reading the ones before it, see 
+ * {@link MappedDirectory}.
+ */
+public final class BinaryDirectoryCodec {
+
+  /**
+   * Identifies a binary directory file.
+   */
+  static final byte[] MAGIC = {'V', 'R', 'D', 'C'};
+  
+  /**
+   * Format version.
+   */
+  public static final int VERSION = 1;
+  
+  /**
+   * Size of the header, in bytes.
+   */
+  static final int HEADER_LENGTH = 28;
+  
+  /**
+   * Character set for the string table.
+   */
+  static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * Most of the payload to allocate before any of it has been read.
+   * <p>
+   * The payload buffer grows as the data arrives, so a damaged payload length
+   * fails with an {@link EOFException} rather than an out of memory error.
+   */
+  private static final int INITIAL_PAYLOAD_BUFFER = 64 * 1024;
+  
+  /**
+   * Encode a directory.
+   * 
+   * @param directory directory to encode
+   * @param out stream to write to, not closed by this method
+   * @throws IOException if the directory could not be written
+   */
+  public void write(Directory directory, OutputStream out) throws IOException {
+    List<? extends DirectoryEntry> entries = directory.entries();
+    StringTable strings = new StringTable();
+    int directoryNameRef = !entries.isEmpty() ? strings.ref(entries.get(0).getDirectory()) : 0;
+    ExposedByteArrayOutputStream records = new ExposedByteArrayOutputStream(entries.size() * 16);
+    ExposedByteArrayOutputStream record = new ExposedByteArrayOutputStream(64);
+    int[] recordOffsets = new int[entries.size()];
+    int recordIndex = 0;
+    for(DirectoryEntry entry : entries) {
+      recordOffsets[recordIndex++] = records.size();
+      record.reset();
+      record.writeVarint(strings.ref(entry.getName()));
+      record.writeVarint(strings.ref(entry.getUrl()));
+      record.writeVarint(strings.ref(entry.getType()));
+      record.writeVarint(strings.ref(entry.getBitRate()));
+      record.writeVarint(zigZag(entry.getChannels()));
+      record.writeVarint(zigZag(entry.getSampleRate()));
+      record.writeVarint(strings.ref(entry.getGenre()));
+      record.writeVarint(strings.ref(entry.getNowPlaying()));
+      records.writeVarint(record.size());
+      record.writeTo(records);
+    }
+    ExposedByteArrayOutputStream payload = new ExposedByteArrayOutputStream(strings.byteCount + records.size() + strings.values.size() * 6 + recordOffsets.length * 4);
+    int[] stringOffsets = new int[strings.values.size()];
+    int stringIndex = 0;
+    for(byte[] value : strings.values) {
+      stringOffsets[stringIndex++] = payload.size();
+      payload.writeVarint(value.length);
+      payload.write(value, 0, value.length);
+    }
+    int recordsStart = payload.size();
+    records.writeTo(payload);
+    for(int stringOffset : stringOffsets) {
+      payload.writeInt(stringOffset);
+    }
+    for(int recordOffset : recordOffsets) {
+      payload.writeInt(recordsStart + recordOffset);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.buffer(), 0, payload.size());
+    DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.write(MAGIC);
+    dataOut.writeShort(VERSION);
+    dataOut.writeShort(0);
+    dataOut.writeInt(entries.size());
+    dataOut.writeInt(strings.values.size());
+    dataOut.writeInt(payload.size());
+    dataOut.writeInt((int)crc.getValue());
+    dataOut.writeInt(directoryNameRef);
+    payload.writeTo(dataOut);
+    dataOut.flush();
+  }
+  
+  /**
+   * Decode a directory.
+   * 
+   * @param in stream to read from, not closed by this method
+   * @param builder component used to create the directory
+   * @return directory
+   * @throws IOException if the directory could not be read, or the data is not a valid directory
+   */
+  public Directory read(InputStream in, DirectoryBuilder builder) throws IOException {
+    return read(in, builder, Integer.MAX_VALUE);
+  }
+  
+  /**
+   * Decode a directory whose size is known.
+   * 
+   * @param in stream to read from, not closed by this method
+   * @param builder component used to create the directory
+   * @param maxPayloadLength largest payload length the stream can hold
+   * @return directory
+   * @throws IOException if the directory could not be read, or the data is not a valid directory
+   */
+  public Directory read(InputStream in, DirectoryBuilder builder, int maxPayloadLength) throws IOException {
+    DataInputStream dataIn = new DataInputStream(in);
+    byte[] magic = new byte[MAGIC.length];
+    dataIn.readFully(magic);
+    for(int i = 0; i < MAGIC.length; i++) {
+      if(magic[i] != MAGIC[i]) {
+        throw new IOException("Not a binary directory");
+      }
+    }
+    int version = dataIn.readUnsignedShort();
+    if(version != VERSION) {
+      throw new IOException("Unsupported binary directory version " + version);
+    }
+    dataIn.readUnsignedShort();
+    int entryCount = dataIn.readInt();
+    int stringCount = dataIn.readInt();
+    int payloadLength = dataIn.readInt();
+    int checksum = dataIn.readInt();
+    // Directory name, only needed by the mapped directory
+    dataIn.readInt();
+    if(entryCount < 0 || stringCount < 0 || payloadLength < 0 || payloadLength > maxPayloadLength) {
+      throw new IOException("Corrupt binary directory header");
+    }
+    byte[] payload = readPayload(dataIn, payloadLength);
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payloadLength);
+    if((int)crc.getValue() != checksum) {
+      throw new IOException("Binary directory checksum mismatch");
+    }
+    try {
+      Reader reader = new Reader(payload);
+      String[] strings = new String[stringCount + 1];
+      for(int i = 1; i <= stringCount; i++) {
+        int length = reader.readVarint();
+        strings[i] = new String(payload, reader.position, length, UTF8);
+        reader.position += length;
+      }
+      for(int i = 0; i < entryCount; i++) {
+        int length = reader.readVarint();
+        int end = reader.position + length;
+        String name = strings[reader.readVarint()];
+        String url = strings[reader.readVarint()];
+        String type = strings[reader.readVarint()];
+        String bitRate = strings[reader.readVarint()];
+        int channels = unZigZag(reader.readVarint());
+        int sampleRate = unZigZag(reader.readVarint());
+        String genre = strings[reader.readVarint()];
+        String nowPlaying = strings[reader.readVarint()];
+        // Skip any fields added by a later version
+        reader.position = end;
+        builder.add(name, url, type, bitRate, channels, sampleRate, genre, nowPlaying);
+      }
+    }
+    catch(RuntimeException e) {
+      // Index out of bounds, the checksum matched but the content is invalid
+      throw new IOException("Corrupt binary directory: " + e);
+    }
+    return builder.build();
+  }
+  
+  /**
+   * Read the payload, growing the buffer only as the data arrives.
+   * 
+   * @param in stream to read from
+   * @param length length of the payload, from the header
+   * @return payload
+   * @throws IOException if the stream ends before the payload does
+   */
+  private static byte[] readPayload(DataInputStream in, int length) throws IOException {
+    byte[] payload = new byte[Math.min(length, INITIAL_PAYLOAD_BUFFER)];
+    int read = 0;
+    while(read < length) {
+      if(read == payload.length) {
+        payload = Arrays.copyOf(payload, (int)Math.min(length, 2L * payload.length));
+      }
+      int count = in.read(payload, read, payload.length - read);
+      if(count < 0) {
+        throw new EOFException();
+      }
+      read += count;
+    }
+    return payload;
+  }
+  
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+  
+  private static int unZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+  
+  /**
+   * Table of distinct string values, in order of first use.
+   */
+  private static final class StringTable {
+    
+    private final Map<String, Integer> refs = new HashMap<String, Integer>();
+    
+    private final List<byte[]> values = new ArrayList<byte[]>();
+    
+    private int byteCount;
+    
+    private int ref(String value) {
+      if(value == null) {
+        return 0;
+      }
+      Integer ref = refs.get(value);
+      if(ref == null) {
+        byte[] bytes = value.getBytes(UTF8);
+        values.add(bytes);
+        byteCount += bytes.length;
+        ref = values.size();
+        refs.put(value, ref);
+      }
+      return ref;
+    }
+  }
+  
+  /**
+   * Growable byte buffer with variable-length integer encoding, that exposes
+   * its array so the checksum can be computed without a copy.
+   */
+  private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+    
+    private ExposedByteArrayOutputStream(int size) {
+      super(Math.max(size, 32));
+    }
+    
+    private void writeInt(int value) {
+      write(value >>> 24);
+      write(value >>> 16);
+      write(value >>> 8);
+      write(value);
+    }
+    
+    private void writeVarint(int value) {
+      while((value & ~0x7f) != 0) {
+        write((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+    
+    private byte[] buffer() {
+      return buf;
+    }
+  }
+  
+  /**
+   * Sequential reader over a byte array.
+   */
+  private static final class Reader {
+    
+    private final byte[] data;
+    
+    private int position;
+    
+    private Reader(byte[] data) {
+      this.data = data;
+    }
+    
+    private int readVarint() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[position++];
+        value |= (b & 0x7f) << shift;
+        shift += 7;
+      } while(b < 0);
+      return value;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+/**
+ * Interpretation of the free-form bit-rates given by the directories.
+ * <p>
+ * Directories give the bit-rate as text, for example "128", "128k", 
+ * "320 Kbps" or "128000", or leave it blank. The bit-rate is parsed once, 
+ * when a directory is loaded, so it can be sorted and filtered as a number.
+ */
+public final class BitRates {
+
+  /**
+   * Value for a bit-rate that is not known.
+   */
+  public static final int UNKNOWN = -1;
+  
+  /**
+   * Largest number taken to be in kbit/s when there is no unit, anything 
+   * bigger is taken to be in bit/s.
+   */
+  private static final int MAX_KBPS = 9999;
+  
+  private BitRates() {
+  }
+  
+  /**
+   * Parse a bit-rate.
+   * <p>
+   * The bit-rate is the first number in the value followed by a unit, in 
+   * kbit/s unless the unit starts with "m" (Mbit/s) or "b" (bit/s). A number
+   * without a unit is only accepted if it starts the value, so something 
+   * like "Quality 5" is not mistaken for a bit-rate. Frequencies, such as 
+   * "44.1 kHz", are skipped.
+   * 
+   * @param value bit-rate as given by the directory, may be <code>null</code>
+   * @return bit-rate in kbit/s, or {@link #UNKNOWN}
+   */
+  public static int parse(String value) {
+    if(value == null) {
+      return UNKNOWN;
+    }
+    int length = value.length();
+    int position = 0;
+    while(position < length) {
+      int start = position;
+      while(start < length && !isDigit(value.charAt(start))) {
+        start++;
+      }
+      if(start == length) {
+        break;
+      }
+      long number = 0;
+      int end = start;
+      for(; end < length && isDigit(value.charAt(end)); end++) {
+        if(number <= Integer.MAX_VALUE) {
+          number = number * 10 + (value.charAt(end) - '0');
+        }
+      }
+      // Keep up to three digits of any fraction, as in "1.5 Mbps"
+      int fraction = 0;
+      int fractionDigits = 0;
+      if(end + 1 < length && (value.charAt(end) == '.' || value.charAt(end) == ',') && isDigit(value.charAt(end + 1))) {
+        for(end++; end < length && isDigit(value.charAt(end)); end++) {
+          if(fractionDigits < 3) {
+            fraction = fraction * 10 + (value.charAt(end) - '0');
+            fractionDigits++;
+          }
+        }
+      }
+      position = end;
+      while(end < length && value.charAt(end) == ' ') {
+        end++;
+      }
+      if(number > Integer.MAX_VALUE || isFrequency(value, end)) {
+        // Too big, or a frequency such as "44.1 kHz", try the next number
+        continue;
+      }
+      long kbps;
+      switch(end < length ? Character.toLowerCase(value.charAt(end)) : 0) {
+        case 'k':
+          kbps = number;
+          break;
+          
+        case 'm':
+          while(fractionDigits++ < 3) {
+            fraction *= 10;
+          }
+          kbps = number * 1000 + fraction;
+          break;
+          
+        case 'b':
+          kbps = number / 1000;
+          break;
+          
+        default:
+          if(value.substring(0, start).trim().length() != 0) {
+            // Not a bit-rate, try the next number
+            continue;
+          }
+          kbps = number <= MAX_KBPS ? number : number / 1000;
+          break;
+      }
+      return kbps > 0 && kbps <= Integer.MAX_VALUE ? (int)kbps : UNKNOWN;
+    }
+    return UNKNOWN;
+  }
+  
+  /**
+   * Test whether a unit is a frequency, "Hz", "kHz" or "MHz".
+   * 
+   * @param value value
+   * @param position position of the unit in the value
+   * @return <code>true</code> if the unit is a frequency; <code>false</code> if it is not
+   */
+  private static boolean isFrequency(String value, int position) {
+    int length = value.length();
+    return (position < length && Character.toLowerCase(value.charAt(position)) == 'h') || (position + 1 < length && Character.toLowerCase(value.charAt(position + 1)) == 'h');
+  }
+  
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
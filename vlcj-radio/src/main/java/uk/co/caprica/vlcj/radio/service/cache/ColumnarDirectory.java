@@ -0,0 +1,519 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.model.SortKey;
+
+/**
+ * A directory held in columns rather than as an object for each entry, with
+ * its entries in the default order, each carrying its search keys, from a 
+ * {@link DirectoryIndex}.
+ * <p>
+ * The fields are kept in parallel arrays, by entry:
+ * <ul>
+ *   <li>the directory, type, genre and bit-rate, which only take a handful 
+ *       of different values, as codes in the shared {@link ValueDictionary};</li>
+ *   <li>the bit-rate, parsed to kbit/s by {@link BitRates};</li>
+ *   <li>the number of channels and the sample rate packed together into a 
+ *       single int;</li>
+ *   <li>the name, URL and currently playing item, and the search keys for the
+ *       name and URL, as UTF-8 in a single byte array shared by all of the 
+ *       entries - a search key that is the same as its field, as most URLs 
+ *       are, is not stored again.</li>
+ * </ul>
+ * The entries are views holding nothing but their position, created once and
+ * reused, so the table and the filters keep seeing the same instances. The 
+ * name, URL and currently playing item are decoded each time they are asked
+ * for, everything else is read straight from the columns. The entries are
+ * ranked together on their name and URL for sorting - each rank is kept in 
+ * a column of its own, built the first time the directory is sorted on it.
+ * <p>
+ * The directory can not be changed once it has been created.
+ */
+public final class ColumnarDirectory implements Directory {
+
+  /**
+   * Text fields of an entry, in the order they are kept in the text pool.
+   */
+  private static final int NAME = 0;
+  private static final int URL = 1;
+  private static final int NOW_PLAYING = 2;
+  private static final int NAME_KEY = 3;
+  private static final int URL_KEY = 4;
+  private static final int TEXT_FIELDS = 5;
+  
+  /**
+   * Dictionary of the values of the coded fields.
+   */
+  private final ValueDictionary dictionary;
+  
+  /**
+   * Directory code of each entry.
+   */
+  private final int[] directories;
+  
+  /**
+   * Type code of each entry.
+   */
+  private final int[] types;
+  
+  /**
+   * Bit-rate code of each entry.
+   */
+  private final int[] bitRates;
+  
+  /**
+   * Bit-rate of each entry, in kbit/s.
+   */
+  private final int[] kbps;
+  
+  /**
+   * Genre code of each entry.
+   */
+  private final int[] genres;
+  
+  /**
+   * Number of channels of each entry in the top eight bits, and the sample
+   * rate in the rest - or just the number of channels if any value is too 
+   * big to pack.
+   */
+  private final int[] formats;
+  
+  /**
+   * Sample rate of each entry, only if any value was too big to pack, 
+   * otherwise <code>null</code>.
+   */
+  private final int[] sampleRates;
+  
+  /**
+   * UTF-8 text of the entries.
+   */
+  private final byte[] text;
+  
+  /**
+   * Start of each text field in the pool, by entry then field, followed by 
+   * the end of the pool.
+   */
+  private final int[] starts;
+  
+  /**
+   * A bit for each text field of each entry, set if a value is 
+   * <code>null</code>, or if a search key is the same as its field.
+   */
+  private final byte[] flags;
+  
+  /**
+   * Views of the entries.
+   */
+  private final Entry[] views;
+  
+  /**
+   * List of the views.
+   */
+  private final List<IndexedEntry> entries = new EntryList();
+  
+  /**
+   * Rank of the name of each entry - only built if the directory is sorted 
+   * on the name.
+   * <p>
+   * Entries may be sorted on different threads, at worst the ranks are built
+   * more than once.
+   */
+  private volatile int[] nameRanks;
+  
+  /**
+   * Rank of the URL of each entry - only built if the directory is sorted on
+   * the URL.
+   */
+  private volatile int[] urlRanks;
+  
+  /**
+   * Create a columnar directory.
+   * 
+   * @param directory directory
+   * @param index index built from the directory
+   */
+  public ColumnarDirectory(Directory directory, DirectoryIndex index) {
+    List<? extends DirectoryEntry> source = directory.entries();
+    int size = index.size();
+    this.directories = new int[size];
+    this.types = new int[size];
+    this.bitRates = new int[size];
+    this.kbps = new int[size];
+    this.genres = new int[size];
+    this.formats = new int[size];
+    this.starts = new int[size * TEXT_FIELDS + 1];
+    this.flags = new byte[size];
+    boolean packed = true;
+    for(DirectoryEntry entry : source) {
+      if(!canPack(entry.getChannels(), entry.getSampleRate())) {
+        packed = false;
+        break;
+      }
+    }
+    this.sampleRates = packed ? null : new int[size];
+    this.dictionary = ValueDictionary.shared();
+    ByteArrayOutputStream pool = new ByteArrayOutputStream(size * 64);
+    for(int row = 0; row < size; row++) {
+      int position = index.getPosition(row);
+      DirectoryEntry entry = source.get(position);
+      directories[row] = dictionary.code(entry.getDirectory());
+      types[row] = dictionary.code(entry.getType());
+      bitRates[row] = dictionary.code(entry.getBitRate());
+      kbps[row] = BitRates.parse(entry.getBitRate());
+      genres[row] = dictionary.code(entry.getGenre());
+      if(packed) {
+        formats[row] = (entry.getChannels() << 24) | (entry.getSampleRate() & 0xffffff);
+      }
+      else {
+        formats[row] = entry.getChannels();
+        sampleRates[row] = entry.getSampleRate();
+      }
+      String name = entry.getName();
+      String url = entry.getUrl();
+      int base = row * TEXT_FIELDS;
+      int flag = 0;
+      starts[base + NAME] = pool.size();
+      flag |= appendValue(pool, name, NAME);
+      starts[base + URL] = pool.size();
+      flag |= appendValue(pool, url, URL);
+      starts[base + NOW_PLAYING] = pool.size();
+      flag |= appendValue(pool, entry.getNowPlaying(), NOW_PLAYING);
+      starts[base + NAME_KEY] = pool.size();
+      flag |= appendKey(pool, index.getNameKey(position), name, NAME_KEY);
+      starts[base + URL_KEY] = pool.size();
+      flag |= appendKey(pool, index.getUrlKey(position), url, URL_KEY);
+      flags[row] = (byte)flag;
+    }
+    starts[size * TEXT_FIELDS] = pool.size();
+    this.text = pool.toByteArray();
+    this.views = new Entry[size];
+    for(int row = 0; row < size; row++) {
+      views[row] = new Entry(row);
+    }
+  }
+  
+  /**
+   * Get a directory as a columnar directory, building its index if it does 
+   * not already have one.
+   * 
+   * @param directory directory
+   * @return columnar directory
+   */
+  public static ColumnarDirectory of(Directory directory) {
+    if(directory instanceof ColumnarDirectory) {
+      return (ColumnarDirectory)directory;
+    }
+    return new ColumnarDirectory(directory, DirectoryIndex.build(directory.entries()));
+  }
+  
+  @Override
+  public List<IndexedEntry> entries() {
+    return entries;
+  }
+  
+  /**
+   * Test whether a number of channels and a sample rate can be packed into a
+   * single int.
+   * 
+   * @param channels number of channels
+   * @param sampleRate sample rate
+   * @return <code>true</code> if the values can be packed; <code>false</code> if they can not
+   */
+  private static boolean canPack(int channels, int sampleRate) {
+    return channels >= -0x80 && channels <= 0x7f && sampleRate >= -0x800000 && sampleRate <= 0x7fffff;
+  }
+  
+  /**
+   * Add the value of a text field to the pool.
+   * 
+   * @param pool text pool
+   * @param value value, may be <code>null</code>
+   * @param field field
+   * @return flag to set for the field
+   */
+  private static int appendValue(ByteArrayOutputStream pool, String value, int field) {
+    if(value == null) {
+      return 1 << field;
+    }
+    byte[] bytes = value.getBytes(BinaryDirectoryCodec.UTF8);
+    pool.write(bytes, 0, bytes.length);
+    return 0;
+  }
+  
+  /**
+   * Add a search key to the pool, unless it is the same as its field.
+   * 
+   * @param pool text pool
+   * @param key search key
+   * @param value value of the field, may be <code>null</code>
+   * @param field search key field
+   * @return flag to set for the field
+   */
+  private static int appendKey(ByteArrayOutputStream pool, String key, String value, int field) {
+    if(key.equals(value)) {
+      return 1 << field;
+    }
+    byte[] bytes = key.getBytes(BinaryDirectoryCodec.UTF8);
+    pool.write(bytes, 0, bytes.length);
+    return 0;
+  }
+  
+  /**
+   * Decode the value of a text field.
+   * 
+   * @param row position of the entry
+   * @param field field
+   * @return value, may be <code>null</code>
+   */
+  private String value(int row, int field) {
+    if((flags[row] & (1 << field)) != 0) {
+      return null;
+    }
+    return decode(row * TEXT_FIELDS + field);
+  }
+  
+  /**
+   * Decode a search key.
+   * 
+   * @param row position of the entry
+   * @param field search key field
+   * @param valueField field the key is for
+   * @return search key
+   */
+  private String key(int row, int field, int valueField) {
+    if((flags[row] & (1 << field)) != 0) {
+      return decode(row * TEXT_FIELDS + valueField);
+    }
+    return decode(row * TEXT_FIELDS + field);
+  }
+  
+  /**
+   * Rank every entry on a search key.
+   * 
+   * @param field search key field
+   * @param valueField field the key is for
+   * @return ranks, by entry
+   */
+  private int[] ranks(int field, int valueField) {
+    String[] keys = new String[views.length];
+    for(int row = 0; row < keys.length; row++) {
+      keys[row] = key(row, field, valueField);
+    }
+    return SortKey.ranks(keys);
+  }
+  
+  private String decode(int index) {
+    int start = starts[index];
+    return new String(text, start, starts[index + 1] - start, BinaryDirectoryCodec.UTF8);
+  }
+  
+  /**
+   * List of the entry views.
+   */
+  private final class EntryList extends AbstractList<IndexedEntry> implements RandomAccess {
+
+    @Override
+    public IndexedEntry get(int index) {
+      return views[index];
+    }
+
+    @Override
+    public int size() {
+      return views.length;
+    }
+  }
+  
+  /**
+   * View of a single entry.
+   */
+  private final class Entry implements IndexedEntry {
+    
+    /**
+     * Position of the entry.
+     */
+    private final int row;
+    
+    private Entry(int row) {
+      this.row = row;
+    }
+    
+    @Override
+    public String getDirectory() {
+      return dictionary.getValue(directories[row]);
+    }
+
+    @Override
+    public String getName() {
+      return value(row, NAME);
+    }
+
+    @Override
+    public String getUrl() {
+      return value(row, URL);
+    }
+
+    @Override
+    public String getType() {
+      return dictionary.getValue(types[row]);
+    }
+
+    @Override
+    public String getBitRate() {
+      return dictionary.getValue(bitRates[row]);
+    }
+
+    @Override
+    public int getBitRateKbps() {
+      return kbps[row];
+    }
+
+    @Override
+    public int getChannels() {
+      return sampleRates == null ? formats[row] >> 24 : formats[row];
+    }
+
+    @Override
+    public int getSampleRate() {
+      return sampleRates == null ? (formats[row] << 8) >> 8 : sampleRates[row];
+    }
+
+    @Override
+    public String getGenre() {
+      return dictionary.getValue(genres[row]);
+    }
+
+    @Override
+    public String getNowPlaying() {
+      return value(row, NOW_PLAYING);
+    }
+    
+    @Override
+    public String getDirectoryKey() {
+      return dictionary.getKey(directories[row]);
+    }
+    
+    @Override
+    public String getNameKey() {
+      return key(row, NAME_KEY, NAME);
+    }
+    
+    @Override
+    public String getUrlKey() {
+      return key(row, URL_KEY, URL);
+    }
+    
+    @Override
+    public Object getRankGroup() {
+      return ColumnarDirectory.this;
+    }
+    
+    @Override
+    public int getNameRank() {
+      int[] ranks = nameRanks;
+      if(ranks == null) {
+        ranks = ranks(NAME_KEY, NAME);
+        nameRanks = ranks;
+      }
+      return ranks[row];
+    }
+    
+    @Override
+    public int getUrlRank() {
+      int[] ranks = urlRanks;
+      if(ranks == null) {
+        ranks = ranks(URL_KEY, URL);
+        urlRanks = ranks;
+      }
+      return ranks[row];
+    }
+    
+    @Override
+    public String getTypeKey() {
+      return dictionary.getKey(types[row]);
+    }
+    
+    @Override
+    public String getGenreKey() {
+      return dictionary.getKey(genres[row]);
+    }
+    
+    @Override
+    public int getDirectoryCode() {
+      return directories[row];
+    }
+    
+    @Override
+    public int getTypeCode() {
+      return types[row];
+    }
+    
+    @Override
+    public int getBitRateCode() {
+      return bitRates[row];
+    }
+    
+    @Override
+    public int getGenreCode() {
+      return genres[row];
+    }
+    
+    /**
+     * Entries are compared in the default order, see {@link DirectoryIndex}.
+     */
+    @Override
+    public int compareTo(DirectoryEntry o) {
+      if(o instanceof Entry && ((Entry)o).getOuter() == ColumnarDirectory.this) {
+        return row - ((Entry)o).row;
+      }
+      String nameKey = o instanceof IndexedEntry ? ((IndexedEntry)o).getNameKey() : DirectoryIndex.key(o.getName());
+      String urlKey = o instanceof IndexedEntry ? ((IndexedEntry)o).getUrlKey() : DirectoryIndex.key(o.getUrl());
+      return DirectoryIndex.compare(getNameKey(), getUrlKey(), nameKey, urlKey);
+    }
+    
+    private ColumnarDirectory getOuter() {
+      return ColumnarDirectory.this;
+    }
+    
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(300);
+      sb.append(getClass().getSimpleName()).append('[');
+      sb.append("directory=").append(getDirectory()).append(',');
+      sb.append("name=").append(getName()).append(',');
+      sb.append("url=").append(getUrl()).append(',');
+      sb.append("type=").append(getType()).append(',');
+      sb.append("bitRate=").append(getBitRate()).append(',');
+      sb.append("channels=").append(getChannels()).append(',');
+      sb.append("sampleRate=").append(getSampleRate()).append(',');
+      sb.append("genre=").append(getGenre()).append(',');
+      sb.append("nowPlaying=").append(getNowPlaying()).append(']');
+      return sb.toString();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+
+/**
+ * Specification for a component that re-creates a directory of a particular
+ * type from the fields of its entries.
+ * <p>
+ * A new builder is used for each directory that is read.
+ */
+public interface DirectoryBuilder {
+
+  /**
+   * Add an entry to the directory.
+   * <p>
+   * Fields that are not used by the type of directory are ignored.
+   * 
+   * @param name name, may be <code>null</code>
+   * @param url player URL
+   * @param type media type, may be <code>null</code>
+   * @param bitRate bit rate, may be <code>null</code>
+   * @param channels number of audio channels, or -1 if not known
+   * @param sampleRate sample rate, or -1 if not known
+   * @param genre genre, may be <code>null</code>
+   * @param nowPlaying name of the currently playing item, may be <code>null</code>
+   */
+  void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying);
+  
+  /**
+   * Create the directory containing all of the added entries.
+   * 
+   * @return directory
+   */
+  Directory build();
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.util.Collections;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Differences between two generations of a stored directory.
+ * <p>
+ * Stations are matched on their URL.
+ */
+public final class DirectoryDiff {
+
+  /**
+   * Generation compared from.
+   */
+  private final int fromGeneration;
+  
+  /**
+   * Generation compared to.
+   */
+  private final int toGeneration;
+  
+  /**
+   * Stations only in the generation compared to.
+   */
+  private final List<DirectoryEntry> added;
+  
+  /**
+   * Stations only in the generation compared from.
+   */
+  private final List<DirectoryEntry> removed;
+  
+  /**
+   * Stations in both generations with different details, as they are in the
+   * generation compared to.
+   */
+  private final List<DirectoryEntry> changed;
+  
+  /**
+   * Create the differences between two generations.
+   * 
+   * @param fromGeneration generation compared from
+   * @param toGeneration generation compared to
+   * @param added stations only in the generation compared to
+   * @param removed stations only in the generation compared from
+   * @param changed stations with different details, as they are in the generation compared to
+   */
+  DirectoryDiff(int fromGeneration, int toGeneration, List<DirectoryEntry> added, List<DirectoryEntry> removed, List<DirectoryEntry> changed) {
+    this.fromGeneration = fromGeneration;
+    this.toGeneration = toGeneration;
+    this.added = Collections.unmodifiableList(added);
+    this.removed = Collections.unmodifiableList(removed);
+    this.changed = Collections.unmodifiableList(changed);
+  }
+  
+  /**
+   * Get the generation compared from.
+   * 
+   * @return generation number
+   */
+  public int getFromGeneration() {
+    return fromGeneration;
+  }
+  
+  /**
+   * Get the generation compared to.
+   * 
+   * @return generation number
+   */
+  public int getToGeneration() {
+    return toGeneration;
+  }
+  
+  /**
+   * Get the stations that appeared.
+   * 
+   * @return stations only in the generation compared to
+   */
+  public List<DirectoryEntry> getAdded() {
+    return added;
+  }
+  
+  /**
+   * Get the stations that disappeared.
+   * 
+   * @return stations only in the generation compared from
+   */
+  public List<DirectoryEntry> getRemoved() {
+    return removed;
+  }
+  
+  /**
+   * Get the stations whose details changed.
+   * 
+   * @return stations, as they are in the generation compared to
+   */
+  public List<DirectoryEntry> getChanged() {
+    return changed;
+  }
+  
+  /**
+   * Test whether the generations are the same.
+   * 
+   * @return <code>true</code> if there are no differences; <code>false</code> otherwise
+   */
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("fromGeneration=").append(fromGeneration).append(',');
+    sb.append("toGeneration=").append(toGeneration).append(',');
+    sb.append("added=").append(added.size()).append(',');
+    sb.append("removed=").append(removed.size()).append(',');
+    sb.append("changed=").append(changed.size()).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+/**
+ * A generation of a stored directory, one of the copies stored each time the
+ * directory was refreshed.
+ * <p>
+ * Generations are numbered from one, the first time the directory was 
+ * stored.
+ */
+public final class DirectoryGeneration {
+
+  /**
+   * Generation number.
+   */
+  private final int generation;
+  
+  /**
+   * Time the generation was stored, in milliseconds since the epoch.
+   */
+  private final long lastUpdated;
+  
+  /**
+   * Number of stations in the generation.
+   */
+  private final int entryCount;
+  
+  /**
+   * Create a generation.
+   * 
+   * @param generation generation number
+   * @param lastUpdated time the generation was stored, in milliseconds since the epoch
+   * @param entryCount number of stations in the generation
+   */
+  DirectoryGeneration(int generation, long lastUpdated, int entryCount) {
+    this.generation = generation;
+    this.lastUpdated = lastUpdated;
+    this.entryCount = entryCount;
+  }
+  
+  /**
+   * Get the generation number.
+   * 
+   * @return generation number
+   */
+  public int getGeneration() {
+    return generation;
+  }
+  
+  /**
+   * Get the time the generation was stored.
+   * 
+   * @return time, in milliseconds since the epoch
+   */
+  public long getLastUpdated() {
+    return lastUpdated;
+  }
+  
+  /**
+   * Get the number of stations in the generation.
+   * 
+   * @return number of stations
+   */
+  public int getEntryCount() {
+    return entryCount;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(80);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("generation=").append(generation).append(',');
+    sb.append("lastUpdated=").append(lastUpdated).append(',');
+    sb.append("entryCount=").append(entryCount).append(']');
+    return sb.toString();
+  }
+}
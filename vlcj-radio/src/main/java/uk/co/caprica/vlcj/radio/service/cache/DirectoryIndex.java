@@ -0,0 +1,354 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Precomputed default sort order and search keys for the entries of a 
+ * directory.
+ * <p>
+ * The default order is by name, ignoring case, with entries without a name 
+ * last, then by URL. The search keys are the lower-case values of the fields
+ * that can be filtered on.
+ * <p>
+ * The index is kept in the {@link StationStore} alongside each directory, so
+ * a directory that has not changed can be shown in order and searched 
+ * without sorting it or converting its fields again. The index refers to 
+ * entries by their position in the directory, so it is only valid for the
+ * directory it was built from.
+ * <p>
+ * Encoded, each search key that is the same as the value of its field, as 
+ * most URLs are, is stored as a reference to the field rather than a copy.
+ */
+public final class DirectoryIndex {
+
+  /**
+   * Encoded search key that is the same as the value of its field.
+   */
+  private static final int SAME_AS_FIELD = -1;
+  
+  /**
+   * Positions of the entries in the directory, in the default order.
+   */
+  private final int[] order;
+  
+  /**
+   * Search key for the directory.
+   */
+  private final String directoryKey;
+  
+  /**
+   * Search keys for the name of each entry, by position in the directory.
+   */
+  private final String[] nameKeys;
+  
+  /**
+   * Search keys for the URL of each entry, by position in the directory.
+   */
+  private final String[] urlKeys;
+  
+  /**
+   * Search keys for the type of each entry, by position in the directory.
+   */
+  private final String[] typeKeys;
+  
+  /**
+   * Search keys for the genre of each entry, by position in the directory.
+   */
+  private final String[] genreKeys;
+  
+  private DirectoryIndex(int[] order, String directoryKey, String[] nameKeys, String[] urlKeys, String[] typeKeys, String[] genreKeys) {
+    this.order = order;
+    this.directoryKey = directoryKey;
+    this.nameKeys = nameKeys;
+    this.urlKeys = urlKeys;
+    this.typeKeys = typeKeys;
+    this.genreKeys = genreKeys;
+  }
+  
+  /**
+   * Build the index for a directory.
+   * 
+   * @param entries entries of the directory
+   * @return index
+   */
+  public static DirectoryIndex build(List<? extends DirectoryEntry> entries) {
+    int size = entries.size();
+    final String[] nameKeys = new String[size];
+    final String[] urlKeys = new String[size];
+    String[] typeKeys = new String[size];
+    String[] genreKeys = new String[size];
+    for(int i = 0; i < size; i++) {
+      DirectoryEntry entry = entries.get(i);
+      nameKeys[i] = key(entry.getName());
+      urlKeys[i] = key(entry.getUrl());
+      typeKeys[i] = key(entry.getType());
+      genreKeys[i] = key(entry.getGenre());
+    }
+    Integer[] positions = new Integer[size];
+    for(int i = 0; i < size; i++) {
+      positions[i] = i;
+    }
+    Arrays.sort(positions, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return DirectoryIndex.compare(nameKeys[a], urlKeys[a], nameKeys[b], urlKeys[b]);
+      }
+    });
+    int[] order = new int[size];
+    for(int i = 0; i < size; i++) {
+      order[i] = positions[i];
+    }
+    String directoryKey = size > 0 ? key(entries.get(0).getDirectory()) : "";
+    return new DirectoryIndex(order, directoryKey, nameKeys, urlKeys, typeKeys, genreKeys);
+  }
+  
+  /**
+   * Decode the index for a directory.
+   * 
+   * @param in stream to read from
+   * @param entries entries of the directory the index was built from
+   * @return index
+   * @throws IOException if the data could not be read, or does not match the directory
+   */
+  static DirectoryIndex read(DataInputStream in, List<? extends DirectoryEntry> entries) throws IOException {
+    int size = in.readInt();
+    if(size != entries.size()) {
+      throw new IOException("Directory index does not match directory");
+    }
+    int[] order = new int[size];
+    for(int i = 0; i < size; i++) {
+      order[i] = in.readInt();
+      if(order[i] < 0 || order[i] >= size) {
+        throw new IOException("Corrupt directory index");
+      }
+    }
+    String[] nameKeys = new String[size];
+    String[] urlKeys = new String[size];
+    String[] typeKeys = new String[size];
+    String[] genreKeys = new String[size];
+    String directoryKey = readKey(in, size > 0 ? entries.get(0).getDirectory() : null);
+    for(int i = 0; i < size; i++) {
+      DirectoryEntry entry = entries.get(i);
+      nameKeys[i] = readKey(in, entry.getName());
+      urlKeys[i] = readKey(in, entry.getUrl());
+      typeKeys[i] = readKey(in, entry.getType());
+      genreKeys[i] = readKey(in, entry.getGenre());
+    }
+    return new DirectoryIndex(order, directoryKey, nameKeys, urlKeys, typeKeys, genreKeys);
+  }
+  
+  /**
+   * Check that an encoded index matches a directory, without decoding it, 
+   * so that the default order can be read straight from the encoded index 
+   * with {@link #getPosition(ByteBuffer, int)}.
+   * 
+   * @param encoded encoded index
+   * @param size number of entries in the directory the index was built from
+   * @throws IOException if the index does not match the directory, or its order is not valid
+   */
+  static void check(ByteBuffer encoded, int size) throws IOException {
+    if(encoded.capacity() < 4 + 4L * size || encoded.getInt(0) != size) {
+      throw new IOException("Directory index does not match directory");
+    }
+    BitSet seen = new BitSet(size);
+    for(int rank = 0; rank < size; rank++) {
+      int position = getPosition(encoded, rank);
+      if(position < 0 || position >= size || seen.get(position)) {
+        throw new IOException("Corrupt directory index");
+      }
+      seen.set(position);
+    }
+  }
+  
+  /**
+   * Get the position in the directory of the entry at a given place in the
+   * default order, from an encoded index.
+   * 
+   * @param encoded encoded index, checked with {@link #check(ByteBuffer, int)}
+   * @param rank place in the default order
+   * @return position in the directory
+   */
+  static int getPosition(ByteBuffer encoded, int rank) {
+    return encoded.getInt(4 + rank * 4);
+  }
+  
+  /**
+   * Encode the index.
+   * 
+   * @param out stream to write to
+   * @param entries entries of the directory the index was built from
+   * @throws IOException if the data could not be written
+   */
+  void write(DataOutputStream out, List<? extends DirectoryEntry> entries) throws IOException {
+    out.writeInt(order.length);
+    for(int position : order) {
+      out.writeInt(position);
+    }
+    writeKey(out, directoryKey, order.length > 0 ? entries.get(0).getDirectory() : null);
+    for(int i = 0; i < order.length; i++) {
+      DirectoryEntry entry = entries.get(i);
+      writeKey(out, nameKeys[i], entry.getName());
+      writeKey(out, urlKeys[i], entry.getUrl());
+      writeKey(out, typeKeys[i], entry.getType());
+      writeKey(out, genreKeys[i], entry.getGenre());
+    }
+  }
+  
+  /**
+   * Get the number of entries in the directory.
+   * 
+   * @return number of entries
+   */
+  public int size() {
+    return order.length;
+  }
+  
+  /**
+   * Get the position in the directory of the entry at a given place in the 
+   * default order.
+   * 
+   * @param rank place in the default order
+   * @return position in the directory
+   */
+  public int getPosition(int rank) {
+    return order[rank];
+  }
+  
+  /**
+   * Get the search key for the directory.
+   * 
+   * @return key
+   */
+  public String getDirectoryKey() {
+    return directoryKey;
+  }
+  
+  /**
+   * Get the search key for the name of an entry.
+   * 
+   * @param position position of the entry in the directory
+   * @return key
+   */
+  public String getNameKey(int position) {
+    return nameKeys[position];
+  }
+  
+  /**
+   * Get the search key for the URL of an entry.
+   * 
+   * @param position position of the entry in the directory
+   * @return key
+   */
+  public String getUrlKey(int position) {
+    return urlKeys[position];
+  }
+  
+  /**
+   * Get the search key for the type of an entry.
+   * 
+   * @param position position of the entry in the directory
+   * @return key
+   */
+  public String getTypeKey(int position) {
+    return typeKeys[position];
+  }
+  
+  /**
+   * Get the search key for the genre of an entry.
+   * 
+   * @param position position of the entry in the directory
+   * @return key
+   */
+  public String getGenreKey(int position) {
+    return genreKeys[position];
+  }
+  
+  /**
+   * Get the search key for the value of a field.
+   * 
+   * @param value value, may be <code>null</code>
+   * @return lower-case value, or an empty string if there is no value
+   */
+  static String key(String value) {
+    return value != null ? value.toLowerCase() : "";
+  }
+  
+  /**
+   * Compare two entries in the default order.
+   * 
+   * @param nameKeyA name search key of the first entry
+   * @param urlKeyA URL search key of the first entry
+   * @param nameKeyB name search key of the second entry
+   * @param urlKeyB URL search key of the second entry
+   * @return negative, zero or positive as the first entry comes before, with or after the second
+   */
+  static int compare(String nameKeyA, String urlKeyA, String nameKeyB, String urlKeyB) {
+    // Entries without a name go last
+    if((nameKeyA.length() == 0) != (nameKeyB.length() == 0)) {
+      return nameKeyA.length() == 0 ? 1 : -1;
+    }
+    int result = nameKeyA.compareTo(nameKeyB);
+    return result != 0 ? result : urlKeyA.compareTo(urlKeyB);
+  }
+  
+  private static void writeKey(DataOutputStream out, String key, String value) throws IOException {
+    if(key.equals(value != null ? value : "")) {
+      out.writeInt(SAME_AS_FIELD);
+    }
+    else {
+      byte[] bytes = key.getBytes(BinaryDirectoryCodec.UTF8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+  
+  private static String readKey(DataInputStream in, String value) throws IOException {
+    int length = in.readInt();
+    if(length == SAME_AS_FIELD) {
+      return value != null ? value : "";
+    }
+    if(length < 0) {
+      throw new IOException("Corrupt directory index");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, BinaryDirectoryCodec.UTF8);
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(60);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("size=").append(order.length).append(',');
+    sb.append("directoryKey=").append(directoryKey).append(']');
+    return sb.toString();
+  }
+}
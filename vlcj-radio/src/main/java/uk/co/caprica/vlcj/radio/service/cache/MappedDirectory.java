@@ -0,0 +1,428 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+
+/**
+ * Read-only directory backed by a memory-mapped binary cache file.
+ * <p>
+ * Opening the directory maps the file and reads only the header. The entries
+ * are lightweight views holding nothing but their index - each field is 
+ * decoded from the mapped file only when it is asked for, so the cost of 
+ * opening the directory and the heap it uses do not grow with the number of
+ * entries. Decoded strings are kept, since the same values are read over and
+ * over again by the table, the filters and sorting.
+ * <p>
+ * The checksum is not verified when the directory is opened, since that 
+ * would mean reading the whole file - {@link #verify()} does that, for a
+ * caller that can afford it once and must not meet damaged data later. 
+ * Offsets and references are range-checked as they are used.
+ * <p>
+ * The mapping stays valid until the directory is garbage collected, so the
+ * cache file must be replaced rather than rewritten in place while a mapped
+ * directory is in use.
+ */
+public class MappedDirectory implements Directory {
+
+  /**
+   * Order of the fields in a record, see {@link BinaryDirectoryCodec}.
+   */
+  static final int NAME = 0;
+  static final int URL = 1;
+  static final int TYPE = 2;
+  static final int BIT_RATE = 3;
+  static final int CHANNELS = 4;
+  static final int SAMPLE_RATE = 5;
+  static final int GENRE = 6;
+  static final int NOW_PLAYING = 7;
+  
+  /**
+   * Size of the buffer the mapped file is copied through to verify it.
+   */
+  private static final int VERIFY_BUFFER_SIZE = 65536;
+  
+  /**
+   * Mapped file, only ever read with absolute gets so it can be shared by 
+   * all threads.
+   */
+  private final ByteBuffer buffer;
+  
+  /**
+   * Number of entries.
+   */
+  private final int entryCount;
+  
+  /**
+   * Number of strings in the string table.
+   */
+  private final int stringCount;
+  
+  /**
+   * Position in the file of the string offset table.
+   */
+  private final int stringOffsets;
+  
+  /**
+   * Position in the file of the record offset table.
+   */
+  private final int recordOffsets;
+  
+  /**
+   * Directory name.
+   */
+  private final String directoryName;
+  
+  /**
+   * Strings decoded so far, by reference.
+   * <p>
+   * Races between threads are harmless - at worst the same string is decoded
+   * twice, and strings are immutable.
+   */
+  private final String[] strings;
+  
+  /**
+   * View of the entries.
+   */
+  private final List<DirectoryEntry> entries = new EntryList();
+  
+  /**
+   * Map a binary cache file.
+   * 
+   * @param file cache file
+   * @return directory
+   * @throws IOException if the file could not be mapped or is not a valid directory
+   */
+  public static MappedDirectory open(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      long size = channel.size();
+      if(size < BinaryDirectoryCodec.HEADER_LENGTH || size > Integer.MAX_VALUE) {
+        throw new IOException("Invalid binary directory size " + size);
+      }
+      return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+    finally {
+      // The mapping remains valid after the file is closed
+      randomAccessFile.close();
+    }
+  }
+  
+  /**
+   * Create a directory over an encoded directory that has already been 
+   * mapped, for example a part of a {@link StationStore} snapshot.
+   * 
+   * @param buffer buffer containing only the encoded directory
+   * @return directory
+   * @throws IOException if the buffer does not contain a valid directory
+   */
+  static MappedDirectory open(ByteBuffer buffer) throws IOException {
+    if(buffer.capacity() < BinaryDirectoryCodec.HEADER_LENGTH) {
+      throw new IOException("Invalid binary directory size " + buffer.capacity());
+    }
+    for(int i = 0; i < BinaryDirectoryCodec.MAGIC.length; i++) {
+      if(buffer.get(i) != BinaryDirectoryCodec.MAGIC[i]) {
+        throw new IOException("Not a binary directory");
+      }
+    }
+    int version = buffer.getShort(4) & 0xffff;
+    if(version != BinaryDirectoryCodec.VERSION) {
+      throw new IOException("Unsupported binary directory version " + version);
+    }
+    return new MappedDirectory(buffer);
+  }
+  
+  /**
+   * Create a mapped directory.
+   * 
+   * @param buffer mapped file
+   * @throws IOException if the header is not valid
+   */
+  private MappedDirectory(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    this.entryCount = buffer.getInt(8);
+    this.stringCount = buffer.getInt(12);
+    int payloadLength = buffer.getInt(16);
+    if(entryCount < 0 || stringCount < 0 || payloadLength < 0 || (long)BinaryDirectoryCodec.HEADER_LENGTH + payloadLength != buffer.capacity() || 4L * (entryCount + stringCount) > payloadLength) {
+      throw new IOException("Corrupt binary directory header");
+    }
+    this.recordOffsets = buffer.capacity() - 4 * entryCount;
+    this.stringOffsets = recordOffsets - 4 * stringCount;
+    this.strings = new String[stringCount];
+    this.directoryName = string(buffer.getInt(24));
+  }
+  
+  @Override
+  public List<? extends DirectoryEntry> entries() {
+    return entries;
+  }
+  
+  /**
+   * Verify the checksum of the encoded directory.
+   * <p>
+   * This reads the whole of the mapped file, but does not decode anything.
+   * 
+   * @throws IOException if the checksum does not match
+   */
+  void verify() throws IOException {
+    ByteBuffer payload = buffer.duplicate();
+    payload.position(BinaryDirectoryCodec.HEADER_LENGTH);
+    payload.limit(buffer.capacity());
+    byte[] chunk = new byte[Math.min(payload.remaining(), VERIFY_BUFFER_SIZE)];
+    CRC32 crc = new CRC32();
+    while(payload.hasRemaining()) {
+      int length = Math.min(payload.remaining(), chunk.length);
+      payload.get(chunk, 0, length);
+      crc.update(chunk, 0, length);
+    }
+    if((int)crc.getValue() != buffer.getInt(20)) {
+      throw new IOException("Binary directory checksum mismatch");
+    }
+  }
+  
+  /**
+   * Get the directory name.
+   * 
+   * @return directory name, may be <code>null</code>
+   */
+  String getDirectoryName() {
+    return directoryName;
+  }
+  
+  /**
+   * Get the number of strings in the string table.
+   * 
+   * @return number of strings, every string reference is at most this
+   */
+  int getStringCount() {
+    return stringCount;
+  }
+  
+  /**
+   * Decode a field of a record.
+   * 
+   * @param index index of the record
+   * @param field index of the field in the record
+   * @return raw field value, the string reference of a string field
+   */
+  int field(int index, int field) {
+    int position = BinaryDirectoryCodec.HEADER_LENGTH + buffer.getInt(recordOffsets + index * 4);
+    // Skip the record length and the fields before the one wanted
+    for(int i = 0; i <= field; i++) {
+      while(buffer.get(position++) < 0) {
+      }
+    }
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get(position++);
+      value |= (b & 0x7f) << shift;
+      shift += 7;
+    } while(b < 0);
+    return value;
+  }
+  
+  /**
+   * Decode an integer field of a record.
+   * 
+   * @param index index of the record
+   * @param field index of the field in the record
+   * @return value
+   */
+  int intField(int index, int field) {
+    int value = field(index, field);
+    return (value >>> 1) ^ -(value & 1);
+  }
+  
+  /**
+   * Decode a string field of a record.
+   * 
+   * @param index index of the record
+   * @param field index of the field in the record
+   * @return value, may be <code>null</code>
+   */
+  private String stringField(int index, int field) {
+    return string(field(index, field));
+  }
+  
+  /**
+   * Get a string from the string table.
+   * 
+   * @param ref string reference
+   * @return string, or <code>null</code> if the reference is zero
+   */
+  String string(int ref) {
+    if(ref == 0) {
+      return null;
+    }
+    if(ref < 0 || ref > stringCount) {
+      throw new IllegalStateException("Invalid string reference " + ref);
+    }
+    String value = strings[ref - 1];
+    if(value == null) {
+      int position = BinaryDirectoryCodec.HEADER_LENGTH + buffer.getInt(stringOffsets + (ref - 1) * 4);
+      int length = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get(position++);
+        length |= (b & 0x7f) << shift;
+        shift += 7;
+      } while(b < 0);
+      byte[] bytes = new byte[length];
+      ByteBuffer slice = buffer.duplicate();
+      slice.position(position);
+      slice.get(bytes);
+      value = new String(bytes, BinaryDirectoryCodec.UTF8);
+      strings[ref - 1] = value;
+    }
+    return value;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("directoryName=").append(directoryName).append(',');
+    sb.append("entryCount=").append(entryCount).append(',');
+    sb.append("stringCount=").append(stringCount).append(']');
+    return sb.toString();
+  }
+  
+  /**
+   * List of entry views, a new view is created each time an entry is asked
+   * for.
+   */
+  private final class EntryList extends AbstractList<DirectoryEntry> implements RandomAccess {
+
+    @Override
+    public DirectoryEntry get(int index) {
+      if(index < 0 || index >= entryCount) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + entryCount);
+      }
+      return new MappedDirectoryEntry(index);
+    }
+
+    @Override
+    public int size() {
+      return entryCount;
+    }
+  }
+  
+  /**
+   * View of a single entry, decoding each field from the mapped file when it
+   * is asked for.
+   */
+  private final class MappedDirectoryEntry implements DirectoryEntry {
+
+    /**
+     * Index of the entry.
+     */
+    private final int index;
+    
+    private MappedDirectoryEntry(int index) {
+      this.index = index;
+    }
+    
+    @Override
+    public String getDirectory() {
+      return directoryName;
+    }
+
+    @Override
+    public String getName() {
+      return stringField(index, NAME);
+    }
+
+    @Override
+    public String getUrl() {
+      return stringField(index, URL);
+    }
+
+    @Override
+    public String getType() {
+      return stringField(index, TYPE);
+    }
+
+    @Override
+    public String getBitRate() {
+      return stringField(index, BIT_RATE);
+    }
+
+    @Override
+    public int getChannels() {
+      return intField(index, CHANNELS);
+    }
+
+    @Override
+    public int getSampleRate() {
+      return intField(index, SAMPLE_RATE);
+    }
+
+    @Override
+    public String getGenre() {
+      return stringField(index, GENRE);
+    }
+
+    @Override
+    public String getNowPlaying() {
+      return stringField(index, NOW_PLAYING);
+    }
+
+    @Override
+    public int compareTo(DirectoryEntry o) {
+      String name = getName();
+      String otherName = o.getName();
+      if(name == null) {
+        return otherName == null ? 0 : -1;
+      }
+      return otherName == null ? 1 : name.compareTo(otherName);
+    }
+    
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(300);
+      sb.append(getClass().getSimpleName()).append('[');
+      sb.append("index=").append(index).append(',');
+      sb.append("name=").append(getName()).append(',');
+      sb.append("url=").append(getUrl()).append(',');
+      sb.append("type=").append(getType()).append(',');
+      sb.append("bitRate=").append(getBitRate()).append(',');
+      sb.append("channels=").append(getChannels()).append(',');
+      sb.append("sampleRate=").append(getSampleRate()).append(',');
+      sb.append("genre=").append(getGenre()).append(',');
+      sb.append("nowPlaying=").append(getNowPlaying()).append(']');
+      return sb.toString();
+    }
+  }
+}
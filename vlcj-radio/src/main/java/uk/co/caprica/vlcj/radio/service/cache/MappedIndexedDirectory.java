@@ -0,0 +1,465 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.model.SortKey;
+
+/**
+ * A directory in a mapped {@link StationStore} snapshot, with its entries in
+ * the default order, each carrying its search keys, read through the 
+ * {@link DirectoryIndex} kept with it.
+ * <p>
+ * Where a {@link ColumnarDirectory} copies every field of every entry when it
+ * is created, nothing is decoded here until it is asked for. The default 
+ * order is read from the mapped index, and each field from the underlying 
+ * {@link MappedDirectory}, which keeps the strings it has decoded. The search
+ * key, the code in the shared {@link ValueDictionary} and the bit-rate in 
+ * kbit/s are worked out once for each distinct string, the first time they 
+ * are asked for, so the entries can be filtered over and over without 
+ * converting their fields again.
+ * <p>
+ * The entries are views holding nothing but their place, created the first 
+ * time each is asked for and then reused, so the table and the filters keep 
+ * seeing the same instances. Since the entries are already in the default 
+ * order, which is by name, their name ranks follow straight from it. The URL
+ * ranks are built the first time the directory is sorted on the URL.
+ * <p>
+ * The mapped data must have been verified, see {@link MappedDirectory#verify()}.
+ */
+public final class MappedIndexedDirectory implements Directory {
+
+  /**
+   * Underlying directory, entries by position.
+   */
+  private final MappedDirectory directory;
+  
+  /**
+   * Mapped index, only ever read with absolute gets.
+   */
+  private final ByteBuffer index;
+  
+  /**
+   * Dictionary of the values of the coded fields.
+   */
+  private final ValueDictionary dictionary;
+  
+  /**
+   * Code of the directory name.
+   */
+  private final int directoryCode;
+  
+  /**
+   * Views of the entries, by place in the default order, created when first
+   * asked for.
+   */
+  private final Entry[] views;
+  
+  /**
+   * List of the views.
+   */
+  private final List<IndexedEntry> entries = new EntryList();
+  
+  /**
+   * Search key of each string, by string reference - only allocated when a
+   * search key is first asked for.
+   * <p>
+   * Races between threads are harmless - at worst a key is worked out more
+   * than once.
+   */
+  private volatile String[] keys;
+  
+  /**
+   * Code of each string plus one, by string reference, zero if it has not 
+   * been looked up yet - only allocated when a code is first asked for.
+   */
+  private volatile int[] codes;
+  
+  /**
+   * Bit-rate in kbit/s of each string plus two, by string reference, zero if
+   * it has not been parsed yet - only allocated when a bit-rate is first 
+   * asked for.
+   */
+  private volatile int[] kbps;
+  
+  /**
+   * Rank of the name of each entry, by place - only built if the directory 
+   * is sorted on the name.
+   */
+  private volatile int[] nameRanks;
+  
+  /**
+   * Rank of the URL of each entry, by place - only built if the directory is
+   * sorted on the URL.
+   */
+  private volatile int[] urlRanks;
+  
+  /**
+   * Create a directory over a mapped directory and its mapped index.
+   * <p>
+   * The order in the index is checked, but nothing is decoded.
+   * 
+   * @param directory mapped directory, verified
+   * @param index encoded index built from the directory
+   * @return directory
+   * @throws IOException if the index does not match the directory
+   */
+  static MappedIndexedDirectory open(MappedDirectory directory, ByteBuffer index) throws IOException {
+    DirectoryIndex.check(index, directory.entries().size());
+    return new MappedIndexedDirectory(directory, index);
+  }
+  
+  private MappedIndexedDirectory(MappedDirectory directory, ByteBuffer index) {
+    this.directory = directory;
+    this.index = index;
+    this.dictionary = ValueDictionary.shared();
+    this.directoryCode = dictionary.code(directory.getDirectoryName());
+    this.views = new Entry[directory.entries().size()];
+  }
+  
+  @Override
+  public List<IndexedEntry> entries() {
+    return entries;
+  }
+  
+  /**
+   * Get the search key of a string.
+   * 
+   * @param ref string reference
+   * @return lower-case string, or an empty string for no value
+   */
+  private String key(int ref) {
+    String[] currentKeys = keys;
+    if(currentKeys == null) {
+      currentKeys = new String[directory.getStringCount() + 1];
+      keys = currentKeys;
+    }
+    String key = currentKeys[ref];
+    if(key == null) {
+      key = DirectoryIndex.key(directory.string(ref));
+      currentKeys[ref] = key;
+    }
+    return key;
+  }
+  
+  /**
+   * Get the code of a string in the dictionary.
+   * 
+   * @param ref string reference
+   * @return code
+   */
+  private int code(int ref) {
+    int[] currentCodes = codes;
+    if(currentCodes == null) {
+      currentCodes = new int[directory.getStringCount() + 1];
+      codes = currentCodes;
+    }
+    int code = currentCodes[ref] - 1;
+    if(code < 0) {
+      code = dictionary.code(directory.string(ref));
+      currentCodes[ref] = code + 1;
+    }
+    return code;
+  }
+  
+  /**
+   * Get the bit-rate of a string.
+   * 
+   * @param ref string reference
+   * @return bit-rate in kbit/s, or {@link BitRates#UNKNOWN}
+   */
+  private int kbps(int ref) {
+    int[] currentKbps = kbps;
+    if(currentKbps == null) {
+      currentKbps = new int[directory.getStringCount() + 1];
+      kbps = currentKbps;
+    }
+    int value = currentKbps[ref] - 2;
+    if(value < BitRates.UNKNOWN) {
+      value = BitRates.parse(directory.string(ref));
+      currentKbps[ref] = value + 2;
+    }
+    return value;
+  }
+  
+  /**
+   * Get the view of an entry, creating it the first time.
+   * 
+   * @param row place of the entry in the default order
+   * @return view
+   */
+  private Entry view(int row) {
+    Entry view = views[row];
+    if(view == null) {
+      synchronized(views) {
+        view = views[row];
+        if(view == null) {
+          view = new Entry(row, DirectoryIndex.getPosition(index, row));
+          views[row] = view;
+        }
+      }
+    }
+    return view;
+  }
+  
+  /**
+   * Rank every entry on its name, which is the default order with equal 
+   * names given the same rank.
+   * 
+   * @return ranks, by place
+   */
+  private int[] nameRanks() {
+    int[] ranks = new int[views.length];
+    int rank = 0;
+    String previous = null;
+    for(int row = 0; row < ranks.length; row++) {
+      String key = key(directory.field(DirectoryIndex.getPosition(index, row), MappedDirectory.NAME));
+      if(previous != null && !key.equals(previous)) {
+        rank++;
+      }
+      ranks[row] = rank;
+      previous = key;
+    }
+    return ranks;
+  }
+  
+  /**
+   * Rank every entry on its URL.
+   * 
+   * @return ranks, by place
+   */
+  private int[] urlRanks() {
+    String[] urlKeys = new String[views.length];
+    for(int row = 0; row < urlKeys.length; row++) {
+      urlKeys[row] = key(directory.field(DirectoryIndex.getPosition(index, row), MappedDirectory.URL));
+    }
+    return SortKey.ranks(urlKeys);
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("directory=").append(directory).append(']');
+    return sb.toString();
+  }
+  
+  /**
+   * List of the entry views.
+   */
+  private final class EntryList extends AbstractList<IndexedEntry> implements RandomAccess {
+
+    @Override
+    public IndexedEntry get(int index) {
+      return view(index);
+    }
+
+    @Override
+    public int size() {
+      return views.length;
+    }
+  }
+  
+  /**
+   * View of a single entry.
+   */
+  private final class Entry implements IndexedEntry {
+    
+    /**
+     * Place of the entry in the default order.
+     */
+    private final int row;
+    
+    /**
+     * Position of the entry in the underlying directory.
+     */
+    private final int position;
+    
+    private Entry(int row, int position) {
+      this.row = row;
+      this.position = position;
+    }
+    
+    private int ref(int field) {
+      return directory.field(position, field);
+    }
+    
+    @Override
+    public String getDirectory() {
+      return directory.getDirectoryName();
+    }
+
+    @Override
+    public String getName() {
+      return directory.string(ref(MappedDirectory.NAME));
+    }
+
+    @Override
+    public String getUrl() {
+      return directory.string(ref(MappedDirectory.URL));
+    }
+
+    @Override
+    public String getType() {
+      return directory.string(ref(MappedDirectory.TYPE));
+    }
+
+    @Override
+    public String getBitRate() {
+      return directory.string(ref(MappedDirectory.BIT_RATE));
+    }
+
+    @Override
+    public int getBitRateKbps() {
+      return kbps(ref(MappedDirectory.BIT_RATE));
+    }
+
+    @Override
+    public int getChannels() {
+      return directory.intField(position, MappedDirectory.CHANNELS);
+    }
+
+    @Override
+    public int getSampleRate() {
+      return directory.intField(position, MappedDirectory.SAMPLE_RATE);
+    }
+
+    @Override
+    public String getGenre() {
+      return directory.string(ref(MappedDirectory.GENRE));
+    }
+
+    @Override
+    public String getNowPlaying() {
+      return directory.string(ref(MappedDirectory.NOW_PLAYING));
+    }
+    
+    @Override
+    public String getDirectoryKey() {
+      return dictionary.getKey(directoryCode);
+    }
+    
+    @Override
+    public String getNameKey() {
+      return key(ref(MappedDirectory.NAME));
+    }
+    
+    @Override
+    public String getUrlKey() {
+      return key(ref(MappedDirectory.URL));
+    }
+    
+    @Override
+    public Object getRankGroup() {
+      return MappedIndexedDirectory.this;
+    }
+    
+    @Override
+    public int getNameRank() {
+      int[] ranks = nameRanks;
+      if(ranks == null) {
+        ranks = nameRanks();
+        nameRanks = ranks;
+      }
+      return ranks[row];
+    }
+    
+    @Override
+    public int getUrlRank() {
+      int[] ranks = urlRanks;
+      if(ranks == null) {
+        ranks = urlRanks();
+        urlRanks = ranks;
+      }
+      return ranks[row];
+    }
+    
+    @Override
+    public String getTypeKey() {
+      return key(ref(MappedDirectory.TYPE));
+    }
+    
+    @Override
+    public String getGenreKey() {
+      return key(ref(MappedDirectory.GENRE));
+    }
+    
+    @Override
+    public int getDirectoryCode() {
+      return directoryCode;
+    }
+    
+    @Override
+    public int getTypeCode() {
+      return code(ref(MappedDirectory.TYPE));
+    }
+    
+    @Override
+    public int getBitRateCode() {
+      return code(ref(MappedDirectory.BIT_RATE));
+    }
+    
+    @Override
+    public int getGenreCode() {
+      return code(ref(MappedDirectory.GENRE));
+    }
+    
+    /**
+     * Entries are compared in the default order, see {@link DirectoryIndex}.
+     */
+    @Override
+    public int compareTo(DirectoryEntry o) {
+      if(o instanceof Entry && ((Entry)o).getOuter() == MappedIndexedDirectory.this) {
+        return row - ((Entry)o).row;
+      }
+      String nameKey = o instanceof IndexedEntry ? ((IndexedEntry)o).getNameKey() : DirectoryIndex.key(o.getName());
+      String urlKey = o instanceof IndexedEntry ? ((IndexedEntry)o).getUrlKey() : DirectoryIndex.key(o.getUrl());
+      return DirectoryIndex.compare(getNameKey(), getUrlKey(), nameKey, urlKey);
+    }
+    
+    private MappedIndexedDirectory getOuter() {
+      return MappedIndexedDirectory.this;
+    }
+    
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(300);
+      sb.append(getClass().getSimpleName()).append('[');
+      sb.append("directory=").append(getDirectory()).append(',');
+      sb.append("name=").append(getName()).append(',');
+      sb.append("url=").append(getUrl()).append(',');
+      sb.append("type=").append(getType()).append(',');
+      sb.append("bitRate=").append(getBitRate()).append(',');
+      sb.append("channels=").append(getChannels()).append(',');
+      sb.append("sampleRate=").append(getSampleRate()).append(',');
+      sb.append("genre=").append(getGenre()).append(',');
+      sb.append("nowPlaying=").append(getNowPlaying()).append(']');
+      return sb.toString();
+    }
+  }
+}
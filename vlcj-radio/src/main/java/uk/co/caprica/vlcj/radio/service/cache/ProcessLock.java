@@ -0,0 +1,247 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exclusive lock shared between processes, held on a lock file.
+ * <p>
+ * A file lock is held on behalf of the whole process, so it can not keep two
+ * threads of the same process apart - each lock file is therefore also 
+ * guarded by a semaphore shared by every lock on the same file in the 
+ * process. The lock is not re-entrant, and may be released by a different 
+ * thread from the one that acquired it.
+ * <p>
+ * The lock file itself is left in place when the lock is released, deleting
+ * it would let two processes lock different files of the same name.
+ */
+public final class ProcessLock {
+
+  /**
+   * Semaphores guarding each lock file within this process, by path.
+   */
+  private static final Map<String, Semaphore> semaphores = new HashMap<String, Semaphore>();
+  
+  /**
+   * Lock file.
+   */
+  private final File file;
+  
+  /**
+   * Semaphore guarding the lock file within this process.
+   */
+  private final Semaphore semaphore;
+  
+  /**
+   * Open lock file, only while the lock is held.
+   */
+  private RandomAccessFile randomAccessFile;
+  
+  /**
+   * File lock, only while the lock is held.
+   */
+  private FileLock fileLock;
+  
+  /**
+   * Create a lock.
+   * 
+   * @param file lock file, created when it is first locked
+   */
+  public ProcessLock(File file) {
+    this.file = file;
+    this.semaphore = getSemaphore(file);
+  }
+  
+  /**
+   * Acquire the lock, waiting as long as necessary.
+   * 
+   * @throws IOException if the lock file could not be locked, or the calling thread was interrupted while waiting
+   */
+  public void lock() throws IOException {
+    lock(null);
+  }
+  
+  /**
+   * Acquire the lock, waiting as long as necessary.
+   * <p>
+   * Waiting for another thread of this process to release the lock is not
+   * reported, such a wait is expected to be short.
+   * 
+   * @param waiting run once before waiting if the lock file is held by another process, may be <code>null</code>
+   * @throws IOException if the lock file could not be locked, or the calling thread was interrupted while waiting
+   */
+  public void lock(Runnable waiting) throws IOException {
+    try {
+      semaphore.acquire();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting to lock " + file);
+    }
+    try {
+      openFile();
+      fileLock = randomAccessFile.getChannel().tryLock();
+      if(fileLock == null) {
+        if(waiting != null) {
+          waiting.run();
+        }
+        fileLock = randomAccessFile.getChannel().lock();
+      }
+    }
+    catch(FileLockInterruptionException e) {
+      closeFile();
+      semaphore.release();
+      throw interrupted(e);
+    }
+    catch(ClosedByInterruptException e) {
+      closeFile();
+      semaphore.release();
+      throw interrupted(e);
+    }
+    catch(IOException e) {
+      closeFile();
+      semaphore.release();
+      throw e;
+    }
+    catch(RuntimeException e) {
+      closeFile();
+      semaphore.release();
+      throw e;
+    }
+  }
+  
+  /**
+   * Acquire the lock only if it is not held by another thread or process.
+   * 
+   * @return <code>true</code> if the lock was acquired; <code>false</code> if it is held elsewhere
+   * @throws IOException if the lock file could not be locked
+   */
+  public boolean tryLock() throws IOException {
+    if(!semaphore.tryAcquire()) {
+      return false;
+    }
+    try {
+      openFile();
+      fileLock = randomAccessFile.getChannel().tryLock();
+    }
+    catch(IOException e) {
+      closeFile();
+      semaphore.release();
+      throw e;
+    }
+    if(fileLock == null) {
+      closeFile();
+      semaphore.release();
+      return false;
+    }
+    return true;
+  }
+  
+  /**
+   * Release the lock.
+   */
+  public void unlock() {
+    try {
+      fileLock.release();
+    }
+    catch(IOException e) {
+      // Closing the file releases the lock anyway
+    }
+    fileLock = null;
+    closeFile();
+    semaphore.release();
+  }
+  
+  /**
+   * Create the exception reporting that the calling thread was interrupted 
+   * while waiting for the lock file.
+   * <p>
+   * The interrupt status of the thread is left set.
+   * 
+   * @param e cause
+   * @return exception to throw
+   */
+  private InterruptedIOException interrupted(IOException e) {
+    InterruptedIOException result = new InterruptedIOException("Interrupted waiting to lock " + file);
+    result.initCause(e);
+    return result;
+  }
+  
+  private void openFile() throws IOException {
+    File directory = file.getParentFile();
+    if(directory != null && !directory.exists()) {
+      directory.mkdirs();
+    }
+    randomAccessFile = new RandomAccessFile(file, "rw");
+  }
+  
+  private void closeFile() {
+    if(randomAccessFile != null) {
+      try {
+        randomAccessFile.close();
+      }
+      catch(IOException e) {
+      }
+      randomAccessFile = null;
+    }
+  }
+  
+  /**
+   * Get the semaphore guarding a lock file within this process.
+   * 
+   * @param file lock file
+   * @return semaphore
+   */
+  private static Semaphore getSemaphore(File file) {
+    String path;
+    try {
+      path = file.getCanonicalPath();
+    }
+    catch(IOException e) {
+      path = file.getAbsolutePath();
+    }
+    synchronized(semaphores) {
+      Semaphore semaphore = semaphores.get(path);
+      if(semaphore == null) {
+        semaphore = new Semaphore(1);
+        semaphores.put(path, semaphore);
+      }
+      return semaphore;
+    }
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("file=").append(file).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.File;
+
+/**
+ * Build tool to write a seed snapshot from an existing station store, to be
+ * packaged in the application jar.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java uk.co.caprica.vlcj.radio.service.cache.SeedSnapshot &lt;store-directory&gt; &lt;seed-file&gt;
+ * </pre>
+ * The seed is normally written by the "seed" target of the build, from the
+ * cache of the user running the build.
+ */
+public final class SeedSnapshot {
+
+  /**
+   * Prevent direct instantiation by others.
+   */
+  private SeedSnapshot() {
+  }
+  
+  /**
+   * Application entry point.
+   * 
+   * @param args command-line arguments
+   * @throws Exception if an error occurs
+   */
+  public static void main(String[] args) throws Exception {
+    if(args.length != 2) {
+      System.err.println("Usage: java " + SeedSnapshot.class.getName() + " <store-directory> <seed-file>");
+      System.exit(1);
+    }
+    File seedFile = new File(args[1]);
+    File parent = seedFile.getAbsoluteFile().getParentFile();
+    if(parent != null && !parent.exists()) {
+      parent.mkdirs();
+    }
+    new StationStore(new File(args[0])).exportSeed(seedFile);
+    System.out.println("Wrote seed snapshot " + seedFile + " (" + seedFile.length() + " bytes)");
+  }
+}
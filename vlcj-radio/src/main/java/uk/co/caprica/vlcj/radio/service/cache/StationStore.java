@@ -0,0 +1,2475 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+
+/**
+ * Single on-disk store for the cached stations of every directory.
+ * <p>
+ * The store is made up of two files:
+ * <ul>
+ *   <li>a snapshot, holding each directory encoded with the 
+ *       {@link BinaryDirectoryCodec} one after another, behind a table of 
+ *       contents;</li>
+ *   <li>an append-only log of the changes made since the snapshot was 
+ *       written.</li>
+ * </ul>
+ * Storing a refreshed directory appends only the stations that were added,
+ * removed or changed, so the amount written is in proportion to the size of
+ * the change rather than the size of the directory. Once the log has grown 
+ * large enough it is compacted in the background - the current state of 
+ * every directory is written to a new snapshot and the log starts again.
+ * <p>
+ * Opening the store reads the snapshot with a single sequential read, or 
+ * maps it if the "vlcj.radio.cache.mapped" system property is "true", and 
+ * then replays the log. A directory that has not changed since the snapshot 
+ * was written is only decoded when it is read, and when the snapshot is 
+ * mapped it is not decoded at all - it is returned as a 
+ * {@link MappedDirectory}, or read with its index as a 
+ * {@link MappedIndexedDirectory}, whose fields are decoded from the mapped
+ * snapshot as they are asked for.
+ * <p>
+ * The directories in the snapshot can be compressed, by setting the 
+ * "vlcj.radio.cache.compression" system property to "deflate" or "gzip" and
+ * optionally "vlcj.radio.cache.compressionLevel" to a level from 1 to 9. A 
+ * compressed snapshot is a fraction of the size, which matters more than the
+ * time taken to decompress it when the home directory is slow to read, but
+ * it can no longer be mapped - the directories are decoded when they are 
+ * read instead. The snapshot is rewritten when the setting is changed.
+ * <p>
+ * Stations are identified within a directory by their URL. New stations are
+ * added after the existing stations of the directory.
+ * <p>
+ * A {@link DirectoryIndex}, holding the default sort order and the search 
+ * keys of the stations, is written to the snapshot alongside each directory,
+ * so a directory read with {@link #readIndexed(String, DirectoryBuilder)} is
+ * ready to show and search. Only the index of a directory that has changed 
+ * since the snapshot was written is rebuilt.
+ * <p>
+ * Every time a directory is stored it becomes a new generation, and a bounded
+ * history of the previous generations is kept, by default the last ten, or 
+ * the number given by the "vlcj.radio.cache.history" system property. Each 
+ * previous generation is kept as the changes that undo the generation after
+ * it, so the history costs no more than the changes themselves, and the 
+ * oldest generation is dropped simply by forgetting its changes. A previous
+ * generation can be read, compared with another generation, or restored.
+ * <p>
+ * Each set of changes is appended to the log as a single checksummed frame 
+ * and synced to the disk, so a crash never leaves part of a refresh applied
+ * - an incomplete frame at the end of the log is discarded when the log is 
+ * replayed. The snapshot is written to a temporary file that replaces it, 
+ * keeping the previous copy, which is used if the snapshot is found to be 
+ * damaged. A single directory found to be damaged when it is read is 
+ * recovered from the previous copy, or from the seed, keeping its history.
+ * The snapshot and the log both carry a generation number, so a log
+ * left behind by an interrupted compaction, whose changes are already in the
+ * snapshot, is recognised and ignored.
+ * <p>
+ * The application jar may contain a seed snapshot, written by 
+ * {@link SeedSnapshot} when the application is built. A directory that has 
+ * never been stored can be read from the seed instead, so that the first 
+ * start does not have to wait for every directory to be retrieved from its 
+ * source.
+ * <p>
+ * The store may be shared by several processes, for example more than one 
+ * instance of the application using the same home directory. Every 
+ * operation holds a lock on a lock file, and first catches up with any 
+ * changes another process has appended to the log, or re-reads the snapshot
+ * if another process has compacted it. Compaction holds that lock only to 
+ * copy the state of the store and to replace the files, not while the new
+ * snapshot is written.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class StationStore {
+
+  /**
+   * Name of the snapshot file.
+   */
+  private static final String SNAPSHOT_FILE_NAME = "stations.dat";
+  
+  /**
+   * Name of the log file.
+   */
+  private static final String LOG_FILE_NAME = "stations.log";
+  
+  /**
+   * Name of the lock file for the store.
+   */
+  private static final String LOCK_FILE_NAME = "stations.lock";
+  
+  /**
+   * Suffix of a lock file used to refresh a directory.
+   */
+  private static final String REFRESH_LOCK_SUFFIX = ".lock";
+  
+  /**
+   * Name of the lock file held while the store is compacted.
+   */
+  private static final String COMPACTION_LOCK_FILE_NAME = "stations-compaction.lock";
+  
+  /**
+   * Suffix of the file a new snapshot or log is written to before it replaces
+   * the existing one.
+   */
+  private static final String TEMP_SUFFIX = ".tmp";
+  
+  /**
+   * Suffix of the previous copy of the snapshot.
+   */
+  private static final String PREVIOUS_SUFFIX = ".prev";
+  
+  /**
+   * Suffix of a snapshot found to be damaged, kept for diagnosis.
+   */
+  private static final String CORRUPT_SUFFIX = ".corrupt";
+  
+  /**
+   * Name of the seed snapshot resource, relative to this class.
+   */
+  private static final String SEED_RESOURCE = "stations-seed.dat";
+  
+  /**
+   * Identifies a snapshot file.
+   */
+  private static final byte[] SNAPSHOT_MAGIC = {'V', 'R', 'S', 'S'};
+  
+  /**
+   * Identifies a log file.
+   */
+  private static final byte[] LOG_MAGIC = {'V', 'R', 'S', 'L'};
+  
+  /**
+   * Snapshot format version.
+   */
+  private static final int SNAPSHOT_VERSION = 1;
+  
+  /**
+   * Log format version.
+   */
+  private static final int LOG_VERSION = 1;
+  
+  /**
+   * Size of the snapshot header, in bytes: magic, version, flags, generation,
+   * directory count, table length and table checksum.
+   */
+  private static final int SNAPSHOT_HEADER_LENGTH = 28;
+  
+  /**
+   * Size of the log header, in bytes: magic, version, flags and generation.
+   */
+  private static final int LOG_HEADER_LENGTH = 16;
+  
+  /**
+   * Size of the header of each frame in the log, in bytes: payload length and
+   * payload checksum.
+   */
+  private static final int FRAME_HEADER_LENGTH = 8;
+  
+  /**
+   * Size of the buffers used to compress and decompress a directory, in 
+   * bytes.
+   */
+  private static final int COMPRESSION_BUFFER_SIZE = 65536;
+  
+  /**
+   * A directory in the snapshot that is not compressed.
+   */
+  private static final int NO_COMPRESSION = 0;
+  
+  /**
+   * A directory in the snapshot that is compressed as a raw deflate stream.
+   */
+  private static final int DEFLATE = 1;
+  
+  /**
+   * A directory in the snapshot that is compressed as a gzip stream.
+   */
+  private static final int GZIP = 2;
+  
+  /**
+   * The log is never compacted while it is smaller than this, in bytes.
+   */
+  private static final long MIN_COMPACTION_LOG_LENGTH = 256 * 1024;
+  
+  /**
+   * Default number of previous generations kept for each directory.
+   */
+  private static final int DEFAULT_HISTORY_SIZE = 10;
+  
+  /**
+   * Older generations of a directory are dropped once the changes kept for 
+   * its history exceed this, in bytes, whatever the number of generations.
+   */
+  private static final int MAX_HISTORY_LENGTH = 4 * 1024 * 1024;
+  
+  /**
+   * Log operation to replace all of the stations of a directory.
+   */
+  private static final int RESET = 1;
+  
+  /**
+   * Log operation to add or replace a station.
+   */
+  private static final int PUT = 2;
+  
+  /**
+   * Log operation to remove a station.
+   */
+  private static final int REMOVE = 3;
+  
+  /**
+   * Log operation to set the time a directory was last updated.
+   */
+  private static final int STAMP = 4;
+  
+  /**
+   * Log operation to set the HTTP cache validators of a directory.
+   */
+  private static final int VALIDATORS = 5;
+  
+  /**
+   * Log operation to remove a directory.
+   */
+  private static final int DELETE = 6;
+  
+  /**
+   * Log operation to start a new generation of a directory, keeping the 
+   * changes that restore the previous generation.
+   */
+  private static final int HISTORY = 7;
+  
+  /**
+   * Directory containing the store files.
+   */
+  private final File directory;
+  
+  /**
+   * Lock held for every operation on the store, keeping other processes 
+   * sharing the same files out.
+   */
+  private final ProcessLock storeLock;
+  
+  /**
+   * Lock held while the store is compacted, which is not held for any other
+   * operation.
+   */
+  private final ProcessLock compactionLock;
+  
+  /**
+   * Encoding of each directory in the snapshot.
+   */
+  private final BinaryDirectoryCodec codec = new BinaryDirectoryCodec();
+  
+  /**
+   * Runs compaction in the background.
+   */
+  private final ExecutorService compactionExecutor;
+  
+  /**
+   * Stored directories, by key.
+   */
+  private final Map<String, Section> sections = new LinkedHashMap<String, Section>();
+  
+  /**
+   * Has the store been read from the disk?
+   */
+  private boolean open;
+  
+  /**
+   * Content of the snapshot file, read or mapped, or <code>null</code> if 
+   * there is no snapshot.
+   */
+  private ByteBuffer snapshot;
+  
+  /**
+   * Is the snapshot mapped?
+   */
+  private boolean mapped;
+  
+  /**
+   * Generation of the snapshot, the log applies only to the same generation.
+   */
+  private long generation;
+  
+  /**
+   * Length of the valid part of the log, in bytes.
+   */
+  private long logLength;
+  
+  /**
+   * Is a compaction waiting to run?
+   */
+  private boolean compactionScheduled;
+  
+  /**
+   * Directories in the seed snapshot, by key, or <code>null</code> if the 
+   * seed has not been read yet.
+   */
+  private Map<String, Section> seedSections;
+  
+  /**
+   * Create a station store.
+   * <p>
+   * The files are not read until the store is first used.
+   * 
+   * @param directory directory to keep the store files in, created if necessary
+   */
+  public StationStore(File directory) {
+    this.directory = directory;
+    this.storeLock = new ProcessLock(new File(directory, LOCK_FILE_NAME));
+    this.compactionLock = new ProcessLock(new File(directory, COMPACTION_LOCK_FILE_NAME));
+    this.compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        // Compaction is safe to abandon part way through
+        Thread thread = new Thread(r, "station-store-compaction");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+  
+  /**
+   * Get the directory containing the store files.
+   * 
+   * @return directory
+   */
+  public File getDirectory() {
+    return directory;
+  }
+  
+  /**
+   * Get the lock used to make sure that only one process at a time refreshes
+   * a directory from its source.
+   * <p>
+   * This lock is separate from the lock on the store itself, and is held 
+   * while the directory is retrieved.
+   * 
+   * @param key directory key
+   * @return lock
+   */
+  public ProcessLock getRefreshLock(String key) {
+    return new ProcessLock(new File(directory, key + REFRESH_LOCK_SUFFIX));
+  }
+  
+  /**
+   * Test whether a directory is stored.
+   * 
+   * @param key directory key
+   * @return <code>true</code> if the directory is stored; <code>false</code> otherwise
+   * @throws IOException if the store could not be read
+   */
+  public synchronized boolean contains(String key) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      return sections.containsKey(key);
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Read a stored directory.
+   * <p>
+   * A directory found to be damaged is replaced with an earlier copy, if 
+   * there is one, keeping its history.
+   * 
+   * @param key directory key
+   * @param builder component used to create the directory
+   * @return directory, or <code>null</code> if the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized Directory read(String key, DirectoryBuilder builder) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      return readSection(key, builder);
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Read a stored directory along with its index.
+   * <p>
+   * A directory found to be damaged is replaced with an earlier copy, if 
+   * there is one, keeping its history.
+   * 
+   * <p>
+   * A directory that has not changed since a mapped snapshot was written is 
+   * a {@link MappedIndexedDirectory}, which decodes nothing until it is 
+   * asked for, otherwise it is a {@link ColumnarDirectory}. Either way its 
+   * entries are {@link IndexedEntry}s.
+   * 
+   * @param key directory key
+   * @param builder component used to create the directory
+   * @return directory, with its entries in the default order, or <code>null</code> if the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized Directory readIndexed(String key, DirectoryBuilder builder) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Directory directory = readSection(key, builder);
+      if(directory == null) {
+        return null;
+      }
+      Section section = sections.get(key);
+      if(directory instanceof MappedDirectory && section.indexLength > 0) {
+        try {
+          return MappedIndexedDirectory.open((MappedDirectory)directory, index(section));
+        }
+        catch(IOException e) {
+          System.err.println("Warning: index of stored directory " + key + " is damaged and has been rebuilt: " + e);
+        }
+      }
+      return new ColumnarDirectory(directory, index(section, directory.entries()));
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Store a directory, replacing any previously stored copy.
+   * <p>
+   * Only the differences from the previously stored copy are written. The 
+   * previously stored copy is kept in the history of the directory.
+   * 
+   * @param key directory key
+   * @param directory directory to store
+   * @param lastUpdated time the directory was last updated, in milliseconds since the epoch
+   * @param entityTag HTTP entity tag of the directory, may be <code>null</code>
+   * @param lastModified HTTP last modification time of the directory, may be <code>null</code>
+   * @throws IOException if the directory could not be stored
+   */
+  public synchronized void write(String key, Directory directory, long lastUpdated, String entityTag, String lastModified) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      commit(changes(key, directory.entries(), lastUpdated, entityTag, lastModified));
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Get the number of stations in a stored directory.
+   * 
+   * @param key directory key
+   * @return number of stations, or -1 if the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized int getEntryCount(String key) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Section section = sections.get(key);
+      return section != null ? entryCount(section) : -1;
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Get the generations of a stored directory that can be read.
+   * 
+   * @param key directory key
+   * @return generations, oldest first and ending with the current generation, or an empty list if the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized List<DirectoryGeneration> getHistory(String key) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      List<DirectoryGeneration> result = new ArrayList<DirectoryGeneration>();
+      Section section = sections.get(key);
+      if(section != null) {
+        for(Generation previous : section.history) {
+          result.add(new DirectoryGeneration(previous.generation, previous.lastUpdated, previous.entryCount));
+        }
+        result.add(new DirectoryGeneration(section.generation, section.lastUpdated, entryCount(section)));
+      }
+      return result;
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Read a generation of a stored directory.
+   * 
+   * @param key directory key
+   * @param generation generation
+   * @param builder component used to create the directory
+   * @return directory, or <code>null</code> if the directory is not stored or the generation is no longer kept
+   * @throws IOException if the store could not be read
+   */
+  public synchronized Directory read(String key, int generation, DirectoryBuilder builder) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Map<String, Station> stations = stationsAt(key, generation);
+      if(stations == null) {
+        return null;
+      }
+      for(Station station : stations.values()) {
+        builder.add(station.name, station.url, station.type, station.bitRate, station.channels, station.sampleRate, station.genre, station.nowPlaying);
+      }
+      return builder.build();
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Compare two generations of a stored directory.
+   * <p>
+   * Stations are matched on their URL.
+   * 
+   * @param key directory key
+   * @param fromGeneration generation to compare from, usually the older generation
+   * @param toGeneration generation to compare to
+   * @return differences, or <code>null</code> if the directory is not stored or either generation is no longer kept
+   * @throws IOException if the store could not be read
+   */
+  public synchronized DirectoryDiff diff(String key, int fromGeneration, int toGeneration) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Map<String, Station> from = stationsAt(key, fromGeneration);
+      Map<String, Station> to = stationsAt(key, toGeneration);
+      if(from == null || to == null) {
+        return null;
+      }
+      List<DirectoryEntry> added = new ArrayList<DirectoryEntry>();
+      List<DirectoryEntry> removed = new ArrayList<DirectoryEntry>();
+      List<DirectoryEntry> changed = new ArrayList<DirectoryEntry>();
+      for(Map.Entry<String, Station> station : to.entrySet()) {
+        Station fromStation = from.get(station.getKey());
+        if(fromStation == null) {
+          added.add(station.getValue());
+        }
+        else if(!fromStation.isSame(station.getValue())) {
+          changed.add(station.getValue());
+        }
+      }
+      for(Map.Entry<String, Station> station : from.entrySet()) {
+        if(!to.containsKey(station.getKey())) {
+          removed.add(station.getValue());
+        }
+      }
+      return new DirectoryDiff(fromGeneration, toGeneration, added, removed, changed);
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Restore a previous generation of a stored directory.
+   * <p>
+   * The restored copy becomes a new generation, so the generation it 
+   * replaces is kept in the history and can itself be restored. The HTTP 
+   * cache validators are cleared, since they belong to the replaced copy.
+   * 
+   * @param key directory key
+   * @param generation generation to restore
+   * @param lastUpdated time to record as the last update, in milliseconds since the epoch
+   * @return <code>true</code> if the generation was restored; <code>false</code> if the directory is not stored or the generation is no longer kept
+   * @throws IOException if the store could not be read or written
+   */
+  public synchronized boolean restore(String key, int generation, long lastUpdated) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Map<String, Station> stations = stationsAt(key, generation);
+      if(stations == null) {
+        return false;
+      }
+      commit(changes(key, new ArrayList<Station>(stations.values()), lastUpdated, null, null));
+      return true;
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Set the time a stored directory was last updated, without changing it.
+   * 
+   * @param key directory key
+   * @param lastUpdated time of the last update, in milliseconds since the epoch
+   * @throws IOException if the change could not be stored
+   */
+  public synchronized void touch(String key, long lastUpdated) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      if(sections.containsKey(key)) {
+        Changes changes = new Changes(key);
+        changes.stamp(lastUpdated);
+        commit(changes);
+      }
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Get the time a stored directory was last updated.
+   * 
+   * @param key directory key
+   * @return time of the last update, in milliseconds since the epoch, or zero if the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized long getLastUpdated(String key) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Section section = sections.get(key);
+      return section != null ? section.lastUpdated : 0;
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Get the HTTP entity tag of a stored directory.
+   * 
+   * @param key directory key
+   * @return entity tag, or <code>null</code> if there is none or the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized String getEntityTag(String key) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Section section = sections.get(key);
+      return section != null ? section.entityTag : null;
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Get the HTTP last modification time of a stored directory.
+   * 
+   * @param key directory key
+   * @return last modification time, or <code>null</code> if there is none or the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  public synchronized String getLastModified(String key) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      Section section = sections.get(key);
+      return section != null ? section.lastModified : null;
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Write the current state of every directory to a new snapshot, and start
+   * a new log.
+   * <p>
+   * This is done automatically in the background when the log grows large 
+   * enough.
+   * <p>
+   * The store is only locked to take a copy of the state of the directories,
+   * and again to replace the snapshot and the log, so reading and writing 
+   * directories, in this process or another, is not held up while the new 
+   * snapshot is written. If the store changed in the meantime the new 
+   * snapshot is out of date, so it is thrown away and the compaction is 
+   * tried again later. Only one process compacts the store at a time, any 
+   * other simply leaves it to that one.
+   * 
+   * @throws IOException if the snapshot could not be written
+   */
+  public void compact() throws IOException {
+    if(!compactionLock.tryLock()) {
+      // Already being compacted, by another thread or process
+      synchronized(this) {
+        compactionScheduled = false;
+      }
+      return;
+    }
+    try {
+      compactUnlocked();
+    }
+    finally {
+      compactionLock.unlock();
+    }
+  }
+  
+  /**
+   * Compact the store, the caller holding the compaction lock but not the 
+   * store lock.
+   * 
+   * @throws IOException if the snapshot could not be written
+   */
+  private void compactUnlocked() throws IOException {
+    List<Section> state;
+    long stateGeneration;
+    long stateLogLength;
+    synchronized(this) {
+      compactionScheduled = false;
+      storeLock.lock();
+      try {
+        sync();
+        state = new ArrayList<Section>(sections.size());
+        for(Section section : sections.values()) {
+          state.add(section.copy());
+        }
+        stateGeneration = generation;
+        stateLogLength = logLength;
+      }
+      finally {
+        storeLock.unlock();
+      }
+    }
+    File snapshotFile = getSnapshotFile();
+    File tempFile = new File(snapshotFile.getPath() + TEMP_SUFFIX);
+    writeSnapshot(tempFile, state, stateGeneration + 1, getCompression(), getCompressionLevel(), true);
+    synchronized(this) {
+      storeLock.lock();
+      try {
+        sync();
+        if(generation != stateGeneration || logLength != stateLogLength) {
+          tempFile.delete();
+          checkCompaction();
+          return;
+        }
+        // Keep the current snapshot as the previous copy - a mapped copy of 
+        // the file remains valid whatever its name
+        if(snapshotFile.exists()) {
+          File previousFile = new File(snapshotFile.getPath() + PREVIOUS_SUFFIX);
+          previousFile.delete();
+          if(!snapshotFile.renameTo(previousFile)) {
+            tempFile.delete();
+            throw new IOException("Failed to keep previous copy of " + snapshotFile);
+          }
+        }
+        if(!tempFile.renameTo(snapshotFile)) {
+          throw new IOException("Failed to replace " + snapshotFile);
+        }
+        // From here on the old log belongs to an older generation
+        newLog(stateGeneration + 1);
+        open = false;
+        open();
+      }
+      finally {
+        storeLock.unlock();
+      }
+    }
+  }
+  
+  /**
+   * Write the current state of every directory to a seed snapshot, to be 
+   * packaged with the application.
+   * <p>
+   * The seed is compressed as much as possible, and does not include the 
+   * history of the directories.
+   * 
+   * @param file file to write
+   * @throws IOException if the store could not be read or the seed could not be written
+   */
+  public synchronized void exportSeed(File file) throws IOException {
+    storeLock.lock();
+    try {
+      sync();
+      File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+      writeSnapshot(tempFile, sections.values(), generation, DEFLATE, Deflater.BEST_COMPRESSION, false);
+      file.delete();
+      if(!tempFile.renameTo(file)) {
+        throw new IOException("Failed to replace " + file);
+      }
+    }
+    finally {
+      storeLock.unlock();
+    }
+  }
+  
+  /**
+   * Read a directory from the seed snapshot packaged with the application.
+   * <p>
+   * The directory is not stored, and has never been updated as far as the 
+   * store is concerned, so it is replaced the first time it is refreshed.
+   * 
+   * @param key directory key
+   * @param builder component used to create the directory
+   * @return directory, with its entries in the default order, or <code>null</code> if there is no seed or the directory is not in it
+   * @throws IOException if the seed could not be read
+   */
+  public synchronized ColumnarDirectory readSeed(String key, DirectoryBuilder builder) throws IOException {
+    Section section = getSeedSections().get(key);
+    if(section == null) {
+      return null;
+    }
+    Directory directory = decode(section, builder);
+    return new ColumnarDirectory(directory, index(section, directory.entries()));
+  }
+  
+  /**
+   * Get the directories in the seed snapshot packaged with the application,
+   * reading its table of contents the first time.
+   * 
+   * @return directories, by key, empty if there is no seed or it is damaged
+   * @throws IOException if the seed could not be read
+   */
+  private Map<String, Section> getSeedSections() throws IOException {
+    if(seedSections == null) {
+      seedSections = new HashMap<String, Section>();
+      InputStream in = StationStore.class.getResourceAsStream(SEED_RESOURCE);
+      if(in != null) {
+        try {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+          byte[] buffer = new byte[8192];
+          for(int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            bytes.write(buffer, 0, read);
+          }
+          readTable(ByteBuffer.wrap(bytes.toByteArray()), seedSections);
+        }
+        catch(IOException e) {
+          seedSections.clear();
+          System.err.println("Warning: seed station store is damaged: " + e);
+        }
+        finally {
+          in.close();
+        }
+      }
+    }
+    return seedSections;
+  }
+  
+  /**
+   * Write the state of every directory to a snapshot file.
+   * <p>
+   * Only the given directories are used, so the caller need not hold the 
+   * store lock if they are a copy.
+   * 
+   * @param file file to write, deleted if it could not be written
+   * @param sections directories to write
+   * @param snapshotGeneration generation of the snapshot
+   * @param compression type of compression
+   * @param level compression level
+   * @param history <code>true</code> to include the history of each directory; <code>false</code> to leave it out
+   * @throws IOException if a directory could not be read, or the file could not be written
+   */
+  private void writeSnapshot(File file, Collection<Section> sections, long snapshotGeneration, int compression, int level, boolean history) throws IOException {
+    int size = 65536;
+    for(Section section : sections) {
+      size += section.blockLength + section.indexLength;
+    }
+    // Block offsets are relative to the end of the table, and the table has
+    // the same length whatever the offsets are
+    ByteArrayOutputStream blocks = new ByteArrayOutputStream(size);
+    ByteArrayOutputStream tableBytes = new ByteArrayOutputStream(256);
+    DataOutputStream table = new DataOutputStream(tableBytes);
+    DataOutputStream indexOut = new DataOutputStream(blocks);
+    for(Section section : sections) {
+      int blockOffset = blocks.size();
+      Directory directory = null;
+      if(section.stations != null) {
+        directory = new StationDirectory(new ArrayList<Station>(section.stations.values()));
+        encode(directory, compression, level, blocks);
+      }
+      else if(section.compression != compression) {
+        directory = decode(section, new StationBuilder(section.directoryName));
+        encode(directory, compression, level, blocks);
+      }
+      else {
+        copy(block(section), blocks);
+      }
+      int indexOffset = blocks.size();
+      if(directory == null && section.indexLength > 0) {
+        copy(index(section), blocks);
+      }
+      else {
+        if(directory == null) {
+          directory = decode(section, new StationBuilder(section.directoryName));
+        }
+        index(section, directory.entries()).write(indexOut, directory.entries());
+        indexOut.flush();
+      }
+      writeString(table, section.key);
+      writeString(table, section.directoryName);
+      table.writeLong(section.lastUpdated);
+      writeString(table, section.entityTag);
+      writeString(table, section.lastModified);
+      table.writeByte(compression);
+      table.writeInt(blockOffset);
+      table.writeInt(indexOffset - blockOffset);
+      table.writeInt(section.generation);
+      if(history) {
+        table.writeInt(section.history.size());
+        for(Generation previous : section.history) {
+          table.writeInt(previous.generation);
+          table.writeLong(previous.lastUpdated);
+          table.writeInt(previous.entryCount);
+          table.writeInt(previous.count);
+          table.writeInt(previous.changes.length);
+          table.write(previous.changes);
+        }
+      }
+      else {
+        table.writeInt(0);
+      }
+      table.writeInt(indexOffset);
+      table.writeInt(blocks.size() - indexOffset);
+    }
+    table.flush();
+    CRC32 crc = new CRC32();
+    crc.update(tableBytes.toByteArray());
+    FileOutputStream fileOut = new FileOutputStream(file);
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 65536));
+      out.write(SNAPSHOT_MAGIC);
+      out.writeShort(SNAPSHOT_VERSION);
+      out.writeShort(0);
+      out.writeLong(snapshotGeneration);
+      out.writeInt(sections.size());
+      out.writeInt(tableBytes.size());
+      out.writeInt((int)crc.getValue());
+      tableBytes.writeTo(out);
+      blocks.writeTo(out);
+      out.flush();
+      fileOut.getFD().sync();
+    }
+    catch(IOException e) {
+      fileOut.close();
+      file.delete();
+      throw e;
+    }
+    fileOut.close();
+  }
+  
+  /**
+   * Read the store from the disk if it has not been read already, otherwise
+   * bring it up to date with any changes made by another process.
+   * <p>
+   * The caller must hold the store lock.
+   * 
+   * @throws IOException if the log could not be read or written
+   */
+  private void sync() throws IOException {
+    if(open) {
+      File logFile = getLogFile();
+      long length = logFile.length();
+      if(length < logLength || !logFile.exists() || !isLogHeader(readFile(logFile, 0, LOG_HEADER_LENGTH))) {
+        // Compacted by another process, so start again from the new snapshot
+        open = false;
+      }
+      else if(length > logLength) {
+        replayFrames();
+      }
+    }
+    open();
+  }
+  
+  /**
+   * Read the store from the disk, if it has not been read already.
+   * 
+   * @throws IOException if the log could not be read or written
+   */
+  private void open() throws IOException {
+    if(open) {
+      return;
+    }
+    if(!directory.exists()) {
+      directory.mkdirs();
+    }
+    sections.clear();
+    snapshot = null;
+    generation = 0;
+    File snapshotFile = getSnapshotFile();
+    File previousFile = new File(snapshotFile.getPath() + PREVIOUS_SUFFIX);
+    if(snapshotFile.exists()) {
+      try {
+        readSnapshot(snapshotFile);
+      }
+      catch(IOException e) {
+        // Set the damaged copy aside so the previous copy takes its place
+        System.err.println("Warning: station store " + snapshotFile + " is damaged, using the previous copy: " + e);
+        File corruptFile = new File(snapshotFile.getPath() + CORRUPT_SUFFIX);
+        corruptFile.delete();
+        if(!snapshotFile.renameTo(corruptFile)) {
+          snapshotFile.delete();
+        }
+      }
+    }
+    if(snapshot == null && previousFile.exists()) {
+      try {
+        readSnapshot(previousFile);
+      }
+      catch(IOException e) {
+        System.err.println("Warning: station store " + previousFile + " is damaged: " + e);
+      }
+    }
+    replayLog();
+    open = true;
+    checkCompaction();
+  }
+  
+  /**
+   * Read or map a snapshot file, and its table of contents.
+   * <p>
+   * The directories themselves are not decoded.
+   * 
+   * @param file snapshot file
+   * @throws IOException if the file could not be read or is not a valid snapshot
+   */
+  private void readSnapshot(File file) throws IOException {
+    boolean mapped = isMapped();
+    ByteBuffer buffer;
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      long size = randomAccessFile.length();
+      if(size < SNAPSHOT_HEADER_LENGTH || size > Integer.MAX_VALUE) {
+        throw new IOException("Invalid station store size " + size);
+      }
+      if(mapped) {
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      else {
+        byte[] data = new byte[(int)size];
+        randomAccessFile.readFully(data);
+        buffer = ByteBuffer.wrap(data);
+      }
+    }
+    finally {
+      // The mapping remains valid after the file is closed
+      randomAccessFile.close();
+    }
+    Map<String, Section> sections = new LinkedHashMap<String, Section>();
+    long generation = readTable(buffer, sections);
+    this.sections.putAll(sections);
+    this.snapshot = buffer;
+    this.mapped = mapped;
+    this.generation = generation;
+  }
+  
+  /**
+   * Read the table of contents of a snapshot.
+   * 
+   * @param buffer content of the snapshot
+   * @param sections map to add the directories in the snapshot to, by key
+   * @return generation of the snapshot
+   * @throws IOException if the content is not a valid snapshot
+   */
+  private static long readTable(ByteBuffer buffer, Map<String, Section> sections) throws IOException {
+    if(buffer.capacity() < SNAPSHOT_HEADER_LENGTH) {
+      throw new IOException("Invalid station store size " + buffer.capacity());
+    }
+    for(int i = 0; i < SNAPSHOT_MAGIC.length; i++) {
+      if(buffer.get(i) != SNAPSHOT_MAGIC[i]) {
+        throw new IOException("Not a station store");
+      }
+    }
+    int version = buffer.getShort(4) & 0xffff;
+    if(version != SNAPSHOT_VERSION) {
+      throw new IOException("Unsupported station store version " + version);
+    }
+    long snapshotGeneration = buffer.getLong(8);
+    int sectionCount = buffer.getInt(16);
+    int tableLength = buffer.getInt(20);
+    int checksum = buffer.getInt(24);
+    int blocksStart = SNAPSHOT_HEADER_LENGTH + tableLength;
+    if(sectionCount < 0 || tableLength < 0 || blocksStart < 0 || blocksStart > buffer.capacity()) {
+      throw new IOException("Corrupt station store header");
+    }
+    byte[] tableBytes = new byte[tableLength];
+    ByteBuffer tableBuffer = buffer.duplicate();
+    tableBuffer.position(SNAPSHOT_HEADER_LENGTH);
+    tableBuffer.get(tableBytes);
+    CRC32 crc = new CRC32();
+    crc.update(tableBytes);
+    if((int)crc.getValue() != checksum) {
+      throw new IOException("Station store checksum mismatch");
+    }
+    DataInputStream table = new DataInputStream(new ByteArrayInputStream(tableBytes));
+    for(int i = 0; i < sectionCount; i++) {
+      Section section = new Section(readString(table));
+      section.snapshot = buffer;
+      section.directoryName = readString(table);
+      section.lastUpdated = table.readLong();
+      section.entityTag = readString(table);
+      section.lastModified = readString(table);
+      section.compression = table.readUnsignedByte();
+      section.blockOffset = blocksStart + table.readInt();
+      section.blockLength = table.readInt();
+      if(section.compression > GZIP || section.blockOffset < blocksStart || section.blockLength < 0 || (long)section.blockOffset + section.blockLength > buffer.capacity()) {
+        throw new IOException("Corrupt station store table");
+      }
+      section.generation = table.readInt();
+      int historySize = table.readInt();
+      for(int j = 0; j < historySize; j++) {
+        int generationNumber = table.readInt();
+        long historyLastUpdated = table.readLong();
+        int historyEntryCount = table.readInt();
+        int historyCount = table.readInt();
+        byte[] historyChanges = new byte[table.readInt()];
+        table.readFully(historyChanges);
+        section.history.add(new Generation(generationNumber, historyLastUpdated, historyEntryCount, historyCount, historyChanges));
+        section.historyLength += historyChanges.length;
+      }
+      trimHistory(section);
+      section.indexOffset = blocksStart + table.readInt();
+      section.indexLength = table.readInt();
+      if(section.indexOffset < blocksStart || section.indexLength < 0 || (long)section.indexOffset + section.indexLength > buffer.capacity()) {
+        throw new IOException("Corrupt station store table");
+      }
+      sections.put(section.key, section);
+    }
+    return snapshotGeneration;
+  }
+  
+  /**
+   * Apply the changes in the log to the snapshot.
+   * <p>
+   * A log of a different generation is replaced with a new one.
+   * 
+   * @throws IOException if the log could not be read or written
+   */
+  private void replayLog() throws IOException {
+    File logFile = getLogFile();
+    logLength = 0;
+    if(logFile.exists() && isLogHeader(readFile(logFile, 0, LOG_HEADER_LENGTH))) {
+      logLength = LOG_HEADER_LENGTH;
+      replayFrames();
+    }
+    if(logLength == 0) {
+      newLog(generation);
+    }
+  }
+  
+  /**
+   * Apply the changes in the log that follow those already applied.
+   * <p>
+   * Replay stops at the first frame that is incomplete or fails its checksum,
+   * and the log is cut short there.
+   * 
+   * @throws IOException if the log could not be read or written
+   */
+  private void replayFrames() throws IOException {
+    File logFile = getLogFile();
+    byte[] data = readFile(logFile, logLength, Integer.MAX_VALUE);
+    int position = 0;
+    while(position + FRAME_HEADER_LENGTH <= data.length) {
+      int length = readInt(data, position);
+      int checksum = readInt(data, position + 4);
+      if(length < 0 || (long)position + FRAME_HEADER_LENGTH + length > data.length) {
+        break;
+      }
+      CRC32 crc = new CRC32();
+      crc.update(data, position + FRAME_HEADER_LENGTH, length);
+      if((int)crc.getValue() != checksum) {
+        break;
+      }
+      apply(data, position + FRAME_HEADER_LENGTH, length);
+      position += FRAME_HEADER_LENGTH + length;
+    }
+    if(position < data.length) {
+      System.err.println("Warning: discarding incomplete changes at the end of station store log " + logFile);
+      truncateLog(logLength + position);
+    }
+    logLength += position;
+  }
+  
+  /**
+   * Test whether data starts with a log header for the generation of the 
+   * snapshot.
+   * 
+   * @param data data
+   * @return <code>true</code> if the data is a log for the snapshot; <code>false</code> otherwise
+   */
+  private boolean isLogHeader(byte[] data) {
+    if(data.length < LOG_HEADER_LENGTH) {
+      return false;
+    }
+    for(int i = 0; i < LOG_MAGIC.length; i++) {
+      if(data[i] != LOG_MAGIC[i]) {
+        return false;
+      }
+    }
+    int version = ((data[4] & 0xff) << 8) | (data[5] & 0xff);
+    long logGeneration = ((long)readInt(data, 8) << 32) | (readInt(data, 12) & 0xffffffffL);
+    return version == LOG_VERSION && logGeneration == generation;
+  }
+  
+  /**
+   * Replace the log with an empty log.
+   * 
+   * @param generation generation of the snapshot the log applies to
+   * @throws IOException if the log could not be written
+   */
+  private void newLog(long generation) throws IOException {
+    File logFile = getLogFile();
+    File tempFile = new File(logFile.getPath() + TEMP_SUFFIX);
+    FileOutputStream fileOut = new FileOutputStream(tempFile);
+    try {
+      DataOutputStream out = new DataOutputStream(fileOut);
+      out.write(LOG_MAGIC);
+      out.writeShort(LOG_VERSION);
+      out.writeShort(0);
+      out.writeLong(generation);
+      out.flush();
+      fileOut.getFD().sync();
+    }
+    finally {
+      fileOut.close();
+    }
+    logFile.delete();
+    if(!tempFile.renameTo(logFile)) {
+      throw new IOException("Failed to replace " + logFile);
+    }
+    logLength = LOG_HEADER_LENGTH;
+  }
+  
+  /**
+   * Cut the log short, discarding everything after the given length.
+   * 
+   * @param length length to keep, in bytes
+   * @throws IOException if the log could not be written
+   */
+  private void truncateLog(long length) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(getLogFile(), "rw");
+    try {
+      randomAccessFile.setLength(length);
+    }
+    finally {
+      randomAccessFile.close();
+    }
+  }
+  
+  /**
+   * Append a set of changes to the log and apply them.
+   * 
+   * @param changes changes
+   * @throws IOException if the changes could not be written, in which case none of them are applied
+   */
+  private void commit(Changes changes) throws IOException {
+    byte[] payload = changes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    FileOutputStream fileOut = new FileOutputStream(getLogFile(), true);
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, FRAME_HEADER_LENGTH + payload.length));
+      out.writeInt(payload.length);
+      out.writeInt((int)crc.getValue());
+      out.write(payload);
+      out.flush();
+      fileOut.getFD().sync();
+    }
+    catch(IOException e) {
+      // Remove any partial frame, or the changes after it would be lost too
+      fileOut.close();
+      truncateLog(logLength);
+      throw e;
+    }
+    fileOut.close();
+    logLength += FRAME_HEADER_LENGTH + payload.length;
+    apply(payload, 0, payload.length);
+    checkCompaction();
+  }
+  
+  /**
+   * Apply a set of changes.
+   * 
+   * @param data data containing the changes
+   * @param offset position of the changes in the data
+   * @param length length of the changes, in bytes
+   * @throws IOException if the changes are not valid
+   */
+  private void apply(byte[] data, int offset, int length) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+    String key = readString(in);
+    int count = in.readInt();
+    Section section = sections.get(key);
+    for(int i = 0; i < count; i++) {
+      int operation = in.readUnsignedByte();
+      if(operation == RESET) {
+        if(section == null) {
+          section = new Section(key);
+          sections.put(key, section);
+        }
+        section.directoryName = readString(in);
+        section.stations = new LinkedHashMap<String, Station>();
+        section.index = null;
+        continue;
+      }
+      if(section == null) {
+        throw new IOException("Change to unknown directory " + key);
+      }
+      switch(operation) {
+        case PUT:
+          String stationKey = readString(in);
+          materialize(section).put(stationKey, readStation(in, section.directoryName));
+          section.index = null;
+          break;
+        case REMOVE:
+          materialize(section).remove(readString(in));
+          section.index = null;
+          break;
+        case STAMP:
+          section.lastUpdated = in.readLong();
+          break;
+        case VALIDATORS:
+          section.entityTag = readString(in);
+          section.lastModified = readString(in);
+          break;
+        case DELETE:
+          sections.remove(key);
+          section = null;
+          break;
+        case HISTORY:
+          long historyLastUpdated = in.readLong();
+          int historyEntryCount = in.readInt();
+          int historyCount = in.readInt();
+          byte[] historyChanges = new byte[in.readInt()];
+          in.readFully(historyChanges);
+          section.history.add(new Generation(section.generation, historyLastUpdated, historyEntryCount, historyCount, historyChanges));
+          section.historyLength += historyChanges.length;
+          section.generation++;
+          trimHistory(section);
+          break;
+        default:
+          throw new IOException("Unknown station store operation " + operation);
+      }
+    }
+  }
+  
+  /**
+   * Read a stored directory.
+   * <p>
+   * A directory found to be damaged is recovered, see 
+   * {@link #recover(Section)}.
+   * 
+   * @param key directory key
+   * @param builder component used to create the directory
+   * @return directory, or <code>null</code> if the directory is not stored
+   * @throws IOException if the store could not be read
+   */
+  private Directory readSection(String key, DirectoryBuilder builder) throws IOException {
+    Section section = sections.get(key);
+    if(section == null) {
+      return null;
+    }
+    if(section.stations != null) {
+      for(Station station : section.stations.values()) {
+        builder.add(station.name, station.url, station.type, station.bitRate, station.channels, station.sampleRate, station.genre, station.nowPlaying);
+      }
+      return builder.build();
+    }
+    try {
+      if(mapped && section.compression == NO_COMPRESSION) {
+        MappedDirectory directory = MappedDirectory.open(block(section));
+        if(!section.verified) {
+          // Once only, so that damage is found here rather than when an entry
+          // is shown
+          directory.verify();
+          section.verified = true;
+        }
+        return directory;
+      }
+      return decode(section, builder);
+    }
+    catch(IOException e) {
+      System.err.println("Warning: stored directory " + key + " is damaged: " + e);
+      if(!recover(section)) {
+        return null;
+      }
+      return readSection(key, builder);
+    }
+  }
+  
+  /**
+   * Replace a directory that could not be decoded with the best copy of it 
+   * that can still be read - from the previous snapshot, or failing that 
+   * from the seed snapshot.
+   * <p>
+   * The directory keeps its generation and its history. Unless the copy is
+   * of the current generation, the directory is marked as never updated and
+   * loses its validators, so it is refreshed as soon as it is loaded. If no
+   * copy can be read the directory is left with no stations.
+   * 
+   * @param section damaged directory
+   * @return <code>true</code> if a copy was recovered; <code>false</code> if the directory now has no stations
+   * @throws IOException if the recovered directory could not be stored
+   */
+  private boolean recover(Section section) throws IOException {
+    Section copy = null;
+    Map<String, Station> stations = null;
+    boolean current = false;
+    File previousFile = new File(getSnapshotFile().getPath() + PREVIOUS_SUFFIX);
+    if(previousFile.exists()) {
+      try {
+        Map<String, Section> previousSections = new HashMap<String, Section>();
+        readTable(ByteBuffer.wrap(readFile(previousFile, 0, Integer.MAX_VALUE)), previousSections);
+        copy = previousSections.get(section.key);
+        if(copy != null) {
+          stations = decodeStations(copy);
+          current = copy.generation == section.generation;
+        }
+      }
+      catch(IOException e) {
+        System.err.println("Warning: station store " + previousFile + " is damaged: " + e);
+      }
+    }
+    if(stations == null) {
+      copy = getSeedSections().get(section.key);
+      try {
+        stations = copy != null ? decodeStations(copy) : null;
+      }
+      catch(IOException e) {
+        System.err.println("Warning: seed station store is damaged: " + e);
+      }
+    }
+    Changes changes = new Changes(section.key);
+    changes.reset(stations != null ? copy.directoryName : section.directoryName);
+    if(stations != null) {
+      for(Map.Entry<String, Station> station : stations.entrySet()) {
+        changes.put(station.getKey(), station.getValue());
+      }
+    }
+    if(!current) {
+      changes.stamp(0);
+      changes.validators(null, null);
+    }
+    commit(changes);
+    System.err.println("Warning: stored directory " + section.key + (stations != null ? " has been recovered from an earlier copy" : " could not be recovered"));
+    return stations != null;
+  }
+  
+  /**
+   * Get the index of a directory.
+   * <p>
+   * The index of a directory that has not changed since the snapshot was 
+   * written is decoded from the snapshot, sharing the strings of the entries
+   * it was read with. The index of a directory that has changed is built 
+   * and kept until the directory changes again.
+   * 
+   * @param section directory
+   * @param entries entries of the directory, as last read
+   * @return index
+   */
+  private DirectoryIndex index(Section section, List<? extends DirectoryEntry> entries) {
+    if(section.stations != null) {
+      if(section.index == null || section.index.size() != entries.size()) {
+        section.index = DirectoryIndex.build(entries);
+      }
+      return section.index;
+    }
+    if(section.indexLength > 0) {
+      try {
+        return DirectoryIndex.read(new DataInputStream(openIndex(section)), entries);
+      }
+      catch(IOException e) {
+        System.err.println("Warning: index of stored directory " + section.key + " is damaged and has been rebuilt: " + e);
+      }
+    }
+    return DirectoryIndex.build(entries);
+  }
+  
+  /**
+   * Work out the changes that store a directory, replacing any previously 
+   * stored copy.
+   * <p>
+   * Only the differences from the previously stored copy are included, along
+   * with the changes that undo them, which are kept in the history.
+   * 
+   * @param key directory key
+   * @param entries entries of the directory to store
+   * @param lastUpdated time the directory was last updated, in milliseconds since the epoch
+   * @param entityTag HTTP entity tag of the directory, may be <code>null</code>
+   * @param lastModified HTTP last modification time of the directory, may be <code>null</code>
+   * @return changes
+   * @throws IOException if the stored copy could not be read
+   */
+  private Changes changes(String key, List<? extends DirectoryEntry> entries, long lastUpdated, String entityTag, String lastModified) throws IOException {
+    String directoryName = !entries.isEmpty() ? entries.get(0).getDirectory() : null;
+    Section section = sections.get(key);
+    Changes changes = new Changes(key);
+    boolean reset = section == null;
+    if(!reset) {
+      Map<String, Station> stations = materialize(section);
+      Changes forward = new Changes(key);
+      Changes reverse = new Changes(key);
+      Map<String, Integer> seen = new HashMap<String, Integer>(entries.size() * 2);
+      Set<String> stationKeys = new HashSet<String>(entries.size() * 2);
+      for(DirectoryEntry entry : entries) {
+        String stationKey = stationKey(entry.getUrl(), seen);
+        stationKeys.add(stationKey);
+        Station station = stations.get(stationKey);
+        if(station == null) {
+          forward.put(stationKey, entry);
+          reverse.remove(stationKey);
+        }
+        else if(!station.isSame(entry)) {
+          forward.put(stationKey, entry);
+          reverse.put(stationKey, station);
+        }
+      }
+      for(Map.Entry<String, Station> station : stations.entrySet()) {
+        if(!stationKeys.contains(station.getKey())) {
+          forward.remove(station.getKey());
+          reverse.put(station.getKey(), station.getValue());
+        }
+      }
+      // Every station carries the directory name, so a new name replaces them all
+      boolean renamed = !isSame(section.directoryName, directoryName);
+      if(renamed) {
+        reverse = new Changes(key);
+        reverse.reset(section.directoryName);
+        for(Map.Entry<String, Station> station : stations.entrySet()) {
+          reverse.put(station.getKey(), station.getValue());
+        }
+      }
+      changes.history(section.lastUpdated, stations.size(), reverse);
+      // Rewriting the whole directory is no bigger than this many changes
+      reset = renamed || (forward.count >= entries.size() && !entries.isEmpty());
+      if(!reset) {
+        changes.append(forward);
+      }
+    }
+    if(reset) {
+      changes.reset(directoryName);
+      Map<String, Integer> seen = new HashMap<String, Integer>(entries.size() * 2);
+      for(DirectoryEntry entry : entries) {
+        changes.put(stationKey(entry.getUrl(), seen), entry);
+      }
+    }
+    changes.stamp(lastUpdated);
+    changes.validators(entityTag, lastModified);
+    return changes;
+  }
+  
+  /**
+   * Re-create the stations of a generation of a directory.
+   * <p>
+   * The current stations are copied, and the changes kept for each previous
+   * generation are undone in turn, newest first, back to the generation 
+   * wanted.
+   * 
+   * @param key directory key
+   * @param generation generation
+   * @return stations, by station key, or <code>null</code> if the directory is not stored or the generation is no longer kept
+   * @throws IOException if the directory could not be decoded
+   */
+  private Map<String, Station> stationsAt(String key, int generation) throws IOException {
+    Section section = sections.get(key);
+    if(section == null || generation > section.generation) {
+      return null;
+    }
+    if(generation < section.generation && (section.history.isEmpty() || generation < section.history.get(0).generation)) {
+      return null;
+    }
+    Map<String, Station> stations;
+    if(section.stations != null) {
+      stations = new LinkedHashMap<String, Station>(section.stations);
+    }
+    else {
+      // Decode a copy, so the section stays clean
+      stations = decodeStations(section);
+    }
+    String directoryName = section.directoryName;
+    for(int i = section.history.size() - 1; i >= 0 && section.history.get(i).generation >= generation; i--) {
+      directoryName = undo(section.history.get(i), stations, directoryName);
+    }
+    return stations;
+  }
+  
+  /**
+   * Undo the changes made by the generation after a previous generation.
+   * 
+   * @param previous previous generation
+   * @param stations stations of the generation after it, by station key, changed by this method
+   * @param directoryName directory name of the generation after it
+   * @return directory name of the previous generation
+   * @throws IOException if the changes are not valid
+   */
+  private static String undo(Generation previous, Map<String, Station> stations, String directoryName) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(previous.changes));
+    for(int i = 0; i < previous.count; i++) {
+      int operation = in.readUnsignedByte();
+      switch(operation) {
+        case RESET:
+          directoryName = readString(in);
+          stations.clear();
+          break;
+        case PUT:
+          String stationKey = readString(in);
+          stations.put(stationKey, readStation(in, directoryName));
+          break;
+        case REMOVE:
+          stations.remove(readString(in));
+          break;
+        default:
+          throw new IOException("Unknown station store history operation " + operation);
+      }
+    }
+    return directoryName;
+  }
+  
+  /**
+   * Drop the oldest generations of a directory, beyond the number to keep or
+   * the maximum length of the history.
+   * 
+   * @param section directory
+   */
+  private static void trimHistory(Section section) {
+    int historySize = getHistorySize();
+    while(!section.history.isEmpty() && (section.history.size() > historySize || section.historyLength > MAX_HISTORY_LENGTH)) {
+      section.historyLength -= section.history.remove(0).changes.length;
+    }
+  }
+  
+  /**
+   * Get the number of stations in the current generation of a directory.
+   * <p>
+   * A directory that has not changed since the snapshot was written is not 
+   * decoded, the number of stations is read from its header.
+   * 
+   * @param section directory
+   * @return number of stations
+   * @throws IOException if the directory could not be read
+   */
+  private int entryCount(Section section) throws IOException {
+    if(section.stations != null) {
+      return section.stations.size();
+    }
+    DataInputStream in = new DataInputStream(openDecompressed(section));
+    try {
+      // Magic, version and flags come before the entry count
+      in.readFully(new byte[8]);
+      return in.readInt();
+    }
+    finally {
+      in.close();
+    }
+  }
+  
+  /**
+   * Decode the stations of a directory so they can be changed.
+   * 
+   * @param section directory
+   * @return stations, by station key
+   * @throws IOException if the directory could not be decoded
+   */
+  private Map<String, Station> materialize(Section section) throws IOException {
+    if(section.stations == null) {
+      section.stations = decodeStations(section);
+    }
+    return section.stations;
+  }
+  
+  /**
+   * Decode the stations of a directory, without keeping them.
+   * 
+   * @param section directory
+   * @return stations, by station key
+   * @throws IOException if the directory could not be decoded
+   */
+  private Map<String, Station> decodeStations(Section section) throws IOException {
+    StationBuilder builder = new StationBuilder(section.directoryName);
+    decode(section, builder);
+    return builder.stations;
+  }
+  
+  /**
+   * Decode a directory from the snapshot.
+   * 
+   * @param section directory
+   * @param builder component used to create the directory
+   * @return directory
+   * @throws IOException if the directory could not be decoded
+   */
+  private Directory decode(Section section, DirectoryBuilder builder) throws IOException {
+    InputStream in = openDecompressed(section);
+    try {
+      // Only an uncompressed block gives a bound on the payload length
+      int maxPayloadLength = section.compression == NO_COMPRESSION ? section.blockLength - BinaryDirectoryCodec.HEADER_LENGTH : Integer.MAX_VALUE;
+      return codec.read(in, builder, maxPayloadLength);
+    }
+    finally {
+      in.close();
+    }
+  }
+  
+  /**
+   * Encode a directory for the snapshot.
+   * 
+   * @param directory directory
+   * @param compression type of compression
+   * @param level compression level
+   * @param out in-memory stream to write to
+   * @throws IOException if the directory could not be encoded
+   */
+  private void encode(Directory directory, int compression, final int level, OutputStream out) throws IOException {
+    switch(compression) {
+      case DEFLATE:
+        Deflater deflater = new Deflater(level, true);
+        try {
+          DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater, COMPRESSION_BUFFER_SIZE);
+          codec.write(directory, deflaterOut);
+          deflaterOut.finish();
+        }
+        finally {
+          deflater.end();
+        }
+        break;
+      case GZIP:
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out, COMPRESSION_BUFFER_SIZE) {
+          {
+            def.setLevel(level);
+          }
+        };
+        codec.write(directory, gzipOut);
+        // Releases the deflater, closing the underlying stream has no effect
+        gzipOut.close();
+        break;
+      default:
+        codec.write(directory, out);
+        break;
+    }
+  }
+  
+  /**
+   * Get the encoded directory from the snapshot.
+   * 
+   * @param section directory
+   * @return buffer containing only the encoded directory
+   */
+  private ByteBuffer block(Section section) {
+    ByteBuffer block = section.snapshot.duplicate();
+    block.position(section.blockOffset);
+    block.limit(section.blockOffset + section.blockLength);
+    return block.slice();
+  }
+  
+  /**
+   * Get the encoded index of a directory from the snapshot.
+   * 
+   * @param section directory
+   * @return buffer containing only the encoded index
+   */
+  private ByteBuffer index(Section section) {
+    ByteBuffer index = section.snapshot.duplicate();
+    index.position(section.indexOffset);
+    index.limit(section.indexOffset + section.indexLength);
+    return index.slice();
+  }
+  
+  /**
+   * Open a stream over the encoded index of a directory in the snapshot.
+   * 
+   * @param section directory
+   * @return stream
+   */
+  private InputStream openIndex(Section section) {
+    ByteBuffer snapshot = section.snapshot;
+    if(snapshot.hasArray()) {
+      return new ByteArrayInputStream(snapshot.array(), snapshot.arrayOffset() + section.indexOffset, section.indexLength);
+    }
+    byte[] bytes = new byte[section.indexLength];
+    index(section).get(bytes);
+    return new ByteArrayInputStream(bytes);
+  }
+  
+  /**
+   * Open a stream over the encoded directory in the snapshot.
+   * 
+   * @param section directory
+   * @return stream
+   */
+  private InputStream openBlock(Section section) {
+    ByteBuffer snapshot = section.snapshot;
+    if(snapshot.hasArray()) {
+      return new ByteArrayInputStream(snapshot.array(), snapshot.arrayOffset() + section.blockOffset, section.blockLength);
+    }
+    byte[] bytes = new byte[section.blockLength];
+    block(section).get(bytes);
+    return new ByteArrayInputStream(bytes);
+  }
+  
+  /**
+   * Open a stream over the encoded directory in the snapshot, decompressing
+   * it if necessary.
+   * 
+   * @param section directory
+   * @return stream, which must be closed to release the decompressor
+   * @throws IOException if the stream could not be opened
+   */
+  private InputStream openDecompressed(Section section) throws IOException {
+    InputStream in = openBlock(section);
+    switch(section.compression) {
+      case DEFLATE:
+        final Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(in, inflater, COMPRESSION_BUFFER_SIZE) {
+          @Override
+          public void close() throws IOException {
+            super.close();
+            inflater.end();
+          }
+        };
+      case GZIP:
+        return new GZIPInputStream(in, COMPRESSION_BUFFER_SIZE);
+      default:
+        return in;
+    }
+  }
+  
+  /**
+   * Schedule a compaction if the log has grown large enough, compared with 
+   * the snapshot, or if the snapshot is not compressed the way it should be.
+   */
+  private void checkCompaction() {
+    long snapshotLength = snapshot != null ? snapshot.capacity() : 0;
+    if(!compactionScheduled && (logLength > Math.max(MIN_COMPACTION_LOG_LENGTH, snapshotLength / 2) || !isCompressionCurrent())) {
+      compactionScheduled = true;
+      compactionExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            compact();
+          }
+          catch(IOException e) {
+            System.err.println("Warning: failed to compact station store: " + e);
+          }
+        }
+      });
+    }
+  }
+  
+  /**
+   * Test whether every directory in the snapshot is compressed the way it 
+   * should be.
+   * 
+   * @return <code>true</code> if the compression of the snapshot is current; <code>false</code> otherwise
+   */
+  private boolean isCompressionCurrent() {
+    int compression = getCompression();
+    for(Section section : sections.values()) {
+      if(section.stations == null && section.compression != compression) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Get the snapshot file.
+   * 
+   * @return file
+   */
+  private File getSnapshotFile() {
+    return new File(directory, SNAPSHOT_FILE_NAME);
+  }
+  
+  /**
+   * Get the log file.
+   * 
+   * @return file
+   */
+  private File getLogFile() {
+    return new File(directory, LOG_FILE_NAME);
+  }
+  
+  /**
+   * Should the snapshot be memory-mapped?
+   * 
+   * @return <code>true</code> if the snapshot should be mapped; <code>false</code> if it should be read
+   */
+  private static boolean isMapped() {
+    return Boolean.getBoolean("vlcj.radio.cache.mapped");
+  }
+  
+  /**
+   * Get the type of compression to use for the snapshot.
+   * <p>
+   * The "vlcj.radio.cache.compression" system property may be set to 
+   * "deflate" or "gzip", otherwise the snapshot is not compressed.
+   * 
+   * @return type of compression
+   */
+  private static int getCompression() {
+    String compression = System.getProperty("vlcj.radio.cache.compression");
+    if("deflate".equalsIgnoreCase(compression)) {
+      return DEFLATE;
+    }
+    else if("gzip".equalsIgnoreCase(compression)) {
+      return GZIP;
+    }
+    else {
+      return NO_COMPRESSION;
+    }
+  }
+  
+  /**
+   * Get the compression level.
+   * <p>
+   * The "vlcj.radio.cache.compressionLevel" system property may be set to a 
+   * level from 1, fastest, to 9, smallest.
+   * 
+   * @return compression level
+   */
+  private static int getCompressionLevel() {
+    int level = Integer.getInteger("vlcj.radio.cache.compressionLevel", Deflater.DEFAULT_COMPRESSION);
+    return level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION ? level : Deflater.DEFAULT_COMPRESSION;
+  }
+  
+  /**
+   * Get the number of previous generations to keep for each directory.
+   * <p>
+   * The "vlcj.radio.cache.history" system property may be set to the number
+   * to keep, zero keeps no history.
+   * 
+   * @return number of generations
+   */
+  private static int getHistorySize() {
+    return Math.max(0, Integer.getInteger("vlcj.radio.cache.history", DEFAULT_HISTORY_SIZE));
+  }
+  
+  /**
+   * Get the key identifying a station within its directory.
+   * <p>
+   * The key is the URL of the station, with a number added for the second 
+   * and later stations with the same URL.
+   * 
+   * @param url URL of the station
+   * @param seen number of times each URL has been seen so far, updated by this method
+   * @return station key
+   */
+  private static String stationKey(String url, Map<String, Integer> seen) {
+    Integer count = seen.get(url);
+    seen.put(url, count == null ? 1 : count + 1);
+    return count == null ? url : url + '\u0000' + count;
+  }
+  
+  private static byte[] readFile(File file, long offset, int maxLength) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      long available = Math.max(0, randomAccessFile.length() - offset);
+      byte[] data = new byte[(int)Math.min(available, maxLength)];
+      randomAccessFile.seek(offset);
+      randomAccessFile.readFully(data);
+      return data;
+    }
+    finally {
+      randomAccessFile.close();
+    }
+  }
+  
+  private static void copy(ByteBuffer buffer, OutputStream out) throws IOException {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    out.write(bytes);
+  }
+  
+  private static int readInt(byte[] data, int position) {
+    return ((data[position] & 0xff) << 24) | ((data[position + 1] & 0xff) << 16) | ((data[position + 2] & 0xff) << 8) | (data[position + 3] & 0xff);
+  }
+  
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if(value != null) {
+      byte[] bytes = value.getBytes(BinaryDirectoryCodec.UTF8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    else {
+      out.writeInt(-1);
+    }
+  }
+  
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if(length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, BinaryDirectoryCodec.UTF8);
+  }
+  
+  private static Station readStation(DataInputStream in, String directoryName) throws IOException {
+    String name = readString(in);
+    String url = readString(in);
+    String type = readString(in);
+    String bitRate = readString(in);
+    int channels = in.readInt();
+    int sampleRate = in.readInt();
+    String genre = readString(in);
+    String nowPlaying = readString(in);
+    return new Station(directoryName, name, url, type, bitRate, channels, sampleRate, genre, nowPlaying);
+  }
+  
+  private static boolean isSame(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("directory=").append(directory).append(',');
+    sb.append("generation=").append(generation).append(',');
+    sb.append("logLength=").append(logLength).append(']');
+    return sb.toString();
+  }
+  
+  /**
+   * A stored directory.
+   */
+  private static final class Section {
+    
+    private final String key;
+    
+    private String directoryName;
+    
+    private long lastUpdated;
+    
+    private String entityTag;
+    
+    private String lastModified;
+    
+    /**
+     * Snapshot containing the encoded directory.
+     */
+    private ByteBuffer snapshot;
+    
+    /**
+     * Type of compression of the encoded directory in the snapshot.
+     */
+    private int compression;
+    
+    /**
+     * Position of the encoded directory in the snapshot.
+     */
+    private int blockOffset;
+    
+    /**
+     * Length of the encoded directory in the snapshot.
+     */
+    private int blockLength;
+    
+    /**
+     * Position of the encoded index in the snapshot.
+     */
+    private int indexOffset;
+    
+    /**
+     * Length of the encoded index in the snapshot, zero if there is none.
+     */
+    private int indexLength;
+    
+    /**
+     * Whether the checksum of the encoded directory has been verified, 
+     * which is only needed when it is mapped rather than decoded.
+     */
+    private boolean verified;
+    
+    /**
+     * Decoded stations, by station key, or <code>null</code> if the 
+     * directory has not changed since the snapshot.
+     */
+    private Map<String, Station> stations;
+    
+    /**
+     * Index built for the decoded stations, or <code>null</code> if it has 
+     * not been built since they last changed.
+     */
+    private DirectoryIndex index;
+    
+    /**
+     * Current generation, counting from the first time the directory was 
+     * stored.
+     */
+    private int generation = 1;
+    
+    /**
+     * Previous generations that are kept, oldest first.
+     */
+    private final List<Generation> history = new ArrayList<Generation>();
+    
+    /**
+     * Total length of the changes kept for the previous generations, in bytes.
+     */
+    private int historyLength;
+    
+    private Section(String key) {
+      this.key = key;
+    }
+    
+    /**
+     * Copy the state of the directory, so that it can be written without 
+     * holding the store lock.
+     * <p>
+     * The snapshot, the index and the previous generations never change, so
+     * they are shared.
+     * 
+     * @return copy
+     */
+    private Section copy() {
+      Section copy = new Section(key);
+      copy.directoryName = directoryName;
+      copy.lastUpdated = lastUpdated;
+      copy.entityTag = entityTag;
+      copy.lastModified = lastModified;
+      copy.snapshot = snapshot;
+      copy.compression = compression;
+      copy.blockOffset = blockOffset;
+      copy.blockLength = blockLength;
+      copy.indexOffset = indexOffset;
+      copy.indexLength = indexLength;
+      copy.stations = stations != null ? new LinkedHashMap<String, Station>(stations) : null;
+      copy.index = index;
+      copy.generation = generation;
+      copy.history.addAll(history);
+      copy.historyLength = historyLength;
+      return copy;
+    }
+  }
+  
+  /**
+   * A previous generation of a directory.
+   */
+  private static final class Generation {
+    
+    private final int generation;
+    
+    private final long lastUpdated;
+    
+    private final int entryCount;
+    
+    /**
+     * Number of changes that restore this generation from the one after it.
+     */
+    private final int count;
+    
+    /**
+     * Encoded changes that restore this generation from the one after it.
+     */
+    private final byte[] changes;
+    
+    private Generation(int generation, long lastUpdated, int entryCount, int count, byte[] changes) {
+      this.generation = generation;
+      this.lastUpdated = lastUpdated;
+      this.entryCount = entryCount;
+      this.count = count;
+      this.changes = changes;
+    }
+  }
+  
+  /**
+   * A set of changes to a directory, encoded as they are made.
+   */
+  private static final class Changes {
+    
+    private final String key;
+    
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    
+    private int count;
+    
+    private Changes(String key) {
+      this.key = key;
+    }
+    
+    private void reset(String directoryName) throws IOException {
+      operation(RESET);
+      writeString(out, directoryName);
+    }
+    
+    private void put(String stationKey, DirectoryEntry entry) throws IOException {
+      operation(PUT);
+      writeString(out, stationKey);
+      writeString(out, entry.getName());
+      writeString(out, entry.getUrl());
+      writeString(out, entry.getType());
+      writeString(out, entry.getBitRate());
+      out.writeInt(entry.getChannels());
+      out.writeInt(entry.getSampleRate());
+      writeString(out, entry.getGenre());
+      writeString(out, entry.getNowPlaying());
+    }
+    
+    private void remove(String stationKey) throws IOException {
+      operation(REMOVE);
+      writeString(out, stationKey);
+    }
+    
+    private void stamp(long lastUpdated) throws IOException {
+      operation(STAMP);
+      out.writeLong(lastUpdated);
+    }
+    
+    private void validators(String entityTag, String lastModified) throws IOException {
+      operation(VALIDATORS);
+      writeString(out, entityTag);
+      writeString(out, lastModified);
+    }
+    
+    private void delete() throws IOException {
+      operation(DELETE);
+    }
+    
+    private void history(long lastUpdated, int entryCount, Changes reverse) throws IOException {
+      operation(HISTORY);
+      out.writeLong(lastUpdated);
+      out.writeInt(entryCount);
+      reverse.out.flush();
+      out.writeInt(reverse.count);
+      out.writeInt(reverse.bytes.size());
+      reverse.bytes.writeTo(out);
+    }
+    
+    private void append(Changes other) throws IOException {
+      other.out.flush();
+      other.bytes.writeTo(out);
+      count += other.count;
+    }
+    
+    private void operation(int operation) throws IOException {
+      out.writeByte(operation);
+      count++;
+    }
+    
+    private byte[] toByteArray() throws IOException {
+      out.flush();
+      ByteArrayOutputStream payload = new ByteArrayOutputStream(bytes.size() + key.length() * 3 + 8);
+      DataOutputStream payloadOut = new DataOutputStream(payload);
+      writeString(payloadOut, key);
+      payloadOut.writeInt(count);
+      bytes.writeTo(payloadOut);
+      payloadOut.flush();
+      return payload.toByteArray();
+    }
+  }
+  
+  /**
+   * Re-creates the stations of a directory read from the snapshot.
+   */
+  private static final class StationBuilder implements DirectoryBuilder {
+
+    private final String directoryName;
+    
+    private final Map<String, Station> stations = new LinkedHashMap<String, Station>();
+    
+    private final Map<String, Integer> seen = new HashMap<String, Integer>();
+    
+    private StationBuilder(String directoryName) {
+      this.directoryName = directoryName;
+    }
+    
+    @Override
+    public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+      stations.put(stationKey(url, seen), new Station(directoryName, name, url, type, bitRate, channels, sampleRate, genre, nowPlaying));
+    }
+
+    @Override
+    public Directory build() {
+      return new StationDirectory(new ArrayList<Station>(stations.values()));
+    }
+  }
+  
+  /**
+   * Directory of stored stations, only used to encode them in the snapshot.
+   */
+  private static final class StationDirectory implements Directory {
+    
+    private final List<Station> stations;
+    
+    private StationDirectory(List<Station> stations) {
+      this.stations = stations;
+    }
+
+    @Override
+    public List<? extends DirectoryEntry> entries() {
+      return stations;
+    }
+  }
+  
+  /**
+   * A stored station.
+   */
+  private static final class Station implements DirectoryEntry {
+    
+    private final String directory;
+    private final String name;
+    private final String url;
+    private final String type;
+    private final String bitRate;
+    private final int channels;
+    private final int sampleRate;
+    private final String genre;
+    private final String nowPlaying;
+
+    private Station(String directory, String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+      this.directory = directory;
+      this.name = name;
+      this.url = url;
+      ValueDictionary dictionary = ValueDictionary.shared();
+      this.type = dictionary.intern(type);
+      this.bitRate = dictionary.intern(bitRate);
+      this.channels = channels;
+      this.sampleRate = sampleRate;
+      this.genre = dictionary.intern(genre);
+      this.nowPlaying = nowPlaying;
+    }
+    
+    @Override
+    public String getDirectory() {
+      return directory;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String getUrl() {
+      return url;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public String getBitRate() {
+      return bitRate;
+    }
+
+    @Override
+    public int getChannels() {
+      return channels;
+    }
+
+    @Override
+    public int getSampleRate() {
+      return sampleRate;
+    }
+
+    @Override
+    public String getGenre() {
+      return genre;
+    }
+
+    @Override
+    public String getNowPlaying() {
+      return nowPlaying;
+    }
+    
+    @Override
+    public int compareTo(DirectoryEntry o) {
+      String otherName = o.getName();
+      if(name == null) {
+        return otherName == null ? 0 : -1;
+      }
+      return otherName == null ? 1 : name.compareTo(otherName);
+    }
+    
+    /**
+     * Test whether an entry has exactly the same details as this station.
+     * 
+     * @param entry entry with the same station key
+     * @return <code>true</code> if the details are the same; <code>false</code> otherwise
+     */
+    private boolean isSame(DirectoryEntry entry) {
+      return 
+        channels == entry.getChannels() &&
+        sampleRate == entry.getSampleRate() &&
+        StationStore.isSame(name, entry.getName()) &&
+        StationStore.isSame(url, entry.getUrl()) &&
+        StationStore.isSame(type, entry.getType()) &&
+        StationStore.isSame(bitRate, entry.getBitRate()) &&
+        StationStore.isSame(genre, entry.getGenre()) &&
+        StationStore.isSame(nowPlaying, entry.getNowPlaying());
+    }
+    
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(300);
+      sb.append(getClass().getSimpleName()).append('[');
+      sb.append("directory=").append(directory).append(',');
+      sb.append("name=").append(name).append(',');
+      sb.append("url=").append(url).append(',');
+      sb.append("type=").append(type).append(',');
+      sb.append("bitRate=").append(bitRate).append(',');
+      sb.append("channels=").append(channels).append(',');
+      sb.append("sampleRate=").append(sampleRate).append(',');
+      sb.append("genre=").append(genre).append(',');
+      sb.append("nowPlaying=").append(nowPlaying).append(']');
+      return sb.toString();
+    }
+  }
+}
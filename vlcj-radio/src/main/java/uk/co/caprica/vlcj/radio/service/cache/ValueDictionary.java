@@ -0,0 +1,218 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.co.caprica.vlcj.radio.model.SortKey;
+
+/**
+ * Table of the distinct values of the fields that only take a handful of 
+ * different values - the directory, type, genre and bit-rate - shared by all
+ * of the directories.
+ * <p>
+ * Parsing a directory creates a separate string for every occurrence of a
+ * value, so the same genre or type can be held thousands of times over. The
+ * loaders intern these values here instead, and a {@link ColumnarDirectory}
+ * keeps just the code of each value, so each distinct value is held once, 
+ * along with its search key, and two values are equal if their codes are 
+ * equal.
+ * <p>
+ * Code zero is always no value. Codes are never re-used or removed, so they
+ * stay valid for as long as the application is running - the number of 
+ * distinct values is small, so the table does not grow without bound.
+ * <p>
+ * Values may be added by any thread. A code obtained on one thread can be 
+ * looked up on any other thread that has seen the directory containing it.
+ */
+public final class ValueDictionary {
+
+  /**
+   * Dictionary shared by all of the directories.
+   */
+  private static final ValueDictionary SHARED = new ValueDictionary();
+  
+  /**
+   * Initial capacity of the table.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+  
+  /**
+   * Codes of the values, by value.
+   */
+  private final Map<String, Integer> codes = new HashMap<String, Integer>(INITIAL_CAPACITY * 2);
+  
+  /**
+   * Values, by code.
+   * <p>
+   * Replaced by a bigger copy when full, never changed once a value is set.
+   */
+  private volatile String[] values = new String[INITIAL_CAPACITY];
+  
+  /**
+   * Search keys of the values, by code.
+   */
+  private volatile String[] keys = new String[INITIAL_CAPACITY];
+  
+  /**
+   * Sort keys of the values, by code, ranked together - built again when a
+   * value has been added since they were last built.
+   */
+  private volatile SortKey[] sortKeys = new SortKey[0];
+  
+  /**
+   * Number of codes in use.
+   */
+  private volatile int size;
+  
+  /**
+   * Create a dictionary.
+   */
+  ValueDictionary() {
+    keys[0] = DirectoryIndex.key(null);
+    size = 1;
+  }
+  
+  /**
+   * Get the dictionary shared by all of the directories.
+   * 
+   * @return dictionary
+   */
+  public static ValueDictionary shared() {
+    return SHARED;
+  }
+  
+  /**
+   * Get the code for a value, adding the value if it is not already in the
+   * dictionary.
+   * 
+   * @param value value, may be <code>null</code>
+   * @return code
+   */
+  public int code(String value) {
+    if(value == null) {
+      return 0;
+    }
+    synchronized(codes) {
+      Integer code = codes.get(value);
+      if(code == null) {
+        code = size;
+        if(code == values.length) {
+          String[] newValues = new String[code * 2];
+          String[] newKeys = new String[code * 2];
+          System.arraycopy(values, 0, newValues, 0, code);
+          System.arraycopy(keys, 0, newKeys, 0, code);
+          values = newValues;
+          keys = newKeys;
+        }
+        values[code] = value;
+        keys[code] = DirectoryIndex.key(value);
+        codes.put(value, code);
+        // Publish the new value
+        size = code + 1;
+      }
+      return code;
+    }
+  }
+  
+  /**
+   * Get the single shared instance of a value, adding the value if it is not
+   * already in the dictionary.
+   * 
+   * @param value value, may be <code>null</code>
+   * @return shared instance of the value, equal to the value
+   */
+  public String intern(String value) {
+    return value != null ? getValue(code(value)) : null;
+  }
+  
+  /**
+   * Get a value.
+   * 
+   * @param code code
+   * @return value, may be <code>null</code>
+   */
+  public String getValue(int code) {
+    return values[code];
+  }
+  
+  /**
+   * Get the search key of a value.
+   * 
+   * @param code code
+   * @return lower-case value, or an empty string for no value
+   */
+  public String getKey(int code) {
+    return keys[code];
+  }
+  
+  /**
+   * Get the sort key of a value.
+   * <p>
+   * The sort keys of all of the values are ranked together, so the values 
+   * sort as ints.
+   * 
+   * @param code code
+   * @return sort key
+   */
+  public SortKey getSortKey(int code) {
+    SortKey[] currentSortKeys = sortKeys;
+    if(code >= currentSortKeys.length) {
+      currentSortKeys = rankSortKeys();
+    }
+    return currentSortKeys[code];
+  }
+  
+  /**
+   * Build the sort keys of all of the values, if a value has been added since
+   * they were last built.
+   * 
+   * @return sort keys
+   */
+  private SortKey[] rankSortKeys() {
+    synchronized(codes) {
+      int count = size;
+      if(sortKeys.length < count) {
+        String[] currentKeys = new String[count];
+        System.arraycopy(keys, 0, currentKeys, 0, count);
+        sortKeys = SortKey.rank(currentKeys);
+      }
+      return sortKeys;
+    }
+  }
+  
+  /**
+   * Get the number of codes in use, including code zero.
+   * 
+   * @return number of codes, every code is less than this
+   */
+  public int size() {
+    return size;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(40);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("size=").append(size).append(']');
+    return sb.toString();
+  }
+}
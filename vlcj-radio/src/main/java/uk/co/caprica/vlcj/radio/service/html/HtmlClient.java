@@ -0,0 +1,216 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import uk.co.caprica.vlcj.radio.service.CacheValidators;
+import uk.co.caprica.vlcj.radio.service.DirectoryProgress;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.http.HttpResponse;
+import uk.co.caprica.vlcj.radio.service.http.HttpResponseHandler;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
+
+/**
+ * Minimal client to get and parse HTML pages.
+ * <p>
+ * Pages are fetched without running scripts or loading any other resources.
+ * The character set is taken from the response headers if present, otherwise
+ * from a &lt;meta&gt; declaration at the start of the page.
+ */
+public class HtmlClient {
+
+  /**
+   * Character set to use if the page does not declare one.
+   */
+  private static final String DEFAULT_CHARSET = "windows-1252";
+  
+  /**
+   * Number of bytes at the start of a page to search for a character set
+   * declaration.
+   */
+  private static final int CHARSET_SNIFF_LENGTH = 2048;
+  
+  /**
+   * Pattern to find a character set declaration.
+   */
+  private static final Pattern CHARSET_PATTERN = Pattern.compile("charset\\s*=\\s*[\"']?([A-Za-z0-9._:-]+)", Pattern.CASE_INSENSITIVE);
+  
+  /**
+   * Parser.
+   */
+  private final HtmlParser parser = new HtmlParser();
+  
+  /**
+   * Shared HTTP transport.
+   */
+  private final HttpTransport httpTransport;
+  
+  /**
+   * Create a client.
+   * 
+   * @param httpTransport shared HTTP transport
+   */
+  public HtmlClient(HttpTransport httpTransport) {
+    this.httpTransport = httpTransport;
+  }
+  
+  /**
+   * Get and parse a page.
+   * 
+   * @param address address of the page
+   * @return document element
+   * @throws IOException if the page could not be retrieved
+   */
+  public HtmlElement getDocument(String address) throws IOException {
+    return getDocument(address, null, null);
+  }
+  
+  /**
+   * Get and parse a page, recording the progress.
+   * 
+   * @param address address of the page
+   * @param progress progress record to update, may be <code>null</code>
+   * @return document element
+   * @throws IOException if the page could not be retrieved
+   */
+  public HtmlElement getDocument(String address, DirectoryProgress progress) throws IOException {
+    return getDocument(address, null, progress);
+  }
+  
+  /**
+   * Get and parse a page, only if it has changed.
+   * <p>
+   * The validators from the request are used to make a conditional request,
+   * and the validators from the response are set on the request.
+   * 
+   * @param address address of the page
+   * @param request directory request, may be <code>null</code> for an unconditional request
+   * @return document element, or <code>null</code> if the page has not been modified
+   * @throws IOException if the page could not be retrieved
+   */
+  public HtmlElement getDocument(String address, DirectoryRequest request) throws IOException {
+    return getDocument(address, request, request != null ? request.getProgress() : null);
+  }
+  
+  private HtmlElement getDocument(String address, final DirectoryRequest request, DirectoryProgress progress) throws IOException {
+    CacheValidators validators = request != null ? request.getValidators() : null;
+    return httpTransport.get(address, validators, progress, new HttpResponseHandler<HtmlElement>() {
+      @Override
+      public HtmlElement handle(HttpResponse response) throws IOException {
+        if(response.isNotModified()) {
+          if(request != null) {
+            request.setNotModified();
+          }
+          return null;
+        }
+        if(request != null) {
+          request.setResponseValidators(response.getValidators());
+        }
+        return parse(response.getInputStream(), response.getContentType());
+      }
+    });
+  }
+  
+  /**
+   * Parse a page.
+   * 
+   * @param content content of the page
+   * @param contentType value of the "Content-Type" header, may be <code>null</code>
+   * @return document element
+   * @throws IOException if the page could not be parsed
+   */
+  public HtmlElement parse(byte[] content, String contentType) throws IOException {
+    return parse(new ByteArrayInputStream(content), contentType);
+  }
+  
+  /**
+   * Parse a page as it is read.
+   * <p>
+   * Only the start of the page is buffered, to look for a character set 
+   * declaration, the rest is parsed as it arrives.
+   * 
+   * @param in content of the page
+   * @param contentType value of the "Content-Type" header, may be <code>null</code>
+   * @return document element
+   * @throws IOException if the page could not be read or parsed
+   */
+  public HtmlElement parse(InputStream in, String contentType) throws IOException {
+    Charset charset = charset(contentType);
+    if(charset == null) {
+      in = new BufferedInputStream(in, CHARSET_SNIFF_LENGTH);
+      charset = charset(sniff(in));
+    }
+    if(charset == null) {
+      charset = Charset.forName(DEFAULT_CHARSET);
+    }
+    return parser.parse(new InputStreamReader(in, charset));
+  }
+  
+  /**
+   * Read the start of a page without consuming it.
+   * 
+   * @param in content of the page, must support mark and reset
+   * @return start of the page, decoded as ASCII
+   * @throws IOException if the page could not be read
+   */
+  private String sniff(InputStream in) throws IOException {
+    byte[] start = new byte[CHARSET_SNIFF_LENGTH];
+    in.mark(start.length);
+    int length = 0;
+    while(length < start.length) {
+      int read = in.read(start, length, start.length - length);
+      if(read == -1) {
+        break;
+      }
+      length += read;
+    }
+    in.reset();
+    return new String(start, 0, length, "US-ASCII");
+  }
+  
+  /**
+   * Find a supported character set declared in some text.
+   * 
+   * @param text text to search, may be <code>null</code>
+   * @return character set, or <code>null</code> if there is no supported character set declared
+   */
+  private Charset charset(String text) {
+    if(text != null) {
+      Matcher matcher = CHARSET_PATTERN.matcher(text);
+      if(matcher.find()) {
+        try {
+          return Charset.forName(matcher.group(1));
+        }
+        catch(IllegalArgumentException e) {
+          // Unsupported or illegal character set name
+        }
+      }
+    }
+    return null;
+  }
+}
\ No newline at end of file
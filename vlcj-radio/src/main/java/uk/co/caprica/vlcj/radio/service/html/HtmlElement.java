@@ -0,0 +1,249 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lightweight HTML element.
+ * <p>
+ * Elements form a simple tree, each element holds its attributes and its
+ * content - a mixture of child elements and text.
+ */
+public class HtmlElement {
+
+  /**
+   * Element name, always lower-case.
+   */
+  private final String name;
+  
+  /**
+   * Element attributes, names are always lower-case.
+   */
+  private final Map<String, String> attributes;
+  
+  /**
+   * Parent element, <code>null</code> for the document.
+   */
+  private final HtmlElement parent;
+  
+  /**
+   * Element content, each item is either an {@link HtmlElement} or a 
+   * {@link String}.
+   */
+  private final List<Object> content = new ArrayList<Object>(4);
+  
+  /**
+   * Create an element.
+   * 
+   * @param name element name
+   * @param attributes element attributes
+   * @param parent parent element, may be <code>null</code>
+   */
+  HtmlElement(String name, Map<String, String> attributes, HtmlElement parent) {
+    this.name = name;
+    this.attributes = attributes;
+    this.parent = parent;
+  }
+  
+  /**
+   * Get the element name.
+   * 
+   * @return name, lower-case
+   */
+  public String getName() {
+    return name;
+  }
+  
+  /**
+   * Get the parent element.
+   * 
+   * @return parent element, or <code>null</code> if this element is the document
+   */
+  public HtmlElement getParent() {
+    return parent;
+  }
+  
+  /**
+   * Get the value of an attribute.
+   * 
+   * @param attributeName attribute name, lower-case
+   * @return attribute value, or <code>null</code> if the element does not have the attribute
+   */
+  public String getAttribute(String attributeName) {
+    return attributes.get(attributeName);
+  }
+  
+  /**
+   * Get the element identifier.
+   * 
+   * @return value of the "id" attribute, may be <code>null</code>
+   */
+  public String getId() {
+    return attributes.get("id");
+  }
+  
+  /**
+   * Does the element have a particular class?
+   * 
+   * @param className class name
+   * @return <code>true</code> if the class name is one of the values in the "class" attribute; <code>false</code> otherwise
+   */
+  public boolean hasClass(String className) {
+    String classes = attributes.get("class");
+    if(classes == null) {
+      return false;
+    }
+    int length = className.length();
+    int index = classes.indexOf(className);
+    while(index != -1) {
+      boolean startsToken = index == 0 || Character.isWhitespace(classes.charAt(index - 1));
+      boolean endsToken = index + length == classes.length() || Character.isWhitespace(classes.charAt(index + length));
+      if(startsToken && endsToken) {
+        return true;
+      }
+      index = classes.indexOf(className, index + 1);
+    }
+    return false;
+  }
+  
+  /**
+   * Get the child elements.
+   * 
+   * @return child elements, in document order
+   */
+  public List<HtmlElement> getChildren() {
+    List<HtmlElement> children = new ArrayList<HtmlElement>(content.size());
+    for(Object item : content) {
+      if(item instanceof HtmlElement) {
+        children.add((HtmlElement)item);
+      }
+    }
+    return children;
+  }
+  
+  /**
+   * Get the text content of this element and all of its descendants.
+   * <p>
+   * Runs of white-space are collapsed to a single space and leading and 
+   * trailing white-space is removed, line breaks are treated as white-space.
+   * 
+   * @return text, never <code>null</code>
+   */
+  public String getText() {
+    StringBuilder sb = new StringBuilder(64);
+    appendText(sb);
+    // Collapse white-space
+    StringBuilder result = new StringBuilder(sb.length());
+    boolean space = false;
+    for(int i = 0; i < sb.length(); i++) {
+      char c = sb.charAt(i);
+      if(Character.isWhitespace(c) || c == '\u00a0') {
+        space = result.length() > 0;
+      }
+      else {
+        if(space) {
+          result.append(' ');
+          space = false;
+        }
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+  
+  /**
+   * Select the elements matching a selector, searching the descendants of 
+   * this element.
+   * 
+   * @param selector selector, see {@link HtmlSelector}
+   * @return matching elements, in document order
+   */
+  public List<HtmlElement> select(String selector) {
+    return HtmlSelector.compile(selector).select(this);
+  }
+  
+  /**
+   * Select the first element matching a selector, searching the descendants 
+   * of this element.
+   * 
+   * @param selector selector, see {@link HtmlSelector}
+   * @return first matching element, or <code>null</code> if there is no match
+   */
+  public HtmlElement selectFirst(String selector) {
+    return HtmlSelector.compile(selector).selectFirst(this);
+  }
+  
+  /**
+   * Get the element content.
+   * 
+   * @return content, each item is either an {@link HtmlElement} or a {@link String}
+   */
+  List<Object> getContent() {
+    return Collections.unmodifiableList(content);
+  }
+  
+  /**
+   * Add a child element.
+   * 
+   * @param element element to add
+   */
+  void addElement(HtmlElement element) {
+    content.add(element);
+  }
+  
+  /**
+   * Add text.
+   * 
+   * @param text text to add
+   */
+  void addText(String text) {
+    content.add(text);
+  }
+  
+  private void appendText(StringBuilder sb) {
+    for(Object item : content) {
+      if(item instanceof HtmlElement) {
+        HtmlElement element = (HtmlElement)item;
+        if("br".equals(element.name)) {
+          sb.append(' ');
+        }
+        else {
+          element.appendText(sb);
+        }
+      }
+      else {
+        sb.append((String)item);
+      }
+    }
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("name=").append(name).append(',');
+    sb.append("attributes=").append(attributes).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A lenient HTML parser that builds a tree of {@link HtmlElement}s.
+ * <p>
+ * The parser understands just enough of the HTML rules to build a sensible
+ * tree from real-world pages: void elements never have content, the end tags
+ * of list items, paragraphs, table rows and cells may be omitted, stray end
+ * tags are ignored and a table row outside of a table section is given an 
+ * implied &lt;tbody&gt; just like a browser would.
+ */
+public class HtmlParser {
+
+  /**
+   * Elements that never have content.
+   */
+  private static final Set<String> VOID_ELEMENTS = new HashSet<String>(Arrays.asList(
+    "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"
+  ));
+  
+  /**
+   * Elements that close an open paragraph.
+   */
+  private static final Set<String> BLOCK_ELEMENTS = new HashSet<String>(Arrays.asList(
+    "div", "p", "ul", "ol", "dl", "table", "h1", "h2", "h3", "h4", "h5", "h6", "form", "pre", "blockquote"
+  ));
+  
+  /**
+   * Name of the synthetic root element.
+   */
+  private static final String DOCUMENT = "#document";
+  
+  /**
+   * Parse a document.
+   * 
+   * @param reader source of the markup
+   * @return document element, the root of the element tree
+   * @throws IOException if the markup could not be read
+   */
+  public HtmlElement parse(Reader reader) throws IOException {
+    HtmlTokenizer tokenizer = new HtmlTokenizer(reader);
+    HtmlElement document = new HtmlElement(DOCUMENT, Collections.<String, String>emptyMap(), null);
+    HtmlElement current = document;
+    for(;;) {
+      switch(tokenizer.next()) {
+        case HtmlTokenizer.END:
+          return document;
+          
+        case HtmlTokenizer.START_TAG: {
+          String name = tokenizer.getName();
+          current = closeImplied(current, name);
+          if("tr".equals(name) && "table".equals(current.getName())) {
+            HtmlElement tbody = new HtmlElement("tbody", Collections.<String, String>emptyMap(), current);
+            current.addElement(tbody);
+            current = tbody;
+          }
+          HtmlElement element = new HtmlElement(name, tokenizer.getAttributes(), current);
+          current.addElement(element);
+          if(!tokenizer.isSelfClosing() && !VOID_ELEMENTS.contains(name)) {
+            current = element;
+          }
+          break;
+        }
+          
+        case HtmlTokenizer.END_TAG: {
+          String name = tokenizer.getName();
+          for(HtmlElement element = current; element != document; element = element.getParent()) {
+            if(name.equals(element.getName())) {
+              current = element.getParent();
+              break;
+            }
+          }
+          break;
+        }
+          
+        case HtmlTokenizer.TEXT:
+          current.addText(tokenizer.getText());
+          break;
+      }
+    }
+  }
+  
+  /**
+   * Close any elements whose end tags are implied by a new start tag.
+   * 
+   * @param current current element
+   * @param name name of the new start tag
+   * @return new current element
+   */
+  private HtmlElement closeImplied(HtmlElement current, String name) {
+    if("td".equals(name) || "th".equals(name)) {
+      return closeWithin(current, new String[] {"td", "th"}, new String[] {"tr", "table"});
+    }
+    else if("tr".equals(name)) {
+      return closeWithin(current, new String[] {"tr"}, new String[] {"table"});
+    }
+    else if("tbody".equals(name) || "thead".equals(name) || "tfoot".equals(name)) {
+      return closeWithin(current, new String[] {"tbody", "thead", "tfoot"}, new String[] {"table"});
+    }
+    else if("li".equals(name)) {
+      return closeWithin(current, new String[] {"li"}, new String[] {"ul", "ol"});
+    }
+    else if("option".equals(name)) {
+      return closeWithin(current, new String[] {"option"}, new String[] {"select"});
+    }
+    else if(BLOCK_ELEMENTS.contains(name) && "p".equals(current.getName())) {
+      return current.getParent();
+    }
+    return current;
+  }
+  
+  /**
+   * Close the nearest open element with one of the given names, searching no
+   * further than the nearest element with one of the boundary names.
+   * 
+   * @param current current element
+   * @param names names of the elements to close
+   * @param boundaries names of the elements that stop the search
+   * @return new current element
+   */
+  private HtmlElement closeWithin(HtmlElement current, String[] names, String[] boundaries) {
+    for(HtmlElement element = current; element != null && !DOCUMENT.equals(element.getName()); element = element.getParent()) {
+      String elementName = element.getName();
+      for(String boundary : boundaries) {
+        if(boundary.equals(elementName)) {
+          return current;
+        }
+      }
+      for(String name : names) {
+        if(name.equals(elementName)) {
+          return element.getParent();
+        }
+      }
+    }
+    return current;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.util.List;
+
+/**
+ * A single row extracted from a document, with its cells.
+ */
+public class HtmlRow {
+
+  /**
+   * Row element.
+   */
+  private final HtmlElement element;
+  
+  /**
+   * Cell elements.
+   */
+  private final List<HtmlElement> cells;
+  
+  /**
+   * Create a row.
+   * 
+   * @param element row element
+   * @param cells cell elements
+   */
+  HtmlRow(HtmlElement element, List<HtmlElement> cells) {
+    this.element = element;
+    this.cells = cells;
+  }
+  
+  /**
+   * Get the row element.
+   * 
+   * @return row element
+   */
+  public HtmlElement getElement() {
+    return element;
+  }
+  
+  /**
+   * Get the number of cells in the row.
+   * 
+   * @return number of cells
+   */
+  public int getCellCount() {
+    return cells.size();
+  }
+  
+  /**
+   * Get a cell.
+   * 
+   * @param index index of the cell, starting at zero
+   * @return cell element
+   */
+  public HtmlElement getCell(int index) {
+    return cells.get(index);
+  }
+  
+  /**
+   * Get the text of a cell.
+   * 
+   * @param index index of the cell, starting at zero
+   * @return cell text, see {@link HtmlElement#getText()}
+   */
+  public String getText(int index) {
+    return cells.get(index).getText();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declarative extraction of rows of cells from a document.
+ * <p>
+ * An extractor is described by up to three selectors:
+ * <ul>
+ *   <li>an optional container selector - rows are only searched for inside
+ *       the first element it matches;</li>
+ *   <li>a row selector - each matching element is one row;</li>
+ *   <li>an optional cell selector, relative to each row - each matching 
+ *       element is one cell of that row.</li>
+ * </ul>
+ * A number of leading rows can be skipped, e.g. for a table header.
+ * <p>
+ * Extractors are immutable and can be shared between threads.
+ */
+public class HtmlRowExtractor {
+
+  /**
+   * Selector for the container, may be <code>null</code>.
+   */
+  private final HtmlSelector containerSelector;
+  
+  /**
+   * Selector for the rows.
+   */
+  private final HtmlSelector rowSelector;
+  
+  /**
+   * Selector for the cells, may be <code>null</code>.
+   */
+  private final HtmlSelector cellSelector;
+  
+  /**
+   * Number of leading rows to skip.
+   */
+  private final int skipRows;
+  
+  /**
+   * Create an extractor for rows without cells.
+   * 
+   * @param rowSelector selector for the rows
+   */
+  public HtmlRowExtractor(String rowSelector) {
+    this(null, rowSelector, null, 0);
+  }
+  
+  /**
+   * Create an extractor.
+   * 
+   * @param containerSelector selector for the container, may be <code>null</code>
+   * @param rowSelector selector for the rows
+   * @param cellSelector selector for the cells relative to each row, may be <code>null</code>
+   * @param skipRows number of leading rows to skip
+   */
+  public HtmlRowExtractor(String containerSelector, String rowSelector, String cellSelector, int skipRows) {
+    this.containerSelector = containerSelector != null ? HtmlSelector.compile(containerSelector) : null;
+    this.rowSelector = HtmlSelector.compile(rowSelector);
+    this.cellSelector = cellSelector != null ? HtmlSelector.compile(cellSelector) : null;
+    this.skipRows = skipRows;
+  }
+  
+  /**
+   * Extract the rows from a document.
+   * 
+   * @param document document, or any element
+   * @return rows, in document order
+   */
+  public List<HtmlRow> extract(HtmlElement document) {
+    HtmlElement container = document;
+    if(containerSelector != null) {
+      container = containerSelector.selectFirst(document);
+      if(container == null) {
+        return Collections.emptyList();
+      }
+    }
+    List<HtmlElement> rowElements = rowSelector.select(container);
+    List<HtmlRow> rows = new ArrayList<HtmlRow>(Math.max(rowElements.size() - skipRows, 0));
+    for(int i = skipRows; i < rowElements.size(); i++) {
+      HtmlElement rowElement = rowElements.get(i);
+      List<HtmlElement> cells = cellSelector != null ? cellSelector.select(rowElement) : Collections.<HtmlElement>emptyList();
+      rows.add(new HtmlRow(rowElement, cells));
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled element selector.
+ * <p>
+ * Selectors are a small subset of CSS selectors:
+ * <ul>
+ *   <li>a simple selector is an element name (or "*"), optionally followed by
+ *       any number of "#id", ".class", "[attribute]" or "[attribute=value]" 
+ *       conditions;</li>
+ *   <li>simple selectors are combined with " " (descendant), "&gt;" (child) 
+ *       or "~" (following sibling);</li>
+ *   <li>a selector that starts with "&gt;" only matches children of the 
+ *       element the search starts from.</li>
+ * </ul>
+ * For example "div#main table.stations &gt; tbody &gt; tr".
+ */
+public class HtmlSelector {
+
+  /**
+   * Simple selectors, in order.
+   */
+  private final SimpleSelector[] selectors;
+  
+  /**
+   * Combinator preceding each simple selector - the first is unused unless the
+   * selector is anchored.
+   */
+  private final char[] combinators;
+  
+  /**
+   * Flag whether the first simple selector must match a child of the element
+   * the search starts from.
+   */
+  private final boolean anchored;
+  
+  private HtmlSelector(SimpleSelector[] selectors, char[] combinators, boolean anchored) {
+    this.selectors = selectors;
+    this.combinators = combinators;
+    this.anchored = anchored;
+  }
+  
+  /**
+   * Compile a selector.
+   * 
+   * @param selector selector text
+   * @return compiled selector
+   * @throws IllegalArgumentException if the selector is not valid
+   */
+  public static HtmlSelector compile(String selector) {
+    List<SimpleSelector> selectors = new ArrayList<SimpleSelector>(4);
+    List<Character> combinators = new ArrayList<Character>(4);
+    boolean anchored = false;
+    char combinator = ' ';
+    int i = 0;
+    int length = selector.length();
+    while(i < length) {
+      char c = selector.charAt(i);
+      if(Character.isWhitespace(c)) {
+        i++;
+      }
+      else if(c == '>' || c == '~') {
+        if(selectors.isEmpty()) {
+          if(c != '>' || anchored) {
+            throw new IllegalArgumentException("Invalid selector '" + selector + "'");
+          }
+          anchored = true;
+        }
+        combinator = c;
+        i++;
+      }
+      else {
+        int end = i;
+        boolean inBrackets = false;
+        while(end < length) {
+          char e = selector.charAt(end);
+          if(e == '[') {
+            inBrackets = true;
+          }
+          else if(e == ']') {
+            inBrackets = false;
+          }
+          else if(!inBrackets && (Character.isWhitespace(e) || e == '>' || e == '~')) {
+            break;
+          }
+          end++;
+        }
+        selectors.add(SimpleSelector.compile(selector, selector.substring(i, end)));
+        combinators.add(combinator);
+        combinator = ' ';
+        i = end;
+      }
+    }
+    if(selectors.isEmpty() || combinator != ' ') {
+      throw new IllegalArgumentException("Invalid selector '" + selector + "'");
+    }
+    char[] combinatorArray = new char[combinators.size()];
+    for(int j = 0; j < combinatorArray.length; j++) {
+      combinatorArray[j] = combinators.get(j);
+    }
+    return new HtmlSelector(selectors.toArray(new SimpleSelector[selectors.size()]), combinatorArray, anchored);
+  }
+  
+  /**
+   * Select the matching descendants of an element.
+   * 
+   * @param context element to start the search from
+   * @return matching elements, in document order
+   */
+  public List<HtmlElement> select(HtmlElement context) {
+    List<HtmlElement> result = new ArrayList<HtmlElement>();
+    select(context, context, result, false);
+    return result;
+  }
+  
+  /**
+   * Select the first matching descendant of an element.
+   * 
+   * @param context element to start the search from
+   * @return first matching element, or <code>null</code> if there is no match
+   */
+  public HtmlElement selectFirst(HtmlElement context) {
+    List<HtmlElement> result = new ArrayList<HtmlElement>(1);
+    select(context, context, result, true);
+    return !result.isEmpty() ? result.get(0) : null;
+  }
+  
+  private boolean select(HtmlElement context, HtmlElement element, List<HtmlElement> result, boolean first) {
+    for(HtmlElement child : element.getChildren()) {
+      if(matches(context, child, selectors.length - 1)) {
+        result.add(child);
+        if(first) {
+          return true;
+        }
+      }
+      if(select(context, child, result, first)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private boolean matches(HtmlElement context, HtmlElement element, int index) {
+    if(!selectors[index].matches(element)) {
+      return false;
+    }
+    if(index == 0) {
+      return !anchored || element.getParent() == context;
+    }
+    switch(combinators[index]) {
+      case '>': {
+        HtmlElement parent = element.getParent();
+        return parent != null && parent != context && matches(context, parent, index - 1);
+      }
+      
+      case '~': {
+        HtmlElement parent = element.getParent();
+        if(parent != null) {
+          for(HtmlElement sibling : parent.getChildren()) {
+            if(sibling == element) {
+              break;
+            }
+            if(matches(context, sibling, index - 1)) {
+              return true;
+            }
+          }
+        }
+        return false;
+      }
+      
+      default: {
+        for(HtmlElement ancestor = element.getParent(); ancestor != null && ancestor != context; ancestor = ancestor.getParent()) {
+          if(matches(context, ancestor, index - 1)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    }
+  }
+  
+  /**
+   * A simple selector - an element name with optional conditions.
+   */
+  private static class SimpleSelector {
+    
+    private final String name;
+    
+    private final String id;
+    
+    private final List<String> classNames = new ArrayList<String>(2);
+    
+    private final List<String[]> attributes = new ArrayList<String[]>(1);
+    
+    private SimpleSelector(String name, String id) {
+      this.name = name;
+      this.id = id;
+    }
+    
+    private static SimpleSelector compile(String selector, String text) {
+      int i = 0;
+      int length = text.length();
+      while(i < length && "#.[".indexOf(text.charAt(i)) == -1) {
+        i++;
+      }
+      String name = text.substring(0, i).toLowerCase();
+      String id = null;
+      List<String> classNames = new ArrayList<String>(2);
+      List<String[]> attributes = new ArrayList<String[]>(1);
+      while(i < length) {
+        char c = text.charAt(i);
+        if(c == '[') {
+          int end = text.indexOf(']', i);
+          if(end == -1) {
+            throw new IllegalArgumentException("Invalid selector '" + selector + "'");
+          }
+          String condition = text.substring(i + 1, end);
+          int equals = condition.indexOf('=');
+          if(equals == -1) {
+            attributes.add(new String[] {condition.trim().toLowerCase(), null});
+          }
+          else {
+            String value = condition.substring(equals + 1).trim();
+            if(value.length() > 1 && (value.charAt(0) == '\'' || value.charAt(0) == '"')) {
+              value = value.substring(1, value.length() - 1);
+            }
+            attributes.add(new String[] {condition.substring(0, equals).trim().toLowerCase(), value});
+          }
+          i = end + 1;
+        }
+        else {
+          int end = i + 1;
+          while(end < length && "#.[".indexOf(text.charAt(end)) == -1) {
+            end++;
+          }
+          String value = text.substring(i + 1, end);
+          if(value.length() == 0) {
+            throw new IllegalArgumentException("Invalid selector '" + selector + "'");
+          }
+          if(c == '#') {
+            id = value;
+          }
+          else {
+            classNames.add(value);
+          }
+          i = end;
+        }
+      }
+      SimpleSelector result = new SimpleSelector(name.length() > 0 && !"*".equals(name) ? name : null, id);
+      result.classNames.addAll(classNames);
+      result.attributes.addAll(attributes);
+      return result;
+    }
+    
+    private boolean matches(HtmlElement element) {
+      if(name != null && !name.equals(element.getName())) {
+        return false;
+      }
+      if(id != null && !id.equals(element.getId())) {
+        return false;
+      }
+      for(String className : classNames) {
+        if(!element.hasClass(className)) {
+          return false;
+        }
+      }
+      for(String[] attribute : attributes) {
+        String value = element.getAttribute(attribute[0]);
+        if(value == null || (attribute[1] != null && !attribute[1].equals(value))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,490 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small streaming tokenizer for HTML.
+ * <p>
+ * The tokenizer reports start tags (with their attributes), end tags and text
+ * one at a time. Comments, processing instructions and doctype declarations
+ * are skipped, as is the content of script and style elements. Character 
+ * references in text and attribute values are decoded.
+ * <p>
+ * The tokenizer is lenient, it never fails on malformed markup.
+ */
+public class HtmlTokenizer {
+
+  /**
+   * End of input.
+   */
+  public static final int END = 0;
+  
+  /**
+   * Start tag, see {@link #getName()}, {@link #getAttributes()} and {@link #isSelfClosing()}.
+   */
+  public static final int START_TAG = 1;
+  
+  /**
+   * End tag, see {@link #getName()}.
+   */
+  public static final int END_TAG = 2;
+  
+  /**
+   * Text, see {@link #getText()}.
+   */
+  public static final int TEXT = 3;
+  
+  /**
+   * Named character references that are decoded, anything else is left as-is.
+   */
+  private static final Map<String, Character> ENTITIES = new HashMap<String, Character>();
+  
+  static {
+    ENTITIES.put("amp"  , '&');
+    ENTITIES.put("lt"   , '<');
+    ENTITIES.put("gt"   , '>');
+    ENTITIES.put("quot" , '"');
+    ENTITIES.put("apos" , '\'');
+    ENTITIES.put("nbsp" , '\u00a0');
+    ENTITIES.put("copy" , '\u00a9');
+    ENTITIES.put("reg"  , '\u00ae');
+    ENTITIES.put("pound", '\u00a3');
+    ENTITIES.put("euro" , '\u20ac');
+    ENTITIES.put("ndash", '\u2013');
+    ENTITIES.put("mdash", '\u2014');
+    ENTITIES.put("lsquo", '\u2018');
+    ENTITIES.put("rsquo", '\u2019');
+    ENTITIES.put("ldquo", '\u201c');
+    ENTITIES.put("rdquo", '\u201d');
+    ENTITIES.put("hellip", '\u2026');
+  }
+  
+  /**
+   * Source of the markup.
+   */
+  private final Reader reader;
+  
+  /**
+   * Input buffer.
+   */
+  private final char[] buffer = new char[8192];
+  
+  /**
+   * Position of the next character in the input buffer.
+   */
+  private int position;
+  
+  /**
+   * Number of valid characters in the input buffer.
+   */
+  private int limit;
+  
+  /**
+   * Working buffer for names, values and text.
+   */
+  private final StringBuilder sb = new StringBuilder(256);
+  
+  /**
+   * Name of the element whose content is being skipped, if any.
+   */
+  private String rawTextElement;
+  
+  /**
+   * Name of the current tag.
+   */
+  private String name;
+  
+  /**
+   * Attributes of the current start tag.
+   */
+  private Map<String, String> attributes;
+  
+  /**
+   * Flag whether the current start tag is self-closing.
+   */
+  private boolean selfClosing;
+  
+  /**
+   * Current text.
+   */
+  private String text;
+  
+  /**
+   * Create a tokenizer.
+   * 
+   * @param reader source of the markup
+   */
+  public HtmlTokenizer(Reader reader) {
+    this.reader = reader;
+  }
+  
+  /**
+   * Advance to the next token.
+   * 
+   * @return token type
+   * @throws IOException if the markup could not be read
+   */
+  public int next() throws IOException {
+    name = null;
+    attributes = null;
+    selfClosing = false;
+    text = null;
+    if(rawTextElement != null) {
+      return skipRawText();
+    }
+    for(;;) {
+      int c = read();
+      if(c == -1) {
+        return END;
+      }
+      if(c == '<') {
+        int next = peek();
+        if(next == '!' || next == '?') {
+          skipMarkupDeclaration();
+          continue;
+        }
+        else if(next == '/') {
+          read();
+          if(isNameStart(peek())) {
+            name = readName();
+            skipTo('>');
+            return END_TAG;
+          }
+          skipTo('>');
+          continue;
+        }
+        else if(isNameStart(next)) {
+          name = readName();
+          readAttributes();
+          if(!selfClosing && ("script".equals(name) || "style".equals(name))) {
+            rawTextElement = name;
+          }
+          return START_TAG;
+        }
+      }
+      return readText(c);
+    }
+  }
+  
+  /**
+   * Get the name of the current start or end tag.
+   * <p>
+   * Names are always lower-case.
+   * 
+   * @return tag name
+   */
+  public String getName() {
+    return name;
+  }
+  
+  /**
+   * Get the attributes of the current start tag.
+   * <p>
+   * Attribute names are always lower-case.
+   * 
+   * @return attributes, never <code>null</code>
+   */
+  public Map<String, String> getAttributes() {
+    return attributes != null ? attributes : Collections.<String, String>emptyMap();
+  }
+  
+  /**
+   * Is the current start tag self-closing?
+   * 
+   * @return <code>true</code> if the tag ended with "/&gt;"; <code>false</code> otherwise
+   */
+  public boolean isSelfClosing() {
+    return selfClosing;
+  }
+  
+  /**
+   * Get the current text.
+   * 
+   * @return text, with character references decoded
+   */
+  public String getText() {
+    return text;
+  }
+  
+  private int readText(int first) throws IOException {
+    sb.setLength(0);
+    sb.append((char)first);
+    for(;;) {
+      int c = peek();
+      if(c == -1 || c == '<') {
+        break;
+      }
+      sb.append((char)read());
+    }
+    text = decode(sb);
+    return TEXT;
+  }
+  
+  private String readName() throws IOException {
+    sb.setLength(0);
+    for(;;) {
+      int c = peek();
+      if(c == -1 || Character.isWhitespace(c) || c == '>' || c == '/' || c == '=') {
+        break;
+      }
+      sb.append(Character.toLowerCase((char)read()));
+    }
+    return sb.toString();
+  }
+  
+  private void readAttributes() throws IOException {
+    for(;;) {
+      skipWhitespace();
+      int c = peek();
+      if(c == -1) {
+        return;
+      }
+      if(c == '>') {
+        read();
+        return;
+      }
+      if(c == '/') {
+        read();
+        if(peek() == '>') {
+          read();
+          selfClosing = true;
+          return;
+        }
+        continue;
+      }
+      String attributeName = readName();
+      if(attributeName.length() == 0) {
+        // Stray character, e.g. a lone '=' - discard it
+        read();
+        continue;
+      }
+      String attributeValue = "";
+      skipWhitespace();
+      if(peek() == '=') {
+        read();
+        skipWhitespace();
+        attributeValue = readAttributeValue();
+      }
+      if(attributes == null) {
+        attributes = new LinkedHashMap<String, String>(8);
+      }
+      if(!attributes.containsKey(attributeName)) {
+        attributes.put(attributeName, attributeValue);
+      }
+    }
+  }
+  
+  private String readAttributeValue() throws IOException {
+    sb.setLength(0);
+    int c = peek();
+    if(c == '"' || c == '\'') {
+      int quote = read();
+      for(;;) {
+        c = read();
+        if(c == -1 || c == quote) {
+          break;
+        }
+        sb.append((char)c);
+      }
+    }
+    else {
+      for(;;) {
+        c = peek();
+        if(c == -1 || Character.isWhitespace(c) || c == '>') {
+          break;
+        }
+        sb.append((char)read());
+      }
+    }
+    return decode(sb);
+  }
+  
+  /**
+   * Skip the content of a script or style element and report its end tag.
+   * 
+   * @return token type
+   * @throws IOException if the markup could not be read
+   */
+  private int skipRawText() throws IOException {
+    String element = rawTextElement;
+    rawTextElement = null;
+    for(;;) {
+      int c = read();
+      if(c == -1) {
+        return END;
+      }
+      if(c == '<' && peek() == '/') {
+        read();
+        if(isNameStart(peek())) {
+          String endName = readName();
+          if(element.equals(endName)) {
+            skipTo('>');
+            name = endName;
+            return END_TAG;
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Skip a comment, doctype declaration or processing instruction.
+   * 
+   * @throws IOException if the markup could not be read
+   */
+  private void skipMarkupDeclaration() throws IOException {
+    int c = read();
+    if(c == '!' && peek() == '-') {
+      read();
+      if(peek() == '-') {
+        read();
+        // Comment, ends at the first "-->"
+        int dashes = 0;
+        for(;;) {
+          c = read();
+          if(c == -1 || (c == '>' && dashes >= 2)) {
+            return;
+          }
+          dashes = c == '-' ? dashes + 1 : 0;
+        }
+      }
+    }
+    skipTo('>');
+  }
+  
+  private void skipTo(char end) throws IOException {
+    for(;;) {
+      int c = read();
+      if(c == -1 || c == end) {
+        return;
+      }
+    }
+  }
+  
+  private void skipWhitespace() throws IOException {
+    for(;;) {
+      int c = peek();
+      if(c == -1 || !Character.isWhitespace(c)) {
+        return;
+      }
+      read();
+    }
+  }
+  
+  private boolean isNameStart(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+  
+  private int read() throws IOException {
+    if(position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position++];
+  }
+  
+  private int peek() throws IOException {
+    if(position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position];
+  }
+  
+  private boolean fill() throws IOException {
+    int count = reader.read(buffer, 0, buffer.length);
+    if(count <= 0) {
+      return false;
+    }
+    position = 0;
+    limit = count;
+    return true;
+  }
+  
+  /**
+   * Decode character references.
+   * 
+   * @param value value to decode
+   * @return decoded value
+   */
+  static String decode(CharSequence value) {
+    int length = value.length();
+    int ampersand = -1;
+    for(int i = 0; i < length; i++) {
+      if(value.charAt(i) == '&') {
+        ampersand = i;
+        break;
+      }
+    }
+    if(ampersand == -1) {
+      return value.toString();
+    }
+    StringBuilder result = new StringBuilder(length);
+    result.append(value, 0, ampersand);
+    int i = ampersand;
+    while(i < length) {
+      char c = value.charAt(i);
+      if(c == '&') {
+        int semicolon = -1;
+        for(int j = i + 1; j < length && j < i + 12; j++) {
+          if(value.charAt(j) == ';') {
+            semicolon = j;
+            break;
+          }
+        }
+        if(semicolon != -1) {
+          String reference = value.subSequence(i + 1, semicolon).toString();
+          int decoded = decodeReference(reference);
+          if(decoded > 0 && decoded <= Character.MAX_CODE_POINT) {
+            result.appendCodePoint(decoded);
+            i = semicolon + 1;
+            continue;
+          }
+        }
+      }
+      result.append(c);
+      i++;
+    }
+    return result.toString();
+  }
+  
+  private static int decodeReference(String reference) {
+    if(reference.length() > 1 && reference.charAt(0) == '#') {
+      try {
+        if(reference.charAt(1) == 'x' || reference.charAt(1) == 'X') {
+          return Integer.parseInt(reference.substring(2), 16);
+        }
+        else {
+          return Integer.parseInt(reference.substring(1));
+        }
+      }
+      catch(NumberFormatException e) {
+        return -1;
+      }
+    }
+    Character c = ENTITIES.get(reference);
+    return c != null ? c.charValue() : -1;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import uk.co.caprica.vlcj.radio.service.DirectoryProgress;
+
+/**
+ * Input stream that counts the bytes read through it, optionally adding them
+ * to the progress of a directory load as they arrive.
+ */
+class CountingInputStream extends FilterInputStream {
+
+  /**
+   * Number of bytes read so far.
+   */
+  private volatile long count;
+  
+  /**
+   * Progress record to update, may be <code>null</code>.
+   */
+  private final DirectoryProgress progress;
+  
+  /**
+   * Create a counting input stream.
+   * 
+   * @param in stream to count
+   * @param progress progress record to update, may be <code>null</code>
+   */
+  CountingInputStream(InputStream in, DirectoryProgress progress) {
+    super(in);
+    this.progress = progress;
+  }
+  
+  /**
+   * Get the number of bytes read so far.
+   * 
+   * @return number of bytes
+   */
+  long getCount() {
+    return count;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int result = super.read();
+    if(result != -1) {
+      counted(1);
+    }
+    return result;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int result = super.read(b, off, len);
+    if(result > 0) {
+      counted(result);
+    }
+    return result;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long result = super.skip(n);
+    counted(result);
+    return result;
+  }
+  
+  private void counted(long bytes) {
+    count += bytes;
+    if(progress != null) {
+      progress.addBytesRead(bytes);
+    }
+  }
+}
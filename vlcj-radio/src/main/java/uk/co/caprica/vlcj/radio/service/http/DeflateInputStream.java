@@ -0,0 +1,100 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Input stream for a response body with the "deflate" content encoding.
+ * <p>
+ * The encoding is defined as zlib-wrapped deflate data (RFC 1950), but some
+ * servers send raw deflate data (RFC 1951) instead. The first two bytes are
+ * checked for a zlib header, and raw data is inflated only if there is none.
+ * <p>
+ * Closing the stream releases the native memory held by the inflater.
+ */
+class DeflateInputStream extends InflaterInputStream {
+
+  /**
+   * Create a deflate input stream.
+   * 
+   * @param in stream to inflate, with the first bytes pushed back
+   * @param inflater inflater
+   * @param size size of the input buffer
+   */
+  private DeflateInputStream(InputStream in, Inflater inflater, int size) {
+    super(in, inflater, size);
+  }
+  
+  /**
+   * Open a stream to inflate a response body.
+   * 
+   * @param in response body
+   * @param size size of the input buffer
+   * @return inflating stream, or the body itself if it is empty
+   * @throws IOException if the start of the body can not be read
+   */
+  static InputStream open(InputStream in, int size) throws IOException {
+    PushbackInputStream pushback = new PushbackInputStream(in, 2);
+    byte[] header = new byte[2];
+    int length = 0;
+    while(length < header.length) {
+      int read = pushback.read(header, length, header.length - length);
+      if(read == -1) {
+        break;
+      }
+      length += read;
+    }
+    if(length == 0) {
+      return pushback;
+    }
+    pushback.unread(header, 0, length);
+    boolean zlib = length == header.length && isZlibHeader(header[0] & 0xff, header[1] & 0xff);
+    return new DeflateInputStream(pushback, new Inflater(!zlib), size);
+  }
+  
+  /**
+   * Test whether two bytes are a zlib header.
+   * <p>
+   * The compression method must be deflate, and the two bytes taken as a 
+   * big-endian number must be a multiple of 31.
+   * 
+   * @param cmf compression method and flags byte
+   * @param flg flags byte
+   * @return <code>true</code> if the bytes are a zlib header; <code>false</code> otherwise
+   */
+  static boolean isZlibHeader(int cmf, int flg) {
+    return (cmf & 0x0f) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+  }
+  
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    }
+    finally {
+      inf.end();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+/**
+ * Statistics for a single completed HTTP request.
+ */
+public class HttpExchange {
+
+  /**
+   * Requested address.
+   */
+  private final String address;
+  
+  /**
+   * HTTP status code, or -1 if no response was received.
+   */
+  private final int status;
+  
+  /**
+   * Number of bytes read from the network, before any decompression.
+   */
+  private final long bytesRead;
+  
+  /**
+   * Time taken to receive the response headers, in milliseconds.
+   */
+  private final long latency;
+  
+  /**
+   * Total time taken by the request, including reading and processing the 
+   * response body, in milliseconds.
+   */
+  private final long elapsed;
+  
+  /**
+   * Create request statistics.
+   * 
+   * @param address requested address
+   * @param status HTTP status code, or -1 if no response was received
+   * @param bytesRead number of bytes read from the network
+   * @param latency time taken to receive the response headers, in milliseconds
+   * @param elapsed total time taken by the request, in milliseconds
+   */
+  public HttpExchange(String address, int status, long bytesRead, long latency, long elapsed) {
+    this.address = address;
+    this.status = status;
+    this.bytesRead = bytesRead;
+    this.latency = latency;
+    this.elapsed = elapsed;
+  }
+
+  /**
+   * Get the requested address.
+   * 
+   * @return address
+   */
+  public String getAddress() {
+    return address;
+  }
+
+  /**
+   * Get the HTTP status code.
+   * 
+   * @return status code, or -1 if no response was received
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Get the number of bytes read from the network.
+   * 
+   * @return number of bytes, before any decompression
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Get the time taken to receive the response headers.
+   * 
+   * @return latency, in milliseconds
+   */
+  public long getLatency() {
+    return latency;
+  }
+
+  /**
+   * Get the total time taken by the request.
+   * 
+   * @return elapsed time, in milliseconds
+   */
+  public long getElapsed() {
+    return elapsed;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(200);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("address=").append(address).append(',');
+    sb.append("status=").append(status).append(',');
+    sb.append("bytesRead=").append(bytesRead).append(',');
+    sb.append("latency=").append(latency).append(',');
+    sb.append("elapsed=").append(elapsed).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import uk.co.caprica.vlcj.radio.service.CacheValidators;
+
+/**
+ * A response received through an {@link HttpTransport}.
+ */
+public class HttpResponse {
+
+  /**
+   * HTTP status code.
+   */
+  private final int status;
+  
+  /**
+   * Value of the "Content-Type" header, may be <code>null</code>.
+   */
+  private final String contentType;
+  
+  /**
+   * Cache validators sent with the response.
+   */
+  private final CacheValidators validators;
+  
+  /**
+   * Response body, already decompressed.
+   */
+  private final InputStream in;
+  
+  /**
+   * Create a response.
+   * 
+   * @param status HTTP status code
+   * @param contentType value of the "Content-Type" header, may be <code>null</code>
+   * @param validators cache validators sent with the response
+   * @param in response body, already decompressed
+   */
+  HttpResponse(int status, String contentType, CacheValidators validators, InputStream in) {
+    this.status = status;
+    this.contentType = contentType;
+    this.validators = validators;
+    this.in = in;
+  }
+  
+  /**
+   * Get the HTTP status code.
+   * 
+   * @return status code
+   */
+  public int getStatus() {
+    return status;
+  }
+  
+  /**
+   * Was the response to a conditional request that the resource has not been
+   * modified?
+   * <p>
+   * A response that was not modified has no body.
+   * 
+   * @return <code>true</code> if the resource was not modified; <code>false</code> otherwise
+   */
+  public boolean isNotModified() {
+    return status == 304;
+  }
+  
+  /**
+   * Get the value of the "Content-Type" header.
+   * 
+   * @return content type, may be <code>null</code>
+   */
+  public String getContentType() {
+    return contentType;
+  }
+  
+  /**
+   * Get the cache validators sent with the response.
+   * 
+   * @return validators, never <code>null</code> but may be empty
+   */
+  public CacheValidators getValidators() {
+    return validators;
+  }
+  
+  /**
+   * Get the response body.
+   * <p>
+   * Any content encoding has already been removed.
+   * 
+   * @return stream
+   */
+  public InputStream getInputStream() {
+    return in;
+  }
+  
+  /**
+   * Read the whole of the response body.
+   * 
+   * @return response body
+   * @throws IOException if the body could not be read
+   */
+  public byte[] getBytes() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(32768);
+    byte[] buffer = new byte[8192];
+    int read;
+    while((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import java.io.IOException;
+
+/**
+ * Specification for a component that processes an HTTP response.
+ * 
+ * @param <T> type of result
+ */
+public interface HttpResponseHandler<T> {
+
+  /**
+   * Process a response.
+   * <p>
+   * The response body must only be used inside this method.
+   * 
+   * @param response response
+   * @return result
+   * @throws IOException if the response could not be processed
+   */
+  T handle(HttpResponse response) throws IOException;
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a server responds with an error status.
+ */
+public class HttpStatusException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * HTTP status code.
+   */
+  private final int status;
+  
+  /**
+   * Create an exception.
+   * 
+   * @param status HTTP status code
+   * @param address requested address
+   */
+  public HttpStatusException(int status, String address) {
+    super("HTTP status " + status + " for " + address);
+    this.status = status;
+  }
+  
+  /**
+   * Get the HTTP status code.
+   * 
+   * @return status code
+   */
+  public int getStatus() {
+    return status;
+  }
+}
@@ -0,0 +1,350 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import uk.co.caprica.vlcj.radio.service.CacheValidators;
+import uk.co.caprica.vlcj.radio.service.DirectoryProgress;
+import uk.co.caprica.vlcj.radio.service.DirectoryState;
+
+/**
+ * HTTP transport shared by all of the directory services.
+ * <p>
+ * The transport provides, in one place:
+ * <ul>
+ *   <li>connect and read timeouts, so a hung server can not stall a loader 
+ *       thread forever;</li>
+ *   <li>keep-alive connection reuse - the unread rest of a short response 
+ *       body is drained and closed rather than the connection being 
+ *       disconnected, which lets the platform return the connection to its
+ *       pool;</li>
+ *   <li>gzip and deflate content encoding;</li>
+ *   <li>conditional requests using cache validators;</li>
+ *   <li>a limit on the number of requests made to the same host at the same
+ *       time;</li>
+ *   <li>byte and latency statistics for each request, and in total;</li>
+ *   <li>live progress for the directory being loaded.</li>
+ * </ul>
+ * The defaults can be changed with the "vlcj.radio.http.connectTimeout", 
+ * "vlcj.radio.http.readTimeout" (both milliseconds) and 
+ * "vlcj.radio.http.maxConnectionsPerHost" system properties.
+ */
+public class HttpTransport {
+
+  /**
+   * Default connect timeout, in milliseconds.
+   */
+  private static final int DEFAULT_CONNECT_TIMEOUT = 15000;
+  
+  /**
+   * Default read timeout, in milliseconds.
+   */
+  private static final int DEFAULT_READ_TIMEOUT = 30000;
+  
+  /**
+   * Default maximum number of requests to the same host at the same time.
+   */
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+  
+  /**
+   * Maximum number of unread bytes to drain from a response to keep its 
+   * connection alive, a connection with more left than this is disconnected
+   * instead.
+   */
+  static final int MAX_DRAIN_LENGTH = 64 * 1024;
+  
+  /**
+   * Connect timeout, in milliseconds.
+   */
+  private final int connectTimeout;
+  
+  /**
+   * Read timeout, in milliseconds.
+   */
+  private final int readTimeout;
+  
+  /**
+   * Maximum number of requests to the same host at the same time.
+   */
+  private final int maxConnectionsPerHost;
+  
+  /**
+   * Permits for each host.
+   */
+  private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<String, Semaphore>();
+  
+  /**
+   * Components to notify as each request completes.
+   */
+  private final List<HttpTransportListener> listeners = new CopyOnWriteArrayList<HttpTransportListener>();
+  
+  /**
+   * Total number of requests made.
+   */
+  private final AtomicLong requestCount = new AtomicLong();
+  
+  /**
+   * Total number of bytes read from the network.
+   */
+  private final AtomicLong bytesRead = new AtomicLong();
+  
+  /**
+   * Total time spent waiting for response headers, in milliseconds.
+   */
+  private final AtomicLong totalLatency = new AtomicLong();
+  
+  /**
+   * Create a transport with the default (or system property) settings.
+   */
+  public HttpTransport() {
+    this(Integer.getInteger("vlcj.radio.http.connectTimeout", DEFAULT_CONNECT_TIMEOUT), 
+         Integer.getInteger("vlcj.radio.http.readTimeout", DEFAULT_READ_TIMEOUT), 
+         Integer.getInteger("vlcj.radio.http.maxConnectionsPerHost", DEFAULT_MAX_CONNECTIONS_PER_HOST));
+  }
+  
+  /**
+   * Create a transport.
+   * 
+   * @param connectTimeout connect timeout, in milliseconds
+   * @param readTimeout read timeout, in milliseconds
+   * @param maxConnectionsPerHost maximum number of requests to the same host at the same time
+   */
+  public HttpTransport(int connectTimeout, int readTimeout, int maxConnectionsPerHost) {
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+  }
+  
+  /**
+   * Add a component to be notified as each request completes.
+   * 
+   * @param listener component to notify
+   */
+  public void addListener(HttpTransportListener listener) {
+    listeners.add(listener);
+  }
+  
+  /**
+   * Remove a component that was being notified as each request completes.
+   * 
+   * @param listener component to remove
+   */
+  public void removeListener(HttpTransportListener listener) {
+    listeners.remove(listener);
+  }
+  
+  /**
+   * Get the total number of requests made.
+   * 
+   * @return number of requests
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+  
+  /**
+   * Get the total number of bytes read from the network.
+   * 
+   * @return number of bytes, before any decompression
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+  
+  /**
+   * Get the total time spent waiting for response headers.
+   * 
+   * @return latency, in milliseconds
+   */
+  public long getTotalLatency() {
+    return totalLatency.get();
+  }
+  
+  /**
+   * Make a request.
+   * 
+   * @param <T> type of result
+   * @param address address of the resource
+   * @param validators cache validators for a conditional request, may be <code>null</code>
+   * @param handler component to process the response
+   * @return result from the handler
+   * @throws IOException if the request failed or the response could not be processed
+   */
+  public <T> T get(String address, CacheValidators validators, HttpResponseHandler<T> handler) throws IOException {
+    return get(address, validators, null, handler);
+  }
+  
+  /**
+   * Make a request, recording its progress.
+   * <p>
+   * The progress is set to fetching while waiting for the response and to
+   * parsing once the response arrives, and the bytes received are added to it
+   * as they arrive.
+   * 
+   * @param <T> type of result
+   * @param address address of the resource
+   * @param validators cache validators for a conditional request, may be <code>null</code>
+   * @param progress progress record to update, may be <code>null</code>
+   * @param handler component to process the response
+   * @return result from the handler
+   * @throws IOException if the request failed or the response could not be processed
+   */
+  public <T> T get(String address, CacheValidators validators, DirectoryProgress progress, HttpResponseHandler<T> handler) throws IOException {
+    if(progress != null && !progress.isFinished()) {
+      progress.setState(DirectoryState.FETCHING);
+    }
+    URL url = new URL(address);
+    Semaphore permits = getHostPermits(url.getHost());
+    try {
+      permits.acquire();
+    }
+    catch(InterruptedException e) {
+      throw new InterruptedIOException("Interrupted waiting for a connection to " + url.getHost());
+    }
+    long started = System.currentTimeMillis();
+    long latency = -1;
+    int status = -1;
+    CountingInputStream counter = null;
+    InputStream in = null;
+    try {
+      HttpURLConnection urlConnection = (HttpURLConnection)url.openConnection();
+      urlConnection.setConnectTimeout(connectTimeout);
+      urlConnection.setReadTimeout(readTimeout);
+      urlConnection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+      if(validators != null) {
+        if(validators.getEntityTag() != null) {
+          urlConnection.setRequestProperty("If-None-Match", validators.getEntityTag());
+        }
+        if(validators.getLastModified() != null) {
+          urlConnection.setRequestProperty("If-Modified-Since", validators.getLastModified());
+        }
+      }
+      status = urlConnection.getResponseCode();
+      latency = System.currentTimeMillis() - started;
+      if(status >= 400) {
+        // Drain the error body so the connection can still be re-used
+        InputStream errorStream = urlConnection.getErrorStream();
+        if(errorStream != null) {
+          counter = new CountingInputStream(errorStream, null);
+          if(!drain(counter)) {
+            urlConnection.disconnect();
+          }
+          counter.close();
+        }
+        throw new HttpStatusException(status, address);
+      }
+      CacheValidators responseValidators = new CacheValidators(urlConnection.getHeaderField("ETag"), urlConnection.getHeaderField("Last-Modified"));
+      if(progress != null && !progress.isFinished()) {
+        progress.setState(DirectoryState.PARSING);
+      }
+      counter = new CountingInputStream(urlConnection.getInputStream(), progress);
+      String encoding = urlConnection.getContentEncoding();
+      if("gzip".equalsIgnoreCase(encoding)) {
+        in = new GZIPInputStream(counter, 8192);
+      }
+      else if("deflate".equalsIgnoreCase(encoding)) {
+        in = DeflateInputStream.open(counter, 8192);
+      }
+      else {
+        in = counter;
+      }
+      T result = handler.handle(new HttpResponse(status, urlConnection.getContentType(), responseValidators, in));
+      // Drain anything the handler did not read so the connection can be 
+      // re-used, unless there is too much of it (or it never ends)
+      if(!drain(counter)) {
+        urlConnection.disconnect();
+      }
+      return result;
+    }
+    finally {
+      if(in != null) {
+        try {
+          in.close();
+        }
+        catch(IOException e) {
+        }
+      }
+      else if(counter != null) {
+        try {
+          counter.close();
+        }
+        catch(IOException e) {
+        }
+      }
+      permits.release();
+      exchangeCompleted(new HttpExchange(address, status, counter != null ? counter.getCount() : 0, latency, System.currentTimeMillis() - started));
+    }
+  }
+  
+  private Semaphore getHostPermits(String host) {
+    Semaphore permits = hostPermits.get(host);
+    if(permits == null) {
+      Semaphore newPermits = new Semaphore(maxConnectionsPerHost, true);
+      permits = hostPermits.putIfAbsent(host, newPermits);
+      if(permits == null) {
+        permits = newPermits;
+      }
+    }
+    return permits;
+  }
+  
+  /**
+   * Read the rest of a response body, up to a limit.
+   * 
+   * @param in body to drain
+   * @return <code>true</code> if the whole body was read; <code>false</code> if the limit was reached first
+   * @throws IOException if the body could not be read
+   */
+  private boolean drain(InputStream in) throws IOException {
+    byte[] buffer = new byte[4096];
+    int remaining = MAX_DRAIN_LENGTH;
+    int read;
+    while((read = in.read(buffer, 0, Math.min(buffer.length, remaining + 1))) != -1) {
+      remaining -= read;
+      if(remaining < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private void exchangeCompleted(HttpExchange exchange) {
+    requestCount.incrementAndGet();
+    bytesRead.addAndGet(exchange.getBytesRead());
+    if(exchange.getLatency() > 0) {
+      totalLatency.addAndGet(exchange.getLatency());
+    }
+    for(HttpTransportListener listener : listeners) {
+      listener.exchangeCompleted(exchange);
+    }
+  }
+}
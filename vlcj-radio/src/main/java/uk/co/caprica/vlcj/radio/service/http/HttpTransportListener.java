@@ -0,0 +1,36 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+/**
+ * Specification for a component interested in the requests made through an
+ * HTTP transport.
+ * <p>
+ * Notifications are sent from the thread that made the request.
+ */
+public interface HttpTransportListener {
+
+  /**
+   * A request completed, successfully or not.
+   * 
+   * @param exchange statistics for the request
+   */
+  void exchangeCompleted(HttpExchange exchange);
+}
@@ -47,6 +47,15 @@ public class IcecastDirectory implements Directory {
   public IcecastDirectory() {
   }
   
+  /**
+   * Create a directory.
+   * 
+   * @param entries directory entries
+   */
+  public IcecastDirectory(List<IcecastDirectoryEntry> entries) {
+    this.entries = entries;
+  }
+  
   @Override
   public List<? extends DirectoryEntry> entries() {
     return Collections.unmodifiableList(entries);
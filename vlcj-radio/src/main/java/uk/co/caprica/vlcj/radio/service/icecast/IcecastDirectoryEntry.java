@@ -22,6 +22,7 @@ package uk.co.caprica.vlcj.radio.service.icecast;
 import org.simpleframework.xml.Element;
 
 import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.SortKey;
 
 /**
  * Implementation of a directory entry.
@@ -31,7 +32,7 @@ public class IcecastDirectoryEntry implements DirectoryEntry {
   /**
    * Name of the station.
    */
-  @Element(name = "server_name")
+  @Element(required = false, name = "server_name")
   private String name;
   
   /**
@@ -43,31 +44,31 @@ public class IcecastDirectoryEntry implements DirectoryEntry {
   /**
    * The (media) type of the server.
    */
-  @Element(name = "server_type")
+  @Element(required = false, name = "server_type")
   private String type;
   
   /**
    * Bit-rate of the stream.
    */
-  @Element(name = "bitrate")
+  @Element(required = false, name = "bitrate")
   private String bitRate;
   
   /**
    * Number of audio channels in the stream.
    */
-  @Element
+  @Element(required = false)
   private int channels;
   
   /**
    * Sample rate of the stream.
    */
-  @Element(name = "samplerate")
+  @Element(required = false, name = "samplerate")
   private int sampleRate;
   
   /**
    * Genre.
    */
-  @Element
+  @Element(required = false)
   private String genre;
   
   /**
@@ -76,6 +77,35 @@ public class IcecastDirectoryEntry implements DirectoryEntry {
   @Element(required = false, name = "current_song")
   private String nowPlaying;
   
+  /**
+   * Default constructor (required for XML binding).
+   */
+  public IcecastDirectoryEntry() {
+  }
+  
+  /**
+   * Create a directory entry.
+   * 
+   * @param name station name
+   * @param url listen address
+   * @param type type of media
+   * @param bitRate bit-rate of the stream
+   * @param channels number of audio channels
+   * @param sampleRate sample rate of the stream
+   * @param genre genre
+   * @param nowPlaying currently playing item
+   */
+  public IcecastDirectoryEntry(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+    this.name = name;
+    this.url = url;
+    this.type = type;
+    this.bitRate = bitRate;
+    this.channels = channels;
+    this.sampleRate = sampleRate;
+    this.genre = genre;
+    this.nowPlaying = nowPlaying;
+  }
+  
   @Override
   public String getDirectory() {
     return "Icecast";
@@ -123,7 +153,7 @@ public class IcecastDirectoryEntry implements DirectoryEntry {
 
   @Override
   public int compareTo(DirectoryEntry o) {
-    return name.compareTo(o.getName());
+    return SortKey.compareValues(name, o.getName());
   }
 
   @Override
@@ -0,0 +1,248 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.icecast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+
+/**
+ * Streaming parser for the Icecast "yp.xml" directory.
+ * <p>
+ * The directory is read with a pull-parser one &lt;entry&gt; element at a time,
+ * so the parser itself only ever holds the current entry and the current 
+ * batch - elements that are not mapped to a directory entry are skipped 
+ * without being materialised.
+ * <p>
+ * Completed entries are reported to the request in batches while the rest of
+ * the document is still being read.
+ */
+public class IcecastDirectoryParser {
+
+  /**
+   * Default number of entries to report in each batch.
+   */
+  private static final int DEFAULT_BATCH_SIZE = 500;
+  
+  /**
+   * Factory for pull-parsers.
+   */
+  private final XMLInputFactory inputFactory;
+  
+  /**
+   * Number of entries to report in each batch.
+   */
+  private final int batchSize;
+  
+  /**
+   * Dictionary used to share the values that repeat across entries.
+   */
+  private final ValueDictionary dictionary = ValueDictionary.shared();
+  
+  /**
+   * Create a parser.
+   */
+  public IcecastDirectoryParser() {
+    this(DEFAULT_BATCH_SIZE);
+  }
+  
+  /**
+   * Create a parser.
+   * 
+   * @param batchSize number of entries to report in each batch
+   */
+  public IcecastDirectoryParser(int batchSize) {
+    this.batchSize = batchSize;
+    this.inputFactory = XMLInputFactory.newInstance();
+    this.inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+    this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+  }
+  
+  /**
+   * Parse a directory.
+   * 
+   * @param in stream to read the directory from
+   * @param request request to report batches of entries to
+   * @return directory
+   * @throws XMLStreamException if the directory could not be parsed
+   * @throws IOException if the parse was interrupted
+   */
+  public IcecastDirectory parse(InputStream in, DirectoryRequest request) throws XMLStreamException, IOException {
+    List<IcecastDirectoryEntry> entries = new ArrayList<IcecastDirectoryEntry>(8192);
+    List<IcecastDirectoryEntry> batch = new ArrayList<IcecastDirectoryEntry>(batchSize);
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+    try {
+      while(reader.hasNext()) {
+        if(reader.next() == XMLStreamConstants.START_ELEMENT && "entry".equals(reader.getLocalName())) {
+          if(Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while parsing directory");
+          }
+          IcecastDirectoryEntry entry = parseEntry(reader);
+          entries.add(entry);
+          batch.add(entry);
+          if(batch.size() == batchSize) {
+            request.entriesAvailable(batch);
+            batch = new ArrayList<IcecastDirectoryEntry>(batchSize);
+          }
+        }
+      }
+      request.entriesAvailable(batch);
+    }
+    finally {
+      reader.close();
+    }
+    return new IcecastDirectory(entries);
+  }
+  
+  /**
+   * Parse a single entry.
+   * <p>
+   * On entry the reader is positioned on the &lt;entry&gt; start element, on
+   * exit the reader is positioned on the matching end element.
+   * 
+   * @param reader pull-parser
+   * @return directory entry
+   * @throws XMLStreamException if the entry could not be parsed
+   */
+  private IcecastDirectoryEntry parseEntry(XMLStreamReader reader) throws XMLStreamException {
+    String name = null;
+    String url = null;
+    String type = null;
+    String bitRate = null;
+    int channels = -1;
+    int sampleRate = -1;
+    String genre = null;
+    String nowPlaying = null;
+    while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      String element = reader.getLocalName();
+      if("server_name".equals(element)) {
+        name = elementText(reader);
+      }
+      else if("listen_url".equals(element)) {
+        url = elementText(reader);
+      }
+      else if("server_type".equals(element)) {
+        type = elementText(reader);
+      }
+      else if("bitrate".equals(element)) {
+        bitRate = elementText(reader);
+      }
+      else if("channels".equals(element)) {
+        channels = intValue(elementText(reader));
+      }
+      else if("samplerate".equals(element)) {
+        sampleRate = intValue(elementText(reader));
+      }
+      else if("genre".equals(element)) {
+        genre = elementText(reader);
+      }
+      else if("current_song".equals(element)) {
+        nowPlaying = elementText(reader);
+      }
+      else {
+        skipElement(reader);
+      }
+    }
+    return new IcecastDirectoryEntry(name, url, dictionary.intern(type), dictionary.intern(bitRate), channels, sampleRate, dictionary.intern(genre), nowPlaying);
+  }
+  
+  /**
+   * Get the text content of the current element, skipping any nested 
+   * elements.
+   * 
+   * @param reader pull-parser
+   * @return element text
+   * @throws XMLStreamException if the element could not be parsed
+   */
+  private String elementText(XMLStreamReader reader) throws XMLStreamException {
+    StringBuilder sb = null;
+    int depth = 1;
+    while(depth > 0) {
+      switch(reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+          
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+          
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if(depth == 1) {
+            if(sb == null) {
+              sb = new StringBuilder(reader.getTextLength());
+            }
+            sb.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          }
+          break;
+      }
+    }
+    return sb != null ? sb.toString() : "";
+  }
+
+  /**
+   * Skip the current element and everything inside it.
+   * 
+   * @param reader pull-parser
+   * @throws XMLStreamException if the element could not be parsed
+   */
+  private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while(depth > 0) {
+      switch(reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+          
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+      }
+    }
+  }
+  
+  /**
+   * Convert element text to an integer value.
+   * 
+   * @param value element text
+   * @return integer value, or -1 if the text is not a number
+   */
+  private int intValue(String value) {
+    try {
+      return Integer.parseInt(value.trim());
+    }
+    catch(NumberFormatException e) {
+      return -1;
+    }
+  }
+}
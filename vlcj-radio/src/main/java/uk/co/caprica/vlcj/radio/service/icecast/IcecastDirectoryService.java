@@ -20,23 +20,21 @@
 package uk.co.caprica.vlcj.radio.service.icecast;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
-import org.simpleframework.xml.core.Persister;
+import javax.xml.stream.XMLStreamException;
 
 import uk.co.caprica.vlcj.radio.model.Directory;
-import uk.co.caprica.vlcj.radio.service.DirectoryService;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.RemoteDirectoryService;
+import uk.co.caprica.vlcj.radio.service.http.HttpResponse;
+import uk.co.caprica.vlcj.radio.service.http.HttpResponseHandler;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
 
 /**
  * Implementation of a streaming media station directory service that gets the
  * IceCast server directory from xiph.org.
  */
-public class IcecastDirectoryService implements DirectoryService {
+public class IcecastDirectoryService implements RemoteDirectoryService {
 
   /**
    * Remote directory URL. 
@@ -44,52 +42,53 @@ public class IcecastDirectoryService implements DirectoryService {
   private static final String DIRECTORY_URL = "http://dir.xiph.org/yp.xml";
   
   /**
-   * XML binding parser.
+   * Shared HTTP transport.
    */
-  private final Persister persister;
+  private final HttpTransport httpTransport;
+  
+  /**
+   * Streaming directory parser.
+   */
+  private final IcecastDirectoryParser parser;
   
   /**
    * Create a new directory service component.
+   * 
+   * @param httpTransport shared HTTP transport
    */
-  public IcecastDirectoryService() {
-    this.persister = new Persister();
+  public IcecastDirectoryService(HttpTransport httpTransport) {
+    this.httpTransport = httpTransport;
+    this.parser = new IcecastDirectoryParser();
   }
 
   @Override
   public Directory directory() {
-    HttpURLConnection urlConnection = null;
-    InputStream in = null;
+    return directory(new DirectoryRequest(null));
+  }
+  
+  @Override
+  public Directory directory(final DirectoryRequest request) {
     try {
-      URL url = new URL(DIRECTORY_URL);
-      urlConnection = (HttpURLConnection)url.openConnection();
-      // The IceCast directory can be very big, but it can be compressed
-      urlConnection.setRequestProperty("Accept-Encoding", "gzip, deflate");
-      String encoding = urlConnection.getContentEncoding();
-      if("gzip".equalsIgnoreCase(encoding)) {
-        in = new GZIPInputStream(urlConnection.getInputStream());
-      }
-      else if("deflate".equalsIgnoreCase(encoding)) {
-        in = new InflaterInputStream(urlConnection.getInputStream(), new Inflater(true));
-      }
-      else {
-        in = urlConnection.getInputStream();
-      }
-      return persister.read(IcecastDirectory.class, in);
+      // If there is already a copy of the directory, only get it if it changed
+      return httpTransport.get(DIRECTORY_URL, request.getValidators(), request.getProgress(), new HttpResponseHandler<Directory>() {
+        @Override
+        public Directory handle(HttpResponse response) throws IOException {
+          if(response.isNotModified()) {
+            request.setNotModified();
+            return null;
+          }
+          request.setResponseValidators(response.getValidators());
+          try {
+            return parser.parse(response.getInputStream(), request);
+          }
+          catch(XMLStreamException e) {
+            throw new IOException("Failed to parse directory: " + e.getMessage(), e);
+          }
+        }
+      });
     }
     catch(Exception e) {
       throw new RuntimeException("Failed to get directory", e);
     }
-    finally {
-      if(in != null) {
-        try {
-          in.close();
-        }
-        catch(IOException e) {
-        }
-      }
-      if(urlConnection != null) {
-        urlConnection.disconnect();
-      }
-    }
   }
-}
\ No newline at end of file
+}
@@ -19,7 +19,13 @@
 
 package uk.co.caprica.vlcj.radio.service.indymedia;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
 import uk.co.caprica.vlcj.radio.service.CachedDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryBuilder;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
 
 /**
  * Implementation of a directory service that gets the directory from a local
@@ -29,8 +35,28 @@ public class CachedIndymediaDirectoryService extends CachedDirectoryService {
 
   /**
    * Create a directory service component.
+   * 
+   * @param stationStore store shared by all of the cached directories
    */
-  public CachedIndymediaDirectoryService() {
-    super(IndymediaDirectory.class, "IndymediaDirectory.xml");
+  public CachedIndymediaDirectoryService(StationStore stationStore) {
+    super(stationStore, IndymediaDirectory.class, "IndymediaDirectory.xml");
+  }
+  
+  @Override
+  protected DirectoryBuilder newDirectoryBuilder() {
+    return new DirectoryBuilder() {
+      
+      private final List<IndymediaDirectoryEntry> entries = new ArrayList<IndymediaDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new IndymediaDirectoryEntry(name, url, type, bitRate, genre));
+      }
+
+      @Override
+      public Directory build() {
+        return new IndymediaDirectory(entries);
+      }
+    };
   }
 }
@@ -21,15 +21,27 @@ package uk.co.caprica.vlcj.radio.service.indymedia;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import uk.co.caprica.vlcj.radio.model.Directory;
-import uk.co.caprica.vlcj.radio.service.DirectoryService;
-
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.html.HtmlAnchor;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
-import com.gargoylesoftware.htmlunit.html.HtmlTableCell;
-import com.gargoylesoftware.htmlunit.html.HtmlTableRow;
+import uk.co.caprica.vlcj.radio.service.DirectoryProgress;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.RemoteDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+import uk.co.caprica.vlcj.radio.service.html.HtmlClient;
+import uk.co.caprica.vlcj.radio.service.html.HtmlElement;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRow;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRowExtractor;
+import uk.co.caprica.vlcj.radio.service.html.HtmlSelector;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
 
 /**
  * Implementation of a streaming media station directory service that gets the
@@ -37,54 +49,248 @@ import com.gargoylesoftware.htmlunit.html.HtmlTableRow;
  * <p>
  * There is no web-service API or XML feed so this implementation scrapes all 
  * of the pages directly.
+ * <p>
+ * The first page is used to find the index of the last page, then the 
+ * remaining pages are fetched concurrently. If the last page can not be found,
+ * pages are instead fetched speculatively a few at a time until a page without
+ * a following page is found. Either way the entries are returned, and 
+ * reported to the request page by page, in page order.
+ * <p>
+ * The directory is spread over many pages so requests are never conditional.
  */
-public class IndymediaDirectoryService implements DirectoryService {
+public class IndymediaDirectoryService implements RemoteDirectoryService {
 
+  /**
+   * Remote directory URL, without the page index.
+   */
+  private static final String DIRECTORY_URL = "http://radio.indymedia.org/en/yp?page=";
+  
+  /**
+   * Maximum number of pages to fetch at the same time.
+   */
+  private static final int MAX_CONCURRENT_PAGES = 4;
+  
+  /**
+   * Pattern to extract the page index from a pager link.
+   */
+  private static final Pattern PAGE_INDEX_PATTERN = Pattern.compile("[?&]page=(\\d+)");
+  
+  /**
+   * Each row of the first table in the main view is a stream.
+   */
+  private static final HtmlRowExtractor STREAMS = new HtmlRowExtractor("div#block-system-main div.view-content table", "> tbody > tr", "> td", 0);
+  
+  /**
+   * Link to the stream in the "listen" cell.
+   */
+  private static final HtmlSelector LISTEN_LINK = HtmlSelector.compile("> a");
+  
+  /**
+   * Pager item present if there is a following page.
+   */
+  private static final HtmlSelector NEXT_PAGE = HtmlSelector.compile("div.item-list > ul.pager > li.pager-next");
+  
+  /**
+   * Pager link to the last page.
+   */
+  private static final HtmlSelector LAST_PAGE_LINK = HtmlSelector.compile("div.item-list > ul.pager > li.pager-last > a");
+  
+  /**
+   * Page client.
+   */
+  private final HtmlClient htmlClient;
+  
+  /**
+   * Threads used to fetch the pages, shared by every request.
+   */
+  private final ExecutorService executorService;
+  
+  /**
+   * Create a new directory service component.
+   * 
+   * @param httpTransport shared HTTP transport
+   */
+  public IndymediaDirectoryService(HttpTransport httpTransport) {
+    this.htmlClient = new HtmlClient(httpTransport);
+    ThreadPoolExecutor executorService = new ThreadPoolExecutor(MAX_CONCURRENT_PAGES, MAX_CONCURRENT_PAGES, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        // A page fetch must not keep the application alive
+        Thread thread = new Thread(r, "indymedia-page");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    // The directory is refreshed rarely, so the threads are not kept idle
+    executorService.allowCoreThreadTimeOut(true);
+    this.executorService = executorService;
+  }
+  
   @Override
   public Directory directory() {
+    return directory(new DirectoryRequest(null));
+  }
+  
+  @Override
+  public Directory directory(DirectoryRequest request) {
+    List<Future<DirectoryPage>> pages = new ArrayList<Future<DirectoryPage>>();
     try {
-      WebClient webClient = new WebClient();
-      webClient.setCssEnabled(false);
-      webClient.setJavaScriptEnabled(false);
-
-      boolean finished = false;
-      
-      int pageIndex = 0;
-      
+      DirectoryPage firstPage = getPage(0, request.getProgress());
       List<IndymediaDirectoryEntry> entries = new ArrayList<IndymediaDirectoryEntry>(200);
-      while(!finished) {
-        HtmlPage page = webClient.getPage("http://radio.indymedia.org/en/yp?page=" + pageIndex++);
-
-        List<?> elements = page.getByXPath("//div[@id='block-system-main']//div[@class='view-content']//table[1]/tbody/tr");
-        for(Object element : elements) {
-          HtmlTableRow tr = (HtmlTableRow)element;
-          
-          @SuppressWarnings("unchecked")
-          List<HtmlTableCell> tds = (List<HtmlTableCell>)tr.getByXPath("td");
-          
-          String name = tds.get(0).asText();
-          String genre = tds.get(1).asText();
-          String type = tds.get(3).asText();
-          String bitRate = tds.get(4).asText();
-  
-          HtmlTableCell listenCell = tds.get(6);
-          HtmlAnchor a = (HtmlAnchor)listenCell.getByXPath("a[1]").get(0);
-          String url = a.getAttribute("href");
-          
-          entries.add(new IndymediaDirectoryEntry(name, url, type, bitRate, genre)); 
+      entries.addAll(firstPage.entries);
+      request.entriesAvailable(firstPage.entries);
+      if(firstPage.hasNextPage) {
+        if(firstPage.lastPageIndex > 0) {
+          getPages(pages, firstPage.lastPageIndex, request, entries);
         }
-        
-        List<?> nextElement = page.getByXPath("//div[@class='item-list']/ul[@class='pager']/li[contains(@class,'pager-next')]");
-        if(nextElement == null || nextElement.isEmpty()) {
-          finished = true;
+        else {
+          probePages(pages, request, entries);
         }
       }
-
-      webClient.closeAllWindows();
       return new IndymediaDirectory(entries);
     }
     catch(Exception e) {
       throw new RuntimeException("Failed to get directory", e);
     }
+    finally {
+      // Abandon any pages still being fetched, for example after a timeout 
+      // interrupted the request
+      for(Future<DirectoryPage> page : pages) {
+        page.cancel(true);
+      }
+    }
+  }
+  
+  /**
+   * Get all of the pages after the first page when the index of the last page
+   * is known.
+   * 
+   * @param pages collection to add the pages to as they are submitted
+   * @param lastPageIndex index of the last page
+   * @param request directory request
+   * @param entries collection to add the entries to, in page order
+   * @throws Exception if a page could not be fetched
+   */
+  private void getPages(List<Future<DirectoryPage>> pages, int lastPageIndex, DirectoryRequest request, List<IndymediaDirectoryEntry> entries) throws Exception {
+    for(int pageIndex = 1; pageIndex <= lastPageIndex; pageIndex++) {
+      pages.add(executorService.submit(new PageCallable(pageIndex, request.getProgress())));
+    }
+    for(Future<DirectoryPage> page : pages) {
+      DirectoryPage directoryPage = page.get();
+      entries.addAll(directoryPage.entries);
+      request.entriesAvailable(directoryPage.entries);
+    }
+  }
+  
+  /**
+   * Get all of the pages after the first page when the index of the last page
+   * is not known.
+   * <p>
+   * Pages are fetched a few at a time ahead of the page currently being 
+   * processed, any pages fetched past the last page are discarded.
+   * 
+   * @param pages collection to add the pages to as they are submitted
+   * @param request directory request
+   * @param entries collection to add the entries to, in page order
+   * @throws Exception if a page could not be fetched
+   */
+  private void probePages(List<Future<DirectoryPage>> pages, DirectoryRequest request, List<IndymediaDirectoryEntry> entries) throws Exception {
+    boolean finished = false;
+    int pageIndex = 1;
+    while(!finished) {
+      List<Future<DirectoryPage>> batch = new ArrayList<Future<DirectoryPage>>(MAX_CONCURRENT_PAGES);
+      for(int i = 0; i < MAX_CONCURRENT_PAGES; i++) {
+        batch.add(executorService.submit(new PageCallable(pageIndex++, request.getProgress())));
+      }
+      pages.addAll(batch);
+      for(Future<DirectoryPage> page : batch) {
+        if(!finished) {
+          DirectoryPage directoryPage = page.get();
+          entries.addAll(directoryPage.entries);
+          request.entriesAvailable(directoryPage.entries);
+          finished = !directoryPage.hasNextPage;
+        }
+        else {
+          page.cancel(true);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Get a single page of the directory.
+   * 
+   * @param pageIndex index of the page, starting at zero
+   * @param progress progress record to update, may be <code>null</code>
+   * @return page
+   * @throws Exception if the page could not be fetched
+   */
+  private DirectoryPage getPage(int pageIndex, DirectoryProgress progress) throws Exception {
+    HtmlElement document = htmlClient.getDocument(DIRECTORY_URL + pageIndex, progress);
+
+    List<IndymediaDirectoryEntry> entries = new ArrayList<IndymediaDirectoryEntry>(50);
+    ValueDictionary dictionary = ValueDictionary.shared();
+    for(HtmlRow row : STREAMS.extract(document)) {
+      String name = row.getText(0);
+      String genre = dictionary.intern(row.getText(1));
+      String type = dictionary.intern(row.getText(3));
+      String bitRate = dictionary.intern(row.getText(4));
+
+      HtmlElement a = LISTEN_LINK.selectFirst(row.getCell(6));
+      String url = a.getAttribute("href");
+      
+      entries.add(new IndymediaDirectoryEntry(name, url, type, bitRate, genre)); 
+    }
+    
+    boolean hasNextPage = NEXT_PAGE.selectFirst(document) != null;
+    
+    int lastPageIndex = -1;
+    HtmlElement lastPageLink = LAST_PAGE_LINK.selectFirst(document);
+    if(lastPageLink != null && lastPageLink.getAttribute("href") != null) {
+      Matcher matcher = PAGE_INDEX_PATTERN.matcher(lastPageLink.getAttribute("href"));
+      if(matcher.find()) {
+        lastPageIndex = Integer.parseInt(matcher.group(1));
+      }
+    }
+    
+    return new DirectoryPage(entries, hasNextPage, lastPageIndex);
+  }
+  
+  /**
+   * Task to fetch a single page.
+   */
+  private class PageCallable implements Callable<DirectoryPage> {
+
+    private final int pageIndex;
+    
+    private final DirectoryProgress progress;
+    
+    private PageCallable(int pageIndex, DirectoryProgress progress) {
+      this.pageIndex = pageIndex;
+      this.progress = progress;
+    }
+    
+    @Override
+    public DirectoryPage call() throws Exception {
+      return getPage(pageIndex, progress);
+    }
+  }
+  
+  /**
+   * A single page of the directory.
+   */
+  private static class DirectoryPage {
+    
+    private final List<IndymediaDirectoryEntry> entries;
+    
+    private final boolean hasNextPage;
+    
+    private final int lastPageIndex;
+    
+    private DirectoryPage(List<IndymediaDirectoryEntry> entries, boolean hasNextPage, int lastPageIndex) {
+      this.entries = entries;
+      this.hasNextPage = hasNextPage;
+      this.lastPageIndex = lastPageIndex;
+    }
   }
 }
@@ -23,14 +23,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 import uk.co.caprica.vlcj.radio.model.Directory;
-import uk.co.caprica.vlcj.radio.service.DirectoryService;
-
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.html.HtmlAnchor;
-import com.gargoylesoftware.htmlunit.html.HtmlBold;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
-import com.gargoylesoftware.htmlunit.html.HtmlTableCell;
-import com.gargoylesoftware.htmlunit.html.HtmlTableRow;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.RemoteDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+import uk.co.caprica.vlcj.radio.service.html.HtmlClient;
+import uk.co.caprica.vlcj.radio.service.html.HtmlElement;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRow;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRowExtractor;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
+import uk.co.caprica.vlcj.radio.service.html.HtmlSelector;
 
 /**
  * Implementation of a streaming media station directory service that gets the
@@ -44,53 +45,79 @@ import com.gargoylesoftware.htmlunit.html.HtmlTableRow;
  * these stations therefore can not be played directly and require special
  * handling.
  */
-public class ListenLiveDirectoryService implements DirectoryService {
+public class ListenLiveDirectoryService implements RemoteDirectoryService {
 
+  /**
+   * Remote directory URL.
+   */
+  private static final String DIRECTORY_URL = "http://www.listenlive.eu/uk.html";
+  
+  /**
+   * Each row of the station table, after the header row, is a station.
+   */
+  private static final HtmlRowExtractor STATIONS = new HtmlRowExtractor("table#thetable3", "> tbody > tr", "> td", 1);
+  
+  /**
+   * Station name in the first cell.
+   */
+  private static final HtmlSelector STATION_NAME = HtmlSelector.compile("a b");
+  
+  /**
+   * Stream links in the bit-rate cell.
+   */
+  private static final HtmlSelector STREAM_LINKS = HtmlSelector.compile("> a");
+  
+  /**
+   * Page client.
+   */
+  private final HtmlClient htmlClient;
+  
+  /**
+   * Create a new directory service component.
+   * 
+   * @param httpTransport shared HTTP transport
+   */
+  public ListenLiveDirectoryService(HttpTransport httpTransport) {
+    this.htmlClient = new HtmlClient(httpTransport);
+  }
+  
   @Override
   public Directory directory() {
+    return directory(new DirectoryRequest(null));
+  }
+  
+  @Override
+  public Directory directory(DirectoryRequest request) {
     try {
-      WebClient webClient = new WebClient();
-      webClient.setCssEnabled(false);
-      webClient.setJavaScriptEnabled(false);
-      
-      HtmlPage page = webClient.getPage("http://www.listenlive.eu/uk.html");
+      HtmlElement document = htmlClient.getDocument(DIRECTORY_URL, request);
+      if(document == null) {
+        return null;
+      }
 
       List<ListenLiveDirectoryEntry> entries = new ArrayList<ListenLiveDirectoryEntry>(200);
+      ValueDictionary dictionary = ValueDictionary.shared();
 
-      List<?> elements = page.getByXPath("//table[@id='thetable3'][1]/tbody/tr[position()>1]");
-      for(Object element : elements) {
-        HtmlTableRow tr = (HtmlTableRow)element;
+      for(HtmlRow row : STATIONS.extract(document)) {
+        String name = STATION_NAME.selectFirst(row.getCell(0)).getText();
         
-        List<?> tds = tr.getByXPath("td");
-        HtmlTableCell td;
-        td = (HtmlTableCell)tds.get(0);
-        String name = ((HtmlBold)td.getByXPath("descendant::a/b").get(0)).asText();
-        
-        td = (HtmlTableCell)tds.get(4);
-        String genre = td.asText();
+        String genre = dictionary.intern(row.getText(4));
 
         // Individual links/bit-rates all in the same table cell
-        td = (HtmlTableCell)tds.get(3);
-        
-        List<?> anchors = td.getByXPath("a");
-        for(int i = 0; i < anchors.size(); i++) {
-          HtmlAnchor a = (HtmlAnchor)anchors.get(i);
-          String bitRate = a.asText();
+        for(HtmlElement a : STREAM_LINKS.select(row.getCell(3))) {
+          String bitRate = dictionary.intern(a.getText());
           String url = a.getAttribute("href");
           
-          // FIXME
-          // for now these will be removed
-          if(!url.startsWith("javascript")) {
+          // A "javascript:" link opens the station's own player page rather
+          // than a stream, so it can not be played and is left out
+          if(url != null && !url.startsWith("javascript")) {
             entries.add(new ListenLiveDirectoryEntry(name, url, "", bitRate, genre));
           }
         }
       }
       
-      webClient.closeAllWindows();
       return new ListenLiveDirectory(entries);
     }
     catch(Exception e) {
-      e.printStackTrace();
       throw new RuntimeException("Failed to get directory", e);
     }
   }
@@ -19,7 +19,13 @@
 
 package uk.co.caprica.vlcj.radio.service.musicradio;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
 import uk.co.caprica.vlcj.radio.service.CachedDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.DirectoryBuilder;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
 
 /**
  * Implementation of a directory service that gets the directory from a local
@@ -28,9 +34,29 @@ import uk.co.caprica.vlcj.radio.service.CachedDirectoryService;
 public class CachedMusicRadioDirectoryService extends CachedDirectoryService {
 
   /**
-   * Create a directory service component. 
+   * Create a directory service component.
+   * 
+   * @param stationStore store shared by all of the cached directories
    */
-  public CachedMusicRadioDirectoryService() {
-    super(MusicRadioDirectory.class, "MusicRadio.xml");
+  public CachedMusicRadioDirectoryService(StationStore stationStore) {
+    super(stationStore, MusicRadioDirectory.class, "MusicRadio.xml");
+  }
+  
+  @Override
+  protected DirectoryBuilder newDirectoryBuilder() {
+    return new DirectoryBuilder() {
+      
+      private final List<MusicRadioDirectoryEntry> entries = new ArrayList<MusicRadioDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new MusicRadioDirectoryEntry(name, url, type, genre));
+      }
+
+      @Override
+      public Directory build() {
+        return new MusicRadioDirectory(entries);
+      }
+    };
   }
 }
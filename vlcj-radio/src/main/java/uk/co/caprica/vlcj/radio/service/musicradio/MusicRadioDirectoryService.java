@@ -23,56 +23,91 @@ import java.util.ArrayList;
 import java.util.List;
 
 import uk.co.caprica.vlcj.radio.model.Directory;
-import uk.co.caprica.vlcj.radio.service.DirectoryService;
-
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.html.HtmlAnchor;
-import com.gargoylesoftware.htmlunit.html.HtmlDivision;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
-import com.gargoylesoftware.htmlunit.html.HtmlTableDataCell;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.RemoteDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+import uk.co.caprica.vlcj.radio.service.html.HtmlClient;
+import uk.co.caprica.vlcj.radio.service.html.HtmlElement;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRow;
+import uk.co.caprica.vlcj.radio.service.html.HtmlRowExtractor;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
+import uk.co.caprica.vlcj.radio.service.html.HtmlSelector;
 
 /**
  * Implementation of a streaming media station directory service that gets the
  * server directory from the musicradio.com web site.
  */
-public class MusicRadioDirectoryService implements DirectoryService {
+public class MusicRadioDirectoryService implements RemoteDirectoryService {
 
   private static final String DIRECTORY_URL = "http://media-ice.musicradio.com";
 
+  /**
+   * Each news content block is a stream, the cells are the stream data.
+   */
+  private static final HtmlRowExtractor STREAMS = new HtmlRowExtractor(null, "div.newscontent", "> table > tbody > tr > td.streamdata", 0);
+  
+  /**
+   * First row of the stream header.
+   */
+  private static final HtmlSelector STREAM_HEADER_ROW = HtmlSelector.compile("> div.streamheader > table > tbody > tr");
+  
+  /**
+   * Cells of a row.
+   */
+  private static final HtmlSelector CELLS = HtmlSelector.compile("> td");
+  
+  /**
+   * Link to the stream.
+   */
+  private static final HtmlSelector STREAM_LINK = HtmlSelector.compile("> a");
+  
+  /**
+   * Page client.
+   */
+  private final HtmlClient htmlClient;
+  
+  /**
+   * Create a new directory service component.
+   * 
+   * @param httpTransport shared HTTP transport
+   */
+  public MusicRadioDirectoryService(HttpTransport httpTransport) {
+    this.htmlClient = new HtmlClient(httpTransport);
+  }
+  
   @Override
   public Directory directory() {
+    return directory(new DirectoryRequest(null));
+  }
+  
+  @Override
+  public Directory directory(DirectoryRequest request) {
     try {
-      WebClient webClient = new WebClient();
-      webClient.setCssEnabled(false);
-      webClient.setJavaScriptEnabled(false);
-      
-      HtmlPage page = webClient.getPage(DIRECTORY_URL);
+      HtmlElement document = htmlClient.getDocument(DIRECTORY_URL, request);
+      if(document == null) {
+        return null;
+      }
 
       List<MusicRadioDirectoryEntry> entries = new ArrayList<MusicRadioDirectoryEntry>(200);
+      ValueDictionary dictionary = ValueDictionary.shared();
 
-      List<?> elements = page.getByXPath("//div[@class='newscontent']");
-      for(Object element : elements) {
-        HtmlDivision div = (HtmlDivision)element; 
-
-        HtmlAnchor streamLink = (HtmlAnchor)div.getByXPath("div[@class='streamheader']/table/tbody/tr[1]/td[2]/a[1]").get(0);
-        
-        List<?> tds = div.getByXPath("table/tbody/tr/td[@class='streamdata']");
+      for(HtmlRow row : STREAMS.extract(document)) {
+        HtmlElement headerRow = STREAM_HEADER_ROW.selectFirst(row.getElement());
+        HtmlElement streamLink = STREAM_LINK.selectFirst(CELLS.select(headerRow).get(1));
         
-        String name = ((HtmlTableDataCell)tds.get(0)).asText();
+        String name = row.getText(0);
         String url = DIRECTORY_URL + streamLink.getAttribute("href");
-        String type = ((HtmlTableDataCell)tds.get(2)).asText();
-        String genre = ((HtmlTableDataCell)tds.get(3)).asText();
+        String type = dictionary.intern(row.getText(2));
+        String genre = dictionary.intern(row.getText(3));
         
         MusicRadioDirectoryEntry entry = new MusicRadioDirectoryEntry(name, url, type, genre);
         entries.add(entry);
       }
       
-      webClient.closeAllWindows();
       return new MusicRadioDirectory(entries);
     }
     catch(Exception e) {
-      e.printStackTrace();
       throw new RuntimeException("Failed to get directory", e);
     }
   }
-}
\ No newline at end of file
+}
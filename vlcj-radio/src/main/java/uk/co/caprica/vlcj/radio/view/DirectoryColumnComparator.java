@@ -0,0 +1,210 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.view;
+
+import java.util.Comparator;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.model.SortKey;
+import uk.co.caprica.vlcj.radio.service.cache.BitRates;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+
+/**
+ * Comparator for sorting the directory table on a column.
+ * <p>
+ * Entries are compared on their precomputed keys rather than on the values 
+ * shown in the table, so sorting does not build the column values for both
+ * entries on every comparison:
+ * <ul>
+ *   <li>the directory, genre and type are compared on their dictionary codes,
+ *       so entries with the same value are found to be equal without looking
+ *       at the values, otherwise on the ranked sort keys of the values in the
+ *       dictionary - a directory with no code is compared on its search 
+ *       key;</li>
+ *   <li>the name and address are compared on their ranks for entries from 
+ *       the same directory, otherwise on their search keys;</li>
+ *   <li>the numeric columns are compared as ints.</li>
+ * </ul>
+ * Text is compared ignoring case, and entries with no value for the column 
+ * come last, as they do for the numeric columns. 
+ * <p>
+ * An entry that has no keys, one that was added to the table while its 
+ * directory was still loading, is compared on its values, in the same order
+ * as the keys - its values are not added to the dictionary.
+ * <p>
+ * The comparator takes objects rather than directory entries so the only 
+ * type check made on every comparison is the one against 
+ * {@link IndexedEntry} - a comparator of directory entries is also called 
+ * through a cast to {@link DirectoryEntry}, and a class checked against two 
+ * different interfaces in turn defeats the JVM's cache of the last 
+ * interface checked, making each check a search through its interfaces.
+ */
+final class DirectoryColumnComparator implements Comparator<Object> {
+
+  /**
+   * Table columns, as in the table format.
+   */
+  private static final int DIRECTORY = 0;
+  private static final int NAME = 1;
+  private static final int GENRE = 2;
+  private static final int ADDRESS = 3;
+  private static final int TYPE = 4;
+  private static final int BIT_RATE = 5;
+  private static final int CHANNELS = 6;
+  private static final int SAMPLE_RATE = 7;
+  
+  /**
+   * Column to compare.
+   */
+  private final int column;
+  
+  /**
+   * Create a comparator.
+   * 
+   * @param column index of the table column to compare
+   */
+  DirectoryColumnComparator(int column) {
+    this.column = column;
+  }
+  
+  @Override
+  public int compare(Object o1, Object o2) {
+    switch(column) {
+      case DIRECTORY:
+        if(o1 instanceof IndexedEntry && o2 instanceof IndexedEntry) {
+          IndexedEntry e1 = (IndexedEntry)o1;
+          IndexedEntry e2 = (IndexedEntry)o2;
+          if(e1.getDirectoryCode() >= 0 && e2.getDirectoryCode() >= 0) {
+            return compareCodes(e1.getDirectoryCode(), e2.getDirectoryCode());
+          }
+          return SortKey.compareKeys(e1.getDirectoryKey(), e2.getDirectoryKey());
+        }
+        return SortKey.compareValues(((DirectoryEntry)o1).getDirectory(), ((DirectoryEntry)o2).getDirectory());
+        
+      case NAME:
+        if(o1 instanceof IndexedEntry && o2 instanceof IndexedEntry) {
+          IndexedEntry e1 = (IndexedEntry)o1;
+          IndexedEntry e2 = (IndexedEntry)o2;
+          if(e1.getRankGroup() != null && e1.getRankGroup() == e2.getRankGroup()) {
+            return compareRanks(e1.getNameRank(), e2.getNameRank());
+          }
+          return SortKey.compareKeys(e1.getNameKey(), e2.getNameKey());
+        }
+        return SortKey.compareValues(((DirectoryEntry)o1).getName(), ((DirectoryEntry)o2).getName());
+        
+      case GENRE:
+        if(o1 instanceof IndexedEntry && o2 instanceof IndexedEntry) {
+          return compareCodes(((IndexedEntry)o1).getGenreCode(), ((IndexedEntry)o2).getGenreCode());
+        }
+        return SortKey.compareValues(((DirectoryEntry)o1).getGenre(), ((DirectoryEntry)o2).getGenre());
+        
+      case ADDRESS:
+        if(o1 instanceof IndexedEntry && o2 instanceof IndexedEntry) {
+          IndexedEntry e1 = (IndexedEntry)o1;
+          IndexedEntry e2 = (IndexedEntry)o2;
+          if(e1.getRankGroup() != null && e1.getRankGroup() == e2.getRankGroup()) {
+            return compareRanks(e1.getUrlRank(), e2.getUrlRank());
+          }
+          return SortKey.compareKeys(e1.getUrlKey(), e2.getUrlKey());
+        }
+        return SortKey.compareValues(((DirectoryEntry)o1).getUrl(), ((DirectoryEntry)o2).getUrl());
+        
+      case TYPE:
+        if(o1 instanceof IndexedEntry && o2 instanceof IndexedEntry) {
+          return compareCodes(((IndexedEntry)o1).getTypeCode(), ((IndexedEntry)o2).getTypeCode());
+        }
+        return SortKey.compareValues(((DirectoryEntry)o1).getType(), ((DirectoryEntry)o2).getType());
+        
+      case BIT_RATE:
+        return compareNumbers(kbps(o1), kbps(o2));
+        
+      case CHANNELS:
+        return compareNumbers(channels(o1), channels(o2));
+        
+      case SAMPLE_RATE:
+        return compareNumbers(sampleRate(o1), sampleRate(o2));
+    }
+    return 0;
+  }
+  
+  /**
+   * Compare two values in the shared dictionary.
+   * 
+   * @param a code of the first value
+   * @param b code of the second value
+   * @return comparison result
+   */
+  private static int compareCodes(int a, int b) {
+    if(a == b) {
+      return 0;
+    }
+    ValueDictionary dictionary = ValueDictionary.shared();
+    return dictionary.getSortKey(a).compareTo(dictionary.getSortKey(b));
+  }
+  
+  /**
+   * Compare two ranks from the same group.
+   * 
+   * @param a first rank
+   * @param b second rank
+   * @return comparison result
+   */
+  private static int compareRanks(int a, int b) {
+    return a < b ? -1 : (a == b ? 0 : 1);
+  }
+  
+  /**
+   * Compare two numbers, with unknown values last.
+   * 
+   * @param a first number, zero or less if it is not known
+   * @param b second number, zero or less if it is not known
+   * @return comparison result
+   */
+  private static int compareNumbers(int a, int b) {
+    if((a > 0) != (b > 0)) {
+      return a > 0 ? -1 : 1;
+    }
+    if(a <= 0) {
+      return 0;
+    }
+    return a < b ? -1 : (a == b ? 0 : 1);
+  }
+  
+  private static int kbps(Object entry) {
+    return entry instanceof IndexedEntry ? ((IndexedEntry)entry).getBitRateKbps() : BitRates.parse(((DirectoryEntry)entry).getBitRate());
+  }
+  
+  private static int channels(Object entry) {
+    return entry instanceof IndexedEntry ? ((IndexedEntry)entry).getChannels() : ((DirectoryEntry)entry).getChannels();
+  }
+  
+  private static int sampleRate(Object entry) {
+    return entry instanceof IndexedEntry ? ((IndexedEntry)entry).getSampleRate() : ((DirectoryEntry)entry).getSampleRate();
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(40);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("column=").append(column).append(']');
+    return sb.toString();
+  }
+}
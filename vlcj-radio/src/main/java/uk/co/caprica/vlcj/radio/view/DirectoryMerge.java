@@ -0,0 +1,271 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.view;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.MergedEntry;
+import ca.odell.glazedlists.EventList;
+
+/**
+ * Merge a refreshed directory into the entries already shown for it.
+ * <p>
+ * The entries for a directory occupy a contiguous range of the event list. 
+ * Old and new entries are matched on their stream URL, entries with the same
+ * URL in the order they occur, and only the differences are applied to the 
+ * list:
+ * <ul>
+ *   <li>entries with a URL that is no longer in the directory are removed;</li>
+ *   <li>entries with a matching URL but different details are replaced in 
+ *       place;</li>
+ *   <li>entries with a new URL are added after the entry that comes before
+ *       them in the new entries, so a range in the same order as the new 
+ *       entries stays in that order - if the orders differ they are added at
+ *       the end of the range instead.</li>
+ * </ul>
+ * Entries that did not change are left alone, so the cost of a refresh is in
+ * proportion to the number of changes rather than the size of the directory,
+ * and the selection and scroll position in the table are kept.
+ * <p>
+ * The caller must hold the event list write lock.
+ */
+public class DirectoryMerge {
+
+  /**
+   * Number of entries added.
+   */
+  private int inserted;
+  
+  /**
+   * Number of entries removed.
+   */
+  private int deleted;
+  
+  /**
+   * Number of entries replaced in place.
+   */
+  private int updated;
+  
+  /**
+   * Apply the changes between the entries currently shown and a new set of
+   * entries.
+   * 
+   * @param list list containing all of the shown entries
+   * @param offset index in the list of the first shown entry for the directory
+   * @param shown entries currently shown for the directory, in list order, updated to match the list
+   * @param entries new entries for the directory
+   */
+  public void apply(EventList<DirectoryEntry> list, int offset, List<DirectoryEntry> shown, List<? extends DirectoryEntry> entries) {
+    int size = shown.size();
+    Map<String, Integer> shownIndexes = new HashMap<String, Integer>(size * 2);
+    // Index of the next shown entry with the same URL, or -1
+    int[] duplicates = new int[size];
+    for(int i = size - 1; i >= 0; i--) {
+      // Iterate backwards so that duplicates are matched in list order
+      Integer next = shownIndexes.put(shown.get(i).getUrl(), i);
+      duplicates[i] = next != null ? next : -1;
+    }
+    boolean[] matched = new boolean[size];
+    List<DirectoryEntry> added = new ArrayList<DirectoryEntry>();
+    // Index of the shown entry that comes before each added entry, or -1
+    int[] anchors = new int[entries.size()];
+    int anchor = -1;
+    for(DirectoryEntry entry : entries) {
+      // Move on to the next shown duplicate, so a URL that occurs more often 
+      // in the new entries than in the shown entries is an insert
+      Integer index = shownIndexes.remove(entry.getUrl());
+      if(index != null) {
+        if(duplicates[index] != -1) {
+          shownIndexes.put(entry.getUrl(), duplicates[index]);
+        }
+        matched[index] = true;
+        if(!isSame(shown.get(index), entry)) {
+          list.set(offset + index, entry);
+          shown.set(index, entry);
+          updated++;
+        }
+        anchor = index;
+      }
+      else {
+        anchors[added.size()] = anchor;
+        added.add(entry);
+      }
+    }
+    // Remove from the end backwards so the remaining indexes stay valid
+    int kept = 0;
+    for(int i = size - 1; i >= 0; i--) {
+      if(!matched[i]) {
+        list.remove(offset + i);
+        deleted++;
+      }
+      else {
+        kept++;
+      }
+    }
+    if(deleted > 0) {
+      List<DirectoryEntry> remaining = new ArrayList<DirectoryEntry>(kept + added.size());
+      for(int i = 0; i < size; i++) {
+        if(matched[i]) {
+          remaining.add(shown.get(i));
+        }
+      }
+      shown.clear();
+      shown.addAll(remaining);
+    }
+    if(!added.isEmpty()) {
+      int[] positions = insertPositions(matched, anchors, added.size());
+      if(positions != null) {
+        // Insert each run of entries going to the same place, from the end 
+        // backwards so the positions before it stay valid
+        int end = added.size();
+        while(end > 0) {
+          int start = end - 1;
+          while(start > 0 && positions[start - 1] == positions[end - 1]) {
+            start--;
+          }
+          List<DirectoryEntry> run = added.subList(start, end);
+          list.addAll(offset + positions[start], run);
+          shown.addAll(positions[start], run);
+          end = start;
+        }
+      }
+      else {
+        list.addAll(offset + shown.size(), added);
+        shown.addAll(added);
+      }
+      inserted += added.size();
+    }
+  }
+  
+  /**
+   * Work out where to insert the added entries among the entries that were
+   * kept.
+   * 
+   * @param matched flag for each previously shown entry, whether it was kept
+   * @param anchors index of the previously shown entry that comes before each added entry, or -1
+   * @param count number of added entries
+   * @return position among the kept entries to insert each added entry, or <code>null</code> if the kept entries are not in the same order as the new entries
+   */
+  private static int[] insertPositions(boolean[] matched, int[] anchors, int count) {
+    int[] keptIndexes = new int[matched.length];
+    for(int i = 0, kept = 0; i < matched.length; i++) {
+      if(matched[i]) {
+        keptIndexes[i] = kept++;
+      }
+    }
+    int[] positions = new int[count];
+    for(int i = 0; i < count; i++) {
+      positions[i] = anchors[i] != -1 ? keptIndexes[anchors[i]] + 1 : 0;
+      if(i > 0 && positions[i] < positions[i - 1]) {
+        return null;
+      }
+    }
+    return positions;
+  }
+  
+  /**
+   * Get the number of entries added.
+   * 
+   * @return number of entries
+   */
+  public int getInserted() {
+    return inserted;
+  }
+  
+  /**
+   * Get the number of entries removed.
+   * 
+   * @return number of entries
+   */
+  public int getDeleted() {
+    return deleted;
+  }
+  
+  /**
+   * Get the number of entries replaced in place.
+   * 
+   * @return number of entries
+   */
+  public int getUpdated() {
+    return updated;
+  }
+  
+  /**
+   * Get the number of changes applied.
+   * 
+   * @return number of changes
+   */
+  public int getChanges() {
+    return inserted + deleted + updated;
+  }
+  
+  /**
+   * Test whether two entries with the same URL show exactly the same details.
+   * <p>
+   * The entries may be of different classes, for example a view of a cached
+   * entry and the same entry freshly retrieved from the source.
+   * 
+   * @param a first entry
+   * @param b second entry
+   * @return <code>true</code> if the entries are the same; <code>false</code> if the shown entry must be replaced
+   */
+  private static boolean isSame(DirectoryEntry a, DirectoryEntry b) {
+    return a == b || (
+      a.getChannels() == b.getChannels() &&
+      a.getSampleRate() == b.getSampleRate() &&
+      isSame(a.getName(), b.getName()) &&
+      isSame(a.getBitRate(), b.getBitRate()) &&
+      isSame(a.getGenre(), b.getGenre()) &&
+      isSame(a.getType(), b.getType()) &&
+      isSame(a.getNowPlaying(), b.getNowPlaying()) &&
+      isSame(a.getDirectory(), b.getDirectory()) &&
+      getAlternateUrls(a).equals(getAlternateUrls(b))
+    );
+  }
+  
+  /**
+   * Get the alternate addresses of an entry.
+   * 
+   * @param entry entry
+   * @return alternate addresses, empty if the entry is not merged
+   */
+  private static List<String> getAlternateUrls(DirectoryEntry entry) {
+    return entry instanceof MergedEntry ? ((MergedEntry)entry).getAlternateUrls() : Collections.<String>emptyList();
+  }
+  
+  private static boolean isSame(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(60);
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("inserted=").append(inserted).append(',');
+    sb.append("deleted=").append(deleted).append(',');
+    sb.append("updated=").append(updated).append(']');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.view;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import javax.swing.border.TitledBorder;
+
+import net.miginfocom.swing.MigLayout;
+import uk.co.caprica.vlcj.radio.service.CircuitBreaker;
+import uk.co.caprica.vlcj.radio.service.DirectoryProgress;
+import uk.co.caprica.vlcj.radio.service.DirectorySource;
+import uk.co.caprica.vlcj.radio.service.DirectoryState;
+
+/**
+ * Panel showing the progress of each directory while the directories load.
+ * <p>
+ * The panel does not block the rest of the user interface, the directory 
+ * table can be searched and used while directories are still loading.
+ * <p>
+ * The progress records are updated by the loader threads, the panel simply 
+ * reads them on a timer. The panel hides itself when loading finishes, unless
+ * a directory failed or was skipped.
+ * <p>
+ * All methods must be called on the Swing event dispatch thread.
+ */
+public class DirectoryProgressPanel extends JPanel {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Interval between refreshes of the panel, in milliseconds.
+   */
+  private static final int REFRESH_INTERVAL = 250;
+  
+  /**
+   * Progress for each directory, in the order the directories were queued.
+   */
+  private final Map<DirectorySource, DirectoryProgress> progress = new LinkedHashMap<DirectorySource, DirectoryProgress>();
+  
+  /**
+   * Label for each directory.
+   */
+  private final Map<DirectorySource, JLabel> labels = new LinkedHashMap<DirectorySource, JLabel>();
+  
+  /**
+   * Timer to refresh the panel while directories are loading.
+   */
+  private final Timer timer;
+  
+  public DirectoryProgressPanel() {
+    setBorder(new TitledBorder("Loading directories..."));
+    setLayout(new MigLayout("insets 2", "", ""));
+    setVisible(false);
+    
+    timer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        refresh();
+      }
+    });
+  }
+  
+  /**
+   * Show the progress of a directory that has been queued for loading.
+   * <p>
+   * This replaces the progress shown for any previous load of the same 
+   * directory.
+   * 
+   * @param directoryProgress progress of the load
+   */
+  public void addProgress(DirectoryProgress directoryProgress) {
+    DirectorySource source = directoryProgress.getSource();
+    progress.put(source, directoryProgress);
+    if(!labels.containsKey(source)) {
+      JLabel label = new JLabel();
+      labels.put(source, label);
+      add(label, "gapright 16");
+      revalidate();
+    }
+    refresh();
+    setVisible(true);
+    timer.start();
+  }
+  
+  /**
+   * A load has finished.
+   * <p>
+   * Directories queued by another load may still be loading, in which case 
+   * the panel carries on showing their progress.
+   */
+  public void loadFinished() {
+    refresh();
+    boolean failed = false;
+    for(DirectoryProgress directoryProgress : progress.values()) {
+      if(!directoryProgress.isFinished()) {
+        return;
+      }
+      if(directoryProgress.getState() == DirectoryState.FAILED || directoryProgress.getState() == DirectoryState.SKIPPED) {
+        failed = true;
+      }
+    }
+    timer.stop();
+    setVisible(failed);
+  }
+  
+  /**
+   * Show the current progress of every directory.
+   */
+  private void refresh() {
+    for(Map.Entry<DirectorySource, DirectoryProgress> entry : progress.entrySet()) {
+      labels.get(entry.getKey()).setText(describe(entry.getValue()));
+    }
+  }
+  
+  /**
+   * Describe the progress of a directory.
+   * 
+   * @param directoryProgress progress
+   * @return description
+   */
+  private static String describe(DirectoryProgress directoryProgress) {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append("<html><b>").append(directoryProgress.getSource().getName()).append("</b> ");
+    DirectoryState state = directoryProgress.getState();
+    switch(state) {
+      case QUEUED:
+        sb.append("waiting");
+        break;
+        
+      case CACHED:
+        sb.append("cached");
+        break;
+        
+      case WAITING:
+        sb.append("waiting for another instance");
+        break;
+        
+      case FETCHING:
+        sb.append("fetching");
+        if(directoryProgress.getAttempt() > 1) {
+          sb.append(" (attempt ").append(directoryProgress.getAttempt()).append(')');
+        }
+        break;
+        
+      case PARSING:
+        sb.append("parsing");
+        break;
+        
+      case DONE:
+        sb.append("done");
+        break;
+        
+      case FAILED:
+        sb.append("<font color=\"red\">failed</font>");
+        break;
+        
+      case SKIPPED:
+        sb.append("<font color=\"red\">unavailable</font>, using cached copy");
+        break;
+    }
+    if(state != DirectoryState.QUEUED && state != DirectoryState.FETCHING) {
+      sb.append(", ").append(directoryProgress.getEntryCount()).append(" entries");
+    }
+    long bytesRead = directoryProgress.getBytesRead();
+    if(bytesRead > 0) {
+      sb.append(", ").append(formatBytes(bytesRead));
+    }
+    CircuitBreaker circuitBreaker = directoryProgress.getSource().getCircuitBreaker();
+    int failures = circuitBreaker.getConsecutiveFailures();
+    if(failures > 0 && directoryProgress.isFinished()) {
+      sb.append(", ").append(failures).append(failures == 1 ? " failure" : " failures");
+      long remainingCoolDown = circuitBreaker.getRemainingCoolDown();
+      if(remainingCoolDown > 0) {
+        sb.append(", next attempt in ").append((remainingCoolDown + 59999) / 60000).append(" min");
+      }
+    }
+    sb.append("</html>");
+    return sb.toString();
+  }
+  
+  /**
+   * Format a number of bytes for display.
+   * 
+   * @param bytes number of bytes
+   * @return formatted value
+   */
+  private static String formatBytes(long bytes) {
+    if(bytes < 1024) {
+      return bytes + " B";
+    }
+    else if(bytes < 1024 * 1024) {
+      return String.format("%.1f KB", bytes / 1024.0);
+    }
+    else {
+      return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+  }
+}
@@ -25,15 +25,24 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JButton;
-import javax.swing.JDialog;
-import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
@@ -48,10 +57,18 @@ import javax.swing.event.ListSelectionListener;
 import net.miginfocom.swing.MigLayout;
 import uk.co.caprica.vlcj.radio.model.Directory;
 import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
-import uk.co.caprica.vlcj.radio.service.CachedDirectoryService;
-import uk.co.caprica.vlcj.radio.service.DirectoryService;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryDeduplicator;
+import uk.co.caprica.vlcj.radio.service.DirectoryLoader;
+import uk.co.caprica.vlcj.radio.service.DirectoryLoaderListener;
+import uk.co.caprica.vlcj.radio.service.DirectoryProgress;
+import uk.co.caprica.vlcj.radio.service.DirectorySource;
 import uk.co.caprica.vlcj.radio.service.bbcstreams.BbcStreamsDirectoryService;
 import uk.co.caprica.vlcj.radio.service.bbcstreams.CachedBbcStreamsDirectoryService;
+import uk.co.caprica.vlcj.radio.service.cache.BitRates;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+import uk.co.caprica.vlcj.radio.service.http.HttpTransport;
 import uk.co.caprica.vlcj.radio.service.icecast.CachedIcecastDirectoryService;
 import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryService;
 import uk.co.caprica.vlcj.radio.service.indymedia.CachedIndymediaDirectoryService;
@@ -64,12 +81,14 @@ import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.FilterList;
 import ca.odell.glazedlists.SortedList;
-import ca.odell.glazedlists.gui.TableFormat;
+import ca.odell.glazedlists.TransactionList;
+import ca.odell.glazedlists.gui.AdvancedTableFormat;
 import ca.odell.glazedlists.matchers.AbstractMatcherEditor;
 import ca.odell.glazedlists.matchers.Matcher;
 import ca.odell.glazedlists.matchers.MatcherEditor;
 import ca.odell.glazedlists.swing.EventTableModel;
 import ca.odell.glazedlists.swing.TableComparatorChooser;
+import ca.odell.glazedlists.util.concurrent.Lock;
 
 /**
  * Main directory view.
@@ -87,14 +106,32 @@ public class DirectoryView extends JPanel {
   public static final String ACTIVATE_CUSTOM_COMMAND = "activate-custom";
   public static final String STOP_COMMAND = "stop";
   
+  /**
+   * Maximum number of directories to load at the same time.
+   */
+  private static final int DIRECTORY_LOADER_THREADS = 5;
+  
   private final EventList<DirectoryEntry> directoryEventList = new BasicEventList<DirectoryEntry>();
-  private final SortedList<DirectoryEntry> directorySortedList = new SortedList<DirectoryEntry>(directoryEventList);
+  
+  /**
+   * All changes are made through this list, so that each merge reaches the 
+   * sorted and filtered lists as a single event.
+   */
+  private final TransactionList<DirectoryEntry> directoryTransactionList = new TransactionList<DirectoryEntry>(directoryEventList);
+  
+  /**
+   * Until a column is chosen to sort on, entries are shown in the order of 
+   * the event list - each directory is already in its default order, from 
+   * the index kept with it, so nothing needs to be sorted.
+   */
+  private final SortedList<DirectoryEntry> directorySortedList = new SortedList<DirectoryEntry>(directoryTransactionList, null);
   private final DirectoryMatcherEditor directoryMatcherEditor = new DirectoryMatcherEditor();
   private final FilterList<DirectoryEntry> directoryFilterList = new FilterList<DirectoryEntry>(directorySortedList, (MatcherEditor<DirectoryEntry>)directoryMatcherEditor);
   
   private final JPanel topPanel;
   
   private final FilterPanel filterPanel;
+  private final DirectoryProgressPanel progressPanel;
   private final JPanel playPanel;
   private final StatusPanel statusPanel;
   
@@ -108,6 +145,48 @@ public class DirectoryView extends JPanel {
   
   private final ExecutorService executorService = Executors.newCachedThreadPool();
   
+  /**
+   * Applies filter changes, so that the event dispatch thread never waits for
+   * a loader thread to finish a merge.
+   */
+  private final ExecutorService filterExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "directory-filter");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  
+  /**
+   * HTTP transport shared by all of the directory services.
+   */
+  private final HttpTransport httpTransport = new HttpTransport();
+  
+  /**
+   * Local store shared by all of the cached directories.
+   */
+  private final StationStore stationStore = new StationStore(cacheDirectory());
+  
+  private final DirectoryLoader directoryLoader = new DirectoryLoader(DIRECTORY_LOADER_THREADS);
+  
+  private final List<DirectorySource> directorySources = createDirectorySources();
+  
+  /**
+   * Merges the entries for the same stream across the directories, guarded by
+   * the event list write lock.
+   */
+  private final DirectoryDeduplicator directoryDeduplicator = new DirectoryDeduplicator(directorySources);
+  
+  /**
+   * Entries currently shown for each directory, guarded by the event list 
+   * write lock.
+   * <p>
+   * The entries for each directory occupy a contiguous range of the event 
+   * list, in the same order as the directory sources.
+   */
+  private final Map<DirectorySource, List<DirectoryEntry>> directoryEntries = new HashMap<DirectorySource, List<DirectoryEntry>>();
+  
   public DirectoryView() {
     setLayout(new BorderLayout());
 
@@ -149,6 +228,9 @@ public class DirectoryView extends JPanel {
     playPanel.add(stopButton);
     topPanel.add(playPanel, BorderLayout.EAST);
     
+    progressPanel = new DirectoryProgressPanel();
+    topPanel.add(progressPanel, BorderLayout.SOUTH);
+    
     statusPanel = new StatusPanel();
     add(statusPanel, BorderLayout.SOUTH);
     
@@ -195,11 +277,29 @@ public class DirectoryView extends JPanel {
     
     add(mainContent, BorderLayout.CENTER);
 
-    TableComparatorChooser.install(directoryTable, directorySortedList, TableComparatorChooser.MULTIPLE_COLUMN_MOUSE);
+    TableComparatorChooser<DirectoryEntry> tableComparatorChooser = TableComparatorChooser.install(directoryTable, directorySortedList, TableComparatorChooser.MULTIPLE_COLUMN_MOUSE);
+    // Sort on the keys kept with the entries rather than the column values,
+    // the table format provides no column comparators of its own
+    for(int col = 0; col < directoryTable.getModel().getColumnCount(); col++) {
+      getColumnComparators(tableComparatorChooser, col).add(new DirectoryColumnComparator(col));
+    }
     
     directoryTable.addMouseListener(new TableMouseListener());
   }
   
+  /**
+   * Get the comparators of a table column.
+   * 
+   * @param tableComparatorChooser comparator chooser installed on the table
+   * @param col column index
+   * @return modifiable list of comparators for the column
+   */
+  @SuppressWarnings("unchecked")
+  private static List<Comparator<? super DirectoryEntry>> getColumnComparators(TableComparatorChooser<DirectoryEntry> tableComparatorChooser, int col) {
+    // The chooser exposes the comparators of the sorted list as a raw list
+    return (List<Comparator<? super DirectoryEntry>>)(List<?>)tableComparatorChooser.getComparatorsForColumn(col);
+  }
+  
   public void addActionListener(ActionListener listener) {
     listenerList.add(ActionListener.class, listener);
   }
@@ -211,8 +311,9 @@ public class DirectoryView extends JPanel {
   /**
    * Invoked after the application main view has been created and shown.
    * <p>
-   * Start a modal dialog box with an indeterminate progress bar while the
-   * media directory is loaded and parsed in a background thread.
+   * Load the media directories in background threads, showing the progress 
+   * of each directory without blocking the rest of the user interface - each
+   * directory is shown in the table as soon as it is available.
    */
   public void start() {
     loadDirectory();
@@ -248,6 +349,148 @@ public class DirectoryView extends JPanel {
     executorService.execute(new UpdateDirectoryRunnable(true));
   }
 
+  private List<DirectorySource> createDirectorySources() {
+    List<DirectorySource> sources = new ArrayList<DirectorySource>(5);
+    sources.add(new DirectorySource("Icecast", new IcecastDirectoryService(httpTransport), new CachedIcecastDirectoryService(stationStore), 120000, timeToLive("icecast", 60)));
+    sources.add(new DirectorySource("BBC Streams", new BbcStreamsDirectoryService(httpTransport), new CachedBbcStreamsDirectoryService(stationStore), 60000, timeToLive("bbcstreams", 7 * 24 * 60)));
+    sources.add(new DirectorySource("Indymedia", new IndymediaDirectoryService(httpTransport), new CachedIndymediaDirectoryService(stationStore), 180000, timeToLive("indymedia", 24 * 60)));
+    sources.add(new DirectorySource("ListenLive", new ListenLiveDirectoryService(httpTransport), new CachedListenLiveDirectoryService(stationStore), 60000, timeToLive("listenlive", 24 * 60)));
+    sources.add(new DirectorySource("MusicRadio", new MusicRadioDirectoryService(httpTransport), new CachedMusicRadioDirectoryService(stationStore), 60000, timeToLive("musicradio", 24 * 60)));
+    return sources;
+  }
+  
+  /**
+   * Get the time-to-live for a cached directory.
+   * <p>
+   * The default can be overridden by setting the "vlcj.radio.ttl.&lt;key&gt;"
+   * system property to a number of minutes.
+   * 
+   * @param key directory key
+   * @param defaultMinutes default time-to-live, in minutes
+   * @return time-to-live, in milliseconds
+   */
+  private static long timeToLive(String key, long defaultMinutes) {
+    return Long.getLong("vlcj.radio.ttl." + key, defaultMinutes) * 60 * 1000;
+  }
+  
+  /**
+   * Get the directory for the local cache.
+   * <p>
+   * The default, "vlcj-radio" in the user's home directory, can be overridden
+   * by setting the "vlcj.radio.cache.dir" system property. The cache may be 
+   * shared by more than one instance of the application.
+   * 
+   * @return directory
+   */
+  private static File cacheDirectory() {
+    String cacheDirectory = System.getProperty("vlcj.radio.cache.dir");
+    if(cacheDirectory != null && cacheDirectory.trim().length() > 0) {
+      return new File(cacheDirectory.trim());
+    }
+    return new File(System.getProperty("user.home"), "vlcj-radio");
+  }
+  
+  /**
+   * Merge new entries into the entries shown for a directory.
+   * <p>
+   * The caller must hold the event list write lock.
+   * 
+   * @param source directory source
+   * @param entries new entries for the directory
+   * @return changes that were applied
+   */
+  private DirectoryMerge mergeEntries(DirectorySource source, List<? extends DirectoryEntry> entries) {
+    DirectoryMerge merge = new DirectoryMerge();
+    directoryTransactionList.beginEvent(true);
+    try {
+      merge.apply(directoryTransactionList, getOffset(source), getShownEntries(source), entries);
+    }
+    finally {
+      directoryTransactionList.commitEvent();
+    }
+    return merge;
+  }
+  
+  /**
+   * Replace all of the entries shown for a directory.
+   * <p>
+   * The caller must hold the event list write lock.
+   * 
+   * @param source directory source
+   * @param entries new entries for the directory
+   */
+  private void replaceEntries(DirectorySource source, List<? extends DirectoryEntry> entries) {
+    int offset = getOffset(source);
+    List<DirectoryEntry> shown = getShownEntries(source);
+    directoryTransactionList.beginEvent(true);
+    try {
+      // Remove from the end backwards, within the single event
+      for(int i = offset + shown.size() - 1; i >= offset; i--) {
+        directoryTransactionList.remove(i);
+      }
+      directoryTransactionList.addAll(offset, entries);
+    }
+    finally {
+      directoryTransactionList.commitEvent();
+    }
+    shown.clear();
+    shown.addAll(entries);
+  }
+  
+  /**
+   * Add entries to the end of those shown for a directory.
+   * <p>
+   * The caller must hold the event list write lock.
+   * 
+   * @param source directory source
+   * @param entries entries to add
+   */
+  private void appendEntries(DirectorySource source, List<? extends DirectoryEntry> entries) {
+    int offset = getOffset(source);
+    List<DirectoryEntry> shown = getShownEntries(source);
+    directoryTransactionList.addAll(offset + shown.size(), entries);
+    shown.addAll(entries);
+  }
+  
+  /**
+   * Get the entries shown for a directory.
+   * <p>
+   * The caller must hold the event list write lock.
+   * 
+   * @param source directory source
+   * @return entries, in list order
+   */
+  private List<DirectoryEntry> getShownEntries(DirectorySource source) {
+    List<DirectoryEntry> shown = directoryEntries.get(source);
+    if(shown == null) {
+      shown = new ArrayList<DirectoryEntry>();
+      directoryEntries.put(source, shown);
+    }
+    return shown;
+  }
+  
+  /**
+   * Get the index in the event list of the first entry for a directory.
+   * <p>
+   * The caller must hold the event list write lock.
+   * 
+   * @param source directory source
+   * @return index
+   */
+  private int getOffset(DirectorySource source) {
+    int offset = 0;
+    for(DirectorySource directorySource : directorySources) {
+      if(directorySource == source) {
+        break;
+      }
+      List<DirectoryEntry> shown = directoryEntries.get(directorySource);
+      if(shown != null) {
+        offset += shown.size();
+      }
+    }
+    return offset;
+  }
+
   private void fireEvent(String command) {
     ActionListener[] listeners = listenerList.getListeners(ActionListener.class);
     if(listeners.length > 0) {
@@ -267,13 +510,45 @@ public class DirectoryView extends JPanel {
     }
   }
 
+  /**
+   * Matcher for the search filters.
+   * <p>
+   * The directory, type and genre filters are matched against each distinct
+   * value in the {@link ValueDictionary} at most once, the first time an entry
+   * with that value is filtered, and the result is remembered by the code of 
+   * the value, so filtering an entry on these fields compares ints rather 
+   * than strings.
+   * <p>
+   * The bit-rate, channels and sample rate filters are ranges, compared with
+   * the numeric values of the entries. An entry with an unknown value does 
+   * not match a range.
+   * <p>
+   * The filters are only read, and the remembered results only changed, while
+   * the event list write lock is held. The loader threads hold that lock for
+   * a whole merge, so the filter panel only records its settings and they are
+   * applied on the filter thread, which waits for the lock instead of the 
+   * event dispatch thread.
+   */
   class DirectoryMatcherEditor extends AbstractMatcherEditor<DirectoryEntry> implements Matcher<DirectoryEntry> {
     
-    private String directory;
+    private final CodeFilter directory = new CodeFilter();
     private String name;
     private String address;
-    private String type;
-    private String genre;
+    private final CodeFilter type = new CodeFilter();
+    private final CodeFilter genre = new CodeFilter();
+    private final RangeFilter bitRate = new RangeFilter();
+    private final RangeFilter channels = new RangeFilter();
+    private final RangeFilter sampleRate = new RangeFilter();
+    
+    /**
+     * Latest settings from the filter panel, not yet applied to the filters.
+     */
+    private final FilterSettings settings = new FilterSettings();
+    
+    /**
+     * Whether the settings are already due to be applied.
+     */
+    private final AtomicBoolean applyQueued = new AtomicBoolean();
     
     @Override
     public Matcher<DirectoryEntry> getMatcher() {
@@ -282,47 +557,315 @@ public class DirectoryView extends JPanel {
     
     @Override
     public boolean matches(DirectoryEntry entry) {
-      return match(directory, entry.getDirectory()) &&
-             match(name     , entry.getName     ()) &&
-             match(address  , entry.getUrl      ()) &&
-             match(type     , entry.getType     ()) &&
-             match(genre    , entry.getGenre    ()
+      if(!channels.matches(entry.getChannels()) || !sampleRate.matches(entry.getSampleRate())) {
+        return false;
+      }
+      if(entry instanceof IndexedEntry) {
+        // The search keys are already lower-case
+        IndexedEntry indexedEntry = (IndexedEntry)entry;
+        return bitRate  .matches(indexedEntry.getBitRateKbps  ()) &&
+               directory.matches(indexedEntry.getDirectoryCode(), indexedEntry.getDirectoryKey()) &&
+               type     .matches(indexedEntry.getTypeCode     ()) &&
+               genre    .matches(indexedEntry.getGenreCode    ()) &&
+               matchKey(name     , indexedEntry.getNameKey     ()) &&
+               matchKey(address  , indexedEntry.getUrlKey      ()
+        );
+      }
+      return (!bitRate.active || bitRate.matches(BitRates.parse(entry.getBitRate()))) &&
+             match(directory.text, entry.getDirectory()) &&
+             match(name          , entry.getName     ()) &&
+             match(address       , entry.getUrl      ()) &&
+             match(type.text     , entry.getType     ()) &&
+             match(genre.text    , entry.getGenre    ()
       );
     }
 
     void setDirectory(String directory) {
-      this.directory = directory;
-      fireChanged(this);
+      synchronized(settings) {
+        settings.directory = directory;
+      }
+      applyLater();
     }
     
     void setName(String name) {
-      this.name = name;
-      fireChanged(this);
+      synchronized(settings) {
+        settings.name = name;
+      }
+      applyLater();
     }
     
     void setAddress(String address) {
-      this.address = address;
-      fireChanged(this);
+      synchronized(settings) {
+        settings.address = address;
+      }
+      applyLater();
     }
     
     void setType(String type) {
-      this.type = type;
-      fireChanged(this);
+      synchronized(settings) {
+        settings.type = type;
+      }
+      applyLater();
     }
     
     void setGenre(String genre) {
-      this.genre = genre;
-      fireChanged(this);
+      synchronized(settings) {
+        settings.genre = genre;
+      }
+      applyLater();
+    }
+    
+    /**
+     * Set the range of bit-rates to match.
+     * 
+     * @param min lowest bit-rate in kbit/s, or -1 for no lower limit
+     * @param max highest bit-rate in kbit/s, or -1 for no upper limit
+     */
+    void setBitRateRange(int min, int max) {
+      synchronized(settings) {
+        settings.minBitRate = min;
+        settings.maxBitRate = max;
+      }
+      applyLater();
+    }
+    
+    /**
+     * Set the range of the number of channels to match.
+     * 
+     * @param min lowest number of channels, or -1 for no lower limit
+     * @param max highest number of channels, or -1 for no upper limit
+     */
+    void setChannelsRange(int min, int max) {
+      synchronized(settings) {
+        settings.minChannels = min;
+        settings.maxChannels = max;
+      }
+      applyLater();
+    }
+    
+    /**
+     * Set the range of sample rates to match.
+     * 
+     * @param min lowest sample rate in Hz, or -1 for no lower limit
+     * @param max highest sample rate in Hz, or -1 for no upper limit
+     */
+    void setSampleRateRange(int min, int max) {
+      synchronized(settings) {
+        settings.minSampleRate = min;
+        settings.maxSampleRate = max;
+      }
+      applyLater();
     }
     
     void clear() {
-      directory = name = address = type = genre = null;
-      fireMatchAll();
+      synchronized(settings) {
+        settings.clear();
+      }
+      applyLater();
+    }
+    
+    /**
+     * Apply the latest filter settings on the filter thread, unless that is
+     * already due to happen.
+     */
+    private void applyLater() {
+      if(!applyQueued.getAndSet(true)) {
+        filterExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            applyQueued.set(false);
+            apply();
+          }
+        });
+      }
+    }
+    
+    /**
+     * Apply the latest filter settings and re-filter.
+     * <p>
+     * The lists are filtered on the loader threads while they hold the event
+     * list write lock, so the filters must not change part way through. The
+     * filter list takes the same lock again to re-filter, which it allows.
+     */
+    private void apply() {
+      FilterSettings latest;
+      synchronized(settings) {
+        latest = settings.copy();
+      }
+      Lock lock = directoryEventList.getReadWriteLock().writeLock();
+      lock.lock();
+      try {
+        // Setting the text of a code filter forgets the values it matched
+        if(!equal(directory.text, latest.directory)) {
+          directory.setText(latest.directory);
+        }
+        if(!equal(type.text, latest.type)) {
+          type.setText(latest.type);
+        }
+        if(!equal(genre.text, latest.genre)) {
+          genre.setText(latest.genre);
+        }
+        name = latest.name;
+        address = latest.address;
+        bitRate.setRange(latest.minBitRate, latest.maxBitRate);
+        channels.setRange(latest.minChannels, latest.maxChannels);
+        sampleRate.setRange(latest.minSampleRate, latest.maxSampleRate);
+        if(latest.isClear()) {
+          fireMatchAll();
+        }
+        else {
+          fireChanged(this);
+        }
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+    
+    private boolean equal(String a, String b) {
+      return a == null ? b == null : a.equals(b);
     }
     
     private boolean match(String s, String value) {
       return s == null || s.trim().length() == 0 || (value != null && value.toLowerCase().contains(s));
     }
+    
+    private boolean matchKey(String s, String key) {
+      return s == null || s.trim().length() == 0 || key.contains(s);
+    }
+  }
+  
+  /**
+   * Settings for the filters, as entered in the filter panel.
+   * <p>
+   * Guarded by its own monitor, which is never held for long.
+   */
+  private static final class FilterSettings {
+    
+    private String directory;
+    private String name;
+    private String address;
+    private String type;
+    private String genre;
+    private int minBitRate = -1;
+    private int maxBitRate = -1;
+    private int minChannels = -1;
+    private int maxChannels = -1;
+    private int minSampleRate = -1;
+    private int maxSampleRate = -1;
+    
+    private void clear() {
+      directory = name = address = type = genre = null;
+      minBitRate = maxBitRate = minChannels = maxChannels = minSampleRate = maxSampleRate = -1;
+    }
+    
+    private boolean isClear() {
+      return directory == null && name == null && address == null && type == null && genre == null &&
+             minBitRate == -1 && maxBitRate == -1 && minChannels == -1 && maxChannels == -1 && minSampleRate == -1 && maxSampleRate == -1;
+    }
+    
+    private FilterSettings copy() {
+      FilterSettings copy = new FilterSettings();
+      copy.directory = directory;
+      copy.name = name;
+      copy.address = address;
+      copy.type = type;
+      copy.genre = genre;
+      copy.minBitRate = minBitRate;
+      copy.maxBitRate = maxBitRate;
+      copy.minChannels = minChannels;
+      copy.maxChannels = maxChannels;
+      copy.minSampleRate = minSampleRate;
+      copy.maxSampleRate = maxSampleRate;
+      return copy;
+    }
+  }
+  
+  /**
+   * Filter on a range of values of a numeric field.
+   */
+  private static final class RangeFilter {
+    
+    private int min = -1;
+    
+    private int max = -1;
+    
+    /**
+     * Whether the filter has any limit.
+     */
+    private boolean active;
+    
+    private void setRange(int min, int max) {
+      this.min = min;
+      this.max = max;
+      this.active = min != -1 || max != -1;
+    }
+    
+    private boolean matches(int value) {
+      // Zero or less is an unknown value
+      return !active || (value > 0 && (min == -1 || value >= min) && (max == -1 || value <= max));
+    }
+  }
+  
+  /**
+   * Filter on a field encoded in the {@link ValueDictionary}, remembering 
+   * whether each value matches by its code.
+   */
+  private static final class CodeFilter {
+    
+    private static final byte UNKNOWN = 0;
+    private static final byte MATCH = 1;
+    private static final byte NO_MATCH = 2;
+    
+    private final ValueDictionary dictionary = ValueDictionary.shared();
+    
+    /**
+     * Filter text, lower-case.
+     */
+    private String text;
+    
+    /**
+     * Whether the filter has any text to match.
+     */
+    private boolean active;
+    
+    /**
+     * Result of matching each value, by code.
+     */
+    private byte[] results = new byte[0];
+    
+    private void setText(String text) {
+      this.text = text;
+      this.active = text != null && text.trim().length() > 0;
+      this.results = new byte[active ? dictionary.size() : 0];
+    }
+    
+    private boolean matches(int code) {
+      if(!active) {
+        return true;
+      }
+      if(code >= results.length) {
+        // Value added since the filter was set
+        results = Arrays.copyOf(results, Math.max(code + 1, dictionary.size()));
+      }
+      byte result = results[code];
+      if(result == UNKNOWN) {
+        result = dictionary.getKey(code).contains(text) ? MATCH : NO_MATCH;
+        results[code] = result;
+      }
+      return result == MATCH;
+    }
+
+    /**
+     * Match a value that may not be in the dictionary.
+     *
+     * @param code code of the value, or -1 if it is not in the dictionary
+     * @param key search key of the value, matched if there is no code
+     * @return <code>true</code> if the value matches; <code>false</code> otherwise
+     */
+    private boolean matches(int code, String key) {
+      return code >= 0 ? matches(code) : !active || key.contains(text);
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -345,121 +888,124 @@ public class DirectoryView extends JPanel {
     
     @Override
     public void run() {
-      final JDialog dlg = createLoadingDialog();
-      
-      executorService.submit(new Runnable() {
+      // Load all of the directories in parallel, each directory is shown as
+      // soon as it is available and a failure does not stop the others...
+      directoryLoader.load(directorySources, forceUpdate, new UpdateDirectoryListener());
+    }
+  }
+  
+  private class UpdateDirectoryListener implements DirectoryLoaderListener {
+    
+    /**
+     * Directories that are still loading with entries being added to the UI 
+     * batch by batch, guarded by the event list write lock.
+     */
+    private final Set<DirectorySource> streamingSources = new HashSet<DirectorySource>();
+    
+    @Override
+    public void directoryQueued(DirectorySource source, final DirectoryProgress progress) {
+      SwingUtilities.invokeLater(new Runnable() {
         @Override
         public void run() {
-          dlg.setVisible(true);
+          progressPanel.addProgress(progress);
         }
       });
+    }
 
-      // Clear the current directory
+    @Override
+    public void directoryEntriesAvailable(DirectorySource source, List<? extends DirectoryEntry> entries) {
       directoryEventList.getReadWriteLock().writeLock().lock();
-      directoryEventList.clear();
-      directoryEventList.getReadWriteLock().writeLock().unlock();
-      
-      // Load each directory individually, swallowing exceptions so we can
-      // continue with subsequent directories even on error...
-      
       try {
-        loadDirectory(new IcecastDirectoryService(), new CachedIcecastDirectoryService(), forceUpdate);
+        // Only show entries as they arrive if there is nothing already shown
+        // for the directory, otherwise wait for the complete directory
+        if(!streamingSources.contains(source) && !directoryEntries.containsKey(source)) {
+          streamingSources.add(source);
+        }
+        if(streamingSources.contains(source)) {
+          appendEntries(source, entries);
+        }
       }
-      catch(Throwable t) {
-        System.err.println("Warning: failed to retrieve Icecast directory");
+      finally {
+        directoryEventList.getReadWriteLock().writeLock().unlock();
       }
+    }
 
+    @Override
+    public void directoryLoaded(DirectorySource source, Directory directory, long elapsed) {
+      directoryEventList.getReadWriteLock().writeLock().lock();
       try {
-        loadDirectory(new BbcStreamsDirectoryService(), new CachedBbcStreamsDirectoryService(), forceUpdate);
+        // Entries that arrived batch by batch are in the order they arrived,
+        // so they are replaced by the complete directory in its default order
+        Map<DirectorySource, List<DirectoryEntry>> changed = directoryDeduplicator.update(source, directory);
+        List<DirectoryEntry> entries = directoryDeduplicator.getEntries(source);
+        if(streamingSources.remove(source)) {
+          replaceEntries(source, entries);
+        }
+        else {
+          mergeEntries(source, entries);
+        }
+        // Loading this directory may have taken streams over from, or given 
+        // streams back to, the other directories
+        for(Map.Entry<DirectorySource, List<DirectoryEntry>> entry : changed.entrySet()) {
+          DirectorySource changedSource = entry.getKey();
+          if(changedSource != source && directoryEntries.containsKey(changedSource) && !streamingSources.contains(changedSource)) {
+            mergeEntries(changedSource, entry.getValue());
+          }
+        }
       }
-      catch(Throwable t) {
-        System.err.println("Warning: failed to retrieve BBCStreams directory");
+      finally {
+        directoryEventList.getReadWriteLock().writeLock().unlock();
       }
+    }
 
+    @Override
+    public void directoryFailed(DirectorySource source, Throwable cause, long elapsed) {
+      System.err.println("Warning: failed to retrieve " + source.getName() + " directory after " + elapsed + "ms (" + source.getCircuitBreaker().getConsecutiveFailures() + " consecutive failures): " + cause);
+      directoryEventList.getReadWriteLock().writeLock().lock();
       try {
-        loadDirectory(new IndymediaDirectoryService(), new CachedIndymediaDirectoryService(), forceUpdate);
-      }
-      catch(Throwable t) {
-        System.err.println("Warning: failed to retrieve Indymedia directory");
-      }
-      
-      try {
-        loadDirectory(new ListenLiveDirectoryService(), new CachedListenLiveDirectoryService(), forceUpdate);
-      }
-      catch(Throwable t) {
-        System.err.println("Warning: failed to retrieve ListenLive directory");
-      }
-      
-      try {
-        loadDirectory(new MusicRadioDirectoryService(), new CachedMusicRadioDirectoryService(), forceUpdate);
+        // Entries that did arrive were never de-duplicated against the other 
+        // directories, and nothing was shown for the directory before they 
+        // arrived, so remove them and let the next load stream them again
+        if(streamingSources.remove(source)) {
+          replaceEntries(source, Collections.<DirectoryEntry>emptyList());
+          directoryEntries.remove(source);
+        }
       }
-      catch(Throwable t) {
-        System.err.println("Warning: failed to retrieve MusicRadio directory");
+      finally {
+        directoryEventList.getReadWriteLock().writeLock().unlock();
       }
-      
-      dlg.setVisible(false);
-      dlg.dispose();
     }
 
-    /**
-     * 
-     * 
-     * @return
-     */
-    private JDialog createLoadingDialog() {
-      JFrame parentFrame = (JFrame)SwingUtilities.getAncestorOfClass(JFrame.class, DirectoryView.this);
-      final JDialog dlg = new JDialog(parentFrame, "Please wait...", true);
-      JPanel cp = new JPanel();
-      cp.setLayout(new MigLayout("fill, insets 16", "[c]", ""));
-      cp.add(new JLabel("Please wait, loading station directories..."), "wrap");
-      JProgressBar progressBar = new JProgressBar();
-      progressBar.setIndeterminate(true);
-      cp.add(progressBar, "growx");
-      dlg.setContentPane(cp);
-      dlg.setUndecorated(true);
-      dlg.setResizable(false);
-      dlg.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-      dlg.pack();
-      dlg.setLocationRelativeTo(parentFrame);
-      return dlg;
-    }
-    
-    private Directory loadDirectory(DirectoryService directoryService, CachedDirectoryService cachedDirectoryService, boolean forceUpdate) {
-      // First try loading from the cache...
-      Directory directory = null;
-      if(!forceUpdate) {
-        try {
-          directory = cachedDirectoryService.directory();
-        }
-        catch(Throwable t) {
-          // Swallow this error so we can continue
+    @Override
+    public void directoriesAvailable() {
+    }
+
+    @Override
+    public void loadFinished() {
+      SwingUtilities.invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          progressPanel.loadFinished();
         }
-      }
-      // If the cached directory is not available, go to the source
-      if(directory == null) {
-        // This may throw an exception
-        directory = directoryService.directory();
-        cachedDirectoryService.store(directory);
-      }
-      // Update the UI
-      directoryEventList.getReadWriteLock().writeLock().lock();
-      directoryEventList.addAll(directory.entries());
-      directoryEventList.getReadWriteLock().writeLock().unlock();
-      // Finally, return the directory
-      return directory;
+      });
     }
   }
   
   /**
    *
    */
-  private static class DirectoryTableFormat implements TableFormat<DirectoryEntry> {
+  private static class DirectoryTableFormat implements AdvancedTableFormat<DirectoryEntry> {
 
     /**
      * Table column header labels.
      */
-    private static final String[] COLUMN_LABELS = {"Directory", "Name", "Genre", "Address", "Type"};
+    private static final String[] COLUMN_LABELS = {"Directory", "Name", "Genre", "Address", "Type", "Bit-rate", "Channels", "Sample Rate"};
 
+    /**
+     * Index of the first numeric column, the numeric columns come last.
+     */
+    private static final int FIRST_NUMERIC_COLUMN = 5;
+    
     @Override
     public int getColumnCount() {
       return COLUMN_LABELS.length;
@@ -487,8 +1033,42 @@ public class DirectoryView extends JPanel {
           
         case 4:
           return value.getType();
+          
+        case 5:
+          return number(value instanceof IndexedEntry ? ((IndexedEntry)value).getBitRateKbps() : BitRates.parse(value.getBitRate()));
+          
+        case 6:
+          return number(value.getChannels());
+          
+        case 7:
+          return number(value.getSampleRate());
       }
       return null;
     }
+    
+    @Override
+    public Class<?> getColumnClass(int col) {
+      return col < FIRST_NUMERIC_COLUMN ? String.class : Integer.class;
+    }
+
+    /**
+     * The view sorts the table with a {@link DirectoryColumnComparator} for 
+     * each column, comparing whole entries, in place of comparators for the 
+     * column values. 
+     */
+    @Override
+    public Comparator<?> getColumnComparator(int col) {
+      return null;
+    }
+    
+    /**
+     * Get the value to show for a number.
+     * 
+     * @param value value
+     * @return value, or <code>null</code> if the value is not known
+     */
+    private static Integer number(int value) {
+      return value > 0 ? Integer.valueOf(value) : null;
+    }
   }
-}
\ No newline at end of file
+}
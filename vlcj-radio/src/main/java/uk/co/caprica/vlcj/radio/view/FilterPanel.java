@@ -47,7 +47,10 @@ public class FilterPanel extends JPanel {
     NAME,
     ADDRESS,
     TYPE,
-    GENRE
+    GENRE,
+    BIT_RATE,
+    CHANNELS,
+    SAMPLE_RATE
   }
   
   private JLabel directoryLabel;
@@ -65,6 +68,18 @@ public class FilterPanel extends JPanel {
   private JLabel typeLabel;
   private JTextField typeTextField;
   
+  private JLabel bitRateLabel;
+  private JTextField minBitRateTextField;
+  private JTextField maxBitRateTextField;
+  
+  private JLabel channelsLabel;
+  private JTextField minChannelsTextField;
+  private JTextField maxChannelsTextField;
+  
+  private JLabel sampleRateLabel;
+  private JTextField minSampleRateTextField;
+  private JTextField maxSampleRateTextField;
+  
   private JButton clearButton;
   
   public FilterPanel(DirectoryMatcherEditor directoryMatcherEditor) {
@@ -103,6 +118,30 @@ public class FilterPanel extends JPanel {
     typeTextField.setColumns(10);
     typeTextField.setFocusAccelerator('t');
     
+    bitRateLabel = new JLabel("Bit-rate:");
+    bitRateLabel.setDisplayedMnemonic('b');
+    minBitRateTextField = new JTextField();
+    minBitRateTextField.setColumns(4);
+    minBitRateTextField.setFocusAccelerator('b');
+    maxBitRateTextField = new JTextField();
+    maxBitRateTextField.setColumns(4);
+    
+    channelsLabel = new JLabel("Channels:");
+    channelsLabel.setDisplayedMnemonic('h');
+    minChannelsTextField = new JTextField();
+    minChannelsTextField.setColumns(4);
+    minChannelsTextField.setFocusAccelerator('h');
+    maxChannelsTextField = new JTextField();
+    maxChannelsTextField.setColumns(4);
+    
+    sampleRateLabel = new JLabel("Sample Rate:");
+    sampleRateLabel.setDisplayedMnemonic('s');
+    minSampleRateTextField = new JTextField();
+    minSampleRateTextField.setColumns(4);
+    minSampleRateTextField.setFocusAccelerator('s');
+    maxSampleRateTextField = new JTextField();
+    maxSampleRateTextField.setColumns(4);
+    
     clearButton = new JButton("Clear");
     clearButton.setMnemonic('c');
 
@@ -121,13 +160,34 @@ public class FilterPanel extends JPanel {
     add(typeLabel);
     add(typeTextField);
 
-    add(clearButton);
+    add(clearButton, "wrap");
+    
+    add(bitRateLabel);
+    add(minBitRateTextField, "split 3");
+    add(new JLabel("to"));
+    add(maxBitRateTextField);
+    
+    add(channelsLabel);
+    add(minChannelsTextField, "split 3");
+    add(new JLabel("to"));
+    add(maxChannelsTextField);
+    
+    add(sampleRateLabel);
+    add(minSampleRateTextField, "split 3");
+    add(new JLabel("to"));
+    add(maxSampleRateTextField);
     
     directoryTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.DIRECTORY));
     nameTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.NAME));
     addressTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.ADDRESS));
     typeTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.TYPE));
     genreTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.GENRE));
+    minBitRateTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.BIT_RATE));
+    maxBitRateTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.BIT_RATE));
+    minChannelsTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.CHANNELS));
+    maxChannelsTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.CHANNELS));
+    minSampleRateTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.SAMPLE_RATE));
+    maxSampleRateTextField.getDocument().addDocumentListener(new FilterDocumentListener(Filter.SAMPLE_RATE));
     
     clearButton.addActionListener(new ActionListener() {
       @Override
@@ -137,6 +197,12 @@ public class FilterPanel extends JPanel {
         addressTextField.setText(null);
         typeTextField.setText(null);
         genreTextField.setText(null);
+        minBitRateTextField.setText(null);
+        maxBitRateTextField.setText(null);
+        minChannelsTextField.setText(null);
+        maxChannelsTextField.setText(null);
+        minSampleRateTextField.setText(null);
+        maxSampleRateTextField.setText(null);
         FilterPanel.this.directoryMatcherEditor.clear();
       }
     });
@@ -186,7 +252,35 @@ public class FilterPanel extends JPanel {
         case TYPE:
           directoryMatcherEditor.setType(typeTextField.getText().toLowerCase());
           break;
+          
+        case BIT_RATE:
+          directoryMatcherEditor.setBitRateRange(limit(minBitRateTextField), limit(maxBitRateTextField));
+          break;
+          
+        case CHANNELS:
+          directoryMatcherEditor.setChannelsRange(limit(minChannelsTextField), limit(maxChannelsTextField));
+          break;
+          
+        case SAMPLE_RATE:
+          directoryMatcherEditor.setSampleRateRange(limit(minSampleRateTextField), limit(maxSampleRateTextField));
+          break;
       }
     }
   }
+  
+  /**
+   * Get the limit entered in a range filter field.
+   * 
+   * @param textField field
+   * @return limit, or -1 if the field is empty or is not a number
+   */
+  private static int limit(JTextField textField) {
+    try {
+      int limit = Integer.parseInt(textField.getText().trim());
+      return limit >= 0 ? limit : -1;
+    }
+    catch(NumberFormatException e) {
+      return -1;
+    }
+  }
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedList;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
@@ -35,11 +36,14 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JSeparator;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import uk.co.caprica.vlcj.player.MediaPlayer;
+import uk.co.caprica.vlcj.player.MediaPlayerEventAdapter;
 import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.MergedEntry;
 
 // TODO need to add special case handling for the javascript: radio stations (need to scrape the page and search for the streaming url)
 
@@ -58,6 +62,12 @@ public class MainFrame extends JFrame {
 
   private boolean record = false;
   
+  /**
+   * Addresses still to try for the entry being played, if the current one 
+   * fails - only used on the Swing event dispatch thread.
+   */
+  private final LinkedList<String> candidates = new LinkedList<String>();
+  
   public MainFrame(MediaPlayer mediaPlayer) {
     super("vlcj radio");
     
@@ -71,6 +81,8 @@ public class MainFrame extends JFrame {
     directoryView.addActionListener(new DirectoryActionListener());
     directoryView.addDirectoryListSelectionListener(new DirectoryListSelectionListener());
     
+    mediaPlayer.addMediaPlayerEventListener(new FailoverMediaPlayerEventListener());
+    
     JMenuBar menuBar = new JMenuBar();
 
     JMenu radioMenu = new JMenu("Radio");
@@ -155,20 +167,26 @@ public class MainFrame extends JFrame {
         DirectoryEntry selectedEntry = directoryView.getSelectedEntry();
         if(selectedEntry != null) {
           directoryView.setNowPlaying(selectedEntry);
-          String[] mediaOptions = record ? getRecordMediaOptions(selectedEntry.getUrl()) : new String[0];
-          mediaPlayer.playMedia(selectedEntry.getUrl(), mediaOptions);
+          candidates.clear();
+          // A merged entry can fall back to the other addresses for the stream
+          if(selectedEntry instanceof MergedEntry) {
+            candidates.addAll(((MergedEntry)selectedEntry).getAlternateUrls());
+          }
+          play(selectedEntry.getUrl());
         }
         else {
           directoryView.setNowPlaying((DirectoryEntry)null);
         }
       }
       else if(DirectoryView.ACTIVATE_CUSTOM_COMMAND.equals(command)) {
+        candidates.clear();
         String customEntry = directoryView.getCustomEntry();
         directoryView.setNowPlaying(customEntry);
         String[] mediaOptions = record ? getRecordMediaOptions(customEntry) : new String[0];
         mediaPlayer.playMedia(customEntry, mediaOptions);
       }
       else if(DirectoryView.STOP_COMMAND.equals(command)) {
+        candidates.clear();
         mediaPlayer.stop();
         directoryView.setNowPlaying((String)null);
       }
@@ -182,6 +200,39 @@ public class MainFrame extends JFrame {
     }
   }
   
+  /**
+   * Media player listener that tries the next address for the entry being 
+   * played when the current one fails.
+   * <p>
+   * Events arrive on a native thread, so the next address is played on the
+   * Swing event dispatch thread.
+   */
+  private class FailoverMediaPlayerEventListener extends MediaPlayerEventAdapter {
+
+    @Override
+    public void error(MediaPlayer mediaPlayer) {
+      SwingUtilities.invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          String address = candidates.poll();
+          if(address != null) {
+            play(address);
+          }
+        }
+      });
+    }
+  }
+  
+  /**
+   * Play an address, recording it if recording is enabled.
+   * 
+   * @param address address to play
+   */
+  private void play(String address) {
+    String[] mediaOptions = record ? getRecordMediaOptions(address) : new String[0];
+    mediaPlayer.playMedia(address, mediaOptions);
+  }
+  
   private String[] getRecordMediaOptions(String address) {
     File file = getFile(address);
     StringBuilder sb = new StringBuilder(200);
@@ -0,0 +1,160 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.service.cache.ProcessLock;
+import uk.co.caprica.vlcj.radio.service.cache.StationStore;
+import uk.co.caprica.vlcj.radio.service.icecast.CachedIcecastDirectoryService;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+
+public class CacheWriterTest {
+
+  private File directory;
+  
+  private CachedDirectoryService service;
+  
+  @Before
+  public void before() throws IOException {
+    directory = File.createTempFile("cache-writer", "");
+    directory.delete();
+    service = new CachedIcecastDirectoryService(new StationStore(directory));
+  }
+  
+  @After
+  public void after() {
+    delete(directory);
+  }
+  
+  @Test
+  public void testStoredDirectoryIsWritten() {
+    CacheWriter writer = new CacheWriter();
+    writer.store(service, directory(3), null, null);
+    assertTrue(writer.shutdown());
+    assertEquals(1, service.getHistory().size());
+    assertEquals(3, service.directory().entries().size());
+  }
+  
+  @Test
+  public void testWritesToOneCacheAreCoalesced() throws Exception {
+    CacheWriter writer = new CacheWriter();
+    ProcessLock first = lock("first");
+    ProcessLock second = lock("second");
+    ProcessLock third = lock("third");
+    // The writer thread can not write to the cache while it is locked
+    synchronized(service) {
+      writer.store(service, directory(1), null, first);
+      writer.store(service, directory(2), null, second);
+      writer.store(service, directory(3), null, third);
+      // Replaced writes release their locks straight away
+      assertUnlocked("first");
+      assertUnlocked("second");
+      assertFalse(new ProcessLock(new File(directory, "third")).tryLock());
+    }
+    assertTrue(writer.shutdown());
+    assertUnlocked("third");
+    assertEquals(1, service.getHistory().size());
+    assertEquals(3, service.directory().entries().size());
+  }
+  
+  @Test
+  public void testFlushWritesOnTheCallingThread() {
+    CacheWriter writer = new CacheWriter();
+    synchronized(service) {
+      writer.store(service, directory(2), null, null);
+      writer.flush(service);
+      assertEquals(1, service.getHistory().size());
+    }
+    assertTrue(writer.shutdown());
+    assertEquals(1, service.getHistory().size());
+  }
+  
+  @Test
+  public void testShutdownDrainsTheQueue() {
+    CacheWriter writer = new CacheWriter();
+    CachedDirectoryService other = new CachedIcecastDirectoryService(new StationStore(new File(directory, "other")));
+    for(int i = 1; i <= 5; i++) {
+      writer.store(service, directory(i), null, null);
+      writer.store(other, directory(i), null, null);
+    }
+    assertTrue(writer.shutdown());
+    assertEquals(5, service.directory().entries().size());
+    assertEquals(5, other.directory().entries().size());
+    // After the shutdown a directory is written straight away
+    writer.store(service, directory(7), null, null);
+    assertEquals(7, service.directory().entries().size());
+  }
+  
+  @Test
+  public void testShutdownGivesUpAfterTheDrainTimeout() {
+    CacheWriter writer = new CacheWriter(100);
+    synchronized(service) {
+      writer.store(service, directory(1), null, null);
+      assertFalse(writer.shutdown());
+    }
+    // The write is still made once the cache is unlocked
+    assertTrue(writer.shutdown());
+    assertEquals(1, service.getHistory().size());
+  }
+  
+  private ProcessLock lock(String name) throws IOException {
+    ProcessLock lock = new ProcessLock(new File(directory, name));
+    lock.lock();
+    return lock;
+  }
+  
+  private void assertUnlocked(String name) throws IOException {
+    ProcessLock lock = new ProcessLock(new File(directory, name));
+    assertTrue(lock.tryLock());
+    lock.unlock();
+  }
+  
+  private static Directory directory(int count) {
+    List<IcecastDirectoryEntry> entries = new ArrayList<IcecastDirectoryEntry>();
+    for(int i = 0; i < count; i++) {
+      entries.add(new IcecastDirectoryEntry("Station " + i, "http://example.com/" + i, "audio/mpeg", "128", 2, 44100, "Rock", null));
+    }
+    return new IcecastDirectory(entries);
+  }
+  
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if(files != null) {
+      for(File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
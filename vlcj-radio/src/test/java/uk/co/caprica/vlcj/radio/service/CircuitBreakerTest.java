@@ -0,0 +1,91 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private static final long COOL_DOWN = 200;
+  
+  private final CircuitBreaker breaker = new CircuitBreaker(3, COOL_DOWN);
+  
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    breaker.recordFailure();
+    breaker.recordFailure();
+    assertTrue(breaker.allowRequest());
+    assertEquals(0, breaker.getRemainingCoolDown());
+    breaker.recordFailure();
+    assertFalse(breaker.allowRequest());
+    assertTrue(breaker.isOpen());
+    assertTrue(breaker.getRemainingCoolDown() > 0 && breaker.getRemainingCoolDown() <= COOL_DOWN);
+    assertEquals(3, breaker.getConsecutiveFailures());
+  }
+  
+  @Test
+  public void testSuccessResetsTheConsecutiveFailures() {
+    breaker.recordFailure();
+    breaker.recordFailure();
+    breaker.recordSuccess();
+    breaker.recordFailure();
+    breaker.recordFailure();
+    assertTrue(breaker.allowRequest());
+    assertEquals(2, breaker.getConsecutiveFailures());
+    assertEquals(4, breaker.getTotalFailures());
+  }
+  
+  @Test
+  public void testHalfOpenTrialSuccessCloses() throws Exception {
+    open();
+    Thread.sleep(COOL_DOWN + 50);
+    // After the cool-down a trial request is allowed through
+    assertTrue(breaker.allowRequest());
+    assertFalse(breaker.isOpen());
+    breaker.recordSuccess();
+    assertTrue(breaker.allowRequest());
+    assertEquals(0, breaker.getConsecutiveFailures());
+    // A single failure no longer re-opens the breaker
+    breaker.recordFailure();
+    assertTrue(breaker.allowRequest());
+  }
+  
+  @Test
+  public void testHalfOpenTrialFailureReopens() throws Exception {
+    open();
+    Thread.sleep(COOL_DOWN + 50);
+    assertTrue(breaker.allowRequest());
+    breaker.recordFailure();
+    assertFalse(breaker.allowRequest());
+    assertTrue(breaker.getRemainingCoolDown() > COOL_DOWN / 2);
+    assertEquals(4, breaker.getTotalFailures());
+  }
+  
+  private void open() {
+    for(int i = 0; i < 3; i++) {
+      breaker.recordFailure();
+    }
+    assertTrue(breaker.isOpen());
+  }
+}
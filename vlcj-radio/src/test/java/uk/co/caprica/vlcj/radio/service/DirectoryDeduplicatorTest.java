@@ -0,0 +1,130 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+
+package uk.co.caprica.vlcj.radio.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.MergedEntry;
+import uk.co.caprica.vlcj.radio.service.bbcstreams.BbcStreamsDirectory;
+import uk.co.caprica.vlcj.radio.service.bbcstreams.BbcStreamsDirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+
+public class DirectoryDeduplicatorTest {
+  
+  private final DirectorySource icecast = new DirectorySource("Icecast", null, null, 0, 0);
+  
+  private final DirectorySource bbcStreams = new DirectorySource("BBC Streams", null, null, 0, 0);
+  
+  private final DirectoryDeduplicator deduplicator = new DirectoryDeduplicator(Arrays.asList(icecast, bbcStreams));
+  
+  @Test
+  public void testDistinctEntriesAreKept() {
+    IcecastDirectoryEntry a = icecast("a", "http://example.com/a", "128");
+    IcecastDirectoryEntry b = icecast("b", "http://example.com/b", "128");
+    Map<DirectorySource, List<DirectoryEntry>> changed = deduplicator.update(icecast, icecastDirectory(a, b));
+    assertEquals(Arrays.<DirectoryEntry>asList(a, b), changed.get(icecast));
+    assertEquals(0, deduplicator.getDuplicateCount());
+  }
+  
+  @Test
+  public void testEntriesAreMergedAcrossDirectories() {
+    BbcStreamsDirectoryEntry listed = new BbcStreamsDirectoryEntry("Radio", "http://example.com/radio.m3u");
+    deduplicator.update(bbcStreams, new BbcStreamsDirectory(new ArrayList<BbcStreamsDirectoryEntry>(Arrays.asList(listed))));
+    assertEquals(Arrays.<DirectoryEntry>asList(listed), deduplicator.getEntries(bbcStreams));
+    // The earlier directory takes the stream over, and the later one changes
+    IcecastDirectoryEntry first = icecast(null, "http://EXAMPLE.com:80/radio", "128");
+    Map<DirectorySource, List<DirectoryEntry>> changed = deduplicator.update(icecast, icecastDirectory(first));
+    assertEquals(2, changed.size());
+    assertEquals(Collections.<DirectoryEntry>emptyList(), changed.get(bbcStreams));
+    assertEquals(1, deduplicator.getDuplicateCount());
+    MergedEntry merged = (MergedEntry)deduplicator.getEntries(icecast).get(0);
+    assertEquals("http://EXAMPLE.com:80/radio", merged.getUrl());
+    // Details missing from the first listing are taken from the others
+    assertEquals("Radio", merged.getName());
+    assertEquals("128", merged.getBitRate());
+    assertEquals("Icecast, BBC Streams", merged.getDirectory());
+    // The combination of directories is not added to the dictionary
+    assertEquals(-1, merged.getDirectoryCode());
+    assertEquals("icecast, bbc streams", merged.getDirectoryKey());
+    assertEquals(Arrays.asList("http://example.com/radio.m3u"), merged.getAlternateUrls());
+  }
+  
+  @Test
+  public void testUnchangedMergedEntryIsKept() {
+    IcecastDirectoryEntry a = icecast("a", "http://example.com/a", "128");
+    IcecastDirectoryEntry b = icecast("b", "http://example.com/a/", "64");
+    deduplicator.update(icecast, icecastDirectory(a, b));
+    DirectoryEntry merged = deduplicator.getEntries(icecast).get(0);
+    assertTrue(merged instanceof MergedEntry);
+    Map<DirectorySource, List<DirectoryEntry>> changed = deduplicator.update(bbcStreams, new BbcStreamsDirectory(new ArrayList<BbcStreamsDirectoryEntry>()));
+    assertFalse(changed.containsKey(icecast));
+    assertSame(merged, deduplicator.getEntries(icecast).get(0));
+  }
+  
+  @Test
+  public void testAlternatesAreOrderedByBitRate() {
+    IcecastDirectoryEntry first = icecast("radio", "http://example.com/radio", "64");
+    IcecastDirectoryEntry low = icecast("radio", "http://example.com/radio.m3u", "32");
+    IcecastDirectoryEntry unknown = icecast("radio", "http://example.com/radio.pls", null);
+    IcecastDirectoryEntry high = icecast("radio", "http://example.com/radio/", "320");
+    IcecastDirectoryEntry alsoHigh = icecast("radio", "http://example.com/radio.xspf", "320 kbps");
+    deduplicator.update(icecast, icecastDirectory(first, low, unknown, high, alsoHigh));
+    MergedEntry merged = (MergedEntry)deduplicator.getEntries(icecast).get(0);
+    assertEquals("http://example.com/radio", merged.getUrl());
+    assertEquals(Arrays.asList("http://example.com/radio/", "http://example.com/radio.xspf", "http://example.com/radio.m3u", "http://example.com/radio.pls"), merged.getAlternateUrls());
+    assertEquals(4, deduplicator.getDuplicateCount());
+  }
+  
+  @Test
+  public void testSameAddressHasNoAlternates() {
+    IcecastDirectoryEntry a = icecast("a", "http://example.com/a", "128");
+    IcecastDirectoryEntry b = icecast("b", "http://example.com/a", "64");
+    deduplicator.update(icecast, icecastDirectory(a, b));
+    List<DirectoryEntry> entries = deduplicator.getEntries(icecast);
+    assertEquals(1, entries.size());
+    MergedEntry merged = (MergedEntry)entries.get(0);
+    assertTrue(merged.getAlternateUrls().isEmpty());
+    // A single directory is coded as usual
+    assertEquals("Icecast", ValueDictionary.shared().getValue(merged.getDirectoryCode()));
+  }
+  
+  private static IcecastDirectory icecastDirectory(IcecastDirectoryEntry... entries) {
+    return new IcecastDirectory(Arrays.asList(entries));
+  }
+  
+  private static IcecastDirectoryEntry icecast(String name, String url, String bitRate) {
+    return new IcecastDirectoryEntry(name, url, "audio/mpeg", bitRate, 2, 44100, "Rock", null);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.service.http.HttpStatusException;
+
+public class RetryPolicyTest {
+
+  private final RetryPolicy policy = new RetryPolicy(3, 1000, 5000);
+  
+  @Test
+  public void testDelayDoublesWithJitterOfUpToHalf() {
+    for(int i = 0; i < 1000; i++) {
+      assertBetween(500, 1000, policy.getDelay(1));
+      assertBetween(1000, 2000, policy.getDelay(2));
+      assertBetween(2000, 4000, policy.getDelay(3));
+    }
+  }
+  
+  @Test
+  public void testDelayIsLimitedToTheMaximum() {
+    for(int i = 0; i < 1000; i++) {
+      assertBetween(2500, 5000, policy.getDelay(4));
+      assertBetween(2500, 5000, policy.getDelay(64));
+      assertBetween(2500, 5000, policy.getDelay(Integer.MAX_VALUE));
+    }
+  }
+  
+  @Test
+  public void testAttemptsAreLimited() {
+    IOException failure = new IOException();
+    assertTrue(policy.shouldRetry(1, failure));
+    assertTrue(policy.shouldRetry(2, failure));
+    assertFalse(policy.shouldRetry(3, failure));
+  }
+  
+  @Test
+  public void testTemporaryFailuresAreRetried() {
+    assertTrue(policy.shouldRetry(1, new IOException()));
+    assertTrue(policy.shouldRetry(1, new SocketTimeoutException()));
+    assertTrue(policy.shouldRetry(1, new HttpStatusException(500, "http://example.com")));
+    assertTrue(policy.shouldRetry(1, new HttpStatusException(503, "http://example.com")));
+    assertTrue(policy.shouldRetry(1, new HttpStatusException(429, "http://example.com")));
+    assertTrue(policy.shouldRetry(1, new HttpStatusException(408, "http://example.com")));
+    // The directory services wrap the original failure
+    assertTrue(policy.shouldRetry(1, new RuntimeException(new SocketTimeoutException())));
+  }
+  
+  @Test
+  public void testPermanentFailuresAreNotRetried() {
+    assertFalse(policy.shouldRetry(1, new HttpStatusException(404, "http://example.com")));
+    assertFalse(policy.shouldRetry(1, new UnknownHostException()));
+    assertFalse(policy.shouldRetry(1, new InterruptedIOException()));
+    assertFalse(policy.shouldRetry(1, new RuntimeException()));
+    assertFalse(policy.shouldRetry(1, new RuntimeException(new HttpStatusException(403, "http://example.com"))));
+  }
+  
+  private static void assertBetween(long min, long max, long value) {
+    assertTrue(value + " not in " + min + ".." + max, value > min && value <= max);
+  }
+}
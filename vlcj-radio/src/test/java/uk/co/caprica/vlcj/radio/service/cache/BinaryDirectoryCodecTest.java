@@ -0,0 +1,231 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+
+public class BinaryDirectoryCodecTest {
+
+  private final BinaryDirectoryCodec codec = new BinaryDirectoryCodec();
+  
+  @Test
+  public void testRoundTrip() throws Exception {
+    Directory directory = directory(
+      new IcecastDirectoryEntry("Radio \u00e9t\u00e9 \u266b", "http://example.com/a", "audio/mpeg", "128", 2, 44100, "Rock", "Artist - Title"),
+      new IcecastDirectoryEntry(null, "http://example.com/b", null, null, -1, -1, null, null),
+      new IcecastDirectoryEntry("", "http://example.com/c", "audio/mpeg", "128", Integer.MIN_VALUE, Integer.MAX_VALUE, "Rock", "")
+    );
+    Directory read = read(write(directory));
+    assertEntries(directory.entries(), read.entries());
+  }
+  
+  @Test
+  public void testRepeatedValuesAreStoredOnce() throws Exception {
+    String genre = "A very long genre name that repeats on every entry";
+    List<IcecastDirectoryEntry> withGenre = new ArrayList<IcecastDirectoryEntry>();
+    List<IcecastDirectoryEntry> withoutGenre = new ArrayList<IcecastDirectoryEntry>();
+    for(int i = 0; i < 100; i++) {
+      withGenre.add(new IcecastDirectoryEntry("Station " + i, "http://example.com/" + i, "audio/mpeg", "128", 2, 44100, genre, null));
+      withoutGenre.add(new IcecastDirectoryEntry("Station " + i, "http://example.com/" + i, "audio/mpeg", "128", 2, 44100, null, null));
+    }
+    byte[] data = write(new IcecastDirectory(withGenre));
+    // 200 distinct names and urls, plus the directory name, type, bit-rate and genre
+    assertEquals(204, ByteBuffer.wrap(data).getInt(12));
+    // The genre costs one string table entry, not one copy per entry
+    int genreCost = data.length - write(new IcecastDirectory(withoutGenre)).length;
+    assertTrue(genreCost < 2 * genre.length());
+  }
+  
+  @Test
+  public void testEmptyDirectory() throws Exception {
+    byte[] data = write(directory());
+    assertEquals(BinaryDirectoryCodec.HEADER_LENGTH, data.length);
+    assertEquals(0, read(data).entries().size());
+  }
+  
+  @Test
+  public void testMappedDirectoryReadsTheSameEntries() throws Exception {
+    Directory directory = directory(
+      new IcecastDirectoryEntry("One", "http://example.com/1", "audio/mpeg", "128", 2, 44100, "Rock", null),
+      new IcecastDirectoryEntry(null, "http://example.com/2", null, null, -1, -1, null, "Now")
+    );
+    MappedDirectory mapped = MappedDirectory.open(ByteBuffer.wrap(write(directory)));
+    assertEntries(directory.entries(), mapped.entries());
+    assertEquals("Icecast", mapped.entries().get(0).getDirectory());
+  }
+  
+  @Test
+  public void testNotABinaryDirectory() throws Exception {
+    byte[] data = write(directory(entry("One")));
+    data[0] = '<';
+    assertReadFails(data, "Not a binary directory");
+  }
+  
+  @Test
+  public void testUnsupportedVersion() throws Exception {
+    byte[] data = write(directory(entry("One")));
+    data[5] = (byte)(BinaryDirectoryCodec.VERSION + 1);
+    assertReadFails(data, "Unsupported binary directory version " + (BinaryDirectoryCodec.VERSION + 1));
+  }
+  
+  @Test
+  public void testChecksumMismatch() throws Exception {
+    byte[] data = write(directory(entry("One")));
+    data[data.length - 1] ^= 1;
+    assertReadFails(data, "Binary directory checksum mismatch");
+  }
+  
+  @Test
+  public void testTruncated() throws Exception {
+    byte[] data = write(directory(entry("One"), entry("Two")));
+    try {
+      read(Arrays.copyOf(data, data.length - 3));
+      fail("Expected EOFException");
+    }
+    catch(EOFException e) {
+    }
+  }
+  
+  @Test
+  public void testDamagedPayloadLength() throws Exception {
+    byte[] data = write(directory(entry("One"), entry("Two")));
+    ByteBuffer.wrap(data).putInt(16, Integer.MAX_VALUE);
+    try {
+      read(data);
+      fail("Expected EOFException");
+    }
+    catch(EOFException e) {
+    }
+    try {
+      codec.read(new ByteArrayInputStream(data), newBuilder(), data.length - BinaryDirectoryCodec.HEADER_LENGTH);
+      fail("Expected IOException");
+    }
+    catch(IOException e) {
+      assertEquals("Corrupt binary directory header", e.getMessage());
+    }
+  }
+  
+  @Test
+  public void testMappedChecksumMismatch() throws Exception {
+    byte[] data = write(directory(entry("One")));
+    MappedDirectory.open(ByteBuffer.wrap(data)).verify();
+    data[data.length - 1] ^= 1;
+    MappedDirectory mapped = MappedDirectory.open(ByteBuffer.wrap(data));
+    try {
+      mapped.verify();
+      fail("Expected IOException");
+    }
+    catch(IOException e) {
+      assertEquals("Binary directory checksum mismatch", e.getMessage());
+    }
+  }
+  
+  @Test
+  public void testMappedUnsupportedVersion() throws Exception {
+    byte[] data = write(directory(entry("One")));
+    data[5] = (byte)(BinaryDirectoryCodec.VERSION + 1);
+    try {
+      MappedDirectory.open(ByteBuffer.wrap(data));
+      fail("Expected IOException");
+    }
+    catch(IOException e) {
+      assertEquals("Unsupported binary directory version " + (BinaryDirectoryCodec.VERSION + 1), e.getMessage());
+    }
+  }
+  
+  private byte[] write(Directory directory) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(directory, out);
+    return out.toByteArray();
+  }
+  
+  private Directory read(byte[] data) throws IOException {
+    return codec.read(new ByteArrayInputStream(data), newBuilder());
+  }
+  
+  private DirectoryBuilder newBuilder() {
+    return new DirectoryBuilder() {
+      
+      private final List<IcecastDirectoryEntry> entries = new ArrayList<IcecastDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new IcecastDirectoryEntry(name, url, type, bitRate, channels, sampleRate, genre, nowPlaying));
+      }
+
+      @Override
+      public Directory build() {
+        return new IcecastDirectory(entries);
+      }
+    };
+  }
+  
+  private void assertReadFails(byte[] data, String message) {
+    try {
+      read(data);
+      fail("Expected IOException");
+    }
+    catch(IOException e) {
+      assertEquals(message, e.getMessage());
+    }
+  }
+  
+  private static void assertEntries(List<? extends DirectoryEntry> expected, List<? extends DirectoryEntry> actual) {
+    assertEquals(expected.size(), actual.size());
+    for(int i = 0; i < expected.size(); i++) {
+      DirectoryEntry e = expected.get(i);
+      DirectoryEntry a = actual.get(i);
+      assertEquals(e.getName(), a.getName());
+      assertEquals(e.getUrl(), a.getUrl());
+      assertEquals(e.getType(), a.getType());
+      assertEquals(e.getBitRate(), a.getBitRate());
+      assertEquals(e.getChannels(), a.getChannels());
+      assertEquals(e.getSampleRate(), a.getSampleRate());
+      assertEquals(e.getGenre(), a.getGenre());
+      assertEquals(e.getNowPlaying(), a.getNowPlaying());
+    }
+  }
+  
+  private static IcecastDirectoryEntry entry(String name) {
+    return new IcecastDirectoryEntry(name, "http://example.com/" + name, "audio/mpeg", "128", 2, 44100, "Rock", null);
+  }
+  
+  private static Directory directory(IcecastDirectoryEntry... entries) {
+    return new IcecastDirectory(new ArrayList<IcecastDirectoryEntry>(Arrays.asList(entries)));
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BitRatesTest {
+
+  @Test
+  public void testNoValue() {
+    assertEquals(BitRates.UNKNOWN, BitRates.parse(null));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse(""));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("   "));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("n/a"));
+  }
+  
+  @Test
+  public void testKbps() {
+    assertEquals(128, BitRates.parse("128"));
+    assertEquals(128, BitRates.parse(" 128 "));
+    assertEquals(128, BitRates.parse("128k"));
+    assertEquals(128, BitRates.parse("128K"));
+    assertEquals(320, BitRates.parse("320 Kbps"));
+    assertEquals(64, BitRates.parse("64 kbit/s"));
+  }
+  
+  @Test
+  public void testOtherUnits() {
+    assertEquals(128, BitRates.parse("128000"));
+    assertEquals(128, BitRates.parse("128000 bps"));
+    assertEquals(128, BitRates.parse("128000b"));
+    assertEquals(2000, BitRates.parse("2 Mbps"));
+    assertEquals(1500, BitRates.parse("1.5 Mbps"));
+    assertEquals(1500, BitRates.parse("1,5 Mbps"));
+    assertEquals(1234, BitRates.parse("1.2345 Mbps"));
+    assertEquals(500, BitRates.parse("0.5M"));
+  }
+  
+  @Test
+  public void testLargestNumberWithoutUnit() {
+    assertEquals(9999, BitRates.parse("9999"));
+    assertEquals(10, BitRates.parse("10000"));
+  }
+  
+  @Test
+  public void testFractionWithoutUnitIsDropped() {
+    assertEquals(128, BitRates.parse("128.5"));
+    assertEquals(128, BitRates.parse("128.5 kbps"));
+  }
+  
+  @Test
+  public void testFirstBitRateIsUsed() {
+    assertEquals(96, BitRates.parse("96/128"));
+    assertEquals(96, BitRates.parse("96k, 128k"));
+  }
+  
+  @Test
+  public void testNumberWithoutUnitMustStartTheValue() {
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("Quality 5"));
+    assertEquals(128, BitRates.parse("mp3 128k"));
+    assertEquals(128, BitRates.parse("MP3 @ 128 kbps"));
+  }
+  
+  @Test
+  public void testFrequenciesAreSkipped() {
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("44.1 kHz"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("48000 Hz"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("98.5 MHz"));
+    assertEquals(128, BitRates.parse("44.1 kHz, 128 kbps"));
+    assertEquals(128, BitRates.parse("44100Hz 128k"));
+  }
+  
+  @Test
+  public void testOutOfRange() {
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("0"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("0 kbps"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("999 bps"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("99999999999"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("99999999999 kbps"));
+    assertEquals(128, BitRates.parse("99999999999 Hz 128 kbps"));
+    assertEquals(BitRates.UNKNOWN, BitRates.parse("2147483647 Mbps"));
+  }
+}
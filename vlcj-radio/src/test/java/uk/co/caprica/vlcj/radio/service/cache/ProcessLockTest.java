@@ -0,0 +1,147 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessLockTest {
+
+  private File file;
+  
+  @Before
+  public void before() throws IOException {
+    file = File.createTempFile("process-lock", ".lock");
+  }
+  
+  @After
+  public void after() {
+    file.delete();
+  }
+  
+  @Test
+  public void testSecondHolderInThisProcessIsRefused() throws Exception {
+    ProcessLock first = new ProcessLock(file);
+    ProcessLock second = new ProcessLock(file);
+    assertTrue(first.tryLock());
+    assertFalse(second.tryLock());
+    // The lock is not re-entrant
+    assertFalse(first.tryLock());
+    first.unlock();
+    assertTrue(second.tryLock());
+    second.unlock();
+  }
+  
+  @Test(timeout = 10000)
+  public void testWaiterInThisProcessGetsTheLockWhenReleased() throws Exception {
+    final ProcessLock first = new ProcessLock(file);
+    first.lock();
+    final CountDownLatch locked = new CountDownLatch(1);
+    final AtomicBoolean reported = new AtomicBoolean();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          ProcessLock second = new ProcessLock(file);
+          second.lock(new Runnable() {
+            @Override
+            public void run() {
+              reported.set(true);
+            }
+          });
+          locked.countDown();
+          second.unlock();
+        }
+        catch(IOException e) {
+        }
+      }
+    };
+    thread.start();
+    assertFalse(locked.await(200, TimeUnit.MILLISECONDS));
+    first.unlock();
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+    // Waiting for another thread is not reported
+    assertFalse(reported.get());
+  }
+  
+  @Test(timeout = 30000)
+  public void testSecondHolderInAnotherProcessIsRefused() throws Exception {
+    final Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp", System.getProperty("java.class.path"), ProcessLockTest.class.getName(), file.getPath()).redirectErrorStream(true).start();
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+      assertEquals("locked", in.readLine());
+      ProcessLock lock = new ProcessLock(file);
+      assertFalse(lock.tryLock());
+      final AtomicInteger waiting = new AtomicInteger();
+      final Thread release = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Thread.sleep(200);
+          }
+          catch(InterruptedException e) {
+          }
+          process.destroy();
+        }
+      };
+      // The lock is acquired when the other process exits, after reporting the wait
+      lock.lock(new Runnable() {
+        @Override
+        public void run() {
+          waiting.incrementAndGet();
+          release.start();
+        }
+      });
+      assertEquals(1, waiting.get());
+      lock.unlock();
+    }
+    finally {
+      process.destroy();
+      process.waitFor();
+    }
+  }
+  
+  /**
+   * Hold a lock in another process until the process is destroyed.
+   * 
+   * @param args lock file
+   * @throws Exception if the lock could not be acquired
+   */
+  public static void main(String[] args) throws Exception {
+    new ProcessLock(new File(args[0])).lock();
+    System.out.println("locked");
+    System.out.flush();
+    Thread.sleep(Long.MAX_VALUE);
+  }
+}
@@ -0,0 +1,524 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.Directory;
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.model.IndexedEntry;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+
+public class StationStoreTest {
+
+  private static final String KEY = "icecast";
+  
+  private File directory;
+  
+  @Before
+  public void before() throws IOException {
+    directory = File.createTempFile("station-store", "");
+    directory.delete();
+  }
+  
+  @After
+  public void after() {
+    System.clearProperty("vlcj.radio.cache.mapped");
+    System.clearProperty("vlcj.radio.cache.compression");
+    System.clearProperty("vlcj.radio.cache.history");
+    delete(directory);
+  }
+  
+  @Test
+  public void testWriteAndRead() throws Exception {
+    StationStore store = new StationStore(directory);
+    assertFalse(store.contains(KEY));
+    assertNull(store.read(KEY, builder()));
+    assertEquals(-1, store.getEntryCount(KEY));
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, "\"etag\"", "yesterday");
+    assertTrue(store.contains(KEY));
+    assertEntries(first, store.read(KEY, builder()));
+    assertEquals(2, store.getEntryCount(KEY));
+    assertEquals(1000, store.getLastUpdated(KEY));
+    assertEquals("\"etag\"", store.getEntityTag(KEY));
+    assertEquals("yesterday", store.getLastModified(KEY));
+    store.touch(KEY, 2000);
+    assertEquals(2000, store.getLastUpdated(KEY));
+    assertEquals(2, store.readIndexed(KEY, builder()).entries().size());
+  }
+  
+  @Test
+  public void testHistory() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"), entry("Three", "c"));
+    Directory second = directory(entry("One", "a"), entry("Two changed", "b"), entry("Four", "d"));
+    store.write(KEY, first, 1000, null, null);
+    store.write(KEY, second, 2000, null, null);
+    List<DirectoryGeneration> history = store.getHistory(KEY);
+    assertEquals(2, history.size());
+    assertEquals(1, history.get(0).getGeneration());
+    assertEquals(3, history.get(0).getEntryCount());
+    assertEquals(2, history.get(1).getGeneration());
+    assertEntries(first, store.read(KEY, 1, builder()));
+    assertEntries(second, store.read(KEY, 2, builder()));
+    DirectoryDiff diff = store.diff(KEY, 1, 2);
+    assertEquals(1, diff.getAdded().size());
+    assertEquals("Four", diff.getAdded().get(0).getName());
+    assertEquals(1, diff.getRemoved().size());
+    assertEquals("Three", diff.getRemoved().get(0).getName());
+    assertEquals(1, diff.getChanged().size());
+    assertEquals("Two changed", diff.getChanged().get(0).getName());
+    assertTrue(store.restore(KEY, 1, 3000));
+    assertEntries(first, store.read(KEY, builder()));
+    assertEquals(3, store.getHistory(KEY).size());
+    assertFalse(store.restore(KEY, 7, 4000));
+    assertNull(store.read(KEY, 7, builder()));
+  }
+  
+  @Test
+  public void testCompactAndReopen() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    Directory second = directory(entry("One", "a"), entry("Three", "c"), entry(null, "d"));
+    store.write(KEY, first, 1000, "\"1\"", null);
+    store.write(KEY, second, 2000, "\"2\"", null);
+    store.write("other", directory(entry("Other", "x")), 500, null, null);
+    store.compact();
+    store.compact();
+    assertTrue(new File(directory, "stations.dat.prev").exists());
+    StationStore reopened = new StationStore(directory);
+    assertEntries(second, reopened.read(KEY, builder()));
+    assertEntries(first, reopened.read(KEY, 1, builder()));
+    assertEquals("\"2\"", reopened.getEntityTag(KEY));
+    assertEquals(2000, reopened.getLastUpdated(KEY));
+    assertEquals(3, reopened.getEntryCount(KEY));
+    assertEquals(1, reopened.getEntryCount("other"));
+    assertEquals(3, reopened.readIndexed(KEY, builder()).entries().size());
+    // Changes made by one store are seen by another sharing the files
+    store.write(KEY, first, 3000, null, null);
+    assertEntries(first, reopened.read(KEY, builder()));
+    reopened.compact();
+    store.touch(KEY, 4000);
+    assertEquals(4000, reopened.getLastUpdated(KEY));
+  }
+  
+  @Test
+  public void testCompactionIsLeftToTheProcessAlreadyCompacting() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    ProcessLock compactionLock = new ProcessLock(new File(directory, "stations-compaction.lock"));
+    compactionLock.lock();
+    try {
+      store.compact();
+    }
+    finally {
+      compactionLock.unlock();
+    }
+    assertFalse(new File(directory, "stations.dat").exists());
+    store.compact();
+    assertTrue(new File(directory, "stations.dat").exists());
+    assertEntries(first, new StationStore(directory).read(KEY, builder()));
+  }
+  
+  @Test
+  public void testCompression() throws Exception {
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    for(String compression : Arrays.asList("deflate", "gzip", "none")) {
+      System.setProperty("vlcj.radio.cache.compression", compression);
+      StationStore store = new StationStore(directory);
+      store.write(KEY, first, 1000, null, null);
+      store.compact();
+      StationStore reopened = new StationStore(directory);
+      assertEntries(first, reopened.read(KEY, builder()));
+      assertEquals(2, reopened.getEntryCount(KEY));
+    }
+  }
+  
+  @Test
+  public void testMappedDirectoryOutlivesCompaction() throws Exception {
+    System.setProperty("vlcj.radio.cache.mapped", "true");
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    store.compact();
+    Directory mapped = store.read(KEY, builder());
+    assertTrue(mapped instanceof MappedDirectory);
+    assertEquals(2, store.readIndexed(KEY, builder()).entries().size());
+    store.write(KEY, directory(entry("Three", "c")), 2000, null, null);
+    store.compact();
+    store.compact();
+    assertEntries(first, mapped);
+    assertEquals("Three", store.read(KEY, builder()).entries().get(0).getName());
+  }
+  
+  @Test
+  public void testMappedDirectoryIsIndexedWithoutDecoding() throws Exception {
+    System.setProperty("vlcj.radio.cache.mapped", "true");
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("Two", "b"), entry(null, "d"), entry("one", "c"), entry("One", "a"));
+    store.write(KEY, first, 1000, null, null);
+    store.compact();
+    Directory indexed = store.readIndexed(KEY, builder());
+    assertTrue(indexed instanceof MappedIndexedDirectory);
+    List<? extends DirectoryEntry> expected = ColumnarDirectory.of(first).entries();
+    List<? extends DirectoryEntry> actual = indexed.entries();
+    assertEquals(expected.size(), actual.size());
+    for(int i = 0; i < expected.size(); i++) {
+      IndexedEntry e = (IndexedEntry)expected.get(i);
+      IndexedEntry a = (IndexedEntry)actual.get(i);
+      assertEquals(e.getUrl(), a.getUrl());
+      assertEquals(e.getDirectoryKey(), a.getDirectoryKey());
+      assertEquals(e.getNameKey(), a.getNameKey());
+      assertEquals(e.getUrlKey(), a.getUrlKey());
+      assertEquals(e.getTypeKey(), a.getTypeKey());
+      assertEquals(e.getGenreKey(), a.getGenreKey());
+      assertEquals(e.getNameRank(), a.getNameRank());
+      assertEquals(e.getUrlRank(), a.getUrlRank());
+      assertEquals(e.getDirectoryCode(), a.getDirectoryCode());
+      assertEquals(e.getTypeCode(), a.getTypeCode());
+      assertEquals(e.getBitRateCode(), a.getBitRateCode());
+      assertEquals(e.getGenreCode(), a.getGenreCode());
+      assertEquals(e.getBitRateKbps(), a.getBitRateKbps());
+      assertEquals(e.getChannels(), a.getChannels());
+      assertEquals(e.getSampleRate(), a.getSampleRate());
+      // The same instance every time
+      assertSame(a, actual.get(i));
+    }
+    for(int i = 1; i < actual.size(); i++) {
+      assertTrue(actual.get(i - 1).compareTo(actual.get(i)) <= 0);
+    }
+  }
+  
+  @Test
+  public void testDamagedSnapshotFallsBackToPreviousCopy() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    store.compact();
+    store.compact();
+    RandomAccessFile file = new RandomAccessFile(new File(directory, "stations.dat"), "rw");
+    try {
+      file.seek(30);
+      int value = file.read();
+      file.seek(30);
+      file.write(0xff ^ value);
+    }
+    finally {
+      file.close();
+    }
+    StationStore reopened = new StationStore(directory);
+    assertEntries(first, reopened.read(KEY, builder()));
+    assertTrue(new File(directory, "stations.dat.corrupt").exists());
+  }
+  
+  @Test
+  public void testDamagedDirectoryIsRecoveredFromPreviousCopy() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    Directory second = directory(entry("One", "a"), entry("Three", "c"));
+    store.write(KEY, first, 1000, null, null);
+    store.write(KEY, second, 2000, "\"2\"", null);
+    store.compact();
+    store.compact();
+    damageFirstDirectory();
+    StationStore reopened = new StationStore(directory);
+    assertEntries(second, reopened.read(KEY, builder()));
+    // The copy is of the current generation, so nothing is lost
+    assertEquals(2000, reopened.getLastUpdated(KEY));
+    assertEquals("\"2\"", reopened.getEntityTag(KEY));
+    assertGenerations(reopened, 1, 2);
+    assertEntries(first, reopened.read(KEY, 1, builder()));
+    assertEntries(second, new StationStore(directory).read(KEY, builder()));
+  }
+  
+  @Test
+  public void testDamagedMappedDirectoryIsRecovered() throws Exception {
+    System.setProperty("vlcj.radio.cache.mapped", "true");
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    store.compact();
+    store.compact();
+    damageFirstDirectory();
+    assertEntries(first, new StationStore(directory).readIndexed(KEY, builder()));
+  }
+  
+  @Test
+  public void testUnrecoverableDirectoryKeepsItsHistory() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    store.write(KEY, directory(entry("Three", "c")), 2000, "\"2\"", null);
+    store.compact();
+    assertFalse(new File(directory, "stations.dat.prev").exists());
+    damageFirstDirectory();
+    StationStore reopened = new StationStore(directory);
+    assertNull(reopened.read(KEY, builder()));
+    assertTrue(reopened.contains(KEY));
+    // Refreshed as soon as it is loaded, unconditionally
+    assertEquals(0, reopened.getLastUpdated(KEY));
+    assertNull(reopened.getEntityTag(KEY));
+    assertGenerations(reopened, 1, 2);
+    reopened.write(KEY, first, 3000, null, null);
+    assertEntries(first, new StationStore(directory).read(KEY, builder()));
+  }
+  
+  @Test
+  public void testIncompleteLogFrameIsDiscarded() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    File logFile = new File(directory, "stations.log");
+    long length = logFile.length();
+    FileOutputStream out = new FileOutputStream(logFile, true);
+    try {
+      out.write(new byte[] {0, 0, 0, 100, 1, 2, 3});
+    }
+    finally {
+      out.close();
+    }
+    StationStore reopened = new StationStore(directory);
+    assertEntries(first, reopened.read(KEY, builder()));
+    assertEquals(length, logFile.length());
+    reopened.write(KEY, directory(entry("Three", "c")), 2000, null, null);
+    assertEquals("Three", new StationStore(directory).read(KEY, builder()).entries().get(0).getName());
+  }
+  
+  @Test
+  public void testTornLastFrameIsDiscarded() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, "\"1\"", null);
+    File logFile = new File(directory, "stations.log");
+    long length = logFile.length();
+    store.write(KEY, directory(entry("One", "a"), entry("Three", "c")), 2000, "\"2\"", null);
+    // The crash came part way through writing the second frame
+    RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+    try {
+      file.setLength(file.length() - 5);
+    }
+    finally {
+      file.close();
+    }
+    StationStore reopened = new StationStore(directory);
+    assertEntries(first, reopened.read(KEY, builder()));
+    assertEquals("\"1\"", reopened.getEntityTag(KEY));
+    assertEquals(1, reopened.getHistory(KEY).size());
+    assertEquals(length, logFile.length());
+  }
+  
+  @Test
+  public void testFrameWithBadChecksumIsDiscarded() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    store.write(KEY, first, 1000, null, null);
+    File logFile = new File(directory, "stations.log");
+    long length = logFile.length();
+    store.write(KEY, directory(entry("Three", "c")), 2000, null, null);
+    RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+    try {
+      file.seek(file.length() - 1);
+      int value = file.read();
+      file.seek(file.length() - 1);
+      file.write(0xff ^ value);
+    }
+    finally {
+      file.close();
+    }
+    StationStore reopened = new StationStore(directory);
+    assertEntries(first, reopened.read(KEY, builder()));
+    assertEquals(length, logFile.length());
+  }
+  
+  @Test
+  public void testLogIsReplayedAfterCrash() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"), entry("Three", "c"));
+    Directory second = directory(entry("One", "a"), entry("Two changed", "b"), entry("Four", "d"));
+    store.write(KEY, first, 1000, null, null);
+    store.compact();
+    store.write(KEY, second, 2000, "\"2\"", "today");
+    store.write("other", directory(entry("Other", "x")), 1500, null, null);
+    store.touch(KEY, 3000);
+    // The store is never closed, so a new store sees what a restart after a 
+    // crash would see
+    StationStore reopened = new StationStore(directory);
+    assertEntries(second, reopened.read(KEY, builder()));
+    assertEntries(first, reopened.read(KEY, 1, builder()));
+    assertEquals(3000, reopened.getLastUpdated(KEY));
+    assertEquals("\"2\"", reopened.getEntityTag(KEY));
+    assertEquals("today", reopened.getLastModified(KEY));
+    assertEquals(2, reopened.getHistory(KEY).size());
+    assertEquals(1, reopened.getEntryCount("other"));
+  }
+  
+  @Test
+  public void testLogLeftByInterruptedCompactionIsIgnored() throws Exception {
+    StationStore store = new StationStore(directory);
+    Directory first = directory(entry("One", "a"), entry("Two", "b"));
+    Directory second = directory(entry("One", "a"), entry("Three", "c"));
+    store.write(KEY, first, 1000, null, null);
+    store.write(KEY, second, 2000, null, null);
+    File logFile = new File(directory, "stations.log");
+    byte[] log = read(logFile);
+    store.compact();
+    // The crash came after the snapshot was replaced but before the log was
+    FileOutputStream out = new FileOutputStream(logFile);
+    try {
+      out.write(log);
+    }
+    finally {
+      out.close();
+    }
+    StationStore reopened = new StationStore(directory);
+    assertEntries(second, reopened.read(KEY, builder()));
+    assertEquals(2, reopened.getHistory(KEY).size());
+    reopened.write(KEY, first, 3000, null, null);
+    assertEquals(3, new StationStore(directory).getHistory(KEY).size());
+  }
+  
+  @Test
+  public void testHistoryIsTrimmed() throws Exception {
+    System.setProperty("vlcj.radio.cache.history", "2");
+    StationStore store = new StationStore(directory);
+    for(int i = 1; i <= 5; i++) {
+      store.write(KEY, directory(entry("One", "a"), entry("Generation " + i, "g" + i)), i * 1000, null, null);
+    }
+    assertGenerations(store, 3, 4, 5);
+    assertNull(store.read(KEY, 2, builder()));
+    assertFalse(store.restore(KEY, 2, 6000));
+    assertEquals("Generation 3", store.read(KEY, 3, builder()).entries().get(1).getName());
+    assertGenerations(new StationStore(directory), 3, 4, 5);
+    store.compact();
+    assertGenerations(new StationStore(directory), 3, 4, 5);
+    // A smaller history is applied to the stored generations when they are read
+    System.setProperty("vlcj.radio.cache.history", "1");
+    assertGenerations(new StationStore(directory), 4, 5);
+    System.setProperty("vlcj.radio.cache.history", "0");
+    StationStore noHistory = new StationStore(directory);
+    noHistory.write(KEY, directory(entry("One", "a")), 7000, null, null);
+    assertGenerations(noHistory, 6);
+  }
+  
+  /**
+   * Damage the first encoded directory in the snapshot, leaving the table of
+   * contents intact.
+   */
+  private void damageFirstDirectory() throws IOException {
+    RandomAccessFile file = new RandomAccessFile(new File(directory, "stations.dat"), "rw");
+    try {
+      file.seek(20);
+      long position = 28 + file.readInt() + BinaryDirectoryCodec.HEADER_LENGTH + 1;
+      file.seek(position);
+      int value = file.read();
+      file.seek(position);
+      file.write(0xff ^ value);
+    }
+    finally {
+      file.close();
+    }
+  }
+  
+  private static void assertGenerations(StationStore store, int... generations) throws IOException {
+    List<DirectoryGeneration> history = store.getHistory(KEY);
+    assertEquals(generations.length, history.size());
+    for(int i = 0; i < generations.length; i++) {
+      assertEquals(generations[i], history.get(i).getGeneration());
+    }
+  }
+  
+  private static byte[] read(File file) throws IOException {
+    byte[] data = new byte[(int)file.length()];
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      in.readFully(data);
+    }
+    finally {
+      in.close();
+    }
+    return data;
+  }
+  
+  private static void assertEntries(Directory expected, Directory actual) {
+    List<? extends DirectoryEntry> e = expected.entries();
+    List<? extends DirectoryEntry> a = actual.entries();
+    assertEquals(e.size(), a.size());
+    for(int i = 0; i < e.size(); i++) {
+      assertEquals(e.get(i).getName(), a.get(i).getName());
+      assertEquals(e.get(i).getUrl(), a.get(i).getUrl());
+      assertEquals(e.get(i).getGenre(), a.get(i).getGenre());
+      assertEquals(e.get(i).getChannels(), a.get(i).getChannels());
+    }
+  }
+  
+  private static IcecastDirectoryEntry entry(String name, String path) {
+    return new IcecastDirectoryEntry(name, "http://example.com/" + path, "audio/mpeg", "128", 2, 44100, "Rock", null);
+  }
+  
+  private static Directory directory(IcecastDirectoryEntry... entries) {
+    return new IcecastDirectory(new ArrayList<IcecastDirectoryEntry>(Arrays.asList(entries)));
+  }
+  
+  private static DirectoryBuilder builder() {
+    return new DirectoryBuilder() {
+      
+      private final List<IcecastDirectoryEntry> entries = new ArrayList<IcecastDirectoryEntry>();
+      
+      @Override
+      public void add(String name, String url, String type, String bitRate, int channels, int sampleRate, String genre, String nowPlaying) {
+        entries.add(new IcecastDirectoryEntry(name, url, type, bitRate, channels, sampleRate, genre, nowPlaying));
+      }
+
+      @Override
+      public Directory build() {
+        return new IcecastDirectory(entries);
+      }
+    };
+  }
+  
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if(files != null) {
+      for(File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
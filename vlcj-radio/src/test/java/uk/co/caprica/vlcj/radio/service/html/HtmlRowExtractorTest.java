@@ -0,0 +1,120 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HtmlRowExtractorTest {
+
+  @Test
+  public void testRowsAndCells() throws Exception {
+    HtmlElement document = parse(
+      "<table id=stations>" +
+        "<tr><th>Name</th><th>Genre</th></tr>" +
+        "<tr><td>One</td><td> Rock \n &amp; Roll </td></tr>" +
+        "<tr><td>Two<td>Jazz" +
+      "</table>" +
+      "<table><tr><td>Other</td></tr></table>"
+    );
+    List<HtmlRow> rows = new HtmlRowExtractor("table#stations", "> tbody > tr", "> td", 1).extract(document);
+    assertEquals(2, rows.size());
+    assertEquals(2, rows.get(0).getCellCount());
+    assertEquals("One", rows.get(0).getText(0));
+    assertEquals("Rock & Roll", rows.get(0).getText(1));
+    // Unclosed cells and rows are closed by the next cell or row
+    assertEquals("Two", rows.get(1).getText(0));
+    assertEquals("Jazz", rows.get(1).getText(1));
+  }
+  
+  @Test
+  public void testMissingContainer() throws Exception {
+    HtmlElement document = parse("<table><tr><td>x</td></tr></table>");
+    assertTrue(new HtmlRowExtractor("table#missing", "> tbody > tr", "> td", 0).extract(document).isEmpty());
+  }
+  
+  @Test
+  public void testSkipMoreRowsThanThereAre() throws Exception {
+    HtmlElement document = parse("<table><tr><td>x</td></tr></table>");
+    assertTrue(new HtmlRowExtractor("table", "> tbody > tr", "> td", 5).extract(document).isEmpty());
+  }
+  
+  @Test
+  public void testRowsWithoutCells() throws Exception {
+    HtmlElement document = parse("<div class=post><h3>A</h3><ul><li>one<li>two</ul><h3>B</h3><ul><li>three</ul></div><ul><li>outside</ul>");
+    List<HtmlRow> rows = new HtmlRowExtractor("div.post > h3 ~ ul > li").extract(document);
+    assertEquals(3, rows.size());
+    assertEquals("one", rows.get(0).getElement().getText());
+    assertEquals("three", rows.get(2).getElement().getText());
+    assertEquals(0, rows.get(0).getCellCount());
+  }
+  
+  @Test
+  public void testNestedTables() throws Exception {
+    HtmlElement document = parse("<table id=t><tr><td>outer<table><tr><td>inner</td></tr></table></td><td>last</td></tr></table>");
+    List<HtmlRow> rows = new HtmlRowExtractor("table#t", "> tbody > tr", "> td", 0).extract(document);
+    assertEquals(1, rows.size());
+    assertEquals(2, rows.get(0).getCellCount());
+    assertEquals("last", rows.get(0).getText(1));
+  }
+  
+  @Test
+  public void testRecordedListenLivePage() throws Exception {
+    HtmlElement document = parseFixture("listenlive-uk.html");
+    List<HtmlRow> rows = new HtmlRowExtractor("table#thetable3", "> tbody > tr", "> td", 1).extract(document);
+    assertEquals(320, rows.size());
+    for(HtmlRow row : rows) {
+      assertEquals(5, row.getCellCount());
+      assertTrue(row.getCell(0).selectFirst("a b").getText().length() > 0);
+    }
+  }
+  
+  @Test
+  public void testRecordedIndymediaPage() throws Exception {
+    HtmlElement document = parseFixture("indymedia-0.html");
+    List<HtmlRow> rows = new HtmlRowExtractor("div#block-system-main div.view-content table", "> tbody > tr", "> td", 0).extract(document);
+    assertEquals(50, rows.size());
+    for(HtmlRow row : rows) {
+      assertEquals(7, row.getCellCount());
+      assertTrue(row.getCell(6).selectFirst("> a").getAttribute("href").startsWith("http://"));
+    }
+    assertEquals("/en/yp?page=2", document.selectFirst("div.item-list > ul.pager > li.pager-last > a").getAttribute("href"));
+  }
+  
+  private static HtmlElement parse(String html) throws Exception {
+    return new HtmlParser().parse(new StringReader(html));
+  }
+  
+  private static HtmlElement parseFixture(String name) throws Exception {
+    InputStream in = HtmlRowExtractorTest.class.getResourceAsStream("/fixtures/" + name);
+    try {
+      return new HtmlClient(null).parse(in, "text/html");
+    }
+    finally {
+      in.close();
+    }
+  }
+}
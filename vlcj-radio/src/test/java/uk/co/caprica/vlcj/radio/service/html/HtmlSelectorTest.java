@@ -0,0 +1,139 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HtmlSelectorTest {
+
+  private static final String HTML = 
+    "<div id=main class='content wide'>" +
+      "<h3>First</h3>" +
+      "<ul class=list><li>a</li><li class=x>b</li></ul>" +
+      "<p>between</p>" +
+      "<ul><li>c<ul><li>d</li></ul></li></ul>" +
+    "</div>" +
+    "<div class=content><a href=/x>link</a><a>no link</a></div>";
+  
+  @Test
+  public void testName() throws Exception {
+    assertEquals("[a, b, cd, d]", texts("li"));
+  }
+  
+  @Test
+  public void testIdAndClass() throws Exception {
+    assertEquals("[main]", ids("div#main"));
+    assertEquals("[main, null]", ids("div.content"));
+    assertEquals("[main]", ids("div.content.wide"));
+    assertEquals("[b]", texts("li.x"));
+    assertEquals("[]", texts("li.y"));
+  }
+  
+  @Test
+  public void testAttributes() throws Exception {
+    assertEquals("[link]", texts("a[href]"));
+    assertEquals("[link]", texts("a[href=/x]"));
+    assertEquals("[]", texts("a[href=/y]"));
+  }
+  
+  @Test
+  public void testDescendantAndChild() throws Exception {
+    assertEquals("[a, b, cd, d]", texts("div#main li"));
+    assertEquals("[a, b, cd]", texts("div#main > ul > li"));
+    assertEquals("[d]", texts("li > ul > li"));
+  }
+  
+  @Test
+  public void testFollowingSibling() throws Exception {
+    assertEquals("[list, null]", classes("h3 ~ ul"));
+    assertEquals("[a, b, cd]", texts("div > h3 ~ ul > li"));
+    assertEquals("[]", texts("p ~ h3"));
+  }
+  
+  @Test
+  public void testAnchoredSelector() throws Exception {
+    HtmlElement list = document().selectFirst("ul.list");
+    assertEquals(2, HtmlSelector.compile("> li").select(list).size());
+    HtmlElement main = document().selectFirst("div#main");
+    assertEquals(2, HtmlSelector.compile("> ul").select(main).size());
+    assertEquals(0, HtmlSelector.compile("> li").select(main).size());
+  }
+  
+  @Test
+  public void testWildcard() throws Exception {
+    HtmlElement list = document().selectFirst("ul.list");
+    assertEquals(2, HtmlSelector.compile("> *").select(list).size());
+  }
+  
+  @Test
+  public void testSelectFirst() throws Exception {
+    assertEquals("a", HtmlSelector.compile("li").selectFirst(document()).getText());
+    assertNull(HtmlSelector.compile("table").selectFirst(document()));
+  }
+  
+  @Test
+  public void testInvalidSelectors() {
+    for(String selector : new String[] {"", "   ", "ul >", "~ li", "> > li"}) {
+      try {
+        HtmlSelector.compile(selector);
+        fail("Expected '" + selector + "' to be rejected");
+      }
+      catch(IllegalArgumentException e) {
+        // Expected
+      }
+    }
+  }
+  
+  private static HtmlElement document() throws Exception {
+    return new HtmlParser().parse(new StringReader(HTML));
+  }
+  
+  private static String texts(String selector) throws Exception {
+    List<String> result = new ArrayList<String>();
+    for(HtmlElement element : HtmlSelector.compile(selector).select(document())) {
+      result.add(element.getText());
+    }
+    return result.toString();
+  }
+  
+  private static String ids(String selector) throws Exception {
+    List<String> result = new ArrayList<String>();
+    for(HtmlElement element : HtmlSelector.compile(selector).select(document())) {
+      result.add(element.getId());
+    }
+    return result.toString();
+  }
+  
+  private static String classes(String selector) throws Exception {
+    List<String> result = new ArrayList<String>();
+    for(HtmlElement element : HtmlSelector.compile(selector).select(document())) {
+      result.add(element.getAttribute("class"));
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class HtmlTokenizerTest {
+
+  @Test
+  public void testTagsAndText() throws Exception {
+    assertEquals("[<p>, 'Hello ', <b>, 'world', </b>, </p>]", tokens("<P>Hello <B>world</b></p>"));
+  }
+  
+  @Test
+  public void testAttributes() throws Exception {
+    HtmlTokenizer tokenizer = tokenizer("<a HREF=\"/a?x=1&amp;y=2\" class='one two' target=_blank disabled id=first id=second>");
+    assertEquals(HtmlTokenizer.START_TAG, tokenizer.next());
+    Map<String, String> attributes = tokenizer.getAttributes();
+    assertEquals("/a?x=1&y=2", attributes.get("href"));
+    assertEquals("one two", attributes.get("class"));
+    assertEquals("_blank", attributes.get("target"));
+    assertEquals("", attributes.get("disabled"));
+    assertEquals("first", attributes.get("id"));
+    assertEquals("[href, class, target, disabled, id]", attributes.keySet().toString());
+  }
+  
+  @Test
+  public void testSelfClosingTag() throws Exception {
+    HtmlTokenizer tokenizer = tokenizer("<br/><img src=x.png />");
+    assertEquals(HtmlTokenizer.START_TAG, tokenizer.next());
+    assertTrue(tokenizer.isSelfClosing());
+    assertEquals(HtmlTokenizer.START_TAG, tokenizer.next());
+    assertEquals("x.png", tokenizer.getAttributes().get("src"));
+    assertTrue(tokenizer.isSelfClosing());
+    assertEquals(HtmlTokenizer.END, tokenizer.next());
+  }
+  
+  @Test
+  public void testCharacterReferences() throws Exception {
+    assertEquals("['a & b < c \u00e9 A ' &bogus; & x']", tokens("a &amp; b &lt; c &#233; &#x41; &#39; &bogus; & x"));
+  }
+  
+  @Test
+  public void testCommentsAndDeclarationsAreSkipped() throws Exception {
+    assertEquals("[<p>, 'a', 'b', </p>]", tokens("<!DOCTYPE html><?xml version=\"1.0\"?><p>a<!-- <td> -- still a comment -->b</p>"));
+  }
+  
+  @Test
+  public void testScriptAndStyleContentIsSkipped() throws Exception {
+    assertEquals("[<script>, </script>, <style>, </style>, 'x']", tokens("<script>if(a < b) { document.write('</td>'); }</script><style>td > a {}</style>x"));
+  }
+  
+  @Test
+  public void testMalformedMarkup() throws Exception {
+    assertEquals("['a ', '< b ', <p>, 'c', </p>]", tokens("a < b <p>c</p></ >"));
+    assertEquals("[<p>]", tokens("<p"));
+    assertEquals("['x']", tokens("x<!-- unterminated"));
+  }
+  
+  @Test
+  public void testLongInput() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 5000; i++) {
+      sb.append("<td class=c").append(i).append(">").append(i).append("</td>");
+    }
+    HtmlTokenizer tokenizer = tokenizer(sb.toString());
+    int starts = 0;
+    int token;
+    while((token = tokenizer.next()) != HtmlTokenizer.END) {
+      if(token == HtmlTokenizer.START_TAG) {
+        assertEquals("c" + starts, tokenizer.getAttributes().get("class"));
+        assertFalse(tokenizer.isSelfClosing());
+        starts++;
+      }
+    }
+    assertEquals(5000, starts);
+  }
+  
+  private static HtmlTokenizer tokenizer(String html) {
+    return new HtmlTokenizer(new StringReader(html));
+  }
+  
+  private static String tokens(String html) throws Exception {
+    HtmlTokenizer tokenizer = tokenizer(html);
+    List<String> tokens = new ArrayList<String>();
+    int token;
+    while((token = tokenizer.next()) != HtmlTokenizer.END) {
+      switch(token) {
+        case HtmlTokenizer.START_TAG:
+          tokens.add("<" + tokenizer.getName() + ">");
+          break;
+          
+        case HtmlTokenizer.END_TAG:
+          tokens.add("</" + tokenizer.getName() + ">");
+          break;
+          
+        case HtmlTokenizer.TEXT:
+          tokens.add("'" + tokenizer.getText() + "'");
+          break;
+      }
+    }
+    return tokens.toString();
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.service.CacheValidators;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpTransportTest {
+  
+  private static final byte[] BODY = body(10000);
+  
+  private final ExecutorService serverThreads = Executors.newCachedThreadPool();
+  
+  private final List<Integer> clientPorts = new CopyOnWriteArrayList<Integer>();
+  
+  private HttpServer server;
+  
+  private String address;
+  
+  @Before
+  public void before() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+    server.setExecutor(serverThreads);
+    server.start();
+    address = "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+  
+  @After
+  public void after() {
+    server.stop(0);
+    serverThreads.shutdownNow();
+  }
+  
+  @Test
+  public void testCountsEachExchange() throws Exception {
+    serve("/body", BODY, null);
+    HttpTransport transport = new HttpTransport();
+    final List<uk.co.caprica.vlcj.radio.service.http.HttpExchange> exchanges = new ArrayList<uk.co.caprica.vlcj.radio.service.http.HttpExchange>();
+    transport.addListener(new HttpTransportListener() {
+      @Override
+      public void exchangeCompleted(uk.co.caprica.vlcj.radio.service.http.HttpExchange exchange) {
+        exchanges.add(exchange);
+      }
+    });
+    assertTrue(Arrays.equals(BODY, transport.get(address + "/body", null, BYTES)));
+    assertTrue(Arrays.equals(BODY, transport.get(address + "/body", null, BYTES)));
+    assertEquals(2, transport.getRequestCount());
+    assertEquals(2 * BODY.length, transport.getBytesRead());
+    assertTrue(transport.getTotalLatency() >= 0);
+    assertEquals(2, exchanges.size());
+    assertEquals(200, exchanges.get(0).getStatus());
+    assertEquals(BODY.length, exchanges.get(0).getBytesRead());
+    assertTrue(exchanges.get(0).getLatency() >= 0);
+    assertTrue(exchanges.get(0).getElapsed() >= exchanges.get(0).getLatency());
+  }
+  
+  @Test
+  public void testGzipIsDecoded() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(bytes);
+    out.write(BODY);
+    out.close();
+    serve("/gzip", bytes.toByteArray(), "gzip");
+    HttpTransport transport = new HttpTransport();
+    assertTrue(Arrays.equals(BODY, transport.get(address + "/gzip", null, BYTES)));
+    // The counters are for the bytes on the wire
+    assertEquals(bytes.size(), transport.getBytesRead());
+  }
+  
+  @Test
+  public void testDeflateIsDecoded() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DeflaterOutputStream out = new DeflaterOutputStream(bytes);
+    out.write(BODY);
+    out.close();
+    serve("/deflate", bytes.toByteArray(), "deflate");
+    assertTrue(Arrays.equals(BODY, new HttpTransport().get(address + "/deflate", null, BYTES)));
+  }
+  
+  @Test
+  public void testConditionalRequest() throws Exception {
+    server.createContext("/conditional", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("ETag", "\"v1\"");
+        exchange.getResponseHeaders().set("Last-Modified", "Sat, 01 Jan 2011 00:00:00 GMT");
+        if("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          exchange.sendResponseHeaders(304, -1);
+        }
+        else {
+          exchange.sendResponseHeaders(200, BODY.length);
+          exchange.getResponseBody().write(BODY);
+        }
+        exchange.close();
+      }
+    });
+    HttpTransport transport = new HttpTransport();
+    HttpResponse response = transport.get(address + "/conditional", null, RESPONSE);
+    assertEquals(200, response.getStatus());
+    CacheValidators validators = response.getValidators();
+    assertEquals("\"v1\"", validators.getEntityTag());
+    assertEquals("Sat, 01 Jan 2011 00:00:00 GMT", validators.getLastModified());
+    assertTrue(transport.get(address + "/conditional", validators, RESPONSE).isNotModified());
+  }
+  
+  @Test
+  public void testErrorStatus() throws Exception {
+    HttpTransport transport = new HttpTransport();
+    try {
+      transport.get(address + "/missing", null, BYTES);
+      fail("Expected HttpStatusException");
+    }
+    catch(HttpStatusException e) {
+      assertEquals(404, e.getStatus());
+    }
+    assertEquals(1, transport.getRequestCount());
+  }
+  
+  @Test
+  public void testShortUnreadBodyIsDrainedAndTheConnectionReused() throws Exception {
+    serve("/body", BODY, null);
+    HttpTransport transport = new HttpTransport();
+    transport.get(address + "/body", null, IGNORE);
+    assertEquals(BODY.length, transport.getBytesRead());
+    transport.get(address + "/body", null, IGNORE);
+    assertEquals(2, clientPorts.size());
+    assertEquals(clientPorts.get(0), clientPorts.get(1));
+  }
+  
+  @Test(timeout = 10000)
+  public void testEndlessUnreadBodyIsDisconnected() throws Exception {
+    server.createContext("/endless", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try {
+          for(;;) {
+            out.write(BODY);
+          }
+        }
+        finally {
+          exchange.close();
+        }
+      }
+    });
+    serve("/body", BODY, null);
+    HttpTransport transport = new HttpTransport();
+    transport.get(address + "/endless", null, IGNORE);
+    assertTrue(transport.getBytesRead() <= HttpTransport.MAX_DRAIN_LENGTH + 1);
+    // The next request can not re-use the abandoned connection
+    transport.get(address + "/body", null, IGNORE);
+    assertFalse(clientPorts.get(0).equals(clientPorts.get(1)));
+  }
+  
+  @Test
+  public void testRequestsToOneHostAreLimited() throws Exception {
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    server.createContext("/slow", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        int now = active.incrementAndGet();
+        synchronized(maxActive) {
+          maxActive.set(Math.max(maxActive.get(), now));
+        }
+        try {
+          Thread.sleep(50);
+        }
+        catch(InterruptedException e) {
+        }
+        active.decrementAndGet();
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+      }
+    });
+    final HttpTransport transport = new HttpTransport(5000, 5000, 2);
+    ExecutorService clients = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+      for(int i = 0; i < 6; i++) {
+        results.add(clients.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            return transport.get(address + "/slow", null, BYTES);
+          }
+        }));
+      }
+      for(Future<byte[]> result : results) {
+        result.get();
+      }
+    }
+    finally {
+      clients.shutdown();
+    }
+    assertEquals(6, transport.getRequestCount());
+    assertTrue(maxActive.get() <= 2);
+  }
+  
+  private void serve(String path, final byte[] content, final String encoding) {
+    server.createContext(path, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        if(encoding != null) {
+          exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(200, content.length);
+        try {
+          exchange.getResponseBody().write(content);
+        }
+        finally {
+          exchange.close();
+        }
+      }
+    });
+  }
+  
+  private static byte[] body(int length) {
+    byte[] body = new byte[length];
+    for(int i = 0; i < length; i++) {
+      body[i] = (byte)('a' + i % 26);
+    }
+    return body;
+  }
+  
+  private static final HttpResponseHandler<byte[]> BYTES = new HttpResponseHandler<byte[]>() {
+    @Override
+    public byte[] handle(HttpResponse response) throws IOException {
+      return response.getBytes();
+    }
+  };
+  
+  private static final HttpResponseHandler<HttpResponse> RESPONSE = new HttpResponseHandler<HttpResponse>() {
+    @Override
+    public HttpResponse handle(HttpResponse response) throws IOException {
+      return response;
+    }
+  };
+  
+  private static final HttpResponseHandler<Void> IGNORE = new HttpResponseHandler<Void>() {
+    @Override
+    public Void handle(HttpResponse response) {
+      return null;
+    }
+  };
+}
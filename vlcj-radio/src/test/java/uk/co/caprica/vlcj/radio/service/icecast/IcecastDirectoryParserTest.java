@@ -0,0 +1,190 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.service.icecast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequest;
+import uk.co.caprica.vlcj.radio.service.DirectoryRequestListener;
+
+public class IcecastDirectoryParserTest {
+
+  private static final String ENTRY = 
+    "<entry>" +
+      "<server_name>Radio &amp; Friends</server_name>" +
+      "<listen_url>http://example.com:8000/stream</listen_url>" +
+      "<server_type>audio/mpeg</server_type>" +
+      "<bitrate>128</bitrate>" +
+      "<channels>2</channels>" +
+      "<samplerate>44100</samplerate>" +
+      "<genre>Rock Pop</genre>" +
+      "<current_song><![CDATA[Artist - <Title>]]></current_song>" +
+    "</entry>";
+  
+  @Test
+  public void testParseEntry() throws Exception {
+    List<DirectoryEntry> entries = parse(directory(ENTRY)).entries;
+    assertEquals(1, entries.size());
+    DirectoryEntry entry = entries.get(0);
+    assertEquals("Radio & Friends", entry.getName());
+    assertEquals("http://example.com:8000/stream", entry.getUrl());
+    assertEquals("audio/mpeg", entry.getType());
+    assertEquals("128", entry.getBitRate());
+    assertEquals(2, entry.getChannels());
+    assertEquals(44100, entry.getSampleRate());
+    assertEquals("Rock Pop", entry.getGenre());
+    assertEquals("Artist - <Title>", entry.getNowPlaying());
+  }
+  
+  @Test
+  public void testUnmappedElementsAreSkipped() throws Exception {
+    String xml = directory(
+      "<entry>" +
+        "<listen_url>http://example.com/a</listen_url>" +
+        "<extra><nested>ignored</nested><server_name>not the name</server_name></extra>" +
+        "<server_name>Name</server_name>" +
+      "</entry>"
+    );
+    DirectoryEntry entry = parse(xml).entries.get(0);
+    assertEquals("Name", entry.getName());
+    assertEquals("http://example.com/a", entry.getUrl());
+  }
+  
+  @Test
+  public void testNestedMarkupInTextIsDropped() throws Exception {
+    DirectoryEntry entry = parse(directory("<entry><server_name>Before<b>bold</b>After</server_name><listen_url>u</listen_url></entry>")).entries.get(0);
+    assertEquals("BeforeAfter", entry.getName());
+  }
+  
+  @Test
+  public void testMissingAndInvalidValues() throws Exception {
+    DirectoryEntry entry = parse(directory("<entry><server_name/><listen_url>u</listen_url><channels>two</channels><samplerate> 22050 </samplerate></entry>")).entries.get(0);
+    assertEquals("", entry.getName());
+    assertNull(entry.getType());
+    assertNull(entry.getGenre());
+    assertEquals(-1, entry.getChannels());
+    assertEquals(22050, entry.getSampleRate());
+  }
+  
+  @Test
+  public void testRepeatedValuesAreShared() throws Exception {
+    List<DirectoryEntry> entries = parse(directory(ENTRY + ENTRY)).entries;
+    assertSame(entries.get(0).getType(), entries.get(1).getType());
+    assertSame(entries.get(0).getGenre(), entries.get(1).getGenre());
+  }
+  
+  @Test
+  public void testEntriesAreReportedInBatches() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 7; i++) {
+      sb.append(ENTRY);
+    }
+    Result result = parse(directory(sb.toString()), 3);
+    assertEquals(7, result.entries.size());
+    assertEquals("[3, 3, 1]", result.batchSizes.toString());
+  }
+  
+  @Test
+  public void testEmptyDirectory() throws Exception {
+    Result result = parse(directory(""));
+    assertTrue(result.entries.isEmpty());
+    assertTrue(result.batchSizes.isEmpty());
+  }
+  
+  @Test
+  public void testInterruptedParse() throws Exception {
+    Thread.currentThread().interrupt();
+    try {
+      parse(directory(ENTRY));
+      fail("Expected the parse to be interrupted");
+    }
+    catch(InterruptedIOException e) {
+      // Expected
+    }
+    finally {
+      Thread.interrupted();
+    }
+  }
+  
+  @Test
+  public void testRecordedDirectory() throws Exception {
+    InputStream in = new GZIPInputStream(getClass().getResourceAsStream("/fixtures/yp.xml.gz"));
+    try {
+      Result result = parse(in, 500);
+      assertEquals(20000, result.entries.size());
+      int reported = 0;
+      for(int size : result.batchSizes) {
+        reported += size;
+      }
+      assertEquals(20000, reported);
+      for(DirectoryEntry entry : result.entries) {
+        assertTrue(entry.getUrl().startsWith("http://"));
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+  
+  private static String directory(String entries) {
+    return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><directory>" + entries + "</directory>";
+  }
+  
+  private static Result parse(String xml) throws Exception {
+    return parse(xml, 500);
+  }
+  
+  private static Result parse(String xml, int batchSize) throws Exception {
+    return parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), batchSize);
+  }
+  
+  private static Result parse(InputStream in, int batchSize) throws Exception {
+    final Result result = new Result();
+    DirectoryRequest request = new DirectoryRequest(new DirectoryRequestListener() {
+      @Override
+      public void entriesAvailable(List<? extends DirectoryEntry> entries) {
+        result.batchSizes.add(entries.size());
+      }
+    });
+    result.entries.addAll(new IcecastDirectoryParser(batchSize).parse(in, request).entries());
+    return result;
+  }
+  
+  private static class Result {
+    
+    private final List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>();
+    
+    private final List<Integer> batchSizes = new ArrayList<Integer>();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+
+package uk.co.caprica.vlcj.radio.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.cache.ColumnarDirectory;
+import uk.co.caprica.vlcj.radio.service.cache.ValueDictionary;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectory;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+
+public class DirectoryColumnComparatorTest {
+  
+  private static final int NAME = 1;
+  
+  private static final int GENRE = 2;
+  
+  private static final int ADDRESS = 3;
+  
+  @Test
+  public void testRankedEntriesSortIgnoringCaseWithNoValueLast() {
+    List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>(columnar(entry(null, "c"), entry("b", "B"), entry("B", "a"), entry("a", null)).entries());
+    Collections.sort(entries, new DirectoryColumnComparator(NAME));
+    assertEquals(Arrays.asList("a", "b", "B", null), names(entries));
+    Collections.sort(entries, new DirectoryColumnComparator(GENRE));
+    assertEquals(Arrays.asList("a", "B", "c", null), genres(entries));
+  }
+  
+  @Test
+  public void testEntriesFromDifferentDirectoriesAreCompared() {
+    DirectoryEntry a = columnar(entry("a", "x")).entries().get(0);
+    DirectoryEntry b = columnar(entry("B", "y")).entries().get(0);
+    DirectoryColumnComparator comparator = new DirectoryColumnComparator(NAME);
+    assertTrue(comparator.compare(a, b) < 0);
+    assertTrue(comparator.compare(b, a) > 0);
+  }
+  
+  @Test
+  public void testUnindexedEntriesAreComparedOnTheirValues() {
+    DirectoryEntry indexed = columnar(entry("b", "Rock")).entries().get(0);
+    DirectoryEntry plain = entry("A", "Unindexed genre " + System.nanoTime());
+    int size = ValueDictionary.shared().size();
+    assertTrue(new DirectoryColumnComparator(NAME).compare(plain, indexed) < 0);
+    assertTrue(new DirectoryColumnComparator(GENRE).compare(indexed, plain) < 0);
+    assertTrue(new DirectoryColumnComparator(ADDRESS).compare(plain, indexed) < 0);
+    assertEquals(0, new DirectoryColumnComparator(GENRE).compare(plain, plain));
+    // The values of an unindexed entry are not added to the dictionary
+    assertEquals(size, ValueDictionary.shared().size());
+  }
+  
+  private static ColumnarDirectory columnar(IcecastDirectoryEntry... entries) {
+    return ColumnarDirectory.of(new IcecastDirectory(Arrays.asList(entries)));
+  }
+  
+  private static IcecastDirectoryEntry entry(String name, String genre) {
+    return new IcecastDirectoryEntry(name, "http://example.com/" + name, "audio/mpeg", "128", 2, 44100, genre, null);
+  }
+  
+  private static List<String> names(List<DirectoryEntry> entries) {
+    List<String> names = new ArrayList<String>(entries.size());
+    for(DirectoryEntry entry : entries) {
+      names.add(entry.getName());
+    }
+    return names;
+  }
+  
+  private static List<String> genres(List<DirectoryEntry> entries) {
+    List<String> genres = new ArrayList<String>(entries.size());
+    for(DirectoryEntry entry : entries) {
+      genres.add(entry.getGenre());
+    }
+    return genres;
+  }
+}
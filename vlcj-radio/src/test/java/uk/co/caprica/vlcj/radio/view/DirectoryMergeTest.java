@@ -0,0 +1,203 @@
+/*
+ * This file is part of VLCJ.
+ *
+ * VLCJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VLCJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VLCJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2009, 2010, 2011 Caprica Software Limited.
+ */
+
+package uk.co.caprica.vlcj.radio.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.co.caprica.vlcj.radio.model.DirectoryEntry;
+import uk.co.caprica.vlcj.radio.service.icecast.IcecastDirectoryEntry;
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+
+public class DirectoryMergeTest {
+  
+  private static final DirectoryEntry BEFORE = entry("before", "x");
+  
+  private static final DirectoryEntry AFTER = entry("after", "x");
+  
+  private final EventList<DirectoryEntry> list = new BasicEventList<DirectoryEntry>();
+  
+  private final List<DirectoryEntry> shown = new ArrayList<DirectoryEntry>();
+  
+  private int events;
+  
+  @Test
+  public void testEmptyPreviousEntries() {
+    DirectoryMerge merge = merge(entries("a", "b", "c"));
+    assertEquals(3, merge.getInserted());
+    assertEquals(3, merge.getChanges());
+    assertShown("a", "b", "c");
+  }
+  
+  @Test
+  public void testUnchangedEntriesCauseNoEvents() {
+    show("a", "b", "c");
+    DirectoryMerge merge = merge(entries("a", "b", "c"));
+    assertEquals(0, merge.getChanges());
+    assertEquals(0, events);
+  }
+  
+  @Test
+  public void testInsert() {
+    show("a", "c", "e");
+    DirectoryMerge merge = merge(entries("z", "a", "b", "c", "d", "e", "f"));
+    assertEquals(4, merge.getInserted());
+    assertEquals(0, merge.getDeleted());
+    assertEquals(0, merge.getUpdated());
+    assertShown("z", "a", "b", "c", "d", "e", "f");
+  }
+  
+  @Test
+  public void testDelete() {
+    show("a", "b", "c", "d");
+    DirectoryMerge merge = merge(entries("b", "d"));
+    assertEquals(2, merge.getDeleted());
+    assertEquals(2, merge.getChanges());
+    assertShown("b", "d");
+  }
+  
+  @Test
+  public void testDeleteAll() {
+    show("a", "b");
+    DirectoryMerge merge = merge(Collections.<DirectoryEntry>emptyList());
+    assertEquals(2, merge.getDeleted());
+    assertShown();
+  }
+  
+  @Test
+  public void testUpdateInPlace() {
+    show("a", "b", "c");
+    DirectoryEntry a = shown.get(0);
+    DirectoryEntry c = shown.get(2);
+    DirectoryEntry b = entry("b", "changed");
+    DirectoryMerge merge = merge(Arrays.asList(entry("a", "a"), b, entry("c", "c")));
+    assertEquals(1, merge.getUpdated());
+    assertEquals(1, merge.getChanges());
+    // Unchanged entries keep the objects already shown
+    assertSame(a, list.get(1));
+    assertSame(b, list.get(2));
+    assertSame(c, list.get(3));
+    assertEquals(Arrays.asList(a, b, c), shown);
+    assertShown("a", "b", "c");
+  }
+  
+  @Test
+  public void testReorderKeepsShownOrder() {
+    show("a", "b", "c");
+    DirectoryMerge merge = merge(entries("c", "b", "a"));
+    assertEquals(0, merge.getChanges());
+    assertShown("a", "b", "c");
+  }
+  
+  @Test
+  public void testInsertIntoReorderedEntriesGoesAtTheEnd() {
+    show("a", "b", "c");
+    DirectoryMerge merge = merge(entries("c", "x", "a", "y"));
+    assertEquals(2, merge.getInserted());
+    assertEquals(1, merge.getDeleted());
+    assertShown("a", "c", "x", "y");
+  }
+  
+  @Test
+  public void testDuplicateUrlIsInserted() {
+    show("a");
+    DirectoryMerge merge = merge(entries("a", "a"));
+    assertEquals(1, merge.getInserted());
+    assertShown("a", "a");
+  }
+  
+  @Test
+  public void testDuplicateUrlsAreMatchedInOrder() {
+    show("a", "b", "a", "a");
+    DirectoryMerge merge = merge(entries("b", "a", "a"));
+    assertEquals(0, merge.getInserted());
+    assertEquals(1, merge.getDeleted());
+    assertEquals(0, merge.getUpdated());
+    assertShown("a", "b", "a");
+  }
+  
+  private void show(String... urls) {
+    shown.addAll(entries(urls));
+    list.add(BEFORE);
+    list.addAll(shown);
+    list.add(AFTER);
+  }
+  
+  private DirectoryMerge merge(List<DirectoryEntry> entries) {
+    if(list.isEmpty()) {
+      list.add(BEFORE);
+      list.add(AFTER);
+    }
+    list.addListEventListener(new ListEventListener<DirectoryEntry>() {
+      @Override
+      public void listChanged(ListEvent<DirectoryEntry> listChanges) {
+        events++;
+      }
+    });
+    DirectoryMerge merge = new DirectoryMerge();
+    merge.apply(list, 1, shown, entries);
+    return merge;
+  }
+  
+  /**
+   * Check the shown entries and the range of the list they occupy, between the
+   * entries of the other directories.
+   *
+   * @param urls expected entry addresses, in order
+   */
+  private void assertShown(String... urls) {
+    List<String> expected = urls(entries(urls));
+    assertEquals(expected, urls(shown));
+    assertEquals(urls.length + 2, list.size());
+    assertSame(BEFORE, list.get(0));
+    assertEquals(expected, urls(list.subList(1, list.size() - 1)));
+    assertSame(AFTER, list.get(list.size() - 1));
+  }
+  
+  private static List<String> urls(List<DirectoryEntry> entries) {
+    List<String> urls = new ArrayList<String>(entries.size());
+    for(DirectoryEntry entry : entries) {
+      urls.add(entry.getUrl());
+    }
+    return urls;
+  }
+  
+  private static List<DirectoryEntry> entries(String... urls) {
+    List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>(urls.length);
+    for(String url : urls) {
+      entries.add(entry(url, url));
+    }
+    return entries;
+  }
+  
+  private static DirectoryEntry entry(String url, String nowPlaying) {
+    return new IcecastDirectoryEntry("Station " + url, "http://example.com/" + url, "audio/mpeg", "128", 2, 44100, "Rock", nowPlaying);
+  }
+}